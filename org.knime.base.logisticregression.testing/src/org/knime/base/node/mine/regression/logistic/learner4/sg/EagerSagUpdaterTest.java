@@ -106,4 +106,25 @@ public void testUpdate() throws Exception {
         assertArrayEquals(expectedBeta, beta.getWeightVector());
 
     }
+
+    @Test
+    public void testBatchUpdate() throws Exception {
+        EagerSagUpdaterFactory<TrainingRow> factory = new EagerSagUpdaterFactory<TrainingRow>(3, 3, 2);
+        EagerSagUpdater<TrainingRow> updater = factory.create();
+        TrainingRow[] mockRows = new TrainingRow[]{
+            new MockClassificationTrainingRow(new double[]{1, 1}, 0, 0),
+            new MockClassificationTrainingRow(new double[]{2, 3}, 1, 1),
+        };
+        SimpleWeightMatrix<TrainingRow> beta =
+                new SimpleWeightMatrix<TrainingRow>(3, 2, true);
+        double[][] gradients = new double[][]{{3, -2}, {1, 2}};
+
+        // both gradients are memorized before a single step is performed
+        updater.update(mockRows, gradients, 2, beta, 1.0);
+        double[][] expectedBeta = new double[][]{
+            {-2.0, -2.5, -3.0},
+            {0.0, -1.0, -2.0}
+        };
+        assertArrayEquals(expectedBeta, beta.getWeightVector());
+    }
 }
@@ -115,6 +115,7 @@ public final class LogRegLearnerNodeDialogPane extends NodeDialogPane {
     // new in version 3.4
     private JComboBox<Solver> m_solverComboBox;
     private JCheckBox m_lazyCalculationCheckBox;
+    private JCheckBox m_parallelCheckBox;
     private JSpinner m_maxEpochSpinner;
     private JCheckBox m_calcCovMatrixCheckBox;
     private JTextField m_epsilonField;
@@ -150,6 +151,7 @@ public LogRegLearnerNodeDialogPane() {
                 + "First value is chosen as reference for dummy variables.");
 
         m_lazyCalculationCheckBox = new JCheckBox("Perform calculations lazily (more memory expensive but often faster)");
+        m_parallelCheckBox = new JCheckBox("Process mini-batches in parallel (uses all cores)");
         m_calcCovMatrixCheckBox = new JCheckBox("Calculate statistics for coefficients");
         m_maxEpochSpinner = new JSpinner(new SpinnerNumberModel(LogRegLearnerSettings.DEFAULT_MAX_EPOCH, 1, Integer.MAX_VALUE, 1));
         m_epsilonField= new JTextField(Double.toString(LogRegLearnerSettings.DEFAULT_EPSILON), NUMBER_INPUT_FIELD_COLS);
@@ -294,6 +296,7 @@ private void solverChanged(final Solver solver) {
 
     private void setEnabledSGRelated(final boolean enable) {
         m_lazyCalculationCheckBox.setEnabled(enable);
+        m_parallelCheckBox.setEnabled(enable);
         m_learningRateStrategyComboBox.setEnabled(enable);
         m_initialLearningRateField.setEnabled(enable);
         m_priorComboBox.setEnabled(enable);
@@ -363,6 +366,8 @@ private JPanel createSolverOptionsPanel() {
         c.gridwidth = 2;
         panel.add(m_lazyCalculationCheckBox, c);
         c.gridy++;
+        panel.add(m_parallelCheckBox, c);
+        c.gridy++;
         panel.add(m_calcCovMatrixCheckBox, c);
 
         return panel;
@@ -605,6 +610,7 @@ protected void loadSettingsFrom(final NodeSettingsRO s, final PortObjectSpec[] s
         }
         m_maxEpochSpinner.setValue(settings.getMaxEpoch());
         m_lazyCalculationCheckBox.setSelected(settings.isPerformLazy());
+        m_parallelCheckBox.setSelected(settings.isParallel());
         m_calcCovMatrixCheckBox.setSelected(settings.isCalcCovMatrix());
         double epsilon = settings.getEpsilon();
         m_epsilonField.setText(Double.toString(epsilon));
@@ -637,6 +643,7 @@ protected void saveSettingsTo(final NodeSettingsWO s) throws InvalidSettingsExce
         settings.setSolver((Solver)m_solverComboBox.getSelectedItem());
         settings.setMaxEpoch((int)m_maxEpochSpinner.getValue());
         settings.setPerformLazy(m_lazyCalculationCheckBox.isSelected());
+        settings.setParallel(m_parallelCheckBox.isSelected());
         settings.setCalcCovMatrix(m_calcCovMatrixCheckBox.isSelected());
         try {
             String str = m_epsilonField.getText();
@@ -231,6 +231,7 @@ public boolean hasInitialValue() {
     private static final String CFG_IN_MEMORY = "inMemory";
     private static final String CFG_CHUNK_SIZE = "chunkSize";
     private static final String CFG_CALC_COVMATRIX = "calcCoefficientStatistics";
+    private static final String CFG_PARALLEL = "parallel";
 
     static final Solver DEFAULT_SOLVER = Solver.SAG;
     static final boolean DEFAULT_PERFORM_LAZY = true;
@@ -244,6 +245,7 @@ public boolean hasInitialValue() {
     static final boolean DEFAULT_IN_MEMORY = true;
     static final int DEFAULT_CHUNK_SIZE = 10000;
     static final boolean DEFAULT_CALC_COVMATRIX = true;
+    static final boolean DEFAULT_PARALLEL = false;
 
 
     private String m_targetColumn;
@@ -264,6 +266,7 @@ public boolean hasInitialValue() {
     private boolean m_performLazy;
     private double m_epsilon;
     private boolean m_calcCovMatrix;
+    private boolean m_parallel;
     // learning rate strategy and relevant parameters
     private LearningRateStrategies m_learningRateStrategy;
     private double m_initialLearningRate;
@@ -297,6 +300,7 @@ public LogRegLearnerSettings() {
         m_seed = System.currentTimeMillis();
         m_chunkSize = DEFAULT_CHUNK_SIZE;
         m_calcCovMatrix = DEFAULT_CALC_COVMATRIX;
+        m_parallel = DEFAULT_PARALLEL;
     }
 
 
@@ -342,6 +346,9 @@ public void loadSettings(final NodeSettingsRO settings)
 
         m_calcCovMatrix = settings.getBoolean(CFG_CALC_COVMATRIX);
 
+        // added in 3.6
+        m_parallel = settings.getBoolean(CFG_PARALLEL, DEFAULT_PARALLEL);
+
         validate();
 
 
@@ -389,6 +396,7 @@ public void loadSettingsForDialog(final NodeSettingsRO settings, final DataTable
         m_chunkSize = settings.getInt(CFG_CHUNK_SIZE, DEFAULT_CHUNK_SIZE);
 
         m_calcCovMatrix = settings.getBoolean(CFG_CALC_COVMATRIX, DEFAULT_CALC_COVMATRIX);
+        m_parallel = settings.getBoolean(CFG_PARALLEL, DEFAULT_PARALLEL);
 
     }
 
@@ -424,6 +432,7 @@ public void saveSettings(final NodeSettingsWO settings) {
         settings.addInt(CFG_CHUNK_SIZE, m_chunkSize);
 
         settings.addBoolean(CFG_CALC_COVMATRIX, m_calcCovMatrix);
+        settings.addBoolean(CFG_PARALLEL, m_parallel);
     }
 
     /**
@@ -684,6 +693,26 @@ public void setPerformLazy(final boolean performLazy) {
     }
 
 
+    /**
+     * Returns whether the SAG solver should evaluate mini-batches of rows in parallel.
+     *
+     * @return true if the rows should be processed in parallel mini-batches
+     * @since 3.6
+     */
+    public boolean isParallel() {
+        return m_parallel;
+    }
+
+
+    /**
+     * @param parallel whether the SAG solver should evaluate mini-batches of rows in parallel
+     * @since 3.6
+     */
+    public void setParallel(final boolean parallel) {
+        m_parallel = parallel;
+    }
+
+
     /**
      * @return the inMemory
      */
@@ -0,0 +1,244 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.regression.logistic.learner4.data;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.node.BufferedDataTable;
+
+/**
+ * {@link TrainingData} implementation that holds all classification rows in memory in compressed sparse row (CSR)
+ * format, i.e. the non-zero values and feature indices of all rows are stored consecutively in two primitive arrays
+ * and each row is only represented by its offset into these arrays and its category. Compared to
+ * {@link InMemoryData} this avoids two array objects and one row object per row, the {@link TrainingRow}s handed out
+ * are light-weight views that are created on demand.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class CompressedSparseRowData extends AbstractTrainingData<ClassificationTrainingRow> {
+
+    /** Maximal array length supported by most VMs. */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final float[] m_values;
+
+    private final int[] m_indices;
+
+    /** Offset of the first non-zero value of each row, has one more entry marking the end of the last row. */
+    private final int[] m_rowStarts;
+
+    private final int[] m_categories;
+
+    /**
+     * Instantiates a {@link TrainingData} object that holds all data in memory.
+     *
+     * @param data the {@link BufferedDataTable} that contains the data to learn on
+     * @param seed used to generate pseudo random numbers
+     * @param rowBuilder used to create {@link TrainingRow} objects form {@link DataRow} objects
+     */
+    public CompressedSparseRowData(final BufferedDataTable data, final Long seed,
+        final TrainingRowBuilder<ClassificationTrainingRow> rowBuilder) {
+        super(data, seed, rowBuilder);
+        final int nRows = getRowCount();
+        m_rowStarts = new int[nRows + 1];
+        m_categories = new int[nRows];
+        float[] values = new float[Math.max(16, nRows)];
+        int[] indices = new int[values.length];
+        int nonZeros = 0;
+        int idCounter = 0;
+        for (DataRow row : data) {
+            final ClassificationTrainingRow trainingRow = rowBuilder.build(row, idCounter);
+            m_categories[idCounter] = trainingRow.getCategory();
+            for (TrainingRow.FeatureIterator iter = trainingRow.getFeatureIterator(); iter.next();) {
+                if (nonZeros == values.length) {
+                    if (nonZeros == MAX_ARRAY_LENGTH) {
+                        throw new IllegalStateException("The training data contains more than " + MAX_ARRAY_LENGTH
+                            + " non-zero values, please disable the option to hold the data in memory.");
+                    }
+                    final int newLength = (int)Math.min(MAX_ARRAY_LENGTH, values.length + (values.length >> 1) + 1L);
+                    values = Arrays.copyOf(values, newLength);
+                    indices = Arrays.copyOf(indices, newLength);
+                }
+                values[nonZeros] = (float)iter.getFeatureValue();
+                indices[nonZeros] = iter.getFeatureIndex();
+                nonZeros++;
+            }
+            idCounter++;
+            m_rowStarts[idCounter] = nonZeros;
+        }
+        m_values = Arrays.copyOf(values, nonZeros);
+        m_indices = Arrays.copyOf(indices, nonZeros);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<ClassificationTrainingRow> iterator() {
+        return new Iterator<ClassificationTrainingRow>() {
+            private int m_next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return m_next < m_categories.length;
+            }
+
+            @Override
+            public ClassificationTrainingRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new RowView(m_next++);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClassificationTrainingRow getRandomRow() {
+        return new RowView(getRandomDataGenerator().nextInt(m_categories.length));
+    }
+
+    /** A row of the CSR structure. */
+    private final class RowView implements ClassificationTrainingRow {
+
+        private final int m_id;
+
+        RowView(final int id) {
+            m_id = id;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getId() {
+            return m_id;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getCategory() {
+            return m_categories[m_id];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public FeatureIterator getFeatureIterator() {
+            return new CsrFeatureIterator(m_rowStarts[m_id] - 1, m_rowStarts[m_id + 1]);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "[id=" + m_id + "; numNonZero=" + (m_rowStarts[m_id + 1] - m_rowStarts[m_id]) + "]";
+        }
+    }
+
+    private final class CsrFeatureIterator implements TrainingRow.FeatureIterator {
+
+        private int m_idx;
+
+        private final int m_end;
+
+        CsrFeatureIterator(final int startIdx, final int end) {
+            m_idx = startIdx;
+            m_end = end;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            return m_idx < m_end - 1;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean next() {
+            return ++m_idx < m_end;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getFeatureIndex() {
+            return m_indices[m_idx];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getFeatureValue() {
+            return m_values[m_idx];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public TrainingRow.FeatureIterator spawn() {
+            return new CsrFeatureIterator(m_idx - 1, m_end);
+        }
+    }
+}
@@ -80,6 +80,35 @@ private EagerSagUpdater(final int nRows, final int nFets, final int nCats) {
      */
     @Override
     public void update(final T x, final double[] sig, final WeightMatrix<T> beta, final double stepSize, final int iteration) {
+        memorize(x, sig);
+        step(beta, stepSize);
+    }
+
+    /**
+     * Replaces the gradients of a mini-batch of rows in the gradient memory and then performs a single step with the
+     * updated average gradient.
+     *
+     * @param rows the rows of the mini-batch
+     * @param sigs the gradients of the rows for each model (see {@link #update(TrainingRow, double[], WeightMatrix,
+     *            double, int)})
+     * @param nRows the number of rows in the mini-batch, i.e. the number of used entries in <b>rows</b> and <b>sigs</b>
+     * @param beta the current estimate of the coefficient matrix
+     * @param stepSize to use for gradient descent
+     */
+    void update(final T[] rows, final double[][] sigs, final int nRows, final WeightMatrix<T> beta,
+        final double stepSize) {
+        for (int r = 0; r < nRows; r++) {
+            memorize(rows[r], sigs[r]);
+        }
+        step(beta, stepSize);
+    }
+
+    private void step(final WeightMatrix<T> beta, final double stepSize) {
+        double scale = beta.getScale();
+        beta.update((val, c, i) -> performUpdate(val, stepSize, scale, c, i), true);
+    }
+
+    private void memorize(final T x, final double[] sig) {
         int id = x.getId();
         if (!m_seen.get(id)) {
             m_seen.set(id);
@@ -98,8 +127,6 @@ public void update(final T x, final double[] sig, final WeightMatrix<T> beta, fi
         for (int c = 0; c < m_nCats; c++) {
             m_gradientMemory[c][id] = sig[c];
         }
-        double scale = beta.getScale();
-        beta.update((val, c, i) -> performUpdate(val, stepSize, scale, c, i), true);
     }
 
     private double performUpdate(final double betaValue, final double stepSize, final double scale, final int catIdx, final int fetIdx) {
@@ -0,0 +1,183 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.regression.logistic.learner4.sg;
+
+import org.knime.base.node.mine.regression.logistic.learner4.data.TrainingData;
+import org.knime.base.node.mine.regression.logistic.learner4.data.TrainingRow;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.util.ParallelTasks;
+
+/**
+ * Mini-batch variant of the eager SAG optimization that evaluates the rows of a mini-batch in parallel.
+ * The predictions and gradients of all rows in a mini-batch are calculated concurrently on the same coefficients,
+ * afterwards the gradient memory is updated in the order the rows were drawn and a single step is performed.
+ * Hence the result only depends on the seed of the training data and not on the number of threads.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @param <T> The type of row we are dealing with
+ * @param <R> The type of regularization updater
+ */
+final class ParallelSagOptimizer <T extends TrainingRow, R extends RegularizationUpdater>
+    extends AbstractSGOptimizer<T, EagerSagUpdater<T>, R> {
+
+    /**
+     * The minimal number of rows per mini-batch.
+     * The actual size is at least the number of features so that the eager step,
+     * which touches all coefficients, is amortized over the rows of the mini-batch.
+     */
+    static final int MIN_BATCH_SIZE = 256;
+
+    /** Minimal number of rows handled by a single thread. */
+    private static final int MIN_ROWS_PER_TASK = 32;
+
+    private final int m_batchSize;
+
+    private final int m_nTasks;
+
+    /**
+     * @param data the training data to learn on
+     * @param loss the loss function to minimize
+     * @param updaterFactory a factory object for the SAG updater
+     * @param regularizationUpdater used to perform regularization updates
+     * @param learningRateStrategy scheme for the learning rate or step size
+     * @param stoppingCriterion criterion that indicates when to stop training
+     * @param calcCovMatrix flag that indicates whether the cofficient covariance matrix should be calculated
+     */
+    public ParallelSagOptimizer(final TrainingData<T> data, final Loss<T> loss,
+        final UpdaterFactory<T, EagerSagUpdater<T>> updaterFactory, final R regularizationUpdater,
+        final LearningRateStrategy<T> learningRateStrategy, final StoppingCriterion<T> stoppingCriterion,
+        final boolean calcCovMatrix) {
+        super(data, loss, updaterFactory, regularizationUpdater, learningRateStrategy, stoppingCriterion, calcCovMatrix);
+        m_batchSize = Math.max(1, Math.min(data.getRowCount(), Math.max(MIN_BATCH_SIZE, data.getFeatureCount())));
+        m_nTasks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), m_batchSize / MIN_ROWS_PER_TASK));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void performEpoch(final WeightMatrix<T> beta, final EagerSagUpdater<T> updater,
+        final TrainingData<T> data, final Progress progress) throws CanceledExecutionException {
+        final int nRows = data.getRowCount();
+        final T[] batch = (T[])new TrainingRow[m_batchSize];
+        final double[][] predictions = new double[m_batchSize][];
+        final double[][] sigs = new double[m_batchSize][];
+        final Loss<T> loss = getLoss();
+        final LearningRateStrategy<T> lrStrategy = getLearningRateStrategy();
+        for (int k = 0; k < nRows; k += m_batchSize) {
+            progress.checkCanceled();
+            final int batchRows = Math.min(m_batchSize, nRows - k);
+            // rows are drawn on this thread only, which keeps the sequence of random rows fixed
+            for (int r = 0; r < batchRows; r++) {
+                batch[r] = data.getRandomRow();
+            }
+            forEachRow(batchRows, r -> {
+                predictions[r] = beta.predict(batch[r]);
+                sigs[r] = loss.gradient(batch[r], predictions[r]);
+            });
+            // the learning rate strategy may be stateful, ask it in the order the rows were drawn
+            double stepSize = Double.POSITIVE_INFINITY;
+            for (int r = 0; r < batchRows; r++) {
+                stepSize = Math.min(stepSize, lrStrategy.getCurrentLearningRate(batch[r], predictions[r], sigs[r]));
+            }
+            // beta is updated in two steps
+            getRegularizationUpdater().update(beta, stepSize, k);
+            updater.update(batch, sigs, batchRows, beta, stepSize);
+        }
+    }
+
+    private void forEachRow(final int batchRows, final RowTask task) throws CanceledExecutionException {
+        final int nTasks = Math.min(m_nTasks, Math.max(1, batchRows / MIN_ROWS_PER_TASK));
+        ParallelTasks.forEach(nTasks, t -> {
+            final int from = (int)((long)batchRows * t / nTasks);
+            final int to = (int)((long)batchRows * (t + 1) / nTasks);
+            for (int r = from; r < to; r++) {
+                task.process(r);
+            }
+        });
+    }
+
+    private interface RowTask {
+        void process(int row);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void prepareIteration(final WeightMatrix<T> beta, final T x, final EagerSagUpdater<T> updater,
+        final R regUpdater, final int iteration) {
+        // not called, the epoch is performed in mini-batches
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void postProcessEpoch(final WeightMatrix<T> beta, final EagerSagUpdater<T> updater,
+        final R regUpdater) {
+        // nothing to postprocess
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void performUpdate(final T x, final EagerSagUpdater<T> updater, final double[] gradient,
+        final WeightMatrix<T> beta, final double stepSize, final int iteration) {
+        updater.update(x, gradient, beta, stepSize, iteration);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void normalize(final WeightMatrix<T> beta, final EagerSagUpdater<T> updater, final int iteration) {
+        // nothing to do, the coefficients are not scaled
+    }
+
+}
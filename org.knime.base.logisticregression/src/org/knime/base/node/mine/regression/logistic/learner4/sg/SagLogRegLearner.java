@@ -111,7 +111,7 @@ private RegularizationUpdater createRegularizationUpdater(final LogRegLearnerSet
             default:
                 throw new InvalidSettingsException("Unknown prior type \"" + settings.getPrior() + "\".");
         }
-        if (settings.isPerformLazy()) {
+        if (settings.isPerformLazy() && !settings.isParallel()) {
             return new LazyPriorUpdater(prior, data.getRowCount(), true);
         } else {
             return new EagerPriorUpdater(prior, data.getRowCount(), true);
@@ -157,7 +157,16 @@ private AbstractSGOptimizer createOptimizer(
                 new BetaChangeStoppingCriterion<>(data.getFeatureCount(), data.getTargetDimension(), settings.getEpsilon());
         LearningRateStrategy<ClassificationTrainingRow> lrs = createLearningRateStrategy(settings, data, loss);
         RegularizationUpdater regUpdater = createRegularizationUpdater(settings, data);
-        if (settings.isPerformLazy()) {
+        if (settings.isParallel()) {
+            // the parallel optimizer works on mini-batches which are always updated eagerly
+            final int nRows = data.getRowCount();
+            final int nFets = data.getFeatureCount();
+            final int betaDim = data.getTargetDimension();
+            UpdaterFactory<ClassificationTrainingRow, EagerSagUpdater<ClassificationTrainingRow>> updaterFactory =
+                    new EagerSagUpdater.EagerSagUpdaterFactory<ClassificationTrainingRow>(nRows, nFets, betaDim)::create;
+            return new ParallelSagOptimizer<>(data, loss, updaterFactory, regUpdater, lrs, stoppingCriterion,
+                    m_settings.isCalcCovMatrix());
+        } else if (settings.isPerformLazy()) {
             UpdaterFactory<ClassificationTrainingRow, LazyUpdater<ClassificationTrainingRow>> updaterFactory = createLazyUpdater(settings, data);
             return new LazySGOptimizer<ClassificationTrainingRow, LazyUpdater<ClassificationTrainingRow>, LazyRegularizationUpdater>(
                     data, loss, updaterFactory, (LazyRegularizationUpdater)regUpdater, lrs, stoppingCriterion, m_settings.isCalcCovMatrix());
@@ -0,0 +1,192 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.expand;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+
+/**
+ * Tests for {@link RowExpander}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RowExpanderTest {
+
+    /**
+     * Tests the cells and keys of the output rows and the hilite mapping.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testExpand() throws Exception {
+        final List<DataRow> rows = Arrays.asList(createRow(0, 2), createRow(1, 0), createRow(2, -1));
+        final RowExpander expander = createExpander();
+        expander.enableHiLiteMapping(false);
+        final List<DataRow> output = expand(expander, rows);
+
+        assertEquals(Arrays.asList("Row0_1:Row0,2,0", "Row0_2:Row0,2,1", "Row2:Row2,-1,?"), toStrings(output));
+        final Map<RowKey, Set<RowKey>> mapping = expander.getHiLiteMapping();
+        assertEquals(Arrays.asList(new RowKey("Row0"), new RowKey("Row2")), new ArrayList<>(mapping.keySet()));
+        assertEquals(new LinkedHashSet<>(Arrays.asList(new RowKey("Row0_1"), new RowKey("Row0_2"))),
+            mapping.get(new RowKey("Row0")));
+
+        final RowExpander mapAll = createExpander();
+        mapAll.enableHiLiteMapping(true);
+        expand(mapAll, rows);
+        assertEquals(Collections.emptySet(), mapAll.getHiLiteMapping().get(new RowKey("Row1")));
+    }
+
+    /**
+     * Tests that expanding blocks concurrently yields the same rows in the same order as the sequential expansion.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testParallelExpandKeepsOrder() throws Exception {
+        final List<DataRow> rows = new ArrayList<>();
+        for (int i = 0; i < 10 * RowExpander.ROWS_PER_BLOCK + 17; i++) {
+            rows.add(createRow(i, i % 7 - 1));
+        }
+        final RowExpander sequential = createExpander();
+        sequential.enableHiLiteMapping(true);
+        final List<String> expected = toStrings(expand(sequential, rows));
+
+        final RowExpander parallel = createExpander();
+        parallel.enableHiLiteMapping(true);
+        final Future<List<DataRow>> future = KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> expand(parallel, rows));
+        assertEquals(expected, toStrings(future.get()));
+        assertEquals(new ArrayList<>(sequential.getHiLiteMapping().entrySet()),
+            new ArrayList<>(parallel.getHiLiteMapping().entrySet()));
+    }
+
+    /**
+     * Creates an expander that outputs the key of the input row and the value of its first cell, followed by a
+     * generated counter for each of the n elements given by the second cell. A negative n creates one row keeping the
+     * input key.
+     */
+    private static RowExpander createExpander() {
+        return new RowExpander(new int[]{0, 1, RowExpander.newCell(0)}, (row, output) -> {
+            final int n = ((IntCell)row.getCell(1)).getIntValue();
+            if (n < 0) {
+                output.addWithInputKey(new DataCell[]{DataType.getMissingCell()});
+            }
+            for (int i = 0; i < n; i++) {
+                output.add(new DataCell[]{new IntCell(i)});
+            }
+        }, (key, index, outputIndex) -> new RowKey(key.getString() + "_" + (index + 1)));
+    }
+
+    private static DataRow createRow(final int index, final int n) {
+        return new DefaultRow("Row" + index, new StringCell("Row" + index), new IntCell(n));
+    }
+
+    private static List<DataRow> expand(final RowExpander expander, final List<DataRow> rows) throws Exception {
+        final List<DataRow> output = new ArrayList<>();
+        final Iterator<DataRow> it = rows.iterator();
+        final RowInput in = new RowInput() {
+            @Override
+            public DataTableSpec getDataTableSpec() {
+                return null;
+            }
+
+            @Override
+            public DataRow poll() {
+                return it.hasNext() ? it.next() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final RowOutput out = new RowOutput() {
+            @Override
+            public void push(final DataRow row) {
+                output.add(row);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        expander.expand(in, out, new ExecutionMonitor(), rows.size());
+        return output;
+    }
+
+    private static List<String> toStrings(final List<DataRow> rows) {
+        final List<String> strings = new ArrayList<>();
+        for (DataRow row : rows) {
+            final StringBuilder b = new StringBuilder(row.getKey().getString()).append(':');
+            for (int i = 0; i < row.getNumCells(); i++) {
+                b.append(i > 0 ? "," : "").append(row.getCell(i));
+            }
+            strings.add(b.toString());
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.neural.methods;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.data.neural.Architecture;
+import org.knime.base.data.neural.Layer;
+import org.knime.base.data.neural.MultiLayerPerceptron;
+import org.knime.base.data.neural.Perceptron;
+import org.knime.core.node.KNIMEConstants;
+
+/**
+ * Tests that the matrix based training of {@link RProp} yields the same net as the neuron by neuron training.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RPropTest {
+
+    private static final int NR_ROWS = 203;
+
+    private static final int NR_INPUTS = 5;
+
+    private static final int NR_OUTPUTS = 3;
+
+    private static MultiLayerPerceptron createNet() {
+        // 7 hidden neurons to also cover the remainder of the blocked kernel
+        return new MultiLayerPerceptron(new Architecture(NR_INPUTS, 2, 7, NR_OUTPUTS), new Random(42));
+    }
+
+    private static void assertSameWeights(final MultiLayerPerceptron expected, final MultiLayerPerceptron actual,
+        final double delta) {
+        Layer[] expectedLayers = expected.getLayers();
+        Layer[] actualLayers = actual.getLayers();
+        for (int l = 1; l < expectedLayers.length; l++) {
+            for (int j = 0; j < expectedLayers[l].getPerceptrons().length; j++) {
+                Perceptron e = expectedLayers[l].getPerceptron(j);
+                Perceptron a = actualLayers[l].getPerceptron(j);
+                assertEquals(e.getThreshold(), a.getThreshold(), delta);
+                for (int k = 0; k < e.getWeights().length; k++) {
+                    assertEquals(e.getWeight(k), a.getWeight(k), delta);
+                }
+            }
+        }
+    }
+
+    /**
+     * Trains two identical nets for a few iterations, one with boxed and one with primitive samples.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testMatrixTrainingEqualsNeuronTraining() throws Exception {
+        Random random = new Random(1);
+        double[][] samples = new double[NR_ROWS][NR_INPUTS];
+        double[][] outputs = new double[NR_ROWS][NR_OUTPUTS];
+        Double[][] boxedSamples = new Double[NR_ROWS][NR_INPUTS];
+        Double[][] boxedOutputs = new Double[NR_ROWS][NR_OUTPUTS];
+        for (int i = 0; i < NR_ROWS; i++) {
+            for (int j = 0; j < NR_INPUTS; j++) {
+                samples[i][j] = random.nextGaussian();
+                boxedSamples[i][j] = samples[i][j];
+            }
+            int label = random.nextInt(NR_OUTPUTS);
+            for (int j = 0; j < NR_OUTPUTS; j++) {
+                outputs[i][j] = j == label ? 1 : 0;
+                boxedOutputs[i][j] = outputs[i][j];
+            }
+        }
+        MultiLayerPerceptron neuronNet = createNet();
+        MultiLayerPerceptron matrixNet = createNet();
+        RProp neuronRProp = new RProp();
+        RProp matrixRProp = new RProp();
+        for (int iteration = 0; iteration < 5; iteration++) {
+            neuronRProp.train(neuronNet, boxedSamples, boxedOutputs);
+            matrixRProp.train(matrixNet, samples, outputs);
+            assertSameWeights(neuronNet, matrixNet, 1e-9);
+        }
+
+        double expectedError = 0;
+        for (int i = 0; i < NR_ROWS; i++) {
+            double[] output = neuronNet.output(samples[i]);
+            for (int j = 0; j < NR_OUTPUTS; j++) {
+                expectedError += (output[j] - outputs[i][j]) * (output[j] - outputs[i][j]);
+            }
+        }
+        assertEquals(expectedError, RProp.sumOfSquaredErrors(matrixNet, samples, outputs), 1e-9);
+    }
+
+    /**
+     * Trains two identical nets on several chunks of rows, one on the test thread and one in the thread pool, and
+     * checks that the weights are exactly the same.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testSameResultWithAndWithoutThreadPool() throws Exception {
+        final int nrRows = 3 * MatrixNetwork.CHUNK_SIZE + 17;
+        Random random = new Random(2);
+        double[][] samples = new double[nrRows][NR_INPUTS];
+        double[][] outputs = new double[nrRows][NR_OUTPUTS];
+        for (int i = 0; i < nrRows; i++) {
+            for (int j = 0; j < NR_INPUTS; j++) {
+                samples[i][j] = random.nextGaussian();
+            }
+            outputs[i][random.nextInt(NR_OUTPUTS)] = 1;
+        }
+        MultiLayerPerceptron sequentialNet = createNet();
+        RProp sequentialRProp = new RProp();
+        MultiLayerPerceptron concurrentNet = createNet();
+        RProp concurrentRProp = new RProp();
+        for (int iteration = 0; iteration < 3; iteration++) {
+            sequentialRProp.train(sequentialNet, samples, outputs);
+            KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> {
+                concurrentRProp.train(concurrentNet, samples, outputs);
+                return null;
+            }).get();
+        }
+        assertSameWeights(sequentialNet, concurrentNet, 0);
+        assertEquals(RProp.sumOfSquaredErrors(sequentialNet, samples, outputs),
+            KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> RProp.sumOfSquaredErrors(concurrentNet, samples, outputs))
+                .get(), 0);
+    }
+}
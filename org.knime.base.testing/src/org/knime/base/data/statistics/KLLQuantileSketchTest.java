@@ -0,0 +1,115 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link KLLQuantileSketch}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class KLLQuantileSketchTest {
+
+    private static final int NO_OF_VALUES = 100000;
+
+    /**
+     * Tests that small streams are represented exactly.
+     */
+    @Test
+    public void testExactForSmallStreams() {
+        final KLLQuantileSketch sketch = new KLLQuantileSketch();
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+        for (int i = 1; i <= 4; i++) {
+            sketch.update(i);
+        }
+        assertEquals(4, sketch.getCount());
+        assertEquals(1, sketch.getQuantile(0), 0);
+        assertEquals(2, sketch.getQuantile(0.5), 0);
+        assertEquals(3, sketch.getQuantile(0.75), 0);
+        assertEquals(4, sketch.getQuantile(1), 0);
+    }
+
+    /**
+     * Tests the rank error of the approximated quantiles of a uniformly distributed stream.
+     */
+    @Test
+    public void testRankError() {
+        final Random random = new Random(1);
+        final KLLQuantileSketch sketch = new KLLQuantileSketch();
+        for (int i = 0; i < NO_OF_VALUES; i++) {
+            sketch.update(random.nextDouble());
+        }
+        assertEquals(NO_OF_VALUES, sketch.getCount());
+        for (int p = 1; p < 100; p++) {
+            assertEquals("Quantile " + p / 100.0, p / 100.0, sketch.getQuantile(p / 100.0), 0.02);
+        }
+    }
+
+    /**
+     * Tests that merged sketches approximate the quantiles of the union of their streams.
+     */
+    @Test
+    public void testMerge() {
+        final Random random = new Random(2);
+        final KLLQuantileSketch lower = new KLLQuantileSketch();
+        final KLLQuantileSketch upper = new KLLQuantileSketch();
+        for (int i = 0; i < NO_OF_VALUES; i++) {
+            lower.update(random.nextDouble() / 2);
+            upper.update(0.5 + random.nextDouble() / 2);
+        }
+        lower.merge(upper);
+        assertEquals(2 * NO_OF_VALUES, lower.getCount());
+        for (int p = 1; p < 100; p++) {
+            assertEquals("Quantile " + p / 100.0, p / 100.0, lower.getQuantile(p / 100.0), 0.02);
+        }
+    }
+}
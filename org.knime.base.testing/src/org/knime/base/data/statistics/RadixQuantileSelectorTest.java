@@ -0,0 +1,136 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.base.node.preproc.sorter.SorterNodeFactory;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests for {@link RadixQuantileSelector}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RadixQuantileSelectorTest {
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        EXEC_CONTEXT = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(new SorterNodeFactory()),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * Compares the selected values with the sorted columns, both if all values fit into memory and if the candidates
+     * need to be narrowed down in several passes.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSelect() throws Exception {
+        final Random random = new Random(37);
+        final int noOfRows = 2000;
+        final double[][] values = new double[2][noOfRows];
+        final BufferedDataContainer container = EXEC_CONTEXT.createDataContainer(
+            new DataTableSpec(new DataColumnSpecCreator("Gaussian", DoubleCell.TYPE).createSpec(),
+                new DataColumnSpecCreator("Special", DoubleCell.TYPE).createSpec()));
+        int noOfMissing = 0;
+        for (int i = 0; i < noOfRows; i++) {
+            values[0][i] = random.nextGaussian() * 1e6;
+            final DataCell special;
+            if (i % 10 == 0) {
+                special = DataType.getMissingCell();
+                noOfMissing++;
+            } else {
+                final double[] candidates = {Double.NaN, -0.0, 0.0, 1.0, Math.nextUp(1.0), Double.NEGATIVE_INFINITY};
+                values[1][i - noOfMissing] = candidates[random.nextInt(candidates.length)];
+                special = new DoubleCell(values[1][i - noOfMissing]);
+            }
+            container.addRowToTable(new DefaultRow("Row" + i, new DoubleCell(values[0][i]), special));
+        }
+        container.close();
+        final BufferedDataTable table = container.getTable();
+        final double[] gaussian = values[0].clone();
+        Arrays.sort(gaussian);
+        final double[] special = Arrays.copyOf(values[1], noOfRows - noOfMissing);
+        Arrays.sort(special);
+
+        final long[][] ranks = {{0, 999, 1000, noOfRows - 1, noOfRows}, {0, 500, 1000, special.length - 1, 1999}};
+        for (int maxValuesInMemory : new int[]{RadixQuantileSelector.DEFAULT_MAX_VALUES_IN_MEMORY, 10}) {
+            final double[][] result =
+                new RadixQuantileSelector(table, maxValuesInMemory).select(new int[]{0, 1}, ranks, EXEC_CONTEXT);
+            for (int j = 0; j < 4; j++) {
+                assertEquals(gaussian[(int)ranks[0][j]], result[0][j], 0);
+                assertEquals(Double.compare(special[(int)ranks[1][j]], result[1][j]), 0);
+            }
+            assertEquals(Double.NaN, result[0][4], 0);
+            assertEquals(Double.NaN, result[1][4], 0);
+        }
+    }
+}
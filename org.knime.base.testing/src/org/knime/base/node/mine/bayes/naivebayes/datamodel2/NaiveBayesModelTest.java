@@ -0,0 +1,180 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.bayes.naivebayes.datamodel2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.vector.bitvector.DenseBitVectorCell;
+import org.knime.core.data.vector.bitvector.DenseBitVectorCellFactory;
+
+/**
+ * Tests that merging the partial {@link NaiveBayesModel}s of consecutive parts of the training data results in the
+ * same model as learning all rows at once, and that the {@link NaiveBayesRowClassifier} predicts the same
+ * probabilities and classes as the model.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class NaiveBayesModelTest {
+
+    private static final String CLASS_COL = "class";
+
+    private static final String[] ATTRIBUTE_NAMES = new String[]{"nominal", "numerical", "unique", "bits", CLASS_COL};
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new DataColumnSpecCreator(ATTRIBUTE_NAMES[0], StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator(ATTRIBUTE_NAMES[1], DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator(ATTRIBUTE_NAMES[2], StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator(ATTRIBUTE_NAMES[3], DenseBitVectorCell.TYPE).createSpec(),
+        new DataColumnSpecCreator(CLASS_COL, StringCell.TYPE).createSpec());
+
+    private static List<DataRow> createRows(final int numRows, final long seed) {
+        final Random random = new Random(seed);
+        final List<DataRow> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            final int nominal = random.nextInt(5);
+            final DataCell nominalCell =
+                random.nextInt(20) == 0 ? DataType.getMissingCell() : new StringCell("v" + nominal);
+            //integral values keep the sums exact independent of the summation order
+            final DataCell numericalCell = random.nextInt(20) == 0 ? DataType.getMissingCell()
+                : new DoubleCell(random.nextInt(100) + 10 * nominal);
+            final DenseBitVectorCellFactory bits = new DenseBitVectorCellFactory(16);
+            for (int b = 0; b < 16; b++) {
+                if (random.nextInt(4) == b % 4) {
+                    bits.set(b);
+                }
+            }
+            final String classValue = "c" + ((nominal + random.nextInt(2)) % 3);
+            rows.add(new DefaultRow(RowKey.createRowKey(i), nominalCell, numericalCell, new StringCell("u" + i),
+                bits.createDataCell(), new StringCell(classValue)));
+        }
+        return rows;
+    }
+
+    private static NaiveBayesModel createModel() {
+        return new NaiveBayesModel(SPEC, CLASS_COL, 10, false, false, 0.001);
+    }
+
+    private static NaiveBayesModel learn(final List<DataRow> rows) throws Exception {
+        final NaiveBayesModel model = createModel();
+        final int classColIdx = SPEC.findColumnIndex(CLASS_COL);
+        for (final DataRow row : rows) {
+            model.updateModel(row, SPEC, classColIdx);
+        }
+        return model;
+    }
+
+    private static List<String> getSkippedAttributeNames(final NaiveBayesModel model) {
+        final List<String> names = new ArrayList<>();
+        for (final AttributeModel skipped : model.getSkippedAttributes()) {
+            names.add(skipped.getAttributeName());
+        }
+        return names;
+    }
+
+    /**
+     * Tests that the merged partial models predict the same probabilities as the model learned on all rows.
+     *
+     * @throws Exception if the model cannot be learned
+     */
+    @Test
+    public void testMergedModelEqualsSequentialModel() throws Exception {
+        final List<DataRow> rows = createRows(600, 1);
+        final NaiveBayesModel sequential = learn(rows);
+        final NaiveBayesModel merged = learn(rows.subList(0, 5));
+        merged.merge(learn(rows.subList(5, 250)));
+        merged.merge(learn(rows.subList(250, 600)));
+
+        assertEquals(sequential.getNoOfRecs(), merged.getNoOfRecs());
+        assertEquals(sequential.getSortedClassValues(), merged.getSortedClassValues());
+        assertEquals(sequential.getAttributeNames(), merged.getAttributeNames());
+        assertEquals(sequential.getAttributesWithMissingVals(), merged.getAttributesWithMissingVals());
+        assertEquals("Attribute with too many values not skipped", getSkippedAttributeNames(sequential),
+            getSkippedAttributeNames(merged));
+        final List<String> classValues = sequential.getSortedClassValues();
+        for (final DataRow row : rows) {
+            assertArrayEquals(sequential.getClassProbabilities(ATTRIBUTE_NAMES, row, classValues, true),
+                merged.getClassProbabilities(ATTRIBUTE_NAMES, row, classValues, true), 1e-12);
+            assertEquals(sequential.getMostLikelyClass(ATTRIBUTE_NAMES, row),
+                merged.getMostLikelyClass(ATTRIBUTE_NAMES, row));
+        }
+    }
+
+    /**
+     * Tests that the row classifier computes the same probabilities and most likely classes as the model.
+     *
+     * @throws Exception if the model cannot be learned
+     */
+    @Test
+    public void testRowClassifier() throws Exception {
+        final List<DataRow> rows = createRows(300, 2);
+        final NaiveBayesModel model = learn(rows);
+        final NaiveBayesRowClassifier classifier = model.createRowClassifier(ATTRIBUTE_NAMES);
+        final List<String> classValues = model.getSortedClassValues();
+        assertEquals(classValues.size(), classifier.getNoOfClassValues());
+        final double[] probabilities = new double[classifier.getNoOfClassValues()];
+        for (final DataRow row : createRows(100, 3)) {
+            final int mostLikelyClass = classifier.classify(row, probabilities);
+            assertArrayEquals(model.getClassProbabilities(ATTRIBUTE_NAMES, row, classValues, true), probabilities,
+                0.0);
+            assertEquals(model.getMostLikelyClassCell(ATTRIBUTE_NAMES, row), classifier.getClassCell(mostLikelyClass));
+        }
+    }
+}
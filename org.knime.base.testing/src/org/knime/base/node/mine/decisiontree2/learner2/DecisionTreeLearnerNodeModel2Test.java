@@ -0,0 +1,173 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.decisiontree2.learner2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.base.node.mine.decisiontree2.model.DecisionTreeNode;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeSettings;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests that the {@link DecisionTreeLearnerNodeModel2} learns the same tree with several threads, i.e. with nodes
+ * built in parallel building threads and attributes evaluated concurrently, as with a single thread.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class DecisionTreeLearnerNodeModel2Test {
+
+    /** Enough rows for child nodes that are built in their own threads and evaluated concurrently. */
+    private static final int NR_ROWS = 8000;
+
+    private static final DataTableSpec SPEC =
+        new DataTableSpec(new DataColumnSpecCreator("a", DoubleCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("b", DoubleCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("c", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("class", StringCell.TYPE).createSpec());
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    private static BufferedDataTable TABLE;
+
+    /**
+     * Creates the execution context and the table to learn from.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        EXEC_CONTEXT = new ExecutionContext(new DefaultNodeProgressMonitor(),
+            new Node(new DecisionTreeLearnerNodeFactory3()), SingleNodeContainer.MemoryPolicy.CacheSmallInMemory,
+            new HashMap<Integer, ContainerTable>());
+        final Random random = new Random(11);
+        final String[] nominalValues = {"x", "y", "z"};
+        final BufferedDataContainer container = EXEC_CONTEXT.createDataContainer(SPEC);
+        for (int r = 0; r < NR_ROWS; r++) {
+            final double a = random.nextInt(50);
+            final double b = random.nextGaussian();
+            final String c = nominalValues[random.nextInt(nominalValues.length)];
+            final boolean positive = random.nextInt(10) == 0 ? random.nextBoolean()
+                : (a < 20 && b > 0) || (c.equals("z") && a > 35);
+            final DataCell aCell = random.nextInt(20) == 0 ? DataType.getMissingCell() : new DoubleCell(a);
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r), aCell, new DoubleCell(b),
+                new StringCell(c), new StringCell(positive ? "pos" : "neg")));
+        }
+        container.close();
+        TABLE = container.getTable();
+    }
+
+    /**
+     * Releases the execution context and the table.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        EXEC_CONTEXT = null;
+        TABLE = null;
+    }
+
+    /**
+     * Compares the trees learned with a single thread and with several threads, both from a thread that belongs to a
+     * thread pool (as during node execution) and from one that doesn't.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testParallelLearningMatchesSequential() throws Exception {
+        final String sequential = learn(1);
+        assertTrue("The tree has no splits.", sequential.contains("\n "));
+        assertEquals("Wrong tree learned outside a thread pool.", sequential, learn(4));
+        assertEquals("Wrong tree learned in a thread pool.", sequential,
+            KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> learn(4)).get());
+    }
+
+    /** Learns a tree with the given number of threads and returns its string representation. */
+    private static String learn(final int numThreads) throws Exception {
+        final DecisionTreeLearnerNodeModel2 model = new DecisionTreeLearnerNodeModel2(false);
+        final NodeSettings settings = new NodeSettings("DecisionTree");
+        model.saveSettingsTo(settings);
+        settings.addString(DecisionTreeLearnerNodeModel2.KEY_CLASSIFYCOLUMN, "class");
+        settings.addInt(DecisionTreeLearnerNodeModel2.KEY_NUM_PROCESSORS, numThreads);
+        model.validateSettings(settings);
+        model.loadValidatedSettingsFrom(settings);
+        model.configure(new PortObjectSpec[]{SPEC});
+        model.execute(new PortObject[]{TABLE}, EXEC_CONTEXT);
+        final StringBuilder tree = new StringBuilder();
+        appendNode(model.getDecisionTree().getRootNode(), 0, tree);
+        return tree.toString();
+    }
+
+    private static void appendNode(final DecisionTreeNode node, final int depth, final StringBuilder tree) {
+        for (int i = 0; i < depth; i++) {
+            tree.append(' ');
+        }
+        tree.append(node).append(" - ").append(node.getStringSummary()).append('\n');
+        for (int c = 0; c < node.getChildCount(); c++) {
+            appendNode(node.getChildAt(c), depth + 1, tree);
+        }
+    }
+}
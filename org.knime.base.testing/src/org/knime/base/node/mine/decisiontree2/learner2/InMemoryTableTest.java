@@ -0,0 +1,143 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.decisiontree2.learner2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests the presorted attribute orders of the {@link InMemoryTable} and how they are handed down by the
+ * {@link Partitioner}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class InMemoryTableTest {
+
+    private static InMemoryTable createTable(final int numRows, final long seed) {
+        @SuppressWarnings("unchecked")
+        ValueMapper<DataCell>[] nominalMappers = new ValueMapper[2];
+        ValueMapper<DataCell> classMapper = new ValueMapper<DataCell>();
+        ValueMapper<String> attributeNameMapper = new ValueMapper<String>();
+        attributeNameMapper.getIndexMayBeAdded("a");
+        attributeNameMapper.getIndexMayBeAdded("b");
+        InMemoryTable table = new InMemoryTable(nominalMappers, classMapper, attributeNameMapper, 1);
+        Random random = new Random(seed);
+        for (int i = 0; i < numRows; i++) {
+            double a = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(20);
+            double b = random.nextInt(10) == 0 ? Double.NaN : random.nextGaussian();
+            int classValue = classMapper.getIndexMayBeAdded(new StringCell(a < 10 ? "low" : "high"));
+            table.addRow(new DataRowWeighted(new ClassValueDataRow(new double[]{a, b}, classValue), 1.0));
+        }
+        table.pack();
+        return table;
+    }
+
+    private static void assertSorted(final InMemoryTable table, final int attributeIndex) {
+        int[] indices = table.getSortedRowIndices(attributeIndex);
+        double[] values = table.getSortedValues(attributeIndex);
+        assertEquals(table.getNumberDataRows(), indices.length);
+        boolean[] seen = new boolean[indices.length];
+        DataRowWeighted[] rows = new DataRowWeighted[indices.length];
+        int r = 0;
+        for (DataRowWeighted row : table) {
+            rows[r++] = row;
+        }
+        for (int i = 0; i < indices.length; i++) {
+            assertTrue("Row listed twice", !seen[indices[i]]);
+            seen[indices[i]] = true;
+            assertEquals(rows[indices[i]].getValue(attributeIndex), values[i], 0.0);
+            if (i > 0 && !Double.isNaN(values[i])) {
+                assertTrue("Values not sorted", !Double.isNaN(values[i - 1]) && values[i - 1] <= values[i]);
+            }
+        }
+    }
+
+    /**
+     * Tests that the sorted orders contain every row once, ascending with the missing values at the end.
+     */
+    @Test
+    public void testSortedOrder() {
+        InMemoryTable table = createTable(500, 1);
+        assertSorted(table, 0);
+        assertSorted(table, 1);
+    }
+
+    /**
+     * Tests that the partitions receive correctly sorted orders (including the rows replicated due to missing split
+     * values) and that they are identical to the ones computed from scratch.
+     *
+     * @throws Exception if the partition tables cannot be accessed
+     */
+    @Test
+    public void testPartitionedOrder() throws Exception {
+        InMemoryTable table = createTable(500, 2);
+        // sort both attributes at the "root"
+        table.getSortedRowIndices(0);
+        table.getSortedRowIndices(1);
+        SplitContinuous split = new SplitContinuous(table, 0, new SplitQualityGini(), true, 1);
+        assertTrue(split.isValidSplit());
+        Partitioner partitioner = new Partitioner(table, split, 1);
+        assertTrue(partitioner.couldBeUsefulPartitioned());
+        for (InMemoryTable partition : partitioner.getPartitionTables()) {
+            assertSorted(partition, 0);
+            assertSorted(partition, 1);
+            double[] inherited = partition.getSortedValues(1).clone();
+            InMemoryTable copy = new InMemoryTable(partition);
+            for (DataRowWeighted row : partition) {
+                copy.addRow(row);
+            }
+            copy.pack();
+            assertArrayEquals(copy.getSortedValues(1), inherited, 0.0);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.pca;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.Node;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests the {@link CovarianceAccumulator} against the means and covariances computed with the textbook two pass
+ * formula.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CovarianceAccumulatorTest {
+
+    /** Enough columns for block updates that are split across threads. */
+    private static final int NR_COLUMNS = 50;
+
+    /** Not a multiple of the block size, so that the last block is incomplete. */
+    private static final int NR_ROWS = 3 * CovarianceAccumulator.BLOCK_SIZE + 17;
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    private static BufferedDataTable TABLE;
+
+    private static double[][] DATA;
+
+    /**
+     * Creates the table, some rows contain missing values.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        EXEC_CONTEXT = createExecutionContext();
+        DATA = createLowRankData(new Random(17), NR_ROWS, NR_COLUMNS, 1e4, 4);
+        TABLE = createTable(EXEC_CONTEXT, DATA, 10);
+    }
+
+    /**
+     * Releases the table.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        EXEC_CONTEXT = null;
+        TABLE = null;
+        DATA = null;
+    }
+
+    /**
+     * Computes the statistics on the test thread.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testMatchesTwoPassFormula() throws Exception {
+        checkAccumulator(compute());
+    }
+
+    /**
+     * Computes the statistics in the global thread pool, i.e. with the block updates split across threads.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testConcurrentMatchesTwoPassFormula() throws Exception {
+        checkAccumulator(KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(CovarianceAccumulatorTest::compute).get());
+    }
+
+    private static CovarianceAccumulator compute() throws Exception {
+        return CovarianceAccumulator.compute(EXEC_CONTEXT, TABLE, allColumns(NR_COLUMNS), false);
+    }
+
+    private static void checkAccumulator(final CovarianceAccumulator accumulator) {
+        final double[][] valid = validRows(DATA, 10);
+        assertEquals("Wrong number of valid rows", valid.length, accumulator.getCount());
+        assertEquals("Wrong number of ignored rows", DATA.length - valid.length, accumulator.getMissingCount());
+        final double[] expectedMeans = means(valid);
+        final double[] means = accumulator.getMeans();
+        for (int i = 0; i < NR_COLUMNS; i++) {
+            assertEquals("Wrong mean " + i, expectedMeans[i], means[i], 1e-12 * Math.abs(expectedMeans[i]));
+        }
+        final double[][] expectedCovariances = covariances(valid);
+        final double[][] covariances = accumulator.getCovarianceMatrix();
+        for (int i = 0; i < NR_COLUMNS; i++) {
+            for (int j = 0; j < NR_COLUMNS; j++) {
+                final double expected = expectedCovariances[i][j];
+                final double scale = Math.sqrt(expectedCovariances[i][i] * expectedCovariances[j][j]);
+                assertEquals("Wrong covariance " + i + ", " + j, expected, covariances[i][j], 1e-9 * scale);
+            }
+        }
+    }
+
+    /**
+     * Creates data that is dominated by a few orthogonal directions with clearly different variances, plus a little
+     * noise, and that is shifted by a large offset.
+     *
+     * @param random the random number generator
+     * @param nrRows the number of rows
+     * @param nrColumns the number of columns
+     * @param offset the offset added to all values
+     * @param rank the number of dominant directions
+     * @return the data, row major
+     */
+    static double[][] createLowRankData(final Random random, final int nrRows, final int nrColumns,
+        final double offset, final int rank) {
+        final double[][] directions = new double[rank][nrColumns];
+        for (int k = 0; k < rank; k++) {
+            for (int i = 0; i < nrColumns; i++) {
+                directions[k][i] = random.nextGaussian();
+            }
+            // Gram-Schmidt
+            for (int p = 0; p < k; p++) {
+                final double dot = dot(directions[k], directions[p]);
+                for (int i = 0; i < nrColumns; i++) {
+                    directions[k][i] -= dot * directions[p][i];
+                }
+            }
+            final double norm = Math.sqrt(dot(directions[k], directions[k]));
+            for (int i = 0; i < nrColumns; i++) {
+                directions[k][i] /= norm;
+            }
+        }
+        final double[][] data = new double[nrRows][nrColumns];
+        for (int r = 0; r < nrRows; r++) {
+            for (int i = 0; i < nrColumns; i++) {
+                data[r][i] = offset + 0.01 * random.nextGaussian();
+            }
+            for (int k = 0; k < rank; k++) {
+                final double factor = 10.0 / (k + 1) * random.nextGaussian();
+                for (int i = 0; i < nrColumns; i++) {
+                    data[r][i] += factor * directions[k][i];
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Creates the table of the data, every <b>missingEvery</b>-th row gets a missing cell.
+     *
+     * @param exec to create the table
+     * @param data the data, row major
+     * @param missingEvery the distance of rows with missing cells
+     * @return the table
+     */
+    static BufferedDataTable createTable(final ExecutionContext exec, final double[][] data,
+        final int missingEvery) {
+        final int nrColumns = data[0].length;
+        final DataColumnSpec[] columns = new DataColumnSpec[nrColumns];
+        for (int i = 0; i < nrColumns; i++) {
+            columns[i] = new DataColumnSpecCreator("col" + i, DoubleCell.TYPE).createSpec();
+        }
+        final BufferedDataContainer container = exec.createDataContainer(new DataTableSpec(columns));
+        for (int r = 0; r < data.length; r++) {
+            final DataCell[] cells = new DataCell[nrColumns];
+            for (int i = 0; i < nrColumns; i++) {
+                cells[i] = new DoubleCell(data[r][i]);
+            }
+            if (r % missingEvery == missingEvery - 1) {
+                cells[r % nrColumns] = DataType.getMissingCell();
+            }
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r), cells));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * @return an execution context for the tests of the PCA computations
+     */
+    static ExecutionContext createExecutionContext() {
+        return new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(new PCANodeFactory()),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * @param nrColumns the number of columns
+     * @return the indices of all columns
+     */
+    static int[] allColumns(final int nrColumns) {
+        final int[] columns = new int[nrColumns];
+        for (int i = 0; i < nrColumns; i++) {
+            columns[i] = i;
+        }
+        return columns;
+    }
+
+    /**
+     * @param data the data, row major
+     * @param missingEvery the distance of rows with missing cells as passed to
+     *            {@link #createTable(ExecutionContext, double[][], int)}
+     * @return the rows without missing cells
+     */
+    static double[][] validRows(final double[][] data, final int missingEvery) {
+        final double[][] valid = new double[data.length - data.length / missingEvery][];
+        int v = 0;
+        for (int r = 0; r < data.length; r++) {
+            if (r % missingEvery != missingEvery - 1) {
+                valid[v++] = data[r];
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * @param data the data, row major
+     * @return the sample covariance matrix computed with the two pass formula
+     */
+    static double[][] covariances(final double[][] data) {
+        final double[] means = means(data);
+        final int nrColumns = means.length;
+        final double[][] covariances = new double[nrColumns][nrColumns];
+        for (final double[] row : data) {
+            for (int i = 0; i < nrColumns; i++) {
+                for (int j = 0; j < nrColumns; j++) {
+                    covariances[i][j] += (row[i] - means[i]) * (row[j] - means[j]);
+                }
+            }
+        }
+        for (int i = 0; i < nrColumns; i++) {
+            for (int j = 0; j < nrColumns; j++) {
+                covariances[i][j] /= data.length - 1;
+            }
+        }
+        return covariances;
+    }
+
+    private static double[] means(final double[][] data) {
+        final double[] means = new double[data[0].length];
+        for (final double[] row : data) {
+            for (int i = 0; i < means.length; i++) {
+                means[i] += row[i];
+            }
+        }
+        for (int i = 0; i < means.length; i++) {
+            means[i] /= data.length;
+        }
+        return means;
+    }
+
+    private static double dot(final double[] a, final double[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+}
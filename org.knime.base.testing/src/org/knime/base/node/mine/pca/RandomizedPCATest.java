@@ -0,0 +1,152 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.pca;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
+
+/**
+ * Tests the {@link RandomizedPCA} against the exact eigen decomposition of the covariance matrix.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RandomizedPCATest {
+
+    /** Enough columns for block products that are split across threads. */
+    private static final int NR_COLUMNS = 80;
+
+    private static final int NR_ROWS = 1000;
+
+    private static final int NR_COMPONENTS = 3;
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    private static BufferedDataTable TABLE;
+
+    private static double[][] DATA;
+
+    /**
+     * Creates a table with a few dominant directions, some rows contain missing values.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        EXEC_CONTEXT = CovarianceAccumulatorTest.createExecutionContext();
+        DATA = CovarianceAccumulatorTest.createLowRankData(new Random(23), NR_ROWS, NR_COLUMNS, 100, NR_COMPONENTS);
+        TABLE = CovarianceAccumulatorTest.createTable(EXEC_CONTEXT, DATA, 10);
+    }
+
+    /**
+     * Releases the table.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        EXEC_CONTEXT = null;
+        TABLE = null;
+        DATA = null;
+    }
+
+    /**
+     * Computes the components on the test thread.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testMatchesExactDecomposition() throws Exception {
+        checkResult(compute());
+    }
+
+    /**
+     * Computes the components in the global thread pool, i.e. with the block products split across threads.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testConcurrentMatchesExactDecomposition() throws Exception {
+        checkResult(KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(RandomizedPCATest::compute).get());
+    }
+
+    private static RandomizedPCA.Result compute() throws Exception {
+        return RandomizedPCA.compute(EXEC_CONTEXT, TABLE, CovarianceAccumulatorTest.allColumns(NR_COLUMNS),
+            NR_COMPONENTS);
+    }
+
+    private static void checkResult(final RandomizedPCA.Result result) {
+        final double[][] valid = CovarianceAccumulatorTest.validRows(DATA, 10);
+        assertEquals("Wrong number of ignored rows", DATA.length - valid.length, result.getMissingCount());
+        final EigenvalueDecomposition exact = new Matrix(CovarianceAccumulatorTest.covariances(valid)).eig();
+        final double[] exactValues = exact.getRealEigenvalues();
+        final Integer[] order = new Integer[NR_COLUMNS];
+        for (int i = 0; i < NR_COLUMNS; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(exactValues[b], exactValues[a]));
+        final double[] eigenvalues = result.getEigenvalues();
+        final Matrix eigenvectors = result.getEigenvectors();
+        assertEquals("Wrong number of components", NR_COMPONENTS, eigenvectors.getColumnDimension());
+        for (int k = 0; k < NR_COMPONENTS; k++) {
+            final double expected = exactValues[order[k]];
+            assertEquals("Wrong eigenvalue " + k, expected, eigenvalues[k], 1e-9 * expected);
+            // eigenvectors are unique up to their sign
+            double dot = 0;
+            for (int i = 0; i < NR_COLUMNS; i++) {
+                dot += exact.getV().get(i, order[k]) * eigenvectors.get(i, k);
+            }
+            assertEquals("Wrong eigenvector " + k, 1.0, Math.abs(dot), 1e-9);
+        }
+    }
+}
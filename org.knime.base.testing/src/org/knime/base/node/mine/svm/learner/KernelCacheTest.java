@@ -0,0 +1,145 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.svm.learner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.node.mine.svm.kernel.Kernel;
+import org.knime.base.node.mine.svm.kernel.RBFKernel;
+import org.knime.base.node.mine.svm.util.DoubleVector;
+import org.knime.core.node.KNIMEConstants;
+
+/**
+ * Tests that the {@link KernelCache} returns the same kernel values as evaluating the kernel directly, whether the
+ * values come from cached rows, from evicted rows or from rows computed concurrently.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class KernelCacheTest {
+
+    /** Enough vectors and dimensions for kernel rows that are computed in several chunks. */
+    private static final int NR_VECTORS = 3000;
+
+    private static final int NR_DIMENSIONS = 50;
+
+    /**
+     * Compares cached kernel values with directly evaluated ones, using a budget of two rows so that rows get evicted.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testCachedMatchesUncached() throws Exception {
+        final DoubleVector[] data = createData(new Random(5));
+        final Kernel kernel = createKernel();
+        checkCache(data, kernel, new KernelCache(data, kernel, 0));
+    }
+
+    /**
+     * Same as {@link #testCachedMatchesUncached()} but with the diagonal and the rows computed in the global thread
+     * pool.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testConcurrentCachedMatchesUncached() throws Exception {
+        final DoubleVector[] data = createData(new Random(6));
+        final Kernel kernel = createKernel();
+        KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> {
+            checkCache(data, kernel, new KernelCache(data, kernel, 0));
+            return null;
+        }).get();
+    }
+
+    private static void checkCache(final DoubleVector[] data, final Kernel kernel, final KernelCache cache)
+        throws Exception {
+        final Random random = new Random(7);
+        for (int i = 0; i < NR_VECTORS; i++) {
+            assertEquals("Wrong diagonal value " + i, kernel.evaluate(data[i], data[i]), cache.getDiagonal(i), 0.0);
+        }
+        // few uses don't justify a row, many do
+        assertNull("Row computed for a single use.", cache.getRow(0, 1));
+        for (int r = 0; r < 5; r++) {
+            final int i = random.nextInt(NR_VECTORS);
+            final double[] row = cache.getRow(i, NR_VECTORS);
+            assertNotNull("No row computed for a full use.", row);
+            for (int j = 0; j < NR_VECTORS; j++) {
+                final double expected = kernel.evaluate(data[i], data[j]);
+                assertEquals("Wrong row entry " + i + ", " + j, expected, row[j], 0.0);
+                assertEquals("Wrong cached value " + i + ", " + j, expected, cache.evaluate(i, j), 0.0);
+                assertEquals("Wrong transposed value " + j + ", " + i, expected, cache.evaluate(j, i), 0.0);
+            }
+        }
+        for (int k = 0; k < 10000; k++) {
+            final int i = random.nextInt(NR_VECTORS);
+            final int j = random.nextInt(NR_VECTORS);
+            assertEquals("Wrong value " + i + ", " + j, kernel.evaluate(data[i], data[j]), cache.evaluate(i, j), 0.0);
+        }
+    }
+
+    private static Kernel createKernel() {
+        final RBFKernel kernel = new RBFKernel();
+        kernel.setParameter(0, 3.0);
+        return kernel;
+    }
+
+    private static DoubleVector[] createData(final Random random) {
+        final DoubleVector[] data = new DoubleVector[NR_VECTORS];
+        for (int i = 0; i < NR_VECTORS; i++) {
+            final ArrayList<Double> values = new ArrayList<>(NR_DIMENSIONS);
+            for (int d = 0; d < NR_DIMENSIONS; d++) {
+                values.add(random.nextGaussian());
+            }
+            data[i] = new DoubleVector(values, random.nextBoolean() ? "a" : "b");
+        }
+        return data;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.correlation.compute;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.base.util.HalfIntMatrix;
+
+/**
+ * Tests for {@link NumericRowBlock}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class NumericRowBlockTest {
+
+    private static final int NO_OF_COLS = 70;
+
+    private static final int NO_OF_ROWS = 2 * NumericRowBlock.ROWS_PER_BLOCK + 17;
+
+    /**
+     * Compares the blocked sums and cross-products with sums computed row by row, including missing and infinite
+     * values and a finite value whose square overflows.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testSumsMatchRowByRow() throws Exception {
+        final Random random = new Random(5);
+        final Double[][] values = new Double[NO_OF_ROWS][NO_OF_COLS];
+        for (int r = 0; r < NO_OF_ROWS; r++) {
+            for (int c = 0; c < NO_OF_COLS; c++) {
+                if (random.nextInt(10) == 0) {
+                    values[r][c] = null;
+                } else if (c == 3 && random.nextInt(100) == 0) {
+                    values[r][c] = Double.POSITIVE_INFINITY;
+                } else {
+                    values[r][c] = (double)random.nextInt(100);
+                }
+            }
+        }
+        // its square is infinite but must not turn the sums of rows where other columns are missing into NaN,
+        // the integers added to it are absorbed by rounding in any order
+        values[NumericRowBlock.ROWS_PER_BLOCK + 3][5] = 1e200;
+        final double[][] sum = new double[NO_OF_COLS][NO_OF_COLS];
+        final double[][] sumSq = new double[NO_OF_COLS][NO_OF_COLS];
+        final HalfIntMatrix validCount = new HalfIntMatrix(NO_OF_COLS, true);
+        final double[][] crossProducts = new double[NO_OF_COLS][NO_OF_COLS];
+        final NumericRowBlock block = new NumericRowBlock(NO_OF_COLS);
+        for (boolean cross : new boolean[]{false, true}) {
+            for (int r = 0; r < NO_OF_ROWS; r++) {
+                for (int c = 0; c < NO_OF_COLS; c++) {
+                    if (values[r][c] == null) {
+                        block.setMissing(c);
+                    } else {
+                        block.set(c, values[r][c]);
+                    }
+                }
+                if (block.endRow()) {
+                    add(block, cross, sum, sumSq, validCount, crossProducts);
+                }
+            }
+            add(block, cross, sum, sumSq, validCount, crossProducts);
+        }
+
+        for (int i = 0; i < NO_OF_COLS; i++) {
+            for (int j = 0; j < NO_OF_COLS; j++) {
+                double expectedSum = 0;
+                double expectedSumSq = 0;
+                double expectedCross = 0;
+                int expectedCount = 0;
+                for (int r = 0; r < NO_OF_ROWS; r++) {
+                    if (values[r][i] != null && values[r][j] != null) {
+                        expectedSum += values[r][i];
+                        expectedSumSq += values[r][i] * values[r][i];
+                        expectedCross += values[r][i] * values[r][j];
+                        expectedCount++;
+                    }
+                }
+                // all other values are integers, hence the sums are exact
+                assertEquals(expectedSum, sum[i][j], 0);
+                assertEquals(expectedSumSq, sumSq[i][j], 0);
+                assertEquals(expectedCount, validCount.get(i, j));
+                if (j > i) {
+                    assertEquals(expectedCross, crossProducts[i][j], 0);
+                }
+            }
+        }
+    }
+
+    private static void add(final NumericRowBlock block, final boolean cross, final double[][] sum,
+        final double[][] sumSq, final HalfIntMatrix validCount, final double[][] crossProducts) throws Exception {
+        if (cross) {
+            block.addCrossProducts(crossProducts);
+        } else {
+            block.addStatistics(sum, sumSq, validCount);
+        }
+    }
+}
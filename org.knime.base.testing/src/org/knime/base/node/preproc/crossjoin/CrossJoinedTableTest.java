@@ -0,0 +1,240 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.crossjoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowIterator;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.Node;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests for {@link CrossJoinedTable}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CrossJoinedTableTest {
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    /**
+     * Creates the execution context.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        EXEC_CONTEXT = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(new CrossJoinerNodeFactory()),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * Releases the execution context.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        EXEC_CONTEXT = null;
+    }
+
+    /**
+     * Tests that the rows are generated in the same blocked order as the former materializing implementation.
+     */
+    @Test
+    public void testIterationOrder() {
+        for (int chunkSize : new int[]{1, 2, 3, 7, 100}) {
+            final BufferedDataTable left = createTable("L", 7);
+            final BufferedDataTable right = createTable("R", 5);
+            final CrossJoinedTable table = createCrossJoin(left, right, chunkSize);
+            assertEquals(35, table.size());
+            assertEquals(expectedRows(left, right, chunkSize), readRows(table.iterator()));
+        }
+    }
+
+    /**
+     * Tests that an empty input results in an empty product.
+     */
+    @Test
+    public void testEmptyInput() {
+        final CrossJoinedTable table = createCrossJoin(createTable("L", 4), createTable("R", 0), 3);
+        assertEquals(0, table.size());
+        assertTrue(readRows(table.iterator()).isEmpty());
+    }
+
+    /**
+     * Tests that processing the blocks concurrently yields the rows of the iterator in block order.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testProcessBlocks() throws Exception {
+        final CrossJoinedTable table = createCrossJoin(createTable("L", 53), createTable("R", 11), 4);
+        final List<String> expected = readRows(table.iterator());
+        final Future<List<List<String>>> future = KNIMEConstants.GLOBAL_THREAD_POOL
+            .enqueue(() -> table.processBlocks(CrossJoinedTableTest::readRows, null));
+        final List<List<String>> blocks = future.get();
+        assertEquals(table.getNrBlocks(), blocks.size());
+        final List<String> actual = new ArrayList<>();
+        blocks.forEach(actual::addAll);
+        assertEquals(expected, actual);
+        // sequential processing outside of a thread pool
+        final List<String> sequential = new ArrayList<>();
+        final List<List<String>> sequentialBlocks = table.processBlocks(CrossJoinedTableTest::readRows, null);
+        sequentialBlocks.forEach(sequential::addAll);
+        assertEquals(expected, sequential);
+    }
+
+    /**
+     * Tests the detection of possibly duplicate row keys.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testHasUniqueRowKeys() throws Exception {
+        final BufferedDataTable plain = createTable("Row", 3);
+        final BufferedDataTable underscore = createTable("Row_", 3);
+        assertTrue(createCrossJoin(plain, plain, "_").hasUniqueRowKeys(null));
+        assertTrue(createCrossJoin(underscore, plain, "_").hasUniqueRowKeys(null));
+        assertTrue(createCrossJoin(plain, underscore, "_").hasUniqueRowKeys(null));
+        assertFalse(createCrossJoin(underscore, underscore, "_").hasUniqueRowKeys(null));
+        assertFalse(createCrossJoin(plain, plain, "").hasUniqueRowKeys(null));
+    }
+
+    private static CrossJoinedTable createCrossJoin(final BufferedDataTable left, final BufferedDataTable right,
+        final int chunkSize) {
+        return new CrossJoinedTable(createSpec(true), left, right, true, true, "_", chunkSize);
+    }
+
+    private static CrossJoinedTable createCrossJoin(final BufferedDataTable left, final BufferedDataTable right,
+        final String separator) {
+        return new CrossJoinedTable(createSpec(false), left, right, false, false, separator, 2);
+    }
+
+    private static DataTableSpec createSpec(final boolean showKeys) {
+        final DataTableSpec spec = new DataTableSpec(new DataColumnSpecCreator("left", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("right", IntCell.TYPE).createSpec());
+        if (!showKeys) {
+            return spec;
+        }
+        return new DataTableSpec(spec, new DataTableSpec(
+            new DataColumnSpecCreator("left key", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("right key", StringCell.TYPE).createSpec()));
+    }
+
+    private static BufferedDataTable createTable(final String prefix, final int size) {
+        final BufferedDataContainer container = EXEC_CONTEXT.createDataContainer(
+            new DataTableSpec(new DataColumnSpecCreator(prefix, IntCell.TYPE).createSpec()));
+        for (int i = 0; i < size; i++) {
+            container.addRowToTable(new DefaultRow(prefix + i, new IntCell(i)));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /** Replicates the loops of the former cross joiner implementation. */
+    private static List<String> expectedRows(final BufferedDataTable left, final BufferedDataTable right,
+        final int chunkSize) {
+        final List<DataRow> leftRows = readTable(left);
+        final List<DataRow> rightRows = readTable(right);
+        final List<String> rows = new ArrayList<>();
+        for (int l = 0; l < leftRows.size(); l += chunkSize) {
+            for (int r = 0; r < rightRows.size(); r += chunkSize) {
+                for (DataRow leftRow : leftRows.subList(l, Math.min(l + chunkSize, leftRows.size()))) {
+                    for (DataRow rightRow : rightRows.subList(r, Math.min(r + chunkSize, rightRows.size()))) {
+                        rows.add(toString(CrossJoinedTable.joinRow(leftRow, rightRow, true, true, "_")));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static List<DataRow> readTable(final BufferedDataTable table) {
+        final List<DataRow> rows = new ArrayList<>();
+        try (CloseableRowIterator it = table.iterator()) {
+            while (it.hasNext()) {
+                rows.add(it.next());
+            }
+        }
+        return rows;
+    }
+
+    private static List<String> readRows(final RowIterator it) {
+        final List<String> rows = new ArrayList<>();
+        while (it.hasNext()) {
+            rows.add(toString(it.next()));
+        }
+        return rows;
+    }
+
+    private static String toString(final DataRow row) {
+        final StringBuilder b = new StringBuilder(row.getKey().getString());
+        for (int i = 0; i < row.getNumCells(); i++) {
+            b.append(',').append(row.getCell(i));
+        }
+        return b.toString();
+    }
+}
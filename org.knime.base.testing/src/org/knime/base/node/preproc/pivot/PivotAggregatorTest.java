@@ -0,0 +1,235 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.pivot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.base.data.aggregation.ColumnAggregator;
+import org.knime.base.data.aggregation.GlobalSettings;
+import org.knime.base.data.aggregation.OperatorColumnSettings;
+import org.knime.base.data.aggregation.general.CountOperator;
+import org.knime.base.data.aggregation.general.MaxOperator;
+import org.knime.base.data.aggregation.general.MinOperator;
+import org.knime.base.data.aggregation.numerical.MeanOperator;
+import org.knime.base.data.aggregation.numerical.SumOperator;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.Node;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests for {@link PivotAggregator}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class PivotAggregatorTest {
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new DataColumnSpecCreator("Group", StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("Pivot", StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("Int", IntCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("Double", DoubleCell.TYPE).createSpec());
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    /**
+     * Creates the execution context.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        EXEC_CONTEXT = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(new Pivot2NodeFactory()),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * Releases the execution context.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        EXEC_CONTEXT = null;
+    }
+
+    /**
+     * Tests the aggregates and the order of the combinations.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testAggregate() throws Exception {
+        final BufferedDataTable table = createTable(new Object[][]{{"b", "x", 1, 1.5}, {"a", "y", 2, null},
+            {"b", "x", null, 2.5}, {"a", null, 3, 0.5}, {"b", "y", 4, -1.0}, {"a", "y", 5, 3.0}});
+        final PivotAggregator aggregator = createAggregator();
+        aggregator.aggregate(table, EXEC_CONTEXT);
+
+        assertEquals(4, aggregator.getNrCombinations());
+        // missing pivot values are sorted first
+        final String[][] expected = {{"a", "?", "3", "0.5", "3", "0.5", "1", "1"},
+            {"a", "y", "7", "3.0", "2", "3.0", "2", "1"}, {"b", "x", "1", "2.0", "1", "2.5", "2", "2"},
+            {"b", "y", "4", "-1.0", "4", "-1.0", "1", "1"}};
+        final int[] groupIndices = {0, 0, 1, 1};
+        for (int c = 0; c < expected.length; c++) {
+            assertArrayEquals(expected[c], toStrings(aggregator, c));
+            assertEquals(groupIndices[c], aggregator.getGroupIndex(c));
+        }
+    }
+
+    /**
+     * Tests the pivot totals which merge the aggregates of all groups.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testPivotTotals() throws Exception {
+        final BufferedDataTable table = createTable(new Object[][]{{"b", "x", 1, 1.5}, {"a", "y", 2, null},
+            {"b", "x", null, 2.5}, {"a", "x", 3, 0.5}, {"b", "y", 4, -1.0}, {"a", "y", 5, 3.0}});
+        final PivotAggregator aggregator = createAggregator();
+        aggregator.aggregate(table, EXEC_CONTEXT);
+        final PivotAggregator totals = aggregator.createPivotTotals();
+
+        assertEquals(2, totals.getNrCombinations());
+        assertArrayEquals(new String[]{"x", "4", "1.5", "1", "2.5", "3", "3"}, toStrings(totals, 0));
+        assertArrayEquals(new String[]{"y", "11", "1.0", "2", "3.0", "3", "2"}, toStrings(totals, 1));
+    }
+
+    /**
+     * Tests that the concurrent aggregation of partitions yields the same result as the sequential one.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testConcurrentAggregation() throws Exception {
+        final Random random = new Random(42);
+        final Object[][] rows = new Object[5 * PivotAggregator.ROWS_PER_PARTITION + 17][];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = new Object[]{"g" + random.nextInt(50), random.nextInt(20) == 0 ? null : "p" + random.nextInt(7),
+                random.nextInt(20) == 0 ? null : random.nextInt(1000), random.nextInt(1000) / 8.0};
+        }
+        final BufferedDataTable table = createTable(rows);
+        final PivotAggregator sequential = createAggregator();
+        sequential.aggregate(table, EXEC_CONTEXT);
+        final PivotAggregator concurrent = KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> {
+            final PivotAggregator aggregator = createAggregator();
+            aggregator.aggregate(table, EXEC_CONTEXT);
+            return aggregator;
+        }).get();
+
+        assertEquals(sequential.getNrCombinations(), concurrent.getNrCombinations());
+        for (int c = 0; c < sequential.getNrCombinations(); c++) {
+            assertArrayEquals(toStrings(sequential, c), toStrings(concurrent, c));
+            assertEquals(sequential.getGroupIndex(c), concurrent.getGroupIndex(c));
+        }
+    }
+
+    private static PivotAggregator createAggregator() {
+        final DataColumnSpec intSpec = SPEC.getColumnSpec(2);
+        final DataColumnSpec doubleSpec = SPEC.getColumnSpec(3);
+        final GlobalSettings settings = GlobalSettings.DEFAULT;
+        final OperatorColumnSettings excl = OperatorColumnSettings.DEFAULT_EXCL_MISSING;
+        final List<ColumnAggregator> aggregators = Arrays.asList(
+            new ColumnAggregator(intSpec, new SumOperator(settings, excl), false),
+            new ColumnAggregator(doubleSpec, new MeanOperator(settings, excl), false),
+            new ColumnAggregator(intSpec, new MinOperator(settings, excl), false),
+            new ColumnAggregator(doubleSpec, new MaxOperator(settings, excl), false),
+            new ColumnAggregator(doubleSpec, new CountOperator(settings, excl), true),
+            new ColumnAggregator(doubleSpec, new CountOperator(settings, excl), false));
+        return new PivotAggregator(SPEC, Arrays.asList("Group"), Arrays.asList("Pivot"), aggregators);
+    }
+
+    /** Returns the group, pivot and result cells of a combination as strings. */
+    private static String[] toStrings(final PivotAggregator aggregator, final int index) {
+        final DataCell[] group = aggregator.getGroupCells(index);
+        final DataCell[] pivot = aggregator.getPivotCells(index);
+        final String[] result = new String[group.length + pivot.length + 6];
+        int i = 0;
+        for (final DataCell cell : group) {
+            result[i++] = cell.toString();
+        }
+        for (final DataCell cell : pivot) {
+            result[i++] = cell.toString();
+        }
+        for (int a = 0; a < 6; a++) {
+            result[i++] = aggregator.getResult(index, a).toString();
+        }
+        return result;
+    }
+
+    private static BufferedDataTable createTable(final Object[][] rows) {
+        final BufferedDataContainer container = EXEC_CONTEXT.createDataContainer(SPEC);
+        for (int r = 0; r < rows.length; r++) {
+            final Object[] row = rows[r];
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r),
+                row[0] == null ? DataType.getMissingCell() : new StringCell((String)row[0]),
+                row[1] == null ? DataType.getMissingCell() : new StringCell((String)row[1]),
+                row[2] == null ? DataType.getMissingCell() : new IntCell((Integer)row[2]),
+                row[3] == null ? DataType.getMissingCell() : new DoubleCell((Double)row[3])));
+        }
+        container.close();
+        return container.getTable();
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.rank;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.base.node.preproc.rank.RankNodeModel.RankMode;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeSettings;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.defaultnodesettings.SettingsModelStringArray;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests for {@link RankEngine}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class RankEngineTest {
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new DataColumnSpecCreator("Group", StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("Int", IntCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("Double", DoubleCell.TYPE).createSpec());
+
+    private static final Object[][] ROWS = {{"a", 3, 1.0}, {"b", 1, null}, {"a", 1, 2.0}, {"a", 3, 0.5},
+        {"b", 2, 1.0}, {"a", null, 4.0}, {"a", 5, 1.0}};
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    /**
+     * Creates the execution context.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        EXEC_CONTEXT = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(new RankNodeFactory()),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * Releases the execution context.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        EXEC_CONTEXT = null;
+    }
+
+    /**
+     * Tests the ranks of all rank modes within groups, missing values are ranked first.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testRankModes() throws Exception {
+        final BufferedDataTable table = createTable(ROWS);
+        final int[] groupCols = {0};
+        final int[] rankCols = {1};
+        final boolean[] ascending = {true};
+        assertArrayEquals(new String[]{"3", "1", "2", "3", "2", "1", "5"},
+            rank(table, groupCols, rankCols, ascending, RankMode.STANDARD));
+        assertArrayEquals(new String[]{"3", "1", "2", "3", "2", "1", "4"},
+            rank(table, groupCols, rankCols, ascending, RankMode.DENSE));
+        assertArrayEquals(new String[]{"3", "1", "2", "4", "2", "1", "5"},
+            rank(table, groupCols, rankCols, ascending, RankMode.ORDINAL));
+        assertArrayEquals(new String[]{"0.5", "0.0", "0.25", "0.5", "1.0", "0.0", "1.0"},
+            rank(table, groupCols, rankCols, ascending, RankMode.PERCENT));
+        assertArrayEquals(new String[]{"1", "1", "1", "2", "2", "1", "2"},
+            rank(table, groupCols, rankCols, ascending, RankMode.NTILE));
+    }
+
+    /**
+     * Tests descending ranks without groups, missing values are ranked last.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testDescending() throws Exception {
+        final BufferedDataTable table = createTable(ROWS);
+        assertArrayEquals(new String[]{"3", "7", "2", "6", "3", "1", "3"},
+            rank(table, new int[0], new int[]{2}, new boolean[]{false}, RankMode.STANDARD));
+    }
+
+    /**
+     * Tests the distribution of rows to tiles.
+     */
+    @Test
+    public void testNtile() {
+        final long[] expected = {1, 1, 1, 2, 2, 2, 3, 3, 4, 4};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], RankCellFactory.ntile(i + 1, expected.length, 4));
+        }
+        assertEquals(3, RankCellFactory.ntile(3, 3, 5));
+    }
+
+    /**
+     * Tests that the concurrent ranking of groups yields the same ranks as the sequential one.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testConcurrentRanking() throws Exception {
+        final Random random = new Random(42);
+        final Object[][] rows = new Object[5 * RankEngine.ROWS_PER_TASK + 17][];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = new Object[]{"g" + random.nextInt(50), random.nextInt(20) == 0 ? null : random.nextInt(100),
+                random.nextInt(20) == 0 ? null : random.nextInt(1000) / 8.0};
+        }
+        final BufferedDataTable table = createTable(rows);
+        final int[] groupCols = {0};
+        final int[] rankCols = {2, 1};
+        final boolean[] ascending = {false, true};
+        for (final RankMode rankMode : RankMode.values()) {
+            final String[] sequential = rank(table, groupCols, rankCols, ascending, rankMode);
+            final String[] concurrent = KNIMEConstants.GLOBAL_THREAD_POOL
+                .enqueue(() -> rank(table, groupCols, rankCols, ascending, rankMode)).get();
+            assertArrayEquals(rankMode.toString(), sequential, concurrent);
+        }
+    }
+
+    /**
+     * Tests that the node computes the same output with the rank engine as with the sorter, which it falls back to if
+     * the table is too large for the heap.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testEngineMatchesSorter() throws Exception {
+        final Random random = new Random(7);
+        final Object[][] rows = new Object[3000][];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = new Object[]{"g" + random.nextInt(7), random.nextInt(10) == 0 ? null : random.nextInt(30),
+                random.nextInt(10) == 0 ? null : random.nextInt(100) / 4.0};
+        }
+        final BufferedDataTable table = createTable(rows);
+        for (final RankMode rankMode : RankMode.values()) {
+            final NodeSettings settings = createSettings(rankMode);
+            final RankNodeModel engineModel = new RankNodeModel();
+            engineModel.loadValidatedSettingsFrom(settings);
+            assertTrue(engineModel.useRankEngine(SPEC, new int[]{2, 1}, table.size()));
+            final RankNodeModel sorterModel = new RankNodeModel() {
+                @Override
+                boolean useRankEngine(final DataTableSpec inSpec, final int[] rankColIndices, final long nrRows) {
+                    return false;
+                }
+            };
+            sorterModel.loadValidatedSettingsFrom(settings);
+            final BufferedDataTable expected = sorterModel.execute(new BufferedDataTable[]{table}, EXEC_CONTEXT)[0];
+            final BufferedDataTable actual = engineModel.execute(new BufferedDataTable[]{table}, EXEC_CONTEXT)[0];
+            assertEquals(expected.getDataTableSpec(), actual.getDataTableSpec());
+            assertArrayEquals(rankMode.toString(), toStrings(expected), toStrings(actual));
+        }
+    }
+
+    private static NodeSettings createSettings(final RankMode rankMode) {
+        final NodeSettings settings = new NodeSettings("rank");
+        final SettingsModelStringArray groupColumns = RankNodeModel.createGroupColumnsModel();
+        groupColumns.setStringArrayValue(new String[]{"Group"});
+        groupColumns.saveSettingsTo(settings);
+        final SettingsModelStringArray rankColumns = RankNodeModel.createRankColumnsModel();
+        rankColumns.setStringArrayValue(new String[]{"Double", "Int"});
+        rankColumns.saveSettingsTo(settings);
+        final SettingsModelString mode = RankNodeModel.createRankModeModel();
+        mode.setStringValue(rankMode.toString());
+        mode.saveSettingsTo(settings);
+        final SettingsModelStringArray rankOrder = RankNodeModel.createRankOrderModel();
+        rankOrder.setStringArrayValue(new String[]{"Descending", "Ascending"});
+        rankOrder.saveSettingsTo(settings);
+        RankNodeModel.createRankOutColNameModel().saveSettingsTo(settings);
+        final SettingsModelBoolean retainRowOrder = RankNodeModel.createRetainRowOrderModel();
+        retainRowOrder.setBooleanValue(true);
+        retainRowOrder.saveSettingsTo(settings);
+        RankNodeModel.createRankAsLongModel().saveSettingsTo(settings);
+        RankNodeModel.createNrTilesModel().saveSettingsTo(settings);
+        return settings;
+    }
+
+    /** Returns the row keys and cells of all rows as strings. */
+    private static String[] toStrings(final BufferedDataTable table) {
+        final String[] rows = new String[(int)table.size()];
+        int r = 0;
+        for (final DataRow row : table) {
+            final StringBuilder b = new StringBuilder(row.getKey().getString());
+            for (final DataCell cell : row) {
+                b.append('|').append(cell);
+            }
+            rows[r++] = b.toString();
+        }
+        return rows;
+    }
+
+    /** Ranks the table and returns the appended ranks as strings. */
+    private static String[] rank(final BufferedDataTable table, final int[] groupCols, final int[] rankCols,
+        final boolean[] ascending, final RankMode rankMode) throws Exception {
+        final RankEngine engine = new RankEngine(SPEC, groupCols, rankCols, ascending, rankMode, 2);
+        engine.computeRanks(table, EXEC_CONTEXT);
+        final DataType type = rankMode == RankMode.PERCENT ? DoubleCell.TYPE : LongCell.TYPE;
+        final DataColumnSpec colSpec = new DataColumnSpecCreator("rank", type).createSpec();
+        final ColumnRearranger rearranger = new ColumnRearranger(SPEC);
+        rearranger.append(engine.createCellFactory(colSpec, true));
+        final BufferedDataTable ranked = EXEC_CONTEXT.createColumnRearrangeTable(table, rearranger, EXEC_CONTEXT);
+        final String[] ranks = new String[(int)ranked.size()];
+        int r = 0;
+        for (final DataRow row : ranked) {
+            ranks[r++] = row.getCell(SPEC.getNumColumns()).toString();
+        }
+        return ranks;
+    }
+
+    private static BufferedDataTable createTable(final Object[][] rows) {
+        final BufferedDataContainer container = EXEC_CONTEXT.createDataContainer(SPEC);
+        for (int r = 0; r < rows.length; r++) {
+            final Object[] row = rows[r];
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r), new StringCell((String)row[0]),
+                row[1] == null ? DataType.getMissingCell() : new IntCell((Integer)row[1]),
+                row[2] == null ? DataType.getMissingCell() : new DoubleCell((Double)row[2])));
+        }
+        container.close();
+        return container.getTable();
+    }
+}
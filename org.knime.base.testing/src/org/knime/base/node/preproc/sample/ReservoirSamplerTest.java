@@ -0,0 +1,314 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.ModelContent;
+import org.knime.core.node.streamable.RowOutput;
+
+/**
+ * Tests for {@link ReservoirSampler}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ReservoirSamplerTest {
+
+    /**
+     * Tests that all rows are sampled if there are not more rows than the sample size.
+     */
+    @Test
+    public void testSmallInput() {
+        final ReservoirSampler sampler = new ReservoirSampler(createSpec(), 10, -1, 0, 42);
+        final List<DataRow> rows = createRows(0, 8, "A");
+        for (DataRow row : rows) {
+            sampler.add(row);
+        }
+        assertEquals(keys(rows), keys(sample(sampler)));
+    }
+
+    /**
+     * Tests that the sample consists of distinct input rows in input order.
+     */
+    @Test
+    public void testSampleIsSubsetOfInput() {
+        final ReservoirSampler sampler = new ReservoirSampler(createSpec(), 100, -1, 0, 42);
+        final List<DataRow> rows = createRows(0, 1000, "A");
+        for (DataRow row : rows) {
+            sampler.add(row);
+        }
+        final List<DataRow> sample = sample(sampler);
+        assertEquals(100, sample.size());
+        assertInputOrder(sample);
+        final Set<RowKey> distinct = new HashSet<>(keys(sample));
+        assertEquals(100, distinct.size());
+        assertTrue(keys(rows).containsAll(distinct));
+    }
+
+    /**
+     * Tests that every row has the same chance to be sampled.
+     */
+    @Test
+    public void testUniformity() {
+        final int[] hits = new int[100];
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final ReservoirSampler sampler = new ReservoirSampler(10, -1, 0, random.nextLong());
+            for (DataRow row : createRows(0, hits.length, "A")) {
+                sampler.add(row);
+            }
+            for (long index : sampler.getSampleIndices()) {
+                hits[(int)index]++;
+            }
+        }
+        // each row is expected to be sampled 200 times
+        for (int h : hits) {
+            assertTrue("Row sampled " + h + " times", h > 140 && h < 260);
+        }
+    }
+
+    /**
+     * Tests that the number of rows per class matches the stratified sampling row filter.
+     */
+    @Test
+    public void testStratified() {
+        final ReservoirSampler sampler = new ReservoirSampler(createSpec(), 10, 1, 0, 42);
+        final List<DataRow> rows = new ArrayList<>();
+        rows.addAll(createRows(0, 50, "A"));
+        rows.addAll(createRows(50, 30, "B"));
+        rows.addAll(createRows(80, 20, "C"));
+        for (DataRow row : rows) {
+            sampler.add(row);
+        }
+        assertEquals(3, sampler.getClassCount());
+        final Map<String, Integer> counts = countClasses(sample(sampler));
+        assertEquals(5, counts.get("A").intValue());
+        assertEquals(3, counts.get("B").intValue());
+        assertEquals(2, counts.get("C").intValue());
+
+        // remaining rows are distributed in the order of the classes' first occurrence
+        final ReservoirSampler small = new ReservoirSampler(createSpec(), 2, 1, 0, 42);
+        small.add(createRows(0, 1, "C").get(0));
+        small.add(createRows(1, 1, "B").get(0));
+        small.add(createRows(2, 1, "A").get(0));
+        final List<DataRow> smallSample = sample(small);
+        assertEquals(createRows(0, 1, "C").get(0).getKey(), smallSample.get(0).getKey());
+        assertEquals(createRows(1, 1, "B").get(0).getKey(), smallSample.get(1).getKey());
+    }
+
+    /**
+     * Tests that merged samplers of partitions sample from all partitions and keep the input order.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testMergeAndPersistence() throws Exception {
+        final DataTableSpec spec = createSpec();
+        final ReservoirSampler merged = new ReservoirSampler(spec, 30, 1, 0, 0);
+        for (DataRow row : createRows(0, 100, "A")) {
+            merged.add(row);
+        }
+        for (int p = 1; p < 4; p++) {
+            final ReservoirSampler partition = new ReservoirSampler(spec, 30, 1, p, p);
+            for (DataRow row : createRows(100 * p, 100, p % 2 == 0 ? "A" : "B")) {
+                partition.add(row);
+            }
+            // samplers are transferred in serialized form
+            final ModelContent content = new ModelContent("sampler");
+            final DataContainer rows = new DataContainer(spec);
+            partition.save(content, rows);
+            rows.close();
+            merged.merge(ReservoirSampler.load(content, rows.getTable()));
+        }
+        assertEquals(400, merged.getRowCount());
+        final List<DataRow> sample = sample(merged);
+        assertEquals(30, sample.size());
+        assertInputOrder(sample);
+        final Map<String, Integer> counts = countClasses(sample);
+        assertEquals(15, counts.get("A").intValue());
+        assertEquals(15, counts.get("B").intValue());
+    }
+
+    /**
+     * Tests that the same seed gives the same sample, no matter whether the rows are sampled at once or in partitions.
+     */
+    @Test
+    public void testPartitionedSampleEqualsSample() {
+        final List<DataRow> rows = new ArrayList<>();
+        rows.addAll(createRows(0, 300, "A"));
+        rows.addAll(createRows(300, 200, "B"));
+        for (int classColumn : new int[]{-1, 1}) {
+            final ReservoirSampler all = new ReservoirSampler(createSpec(), 40, classColumn, 0, 42);
+            for (DataRow row : rows) {
+                all.add(row);
+            }
+            final ReservoirSampler merged = new ReservoirSampler(createSpec(), 40, classColumn, 0, 42);
+            for (int i = 0; i < 150; i++) {
+                merged.add(rows.get(i));
+            }
+            for (int p = 1; p < 4; p++) {
+                final ReservoirSampler partition = new ReservoirSampler(createSpec(), 40, classColumn, p, 42);
+                for (int i = 150 * p; i < Math.min(150 * (p + 1), rows.size()); i++) {
+                    partition.add(rows.get(i));
+                }
+                merged.merge(partition);
+            }
+            assertEquals(keys(sample(all)), keys(sample(merged)));
+        }
+    }
+
+    /**
+     * Tests that a sampler that only keeps the positions of the rows selects the same rows as one that stores them.
+     */
+    @Test
+    public void testSampleIndicesMatchSample() {
+        final List<DataRow> rows = new ArrayList<>();
+        rows.addAll(createRows(0, 700, "A"));
+        rows.addAll(createRows(700, 300, "B"));
+        for (int classColumn : new int[]{-1, 1}) {
+            final ReservoirSampler withRows = new ReservoirSampler(createSpec(), 50, classColumn, 0, 42);
+            final ReservoirSampler withoutRows = new ReservoirSampler(50, classColumn, 0, 42);
+            for (DataRow row : rows) {
+                withRows.add(row);
+                withoutRows.add(row);
+            }
+            final List<RowKey> expected = new ArrayList<>();
+            for (long index : withoutRows.getSampleIndices()) {
+                expected.add(rows.get((int)index).getKey());
+            }
+            assertEquals(expected, keys(sample(withRows)));
+        }
+    }
+
+    /**
+     * Tests that rows can't be added to a sampler once the sampler of a later partition has been merged into it, as
+     * the stored rows would no longer be in input order.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterMergeOfLaterPartition() {
+        final ReservoirSampler first = new ReservoirSampler(createSpec(), 10, -1, 0, 42);
+        final ReservoirSampler second = new ReservoirSampler(createSpec(), 10, -1, 1, 42);
+        for (DataRow row : createRows(0, 5, "A")) {
+            first.add(row);
+            second.add(row);
+        }
+        first.merge(second);
+        first.add(createRows(5, 1, "A").get(0));
+    }
+
+    /** Collects the sample in a list, the rows are read back from the sampler's stored rows. */
+    private static List<DataRow> sample(final ReservoirSampler sampler) {
+        final List<DataRow> rows = new ArrayList<>();
+        try {
+            sampler.writeSample(new RowOutput() {
+                @Override
+                public void push(final DataRow row) {
+                    rows.add(row);
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return rows;
+    }
+
+    private static List<RowKey> keys(final List<DataRow> rows) {
+        final List<RowKey> keys = new ArrayList<>(rows.size());
+        for (DataRow row : rows) {
+            keys.add(row.getKey());
+        }
+        return keys;
+    }
+
+    private static List<DataRow> createRows(final int start, final int count, final String classValue) {
+        final List<DataRow> rows = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            rows.add(new DefaultRow("Row" + i, new IntCell(i), new StringCell(classValue)));
+        }
+        return rows;
+    }
+
+    private static DataTableSpec createSpec() {
+        return new DataTableSpec(new String[]{"value", "class"}, new DataType[]{IntCell.TYPE, StringCell.TYPE});
+    }
+
+    private static void assertInputOrder(final List<DataRow> rows) {
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue("Rows not in input order", ((IntCell)rows.get(i - 1).getCell(0))
+                .getIntValue() < ((IntCell)rows.get(i).getCell(0)).getIntValue());
+        }
+    }
+
+    private static Map<String, Integer> countClasses(final List<DataRow> rows) {
+        final Map<String, Integer> counts = new HashMap<>();
+        for (DataRow row : rows) {
+            counts.merge(((StringCell)row.getCell(1)).getStringValue(), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
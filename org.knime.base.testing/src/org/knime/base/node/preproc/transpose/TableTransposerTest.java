@@ -0,0 +1,195 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.transpose;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests the {@link TableTransposer}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TableTransposerTest {
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    /**
+     * Creates the execution context.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        EXEC_CONTEXT = new ExecutionContext(new DefaultNodeProgressMonitor(),
+            new Node(new TransposeTableNodeFactory()), SingleNodeContainer.MemoryPolicy.CacheSmallInMemory,
+            new HashMap<Integer, ContainerTable>());
+    }
+
+    /**
+     * Releases the execution context.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        EXEC_CONTEXT = null;
+    }
+
+    /**
+     * Transposes a table that fits into a single tile.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testSingleTile() throws Exception {
+        final BufferedDataTable table = createTable(10, 4);
+        checkTransposed(table, new TableTransposer(table).transpose(EXEC_CONTEXT));
+    }
+
+    /**
+     * Transposes a table with 25 tiles of two rows, at most three of which are read at once. The tiles are merged in
+     * two passes, into nine and then into three tiles.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testMultiLevelTiles() throws Exception {
+        final BufferedDataTable table = createTable(50, 3);
+        checkTransposed(table, new TableTransposer(table, 6, 3).transpose(EXEC_CONTEXT));
+    }
+
+    /**
+     * Transposes a table whose number of tiles is a multiple of the number of tiles read at once.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testFullTileGroups() throws Exception {
+        final BufferedDataTable table = createTable(36, 3);
+        checkTransposed(table, new TableTransposer(table, 3, 4).transpose(EXEC_CONTEXT));
+    }
+
+    /**
+     * Transposes tables without rows or columns.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testEmptyTable() throws Exception {
+        final BufferedDataTable noRows = createTable(0, 3);
+        checkTransposed(noRows, new TableTransposer(noRows, 6, 3).transpose(EXEC_CONTEXT));
+        final BufferedDataTable noColumns = createTable(5, 0);
+        checkTransposed(noColumns, new TableTransposer(noColumns, 6, 3).transpose(EXEC_CONTEXT));
+        final BufferedDataTable empty = createTable(0, 0);
+        checkTransposed(empty, new TableTransposer(empty, 6, 3).transpose(EXEC_CONTEXT));
+    }
+
+    private static BufferedDataTable createTable(final int nrRows, final int nrCols) {
+        final DataColumnSpec[] colSpecs = new DataColumnSpec[nrCols];
+        for (int c = 0; c < nrCols; c++) {
+            colSpecs[c] = new DataColumnSpecCreator("col" + c, StringCell.TYPE).createSpec();
+        }
+        final BufferedDataContainer container = EXEC_CONTEXT.createDataContainer(new DataTableSpec(colSpecs));
+        for (int r = 0; r < nrRows; r++) {
+            final DataCell[] cells = new DataCell[nrCols];
+            for (int c = 0; c < nrCols; c++) {
+                cells[c] = new StringCell(r + "/" + c);
+            }
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r), cells));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    private static void checkTransposed(final BufferedDataTable table, final BufferedDataTable transposed) {
+        final DataTableSpec spec = table.getDataTableSpec();
+        final DataTableSpec transposedSpec = transposed.getDataTableSpec();
+        assertEquals("Wrong number of rows", spec.getNumColumns(), transposed.size());
+        assertEquals("Wrong number of columns", table.size(), transposedSpec.getNumColumns());
+        final DataCell[][] cells = new DataCell[(int)table.size()][];
+        int r = 0;
+        for (DataRow row : table) {
+            final DataColumnSpec colSpec = transposedSpec.getColumnSpec(r);
+            assertEquals("Wrong column name", row.getKey().getString(), colSpec.getName());
+            assertEquals("Wrong column type", StringCell.TYPE, colSpec.getType());
+            cells[r] = new DataCell[row.getNumCells()];
+            for (int c = 0; c < row.getNumCells(); c++) {
+                cells[r][c] = row.getCell(c);
+            }
+            r++;
+        }
+        try (CloseableRowIterator it = transposed.iterator()) {
+            for (int c = 0; c < spec.getNumColumns(); c++) {
+                final DataRow row = it.next();
+                assertEquals("Wrong row key", spec.getColumnSpec(c).getName(), row.getKey().getString());
+                assertEquals("Wrong number of cells", cells.length, row.getNumCells());
+                for (r = 0; r < cells.length; r++) {
+                    assertEquals("Wrong cell " + r + ", " + c, cells[r][c], row.getCell(r));
+                }
+            }
+            assertFalse("Too many rows", it.hasNext());
+        }
+    }
+}
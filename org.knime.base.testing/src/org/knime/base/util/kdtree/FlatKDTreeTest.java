@@ -0,0 +1,144 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.util.kdtree;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Testcases for {@link FlatKDTree}, the results are compared against a linear search.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class FlatKDTreeTest {
+
+    /**
+     * Checks the nearest neighbours for random data with and without a tree.
+     */
+    @Test
+    public void testSearch() {
+        final Random rand = new Random(2108);
+        for (int i = 0; i < 200; i++) {
+            final int size = rand.nextInt(1000) + 1;
+            final int dimensions = rand.nextInt(24) + 1;
+            final int k = rand.nextInt(Math.min(size, 50)) + 1;
+            final int bucketSize = rand.nextInt(16) + 1;
+            final double[] patterns = new double[size * dimensions];
+            for (int j = 0; j < patterns.length; j++) {
+                patterns[j] = 120 * (rand.nextDouble() - 0.5);
+            }
+            final double[] query = new double[dimensions];
+            for (int j = 0; j < query.length; j++) {
+                query[j] = 100 * (rand.nextDouble() - 0.5);
+            }
+            final double[] expected = sortedDistances(patterns, dimensions, query);
+
+            final NeighbourHeap heap = new NeighbourHeap(k);
+            for (boolean bruteForce : new boolean[]{false, true}) {
+                final FlatKDTree tree = new FlatKDTree(patterns, dimensions, bucketSize, bruteForce);
+                heap.reset(k);
+                tree.search(query, 0, heap);
+                assertEquals("Wrong number of neighbours", k, heap.size());
+                for (int j = 0; j < k; j++) {
+                    assertEquals("Wrong distance for neighbour " + j, expected[j], heap.getDistance(j), 1e-9);
+                    assertEquals("Wrong id for neighbour " + j, expected[j],
+                        distance(patterns, heap.getId(j), dimensions, query, 0), 1e-9);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that patterns with the same distance as the k-th neighbour are returned as well.
+     */
+    @Test
+    public void testTies() {
+        // a grid with many equal distances to the origin
+        final int dimensions = 2;
+        final double[] patterns = new double[2 * 11 * 11];
+        int pos = 0;
+        for (int x = -5; x <= 5; x++) {
+            for (int y = -5; y <= 5; y++) {
+                patterns[pos++] = x;
+                patterns[pos++] = y;
+            }
+        }
+        final double[] query = new double[]{0.0, 0.0};
+        final double[] expected = sortedDistances(patterns, dimensions, query);
+
+        final NeighbourHeap heap = new NeighbourHeap(2);
+        final FlatKDTree tree = new FlatKDTree(patterns, dimensions, 2);
+        tree.search(query, 0, heap);
+        // the origin and its four direct neighbours
+        assertEquals("Ties not returned", 5, heap.size());
+        for (int j = 0; j < heap.size(); j++) {
+            assertEquals("Wrong distance for neighbour " + j, expected[j], heap.getDistance(j), 0);
+        }
+    }
+
+    private static double[] sortedDistances(final double[] patterns, final int dimensions, final double[] query) {
+        final double[] dist = new double[patterns.length / dimensions];
+        for (int i = 0; i < dist.length; i++) {
+            dist[i] = distance(patterns, i, dimensions, query, 0);
+        }
+        Arrays.sort(dist);
+        return dist;
+    }
+
+    private static double distance(final double[] patterns, final int index, final int dimensions,
+        final double[] query, final int offset) {
+        double sum = 0;
+        for (int d = 0; d < dimensions; d++) {
+            final double diff = patterns[index * dimensions + d] - query[offset + d];
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.commons.math.random.RandomData;
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.data.memberships.RootDataMemberships;
+import org.knime.base.node.mine.treeensemble2.learner.SplitCandidate;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeCondition;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNumericCondition;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * Tests the quantization and the histogram based split search of {@link TreeBinnedNumericColumnData}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TreeBinnedNumericColumnDataTest {
+
+    private static TreeBinnedNumericColumnData createBinnedColumnData(
+        final TreeEnsembleLearnerConfiguration config, final double[] data, final String name,
+        final int attributeIndex) {
+        DataColumnSpec colSpec = new DataColumnSpecCreator(name, DoubleCell.TYPE).createSpec();
+        TreeBinnedNumericColumnDataCreator colCreator = new TreeBinnedNumericColumnDataCreator(colSpec);
+        for (int i = 0; i < data.length; i++) {
+            final RowKey key = RowKey.createRowKey(i);
+            if (Double.isNaN(data[i])) {
+                colCreator.add(key, new MissingCell(null));
+            } else {
+                colCreator.add(key, new DoubleCell(data[i]));
+            }
+        }
+        TreeBinnedNumericColumnData col = colCreator.createColumnData(attributeIndex, config);
+        col.getMetaData().setAttributeIndex(attributeIndex);
+        return col;
+    }
+
+    private static TreeEnsembleLearnerConfiguration createRegressionConfig() throws InvalidSettingsException {
+        TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(true);
+        config.setNrModels(1);
+        config.setDataSelectionWithReplacement(false);
+        config.setUseDifferentAttributesAtEachNode(false);
+        config.setDataFractionPerTree(1.0);
+        config.setColumnSamplingMode(ColumnSamplingMode.None);
+        config.setUseHistogramSplits(true);
+        return config;
+    }
+
+    /**
+     * Columns with many distinct values are quantized into {@link TreeBinnedNumericColumnData#MAX_NR_BINS} bins of
+     * roughly equal frequency, missing values are sorted to the end.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testQuantization() throws Exception {
+        final int nrRows = 10000;
+        final double[] data = new double[nrRows];
+        for (int i = 0; i < nrRows; i++) {
+            data[i] = i % 100 == 0 ? Double.NaN : (nrRows - i) * 0.5;
+        }
+        TreeBinnedNumericColumnData col = createBinnedColumnData(createRegressionConfig(), data, "test-col", 0);
+        assertEquals(TreeBinnedNumericColumnData.MAX_NR_BINS, col.getNrBins());
+        assertEquals(nrRows - 100, col.getLengthNonMissing());
+        assertTrue(col.containsMissingValues());
+        final int[] binSizes = new int[col.getNrBins()];
+        for (int i = 0; i < col.getLengthNonMissing(); i++) {
+            binSizes[col.getBin(i)]++;
+            if (i > 0) {
+                assertTrue("Bins must be ordered", col.getBin(i - 1) <= col.getBin(i));
+                assertTrue("Values must be sorted", col.getSorted(i - 1) <= col.getSorted(i));
+            }
+        }
+        for (int size : binSizes) {
+            assertTrue("Unbalanced bin of size " + size, Math.abs(size - 9900 / 255.0) <= 1);
+        }
+        for (int i = col.getLengthNonMissing(); i < nrRows; i++) {
+            assertTrue(Double.isNaN(col.getSorted(i)));
+            assertEquals(col.getNrBins(), col.getBin(i));
+        }
+        // the largest value of a bin is its representative
+        assertEquals(4999.5, col.getSorted(col.getLengthNonMissing() - 1), 0.0);
+    }
+
+    /**
+     * If there are fewer distinct values than bins, the histogram split search must yield the same splits as the
+     * search on the sorted column and the histograms of a sibling node derived by subtraction must give the same
+     * result as the directly computed ones.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCalcBestSplitRegression() throws Exception {
+        String dataCSV = "1,2,3,4,5,6,7,8,9,10";
+        String targetCSV = "1,5,4,4.3,6.5,6.5,4,3,3,4";
+        TreeEnsembleLearnerConfiguration config = createRegressionConfig();
+        RandomData rd = config.createRandomData();
+        TreeTargetNumericColumnData target = TestDataGenerator.createNumericTargetColumn(targetCSV);
+        TreeBinnedNumericColumnData attribute =
+            createBinnedColumnData(config, TreeNumericColumnDataTest.asDataArray(dataCSV), "test-col", 0);
+        assertEquals(10, attribute.getNrBins());
+        TreeData data = new TreeData(new TreeAttributeColumnData[]{attribute}, target, TreeType.Ordinary);
+        double[] weights = new double[10];
+        Arrays.fill(weights, 1.0);
+        DataMemberships rootMem = new RootDataMemberships(weights, data, new DefaultDataIndexManager(data));
+        BinnedHistograms rootHistograms = new BinnedHistograms();
+        SplitCandidate firstSplit = rootHistograms.calcBestSplitRegression(attribute, rootMem,
+            target.getPriors(rootMem, config), target, rd);
+        assertEquals(10.885444, firstSplit.getGainValue(), 1e-5);
+        TreeNodeCondition[] firstConditions = firstSplit.getChildConditions();
+        assertEquals(2, firstConditions.length);
+        assertEquals(1.5, ((TreeNodeNumericCondition)firstConditions[0]).getSplitValue(), 0);
+
+        BitSet expectedInChild = new BitSet(10);
+        expectedInChild.set(1, 10);
+        BitSet inRightChild = attribute.updateChildMemberships(firstConditions[1], rootMem);
+        assertEquals(expectedInChild, inRightChild);
+        DataMemberships leftMem =
+            rootMem.createChildMemberships(attribute.updateChildMemberships(firstConditions[0], rootMem));
+        DataMemberships rightMem = rootMem.createChildMemberships(inRightChild);
+
+        // left child holds a single row and can't be split but its histograms are computed nevertheless
+        BinnedHistograms leftHistograms = new BinnedHistograms();
+        assertNull(leftHistograms.calcBestSplitRegression(attribute, leftMem,
+            target.getPriors(leftMem, config), target, rd));
+        BinnedHistograms rightHistograms = rootHistograms.deriveSibling(leftHistograms);
+        RegressionPriors rightPriors = target.getPriors(rightMem, config);
+        SplitCandidate derivedSplit =
+            rightHistograms.calcBestSplitRegression(attribute, rightMem, rightPriors, target, rd);
+        SplitCandidate directSplit = attribute.calcBestSplitRegression(rightMem, rightPriors, target, rd);
+        assertEquals(6.883555, derivedSplit.getGainValue(), 1e-5);
+        assertEquals(directSplit.getGainValue(), derivedSplit.getGainValue(), 1e-8);
+        assertEquals(6.5,
+            ((TreeNodeNumericCondition)derivedSplit.getChildConditions()[0]).getSplitValue(), 0);
+    }
+}
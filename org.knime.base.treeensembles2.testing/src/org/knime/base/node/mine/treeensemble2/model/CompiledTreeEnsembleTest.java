@@ -0,0 +1,96 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+
+/**
+ * Tests the {@link CompiledTreeEnsemble}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class CompiledTreeEnsembleTest {
+
+    /**
+     * Tests that the compiled tree finds the same nodes as the original tree, including rows with missing and nominal
+     * values.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPredictMatchesTree() throws Exception {
+        final RegressionTreeFixture fixture = new RegressionTreeFixture();
+        final TreeModelRegression tree = fixture.learnTree();
+        assertTrue("The tree has no splits.", tree.getRootNode().getNrChildren() > 0);
+        final TreeEnsembleModel model = new TreeEnsembleModel(fixture.getData().getMetaData(),
+            new AbstractTreeModel[]{tree}, TreeType.Ordinary, false);
+        final CompiledTreeEnsemble compiled =
+            CompiledTreeEnsemble.compile(model, Collections.singletonList(tree), (i, node) -> node.getMean()).get();
+        assertEquals("Wrong number of features.", 2, compiled.getNrFeatures());
+        assertEquals("Wrong number of trees.", 1, compiled.getNrTrees());
+
+        final double[][] queries = fixture.createQueries();
+        final int nrRows = queries.length;
+        final double[] features = new double[nrRows * 2];
+        final double[] expected = new double[nrRows];
+        for (int row = 0; row < nrRows; row++) {
+            features[row * 2] = queries[row][0];
+            features[row * 2 + 1] = queries[row][1];
+            expected[row] = tree.findMatchingNode(RegressionTreeFixture.createRecord(queries[row])).getMean();
+        }
+        final double[] values = new double[nrRows];
+        compiled.predict(features, nrRows, values);
+        for (int r = 0; r < nrRows; r++) {
+            assertEquals("Wrong prediction for row " + r, expected[r], values[r], 0.0);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.learner.TreeLearnerRegression;
+import org.knime.base.node.mine.treeensemble2.learner.TreeNodeSignatureFactory;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Small regression data set with a numeric column "x" and a nominal column "c" (both with missing values) to learn
+ * regression trees from, plus the rows the trees of the model tests are queried with.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RegressionTreeFixture {
+
+    /** The values of "x" the trees are queried with, NaN represents a missing value. */
+    private static final double[] X_VALUES = new double[]{Double.NaN, 0.5, 1.5, 3, 4.5, 6, 7.5, 9, 10.5, 12};
+
+    private final TreeEnsembleLearnerConfiguration m_config = new TreeEnsembleLearnerConfiguration(true);
+
+    private final RandomData m_random = TestDataGenerator.createRandomData();
+
+    private final TreeNominalColumnData m_nominalColumn;
+
+    private final TreeData m_data;
+
+    /**
+     * Creates the data.
+     */
+    RegressionTreeFixture() {
+        final TestDataGenerator dataGen = new TestDataGenerator(m_config);
+        final TreeNumericColumnData x = dataGen.createNumericAttributeColumnData(
+            new double[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, Double.NaN}, "x", 0);
+        m_nominalColumn = dataGen.createNominalAttributeColumn("A,B,C,A,B,C,A,B,C,A,B,C", "c", 1);
+        final TreeTargetNumericColumnData target =
+            TestDataGenerator.createNumericTargetColumn("1,5,9,2,6,10,3,7,11,14,18,22");
+        m_data = dataGen.createTreeData(target, x, m_nominalColumn);
+    }
+
+    /**
+     * @return the data
+     */
+    TreeData getData() {
+        return m_data;
+    }
+
+    /**
+     * Learns a tree on a new sample of the data.
+     *
+     * @return the tree
+     * @throws CanceledExecutionException never
+     */
+    TreeModelRegression learnTree() throws CanceledExecutionException {
+        final TreeLearnerRegression learner = new TreeLearnerRegression(m_config, m_data,
+            new DefaultDataIndexManager(m_data), new TreeNodeSignatureFactory(), m_random,
+            m_config.createRowSampler(m_data).createRowSample(m_random));
+        return learner.learnSingleTree(new ExecutionMonitor(), m_random);
+    }
+
+    /**
+     * Creates the feature vectors the trees are queried with, all combinations of some values of "x" and of the
+     * values of "c". Missing values are represented as NaN, nominal values by their index.
+     *
+     * @return the feature vectors [x, c]
+     */
+    double[][] createQueries() {
+        final int nrValues = m_nominalColumn.getMetaData().getValues().length;
+        final double[][] queries = new double[X_VALUES.length * (nrValues + 1)][];
+        int q = 0;
+        for (double xValue : X_VALUES) {
+            // -1 represents a missing nominal value
+            for (int v = -1; v < nrValues; v++) {
+                queries[q++] = new double[]{xValue, v < 0 ? Double.NaN : v};
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * @param query a feature vector as returned by {@link #createQueries()}
+     * @return the record of the feature vector
+     */
+    static PredictorRecord createRecord(final double[] query) {
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("x", Double.isNaN(query[0]) ? PredictorRecord.NULL : Double.valueOf(query[0]));
+        map.put("c", Double.isNaN(query[1]) ? PredictorRecord.NULL : Integer.valueOf((int)query[1]));
+        return new PredictorRecord(map);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+
+/**
+ * Tests the serialization of the {@link TreeEnsembleModel}, in particular that the trees of a model loaded from a file
+ * are read on demand.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TreeEnsembleModelTest {
+
+    private static final int NR_TREES = 3;
+
+    /** Provides the file the model is written to. */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+
+    /**
+     * Tests that an ensemble read from a stream and an ensemble whose trees are read lazily from a file predict the
+     * same as the saved ensemble.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSaveLoad() throws Exception {
+        final RegressionTreeFixture fixture = new RegressionTreeFixture();
+        final TreeEnsembleModel model = new TreeEnsembleModel(fixture.getData().getMetaData(),
+            learnTrees(fixture), TreeType.Ordinary, false);
+        final byte[] bytes = save(model);
+        assertSamePredictions(fixture, model, TreeEnsembleModel.load(new ByteArrayInputStream(bytes)));
+        final TreeEnsembleModel lazyModel = TreeEnsembleModel.load(writeFile(bytes));
+        // access the trees in reverse order to ensure that they can be read independently
+        for (int i = NR_TREES - 1; i >= 0; i--) {
+            lazyModel.getTreeModel(i);
+        }
+        assertSamePredictions(fixture, model, lazyModel);
+    }
+
+    /**
+     * Tests that loading an ensemble from a file reads no tree, that accessing a tree reads only that tree and only
+     * once, and that the lazily loaded ensemble is saved exactly as the original.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTreesLoadedOnDemand() throws Exception {
+        final RegressionTreeFixture fixture = new RegressionTreeFixture();
+        final TreeEnsembleModel model = new TreeEnsembleModel(fixture.getData().getMetaData(),
+            learnTrees(fixture), TreeType.Ordinary, false);
+        final byte[] bytes = save(model);
+        final TreeEnsembleModel lazyModel = TreeEnsembleModel.load(writeFile(bytes));
+        assertEquals("Wrong number of trees.", NR_TREES, lazyModel.getNrModels());
+        assertLoadedTrees(lazyModel);
+
+        final TreeModelRegression tree = lazyModel.getTreeModelRegression(1);
+        assertLoadedTrees(lazyModel, 1);
+        assertSame("Tree read twice.", tree, lazyModel.getTreeModel(1));
+        for (double[] query : fixture.createQueries()) {
+            final PredictorRecord record = RegressionTreeFixture.createRecord(query);
+            assertEquals("Wrong prediction of the lazily read tree.",
+                model.getTreeModelRegression(1).findMatchingNode(record).getMean(),
+                tree.findMatchingNode(record).getMean(), 0.0);
+        }
+        assertLoadedTrees(lazyModel, 1);
+
+        assertArrayEquals("Lazily read model saved differently.", bytes, save(lazyModel));
+        assertLoadedTrees(lazyModel, 0, 1, 2);
+    }
+
+    /**
+     * Tests that the data of subclasses, which follows the trees in the file, is read although the trees are skipped.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSubclassDataLoadedWithoutTrees() throws Exception {
+        final RegressionTreeFixture fixture = new RegressionTreeFixture();
+        final TreeModelRegression[] trees = learnTrees(fixture);
+        final List<Map<TreeNodeSignature, Double>> coefficientMaps = new ArrayList<>();
+        for (int i = 0; i < trees.length; i++) {
+            final Map<TreeNodeSignature, Double> coefficients = new HashMap<>();
+            addLeafCoefficients(trees[i].getRootNode(), 0.5 * (i + 1), coefficients);
+            coefficientMaps.add(coefficients);
+        }
+        final GradientBoostedTreesModel model = new GradientBoostedTreesModel(fixture.getData().getMetaData(), trees,
+            TreeType.Ordinary, 4.5, coefficientMaps);
+        final TreeEnsembleModel loaded = TreeEnsembleModel.load(writeFile(save(model)));
+        assertTrue("Wrong model type.", loaded instanceof GradientBoostedTreesModel);
+        final GradientBoostedTreesModel lazyModel = (GradientBoostedTreesModel)loaded;
+        assertLoadedTrees(lazyModel);
+        assertEquals("Wrong initial value.", model.getInitialValue(), lazyModel.getInitialValue(), 0.0);
+        assertEquals("Wrong coefficients.", new ArrayList<>(model.getCoeffientMaps()),
+            new ArrayList<>(lazyModel.getCoeffientMaps()));
+        for (double[] query : fixture.createQueries()) {
+            final PredictorRecord record = RegressionTreeFixture.createRecord(query);
+            assertEquals("Wrong prediction.", model.predict(record), lazyModel.predict(record), 0.0);
+        }
+    }
+
+    private static TreeModelRegression[] learnTrees(final RegressionTreeFixture fixture) throws Exception {
+        final TreeModelRegression[] trees = new TreeModelRegression[NR_TREES];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = fixture.learnTree();
+        }
+        return trees;
+    }
+
+    private static void addLeafCoefficients(final TreeNodeRegression node, final double coefficient,
+        final Map<TreeNodeSignature, Double> coefficients) {
+        if (node.getNrChildren() == 0) {
+            coefficients.put(node.getSignature(), coefficient * node.getMean());
+        }
+        for (int c = 0; c < node.getNrChildren(); c++) {
+            addLeafCoefficients(node.getChild(c), coefficient, coefficients);
+        }
+    }
+
+    private static byte[] save(final TreeEnsembleModel model) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        model.save(bytes);
+        return bytes.toByteArray();
+    }
+
+    private File writeFile(final byte[] bytes) throws Exception {
+        final File file = m_tempFolder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    private static void assertLoadedTrees(final TreeEnsembleModel model, final int... loaded) {
+        for (int i = 0, l = 0; i < model.getNrModels(); i++) {
+            final boolean expected = l < loaded.length && loaded[l] == i;
+            if (expected) {
+                l++;
+                assertTrue("Tree " + i + " not loaded.", model.isTreeModelLoaded(i));
+            } else {
+                assertFalse("Tree " + i + " loaded.", model.isTreeModelLoaded(i));
+            }
+        }
+    }
+
+    private static void assertSamePredictions(final RegressionTreeFixture fixture, final TreeEnsembleModel expected,
+        final TreeEnsembleModel actual) {
+        assertEquals("Wrong number of trees.", expected.getNrModels(), actual.getNrModels());
+        for (double[] query : fixture.createQueries()) {
+            final PredictorRecord record = RegressionTreeFixture.createRecord(query);
+            for (int t = 0; t < expected.getNrModels(); t++) {
+                assertEquals("Wrong prediction of tree " + t + " for " + query[0] + ", " + query[1],
+                    expected.getTreeModelRegression(t).findMatchingNode(record).getMean(),
+                    actual.getTreeModelRegression(t).findMatchingNode(record).getMean(), 0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.apache.commons.math.random.RandomData;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.base.node.mine.treeensemble2.data.TestDataGenerator;
+import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.TreeTargetNumericColumnData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DefaultDataIndexManager;
+import org.knime.base.node.mine.treeensemble2.learner.TreeLearnerRegression;
+import org.knime.base.node.mine.treeensemble2.learner.TreeNodeSignatureFactory;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.proximity.nearestneighbor.RandomForestNearestNeighborNodeFactory;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.Node;
+import org.knime.core.node.workflow.SingleNodeContainer;
+
+/**
+ * Tests the {@link SparseProximity}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class SparseProximityTest {
+
+    /** More rows than fit into a single block of leaf computations. */
+    private static final int NR_ROWS = 2500;
+
+    private static final int NR_TREES = 5;
+
+    private static final int K = 4;
+
+    private static ExecutionContext EXEC_CONTEXT;
+
+    private static SparseProximity PROXIMITY;
+
+    private static BufferedDataTable TABLE;
+
+    /**
+     * Learns the forest and creates the table of its learn rows.
+     *
+     * @throws Exception if the forest can't be learned
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        EXEC_CONTEXT = new ExecutionContext(new DefaultNodeProgressMonitor(),
+            new Node(new RandomForestNearestNeighborNodeFactory()), SingleNodeContainer.MemoryPolicy.CacheSmallInMemory,
+            new HashMap<Integer, ContainerTable>());
+        final Random random = new Random(3);
+        final double[] xs = new double[NR_ROWS];
+        final double[] ys = new double[NR_ROWS];
+        final double[] targets = new double[NR_ROWS];
+        final StringBuilder targetCSV = new StringBuilder();
+        for (int r = 0; r < NR_ROWS; r++) {
+            xs[r] = random.nextInt(100);
+            ys[r] = random.nextInt(1000) / 1000.0;
+            targets[r] = xs[r] * ys[r] + random.nextInt(10);
+            targetCSV.append(r == 0 ? "" : ",").append(targets[r]);
+        }
+        final TreeEnsembleLearnerConfiguration config = new TreeEnsembleLearnerConfiguration(true);
+        final TestDataGenerator dataGen = new TestDataGenerator(config);
+        final TreeNumericColumnData x = dataGen.createNumericAttributeColumnData(xs, "x", 0);
+        final TreeNumericColumnData y = dataGen.createNumericAttributeColumnData(ys, "y", 1);
+        final TreeTargetNumericColumnData target = TestDataGenerator.createNumericTargetColumn(targetCSV.toString());
+        final TreeData data = dataGen.createTreeData(target, x, y);
+        final RandomData rd = TestDataGenerator.createRandomData();
+        final AbstractTreeModel[] trees = new AbstractTreeModel[NR_TREES];
+        for (int t = 0; t < NR_TREES; t++) {
+            final TreeLearnerRegression learner = new TreeLearnerRegression(config, data,
+                new DefaultDataIndexManager(data), new TreeNodeSignatureFactory(), rd,
+                config.createRowSampler(data).createRowSample(rd));
+            trees[t] = learner.learnSingleTree(new ExecutionMonitor(), rd);
+        }
+        final TreeEnsembleModel model = new TreeEnsembleModel(data.getMetaData(), trees, TreeType.Ordinary, false);
+
+        final DataTableSpec learnSpec = new DataTableSpec(new DataColumnSpecCreator("x", DoubleCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("y", DoubleCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("test-target", DoubleCell.TYPE).createSpec());
+        PROXIMITY = new SparseProximity(model, new TreeEnsembleModelPortObjectSpec(learnSpec));
+        final BufferedDataContainer container = EXEC_CONTEXT.createDataContainer(learnSpec);
+        for (int r = 0; r < NR_ROWS; r++) {
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r), new DoubleCell(xs[r]),
+                new DoubleCell(ys[r]), new DoubleCell(targets[r])));
+        }
+        container.close();
+        TABLE = container.getTable();
+    }
+
+    /**
+     * Releases the execution context and the table.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        EXEC_CONTEXT = null;
+        PROXIMITY = null;
+        TABLE = null;
+    }
+
+    /**
+     * Tests that the neighbors within a single table computed concurrently on a thread pool are the same as the ones
+     * computed sequentially on a thread that doesn't belong to a pool.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testConcurrentSingleTable() throws Exception {
+        final BufferedDataTable[] tables = {TABLE};
+        final BufferedDataTable[] sequential = PROXIMITY.calcNearestNeighbors(tables, K, EXEC_CONTEXT);
+        final BufferedDataTable[] concurrent = KNIMEConstants.GLOBAL_THREAD_POOL
+            .enqueue(() -> PROXIMITY.calcNearestNeighbors(tables, K, EXEC_CONTEXT)).get();
+        assertSameTable(sequential[0], concurrent[0]);
+        assertSameTable(sequential[1], concurrent[1]);
+        // each row shares all leafs with itself
+        for (final DataRow row : sequential[1]) {
+            assertEquals("Wrong proximity of the nearest neighbor of " + row.getKey(), 1.0,
+                ((DoubleCell)row.getCell(0)).getDoubleValue(), 0.0);
+        }
+    }
+
+    /**
+     * Tests that the neighbors of the rows of one table among the rows of another table computed concurrently on a
+     * thread pool are the same as the ones computed sequentially.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testConcurrentTwoTables() throws Exception {
+        final BufferedDataContainer container = EXEC_CONTEXT.createDataContainer(TABLE.getDataTableSpec());
+        int r = 0;
+        for (final DataRow row : TABLE) {
+            if (r++ % 3 == 0) {
+                container.addRowToTable(row);
+            }
+        }
+        container.close();
+        final BufferedDataTable[] tables = {container.getTable(), TABLE};
+        final BufferedDataTable[] sequential = PROXIMITY.calcNearestNeighbors(tables, K, EXEC_CONTEXT);
+        final BufferedDataTable[] concurrent = KNIMEConstants.GLOBAL_THREAD_POOL
+            .enqueue(() -> PROXIMITY.calcNearestNeighbors(tables, K, EXEC_CONTEXT)).get();
+        assertSameTable(sequential[0], concurrent[0]);
+        assertSameTable(sequential[1], concurrent[1]);
+    }
+
+    private static void assertSameTable(final BufferedDataTable expected, final BufferedDataTable actual) {
+        assertEquals("Wrong number of rows.", expected.size(), actual.size());
+        final Iterator<DataRow> actualIt = actual.iterator();
+        for (final DataRow expectedRow : expected) {
+            final DataRow actualRow = actualIt.next();
+            assertEquals("Wrong row key.", expectedRow.getKey(), actualRow.getKey());
+            for (int c = 0; c < expectedRow.getNumCells(); c++) {
+                assertEquals("Wrong cell " + c + " in row " + expectedRow.getKey(), expectedRow.getCell(c),
+                    actualRow.getCell(c));
+            }
+        }
+    }
+}
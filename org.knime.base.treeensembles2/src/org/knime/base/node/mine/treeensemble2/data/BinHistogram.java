@@ -0,0 +1,147 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+import static org.knime.base.node.mine.treeensemble2.data.TreeColumnData.EPSILON;
+
+/**
+ * Weighted target statistics of the rows in a tree node per bin of a {@link TreeBinnedNumericColumnData}. For
+ * classification the statistics of a bin are the class counts, for regression it is the (weighted) sum of the target
+ * values. The last bin holds the rows with missing values.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class BinHistogram {
+
+    private final double[] m_weights;
+
+    private final double[] m_stats;
+
+    private final int m_statsPerBin;
+
+    /**
+     * @param nrBins the number of bins including the bin for missing values
+     * @param statsPerBin the number of statistics per bin (number of classes or 1 for regression)
+     */
+    BinHistogram(final int nrBins, final int statsPerBin) {
+        m_weights = new double[nrBins];
+        m_stats = new double[nrBins * statsPerBin];
+        m_statsPerBin = statsPerBin;
+    }
+
+    private BinHistogram(final double[] weights, final double[] stats, final int statsPerBin) {
+        m_weights = weights;
+        m_stats = stats;
+        m_statsPerBin = statsPerBin;
+    }
+
+    /**
+     * @param bin the bin the row falls into
+     * @param weight the weight of the row
+     * @param stat the index of the statistic to update
+     * @param value the value to add to the statistic
+     */
+    void add(final int bin, final double weight, final int stat, final double value) {
+        m_weights[bin] += weight;
+        m_stats[bin * m_statsPerBin + stat] += value;
+    }
+
+    /**
+     * @return the number of bins including the bin for missing values
+     */
+    int getNrBins() {
+        return m_weights.length;
+    }
+
+    /**
+     * @return the number of statistics per bin
+     */
+    int getStatsPerBin() {
+        return m_statsPerBin;
+    }
+
+    /**
+     * @param bin index of the bin
+     * @return the sum of the row weights in <b>bin</b>
+     */
+    double getWeight(final int bin) {
+        return m_weights[bin];
+    }
+
+    /**
+     * @param bin index of the bin
+     * @param stat index of the statistic
+     * @return the value of statistic <b>stat</b> in <b>bin</b>
+     */
+    double getStat(final int bin, final int stat) {
+        return m_stats[bin * m_statsPerBin + stat];
+    }
+
+    /**
+     * Derives the histogram of a sibling node: if this is the histogram of the parent node and <b>child</b> the one
+     * of one of its two children, the result is the histogram of the other child.
+     *
+     * @param child histogram of a child whose rows are a subset of the rows of this histogram
+     * @return the difference between this histogram and <b>child</b>
+     */
+    BinHistogram subtract(final BinHistogram child) {
+        assert m_weights.length == child.m_weights.length && m_statsPerBin == child.m_statsPerBin;
+        final double[] weights = new double[m_weights.length];
+        final double[] stats = new double[m_stats.length];
+        for (int b = 0; b < weights.length; b++) {
+            final double weight = m_weights[b] - child.m_weights[b];
+            // bins without rows stay empty, otherwise rounding noise could introduce spurious split points
+            if (weight < EPSILON) {
+                continue;
+            }
+            weights[b] = weight;
+            for (int s = b * m_statsPerBin, end = s + m_statsPerBin; s < end; s++) {
+                stats[s] = m_stats[s] - child.m_stats[s];
+            }
+        }
+        return new BinHistogram(weights, stats, m_statsPerBin);
+    }
+}
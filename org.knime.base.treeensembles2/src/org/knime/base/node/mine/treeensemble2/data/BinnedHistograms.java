@@ -0,0 +1,153 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
+import org.knime.base.node.mine.treeensemble2.learner.SplitCandidate;
+
+/**
+ * Holds the bin histograms of the {@link TreeBinnedNumericColumnData binned columns} for a single tree node. The
+ * histograms are computed lazily during the split search. If a node is split in two, the histograms of the second
+ * child can be derived from the parent and the first child via {@link #deriveSibling(BinnedHistograms)}, so only the
+ * (smaller) first child has to scan its rows. Columns that are not binned are delegated to their usual split search.
+ * Different columns may be split concurrently.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class BinnedHistograms {
+
+    private final Map<Integer, BinHistogram> m_histograms;
+
+    /**
+     * Creates an empty instance, all histograms are computed on demand.
+     */
+    public BinnedHistograms() {
+        m_histograms = new ConcurrentHashMap<Integer, BinHistogram>();
+    }
+
+    /**
+     * Derives the histograms of the sibling of <b>child</b>. This object must hold the histograms of the parent node
+     * and the two children must partition the rows of the parent. Histograms that are not available in both parent
+     * and child are computed on demand.
+     *
+     * @param child the histograms of the child whose split search has been performed already
+     * @return the histograms for the other child
+     */
+    public BinnedHistograms deriveSibling(final BinnedHistograms child) {
+        final BinnedHistograms sibling = new BinnedHistograms();
+        for (Map.Entry<Integer, BinHistogram> entry : m_histograms.entrySet()) {
+            final BinHistogram childHistogram = child.m_histograms.get(entry.getKey());
+            if (childHistogram != null) {
+                sibling.m_histograms.put(entry.getKey(), entry.getValue().subtract(childHistogram));
+            }
+        }
+        return sibling;
+    }
+
+    /**
+     * Calculates the best split of <b>column</b> for classification, using the bin histogram if the column is binned.
+     *
+     * @param column the column to split
+     * @param dataMemberships the rows of the current node
+     * @param targetPriors the target distribution of the current node
+     * @param targetColumn the target column
+     * @param rd for random tie breaking
+     * @return the best split or null if there is none
+     */
+    public SplitCandidate calcBestSplitClassification(final TreeAttributeColumnData column,
+        final DataMemberships dataMemberships, final ClassificationPriors targetPriors,
+        final TreeTargetNominalColumnData targetColumn, final RandomData rd) {
+        if (!(column instanceof TreeBinnedNumericColumnData)) {
+            return column.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+        }
+        final TreeBinnedNumericColumnData binnedColumn = (TreeBinnedNumericColumnData)column;
+        final BinHistogram histogram = getHistogram(binnedColumn, () -> binnedColumn.createHistogram(dataMemberships,
+            targetColumn));
+        return binnedColumn.calcBestSplitClassification(histogram, dataMemberships, targetPriors, rd);
+    }
+
+    /**
+     * Calculates the best split of <b>column</b> for regression, using the bin histogram if the column is binned.
+     *
+     * @param column the column to split
+     * @param dataMemberships the rows of the current node
+     * @param targetPriors the target statistics of the current node
+     * @param targetColumn the target column
+     * @param rd for random tie breaking
+     * @return the best split or null if there is none
+     */
+    public SplitCandidate calcBestSplitRegression(final TreeAttributeColumnData column,
+        final DataMemberships dataMemberships, final RegressionPriors targetPriors,
+        final TreeTargetNumericColumnData targetColumn, final RandomData rd) {
+        if (!(column instanceof TreeBinnedNumericColumnData)) {
+            return column.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
+        }
+        final TreeBinnedNumericColumnData binnedColumn = (TreeBinnedNumericColumnData)column;
+        final BinHistogram histogram = getHistogram(binnedColumn, () -> binnedColumn.createHistogram(dataMemberships,
+            targetColumn));
+        return binnedColumn.calcBestSplitRegression(histogram, dataMemberships, targetPriors, rd);
+    }
+
+    /** Computes the histogram outside of any lock, so that columns can be processed concurrently. */
+    private BinHistogram getHistogram(final TreeBinnedNumericColumnData column, final Supplier<BinHistogram> creator) {
+        final Integer index = column.getMetaData().getAttributeIndex();
+        BinHistogram histogram = m_histograms.get(index);
+        if (histogram == null) {
+            histogram = creator.get();
+            final BinHistogram previous = m_histograms.putIfAbsent(index, histogram);
+            if (previous != null) {
+                histogram = previous;
+            }
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.ColumnMemberships;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
+import org.knime.base.node.mine.treeensemble2.learner.IImpurity;
+import org.knime.base.node.mine.treeensemble2.learner.NumericSplitCandidate;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.MissingValueHandling;
+
+/**
+ * A numeric attribute that is quantized into at most {@link #MAX_NR_BINS} bins. The bin of each row is stored as a
+ * byte in the sorted order of the column. The split search accumulates the target statistics per bin and then only
+ * iterates over the bin boundaries (see {@link BinnedHistograms}). The bins are chosen such that they contain
+ * approximately the same number of rows; columns with few distinct values get one bin per distinct value.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public class TreeBinnedNumericColumnData extends TreeNumericColumnData {
+
+    /** Maximal number of bins (for non-missing values) per column. */
+    public static final int MAX_NR_BINS = 255;
+
+    private final byte[] m_sortedBins;
+
+    private final float[] m_binLowerBounds;
+
+    private final float[] m_binUpperBounds;
+
+    private final int m_lengthNonMissing;
+
+    /**
+     * @param metaData the meta data of the column
+     * @param configuration the learner configuration
+     * @param sortedBins the bin of each non missing value in the sorted column
+     * @param binLowerBounds the smallest value of each bin
+     * @param binUpperBounds the largest value of each bin
+     * @param orginalIndexInColumnList the original index of each entry in the sorted column
+     * @param lengthNonMissing number of non missing values, missing values are sorted to the end of the column
+     */
+    TreeBinnedNumericColumnData(final TreeNumericColumnMetaData metaData,
+        final TreeEnsembleLearnerConfiguration configuration, final byte[] sortedBins, final float[] binLowerBounds,
+        final float[] binUpperBounds, final int[] orginalIndexInColumnList, final int lengthNonMissing) {
+        super(metaData, configuration, orginalIndexInColumnList);
+        assert binLowerBounds.length == binUpperBounds.length && binUpperBounds.length <= MAX_NR_BINS;
+        m_sortedBins = sortedBins;
+        m_binLowerBounds = binLowerBounds;
+        m_binUpperBounds = binUpperBounds;
+        m_lengthNonMissing = lengthNonMissing;
+    }
+
+    /**
+     * @return the number of bins (not counting missing values)
+     */
+    public int getNrBins() {
+        return m_binUpperBounds.length;
+    }
+
+    /**
+     * @param indexInColumn index in the sorted column
+     * @return the bin of the value at <b>indexInColumn</b>, {@link #getNrBins()} for missing values
+     */
+    int getBin(final int indexInColumn) {
+        return indexInColumn < m_lengthNonMissing ? m_sortedBins[indexInColumn] & 0xFF : m_binUpperBounds.length;
+    }
+
+    /**
+     * Returns the upper bound of the bin at <b>index</b>. The bounds are actual data values and all split values lie
+     * between two bins, hence each value is on the same side of a split as the value it represents.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public double getSorted(final int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("A negative index is not allowed.");
+        } else if (index >= m_sortedBins.length) {
+            throw new IndexOutOfBoundsException("The index is too large.");
+        }
+        if (index >= m_lengthNonMissing) {
+            return Double.NaN;
+        }
+        return m_binUpperBounds[m_sortedBins[index] & 0xFF];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getFirstIndexWithValue(final double value) {
+        int bin = Arrays.binarySearch(m_binUpperBounds, (float)value);
+        if (bin < 0) {
+            bin = -(bin + 1);
+        }
+        // first index whose bin is at least bin
+        int low = 0;
+        int high = m_lengthNonMissing;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if ((m_sortedBins[mid] & 0xFF) < bin) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLengthNonMissing() {
+        return m_lengthNonMissing;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsMissingValues() {
+        return m_lengthNonMissing < m_sortedBins.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NumericSplitCandidate calcBestSplitClassification(final DataMemberships dataMemberships,
+        final ClassificationPriors targetPriors, final TreeTargetNominalColumnData targetColumn, final RandomData rd) {
+        return calcBestSplitClassification(createHistogram(dataMemberships, targetColumn), dataMemberships,
+            targetPriors, rd);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NumericSplitCandidate calcBestSplitRegression(final DataMemberships dataMemberships,
+        final RegressionPriors targetPriors, final TreeTargetNumericColumnData targetColumn, final RandomData rd) {
+        return calcBestSplitRegression(createHistogram(dataMemberships, targetColumn), dataMemberships, targetPriors,
+            rd);
+    }
+
+    /**
+     * @param dataMemberships the rows of the current tree node
+     * @param targetColumn the nominal target
+     * @return the class counts per bin
+     */
+    BinHistogram createHistogram(final DataMemberships dataMemberships,
+        final TreeTargetNominalColumnData targetColumn) {
+        final BinHistogram histogram =
+            new BinHistogram(getNrBins() + 1, targetColumn.getMetaData().getValues().length);
+        final ColumnMemberships columnMemberships =
+            dataMemberships.getColumnMemberships(getMetaData().getAttributeIndex());
+        columnMemberships.reset();
+        while (columnMemberships.next()) {
+            final double weight = columnMemberships.getRowWeight();
+            final int target = targetColumn.getValueFor(columnMemberships.getOriginalIndex());
+            histogram.add(getBin(columnMemberships.getIndexInColumn()), weight, target, weight);
+        }
+        columnMemberships.reset();
+        return histogram;
+    }
+
+    /**
+     * @param dataMemberships the rows of the current tree node
+     * @param targetColumn the numeric target
+     * @return the weighted target sums per bin
+     */
+    BinHistogram createHistogram(final DataMemberships dataMemberships,
+        final TreeTargetNumericColumnData targetColumn) {
+        final BinHistogram histogram = new BinHistogram(getNrBins() + 1, 1);
+        final ColumnMemberships columnMemberships =
+            dataMemberships.getColumnMemberships(getMetaData().getAttributeIndex());
+        columnMemberships.reset();
+        while (columnMemberships.next()) {
+            final double weight = columnMemberships.getRowWeight();
+            final double y = targetColumn.getValueFor(columnMemberships.getOriginalIndex());
+            histogram.add(getBin(columnMemberships.getIndexInColumn()), weight, 0, weight * y);
+        }
+        columnMemberships.reset();
+        return histogram;
+    }
+
+    /**
+     * Same as {@link #calcBestSplitClassification(DataMemberships, ClassificationPriors, TreeTargetNominalColumnData,
+     * RandomData)} but evaluates only the boundaries between non-empty bins of <b>histogram</b>.
+     */
+    NumericSplitCandidate calcBestSplitClassification(final BinHistogram histogram,
+        final DataMemberships dataMemberships, final ClassificationPriors targetPriors, final RandomData rd) {
+        final TreeEnsembleLearnerConfiguration config = getConfiguration();
+        final boolean useAverageSplitPoints = config.isUseAverageSplitPoints();
+        final int minChildNodeSize = config.getMinChildSize();
+        final boolean useXGBoostMissingValueHandling = config.getMissingValueHandling() == MissingValueHandling.XGBoost;
+        final IImpurity impurityCriterion = targetPriors.getImpurityCriterion();
+        final int nrBins = getNrBins();
+        final int targetCounts = histogram.getStatsPerBin();
+        final double totalSumWeight = targetPriors.getNrRecords();
+
+        final double missingWeight = histogram.getWeight(nrBins);
+        final double[] missingTargetCounts = new double[targetCounts];
+        for (int c = 0; c < targetCounts; c++) {
+            missingTargetCounts[c] = histogram.getStat(nrBins, c);
+        }
+        final boolean branchContainsMissingValues = missingWeight >= EPSILON;
+        final double[] targetCountsLeftOfSplit = new double[targetCounts];
+        final double[] targetCountsRightOfSplit =
+            TreeNominalColumnData.subtractMissingClassCounts(targetPriors.getDistribution(), missingTargetCounts);
+        double sumWeightsLeftOfSplit = 0.0;
+        double sumWeightsRightOfSplit = totalSumWeight - missingWeight;
+        if (sumWeightsRightOfSplit < EPSILON) {
+            // all values in branch are missing
+            return null;
+        }
+        final double priorImpurity = useXGBoostMissingValueHandling || !branchContainsMissingValues
+            ? targetPriors.getPriorImpurity()
+            : impurityCriterion.getPartitionImpurity(targetCountsRightOfSplit, sumWeightsRightOfSplit);
+
+        double bestSplit = Double.NEGATIVE_INFINITY;
+        double bestGain = Double.NEGATIVE_INFINITY;
+        double bestGainValueForSplit = Double.NEGATIVE_INFINITY;
+        boolean missingsGoLeft = true;
+        final double[] partitionImpurities = new double[2];
+        final double[] partitionWeights = new double[2];
+        final double[] targetCountsLeftPlusMissing = new double[targetCounts];
+        final double[] targetCountsRightPlusMissing = new double[targetCounts];
+
+        int lastBin = -1;
+        for (int bin = 0; bin < nrBins; bin++) {
+            final double binWeight = histogram.getWeight(bin);
+            if (binWeight < EPSILON) {
+                continue;
+            }
+            if (lastBin >= 0 && sumWeightsLeftOfSplit >= minChildNodeSize
+                && sumWeightsRightOfSplit >= minChildNodeSize) {
+                double postSplitImpurity;
+                boolean tempMissingsGoLeft = false;
+                if (branchContainsMissingValues && useXGBoostMissingValueHandling) {
+                    for (int c = 0; c < targetCounts; c++) {
+                        targetCountsLeftPlusMissing[c] = targetCountsLeftOfSplit[c] + missingTargetCounts[c];
+                        targetCountsRightPlusMissing[c] = targetCountsRightOfSplit[c] + missingTargetCounts[c];
+                    }
+                    // send all missing values left
+                    partitionImpurities[0] = impurityCriterion.getPartitionImpurity(targetCountsLeftPlusMissing,
+                        sumWeightsLeftOfSplit + missingWeight);
+                    partitionImpurities[1] =
+                        impurityCriterion.getPartitionImpurity(targetCountsRightOfSplit, sumWeightsRightOfSplit);
+                    final double[] weightsMissingLeft =
+                        new double[]{sumWeightsLeftOfSplit + missingWeight, sumWeightsRightOfSplit};
+                    final double impurityMissingLeft =
+                        impurityCriterion.getPostSplitImpurity(partitionImpurities, weightsMissingLeft, totalSumWeight);
+                    // send all missing values right
+                    partitionImpurities[0] =
+                        impurityCriterion.getPartitionImpurity(targetCountsLeftOfSplit, sumWeightsLeftOfSplit);
+                    partitionImpurities[1] = impurityCriterion.getPartitionImpurity(targetCountsRightPlusMissing,
+                        sumWeightsRightOfSplit + missingWeight);
+                    final double[] weightsMissingRight =
+                        new double[]{sumWeightsLeftOfSplit, sumWeightsRightOfSplit + missingWeight};
+                    final double impurityMissingRight = impurityCriterion.getPostSplitImpurity(partitionImpurities,
+                        weightsMissingRight, totalSumWeight);
+                    if (impurityMissingLeft < impurityMissingRight) {
+                        postSplitImpurity = impurityMissingLeft;
+                        System.arraycopy(weightsMissingLeft, 0, partitionWeights, 0, 2);
+                        tempMissingsGoLeft = true;
+                    } else {
+                        postSplitImpurity = impurityMissingRight;
+                        System.arraycopy(weightsMissingRight, 0, partitionWeights, 0, 2);
+                    }
+                } else {
+                    partitionImpurities[0] =
+                        impurityCriterion.getPartitionImpurity(targetCountsLeftOfSplit, sumWeightsLeftOfSplit);
+                    partitionImpurities[1] =
+                        impurityCriterion.getPartitionImpurity(targetCountsRightOfSplit, sumWeightsRightOfSplit);
+                    partitionWeights[0] = sumWeightsLeftOfSplit;
+                    partitionWeights[1] = sumWeightsRightOfSplit;
+                    postSplitImpurity =
+                        impurityCriterion.getPostSplitImpurity(partitionImpurities, partitionWeights, totalSumWeight);
+                }
+                if (postSplitImpurity < priorImpurity) {
+                    // absolute gain is used for comparison, see TreeNumericColumnData
+                    final double gain = priorImpurity - postSplitImpurity;
+                    final boolean randomTieBreaker = gain == bestGain ? rd.nextInt(0, 1) == 1 : false;
+                    if (gain > bestGain || randomTieBreaker) {
+                        bestGainValueForSplit = impurityCriterion.getGain(priorImpurity, postSplitImpurity,
+                            partitionWeights, totalSumWeight);
+                        bestGain = gain;
+                        bestSplit = useAverageSplitPoints
+                            ? getCenter(m_binUpperBounds[lastBin], m_binLowerBounds[bin]) : m_binUpperBounds[lastBin];
+                        missingsGoLeft = branchContainsMissingValues ? tempMissingsGoLeft
+                            : sumWeightsLeftOfSplit > sumWeightsRightOfSplit;
+                    }
+                }
+            }
+            for (int c = 0; c < targetCounts; c++) {
+                final double count = histogram.getStat(bin, c);
+                targetCountsLeftOfSplit[c] += count;
+                targetCountsRightOfSplit[c] -= count;
+            }
+            sumWeightsLeftOfSplit += binWeight;
+            sumWeightsRightOfSplit -= binWeight;
+            lastBin = bin;
+        }
+
+        if (bestGainValueForSplit < 0.0) {
+            return null;
+        }
+        return createSplitCandidate(bestSplit, bestGainValueForSplit, missingsGoLeft, dataMemberships);
+    }
+
+    /**
+     * Same as {@link #calcBestSplitRegression(DataMemberships, RegressionPriors, TreeTargetNumericColumnData,
+     * RandomData)} but evaluates only the boundaries between non-empty bins of <b>histogram</b>.
+     */
+    NumericSplitCandidate calcBestSplitRegression(final BinHistogram histogram, final DataMemberships dataMemberships,
+        final RegressionPriors targetPriors, final RandomData rd) {
+        final TreeEnsembleLearnerConfiguration config = getConfiguration();
+        final boolean useAverageSplitPoints = config.isUseAverageSplitPoints();
+        final int minChildNodeSize = config.getMinChildSize();
+        final boolean useXGBoostMissingValueHandling = config.getMissingValueHandling() == MissingValueHandling.XGBoost;
+        final int nrBins = getNrBins();
+
+        final double missingWeight = histogram.getWeight(nrBins);
+        final double missingY = histogram.getStat(nrBins, 0);
+        final boolean branchContainsMissingValues = missingWeight >= EPSILON;
+
+        final double ySumTotal = targetPriors.getYSum() - missingY;
+        final double nrRecordsTotal = targetPriors.getNrRecords() - missingWeight;
+        if (nrRecordsTotal < EPSILON) {
+            // all values in the current branch are missing
+            return null;
+        }
+        final double criterionTotal = useXGBoostMissingValueHandling
+            ? (ySumTotal + missingY) * (ySumTotal + missingY) / (nrRecordsTotal + missingWeight)
+            : ySumTotal * ySumTotal / nrRecordsTotal;
+
+        double ySumLeft = 0.0;
+        double nrRecordsLeft = 0.0;
+        double ySumRight = ySumTotal;
+        double nrRecordsRight = nrRecordsTotal;
+
+        double bestSplit = Double.NEGATIVE_INFINITY;
+        double bestImprovement = 0.0;
+        boolean missingsGoLeft = true;
+
+        int lastBin = -1;
+        for (int bin = 0; bin < nrBins; bin++) {
+            final double binWeight = histogram.getWeight(bin);
+            if (binWeight < EPSILON) {
+                continue;
+            }
+            if (lastBin >= 0 && nrRecordsLeft >= minChildNodeSize && nrRecordsRight >= minChildNodeSize) {
+                boolean tempMissingsGoLeft = true;
+                double childrenSquaredSum;
+                if (branchContainsMissingValues && useXGBoostMissingValueHandling) {
+                    final double missingLeft =
+                        ((ySumLeft + missingY) * (ySumLeft + missingY) / (nrRecordsLeft + missingWeight))
+                            + (ySumRight * ySumRight / nrRecordsRight);
+                    final double missingRight = (ySumLeft * ySumLeft / nrRecordsLeft)
+                        + ((ySumRight + missingY) * (ySumRight + missingY) / (nrRecordsRight + missingWeight));
+                    if (missingLeft >= missingRight) {
+                        childrenSquaredSum = missingLeft;
+                    } else {
+                        childrenSquaredSum = missingRight;
+                        tempMissingsGoLeft = false;
+                    }
+                } else {
+                    childrenSquaredSum = (ySumLeft * ySumLeft / nrRecordsLeft) + (ySumRight * ySumRight / nrRecordsRight);
+                }
+                final double criterion = childrenSquaredSum - criterionTotal;
+                final boolean randomTieBreaker = criterion == bestImprovement ? rd.nextInt(0, 1) == 1 : false;
+                if (criterion > bestImprovement || randomTieBreaker) {
+                    bestImprovement = criterion;
+                    bestSplit = useAverageSplitPoints ? getCenter(m_binUpperBounds[lastBin], m_binLowerBounds[bin])
+                        : m_binUpperBounds[lastBin];
+                    missingsGoLeft = branchContainsMissingValues ? tempMissingsGoLeft : nrRecordsLeft >= nrRecordsRight;
+                }
+            }
+            final double ySumBin = histogram.getStat(bin, 0);
+            ySumLeft += ySumBin;
+            ySumRight -= ySumBin;
+            nrRecordsLeft += binWeight;
+            nrRecordsRight -= binWeight;
+            lastBin = bin;
+        }
+
+        if (bestImprovement > 0.0) {
+            return createSplitCandidate(bestSplit, bestImprovement, missingsGoLeft, dataMemberships);
+        }
+        return null;
+    }
+
+    private NumericSplitCandidate createSplitCandidate(final double splitValue, final double gainValue,
+        final boolean missingsGoLeft, final DataMemberships dataMemberships) {
+        if (getConfiguration().getMissingValueHandling() == MissingValueHandling.XGBoost) {
+            return new NumericSplitCandidate(this, splitValue, gainValue, new BitSet(),
+                missingsGoLeft ? NumericSplitCandidate.MISSINGS_GO_LEFT : NumericSplitCandidate.MISSINGS_GO_RIGHT);
+        }
+        return new NumericSplitCandidate(this, splitValue, gainValue,
+            getMissedRows(dataMemberships.getColumnMemberships(getMetaData().getAttributeIndex())),
+            NumericSplitCandidate.NO_MISSINGS);
+    }
+}
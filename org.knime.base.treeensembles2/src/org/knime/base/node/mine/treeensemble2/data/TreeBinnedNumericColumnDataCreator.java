@@ -0,0 +1,177 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.data;
+
+import java.util.Arrays;
+
+import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.RowKey;
+
+/**
+ * Creates {@link TreeBinnedNumericColumnData}. The values are collected in a primitive array and sorted as packed
+ * (value, row index) longs, so no object is allocated per row.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class TreeBinnedNumericColumnDataCreator implements TreeAttributeColumnDataCreator {
+
+    private final DataColumnSpec m_column;
+
+    private float[] m_values;
+
+    private int m_size;
+
+    TreeBinnedNumericColumnDataCreator(final DataColumnSpec column) {
+        m_column = column;
+        m_values = new float[1024];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean acceptsMissing() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void add(final RowKey rowKey, final DataCell cell) {
+        if (m_size == m_values.length) {
+            m_values = Arrays.copyOf(m_values, m_size + (m_size >> 1));
+        }
+        m_values[m_size++] = cell.isMissing() ? Float.NaN : (float)((DoubleValue)cell).getDoubleValue();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNrAttributes() {
+        return 1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TreeBinnedNumericColumnData createColumnData(final int attributeIndex,
+        final TreeEnsembleLearnerConfiguration configuration) {
+        final int length = m_size;
+        // upper 32 bits: order preserving representation of the value (NaN last), lower 32 bits: row index
+        final long[] sorted = new long[length];
+        for (int i = 0; i < length; i++) {
+            sorted[i] = ((long)toSortableInt(m_values[i]) << 32) | i;
+        }
+        Arrays.parallelSort(sorted);
+
+        int lengthNonMissing = 0;
+        int nrDistinct = 0;
+        float previous = Float.NaN;
+        for (; lengthNonMissing < length; lengthNonMissing++) {
+            final float value = valueOf(sorted[lengthNonMissing]);
+            if (Float.isNaN(value)) {
+                break;
+            }
+            if (lengthNonMissing == 0 || value != previous) {
+                nrDistinct++;
+            }
+            previous = value;
+        }
+
+        final int[] sortIndex = new int[length];
+        final byte[] sortedBins = new byte[length];
+        final float[] lowerBounds = new float[TreeBinnedNumericColumnData.MAX_NR_BINS];
+        final float[] upperBounds = new float[TreeBinnedNumericColumnData.MAX_NR_BINS];
+        // columns with few distinct values get one bin per value, otherwise bins of (roughly) equal frequency
+        final boolean isExact = nrDistinct <= TreeBinnedNumericColumnData.MAX_NR_BINS;
+        int bin = 0;
+        int binStart = 0;
+        int binSize = isExact ? 1 : getBinSize(lengthNonMissing, 0);
+        for (int i = 0; i < lengthNonMissing; i++) {
+            final float value = valueOf(sorted[i]);
+            if (i == 0) {
+                lowerBounds[0] = value;
+            } else if (value != previous && i - binStart >= binSize
+                && bin < TreeBinnedNumericColumnData.MAX_NR_BINS - 1) {
+                upperBounds[bin] = previous;
+                bin++;
+                lowerBounds[bin] = value;
+                binStart = i;
+                if (!isExact) {
+                    binSize = getBinSize(lengthNonMissing - i, bin);
+                }
+            }
+            sortedBins[i] = (byte)bin;
+            sortIndex[i] = (int)sorted[i];
+            previous = value;
+        }
+        final int nrBins = lengthNonMissing > 0 ? bin + 1 : 0;
+        if (nrBins > 0) {
+            upperBounds[bin] = previous;
+        }
+        for (int i = lengthNonMissing; i < length; i++) {
+            sortIndex[i] = (int)sorted[i];
+        }
+        final TreeNumericColumnMetaData metaData = new TreeNumericColumnMetaData(m_column.getName());
+        return new TreeBinnedNumericColumnData(metaData, configuration, sortedBins, Arrays.copyOf(lowerBounds, nrBins),
+            Arrays.copyOf(upperBounds, nrBins), sortIndex, lengthNonMissing);
+    }
+
+    /** Number of rows the bin with index <b>bin</b> should hold if <b>remaining</b> rows are left. */
+    private static int getBinSize(final int remaining, final int bin) {
+        final int remainingBins = TreeBinnedNumericColumnData.MAX_NR_BINS - bin;
+        return (remaining + remainingBins - 1) / remainingBins;
+    }
+
+    /** Flips the bits of negative floats so that the signed int order equals the float order. */
+    private static int toSortableInt(final float value) {
+        final int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    private static float valueOf(final long sortedEntry) {
+        final int sortable = (int)(sortedEntry >> 32);
+        return Float.intBitsToFloat(sortable ^ ((sortable >> 31) & 0x7FFFFFFF));
+    }
+}
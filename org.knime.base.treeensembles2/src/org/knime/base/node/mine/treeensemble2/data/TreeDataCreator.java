@@ -118,7 +118,8 @@ public TreeDataCreator(final TreeEnsembleLearnerConfiguration configuration, fin
                 m_attrColCreators[i] = new TreeNominalColumnDataCreator(col);
                 treeType = TreeType.Ordinary;
             } else if (colType.isCompatible(DoubleValue.class)) {
-                m_attrColCreators[i] = new TreeOrdinaryNumericColumnDataCreator(col);
+                m_attrColCreators[i] = configuration.isUseHistogramSplits()
+                    ? new TreeBinnedNumericColumnDataCreator(col) : new TreeOrdinaryNumericColumnDataCreator(col);
                 treeType = TreeType.Ordinary;
             } else if (colType.isCompatible(BitVectorValue.class)) {
                 m_attrColCreators[i] = new TreeBitVectorColumnDataCreator(col);
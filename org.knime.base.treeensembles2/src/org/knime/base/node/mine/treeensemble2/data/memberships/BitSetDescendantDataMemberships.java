@@ -49,7 +49,7 @@
 package org.knime.base.node.mine.treeensemble2.data.memberships;
 
 import java.util.BitSet;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
@@ -59,12 +59,12 @@ public class BitSetDescendantDataMemberships implements DataMemberships {
 
     private final RootDataMemberships m_root;
     private final BitSet m_included;
-    private final HashMap<Integer, ColumnMemberships> m_cachedColumnMemberships;
+    private final ConcurrentHashMap<Integer, ColumnMemberships> m_cachedColumnMemberships;
 
     public BitSetDescendantDataMemberships(final RootDataMemberships root, final BitSet included) {
         m_root = root;
         m_included = included;
-        m_cachedColumnMemberships = new HashMap<Integer, ColumnMemberships>();
+        m_cachedColumnMemberships = new ConcurrentHashMap<Integer, ColumnMemberships>();
     }
 
     /**
@@ -98,7 +98,11 @@ public ColumnMemberships getColumnMemberships(final int index) {
         ColumnMemberships colMem = m_cachedColumnMemberships.get(index);
         if (colMem == null) {
             colMem = m_root.descendantGetColumnMemberships(index, m_included);
-            m_cachedColumnMemberships.put(index, colMem);
+            // columns may be split concurrently (see AbstractTreeLearner#setParallelSplitSearch)
+            final ColumnMemberships previous = m_cachedColumnMemberships.putIfAbsent(index, colMem);
+            if (previous != null) {
+                colMem = previous;
+            }
         }
         return colMem;
     }
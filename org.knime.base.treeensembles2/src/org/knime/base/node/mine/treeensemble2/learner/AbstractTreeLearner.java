@@ -47,15 +47,23 @@
  */
 package org.knime.base.node.mine.treeensemble2.learner;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
 import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeData;
+import org.knime.base.node.mine.treeensemble2.data.memberships.DataMemberships;
 import org.knime.base.node.mine.treeensemble2.data.memberships.IDataIndexManager;
 import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
+import org.knime.base.node.mine.treeensemble2.sample.column.ColumnSample;
 import org.knime.base.node.mine.treeensemble2.sample.column.ColumnSampleStrategy;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.ParallelTasks;
 
 /**
  *
@@ -63,6 +71,9 @@
  */
 public abstract class AbstractTreeLearner {
 
+    /** Nodes with fewer rows are searched in the calling thread, scheduling tasks would cost more than it saves. */
+    private static final int MIN_ROWS_FOR_PARALLEL_SPLIT_SEARCH = 2000;
+
     private final TreeEnsembleLearnerConfiguration m_config;
 
     private final TreeData m_data;
@@ -77,6 +88,8 @@ public abstract class AbstractTreeLearner {
 
     private final TreeNodeSignatureFactory m_signatureFactory;
 
+    private boolean m_isParallelSplitSearch;
+
     /**
      * @param config
      * @param data
@@ -139,6 +152,120 @@ final TreeNodeSignatureFactory getSignatureFactory() {
         return m_signatureFactory;
     }
 
+    /**
+     * Enables the concurrent evaluation of the candidate columns of a tree node. This is intended for learners that
+     * have to build their trees one after another (e.g. boosting) and would otherwise use a single core. With
+     * parallel split search each column uses its own random stream (for tie breaking) that is derived from the tree's
+     * random data, the learned tree therefore only depends on the seed and not on the number of threads.
+     *
+     * @param isParallelSplitSearch true if the columns should be evaluated concurrently
+     * @since 3.6
+     */
+    public final void setParallelSplitSearch(final boolean isParallelSplitSearch) {
+        m_isParallelSplitSearch = isParallelSplitSearch;
+    }
+
+    /**
+     * @return true if the candidate columns of a node are evaluated concurrently
+     * @since 3.6
+     */
+    public final boolean isParallelSplitSearch() {
+        return m_isParallelSplitSearch;
+    }
+
+    /**
+     * Calculates the best split of a single column.
+     */
+    @FunctionalInterface
+    interface ColumnSplitFunction {
+        /**
+         * @param column the column to split
+         * @param rd the random data to use for tie breaking
+         * @return the best split of <b>column</b> or null if there is none
+         */
+        SplitCandidate calcBestSplit(TreeAttributeColumnData column, RandomData rd);
+    }
+
+    /**
+     * Calculates the best split for each column in <b>columnSample</b> that is not forbidden, either sequentially or
+     * (for large nodes and if {@link #isParallelSplitSearch() enabled}) concurrently.
+     *
+     * @param dataMemberships the rows of the current node
+     * @param columnSample the candidate columns
+     * @param forbiddenColumnSet columns that must not be split
+     * @param splitFunction calculates the split of a single column
+     * @return the split candidates in the order of the column sample, null for columns without a valid split
+     * @throws CanceledExecutionException if the thread is interrupted while waiting for the split search
+     */
+    final SplitCandidate[] calcColumnSplits(final DataMemberships dataMemberships, final ColumnSample columnSample,
+        final BitSet forbiddenColumnSet, final ColumnSplitFunction splitFunction) throws CanceledExecutionException {
+        final List<TreeAttributeColumnData> columns = new ArrayList<TreeAttributeColumnData>(columnSample.getNumCols());
+        for (TreeAttributeColumnData col : columnSample) {
+            if (!forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
+                columns.add(col);
+            }
+        }
+        final int nrColumns = columns.size();
+        final SplitCandidate[] candidates = new SplitCandidate[nrColumns];
+        if (!m_isParallelSplitSearch) {
+            for (int i = 0; i < nrColumns; i++) {
+                candidates[i] = splitFunction.calcBestSplit(columns.get(i), m_randomData);
+            }
+            return candidates;
+        }
+        final long nodeSeed = m_randomData.nextLong(Long.MIN_VALUE, Long.MAX_VALUE);
+        if (nrColumns < 2 || dataMemberships.getRowCount() < MIN_ROWS_FOR_PARALLEL_SPLIT_SEARCH) {
+            for (int i = 0; i < nrColumns; i++) {
+                final TreeAttributeColumnData col = columns.get(i);
+                candidates[i] = splitFunction.calcBestSplit(col, createColumnRandomData(nodeSeed, col));
+            }
+            return candidates;
+        }
+        ParallelTasks.forEach(nrColumns, i -> {
+            final TreeAttributeColumnData col = columns.get(i);
+            candidates[i] = splitFunction.calcBestSplit(col, createColumnRandomData(nodeSeed, col));
+        });
+        return candidates;
+    }
+
+    private static RandomData createColumnRandomData(final long nodeSeed, final TreeAttributeColumnData column) {
+        final long columnSeed = nodeSeed ^ (column.getMetaData().getAttributeIndex() * 0x9E3779B97F4A7C15L);
+        return TreeEnsembleLearnerConfiguration.createRandomData(columnSeed);
+    }
+
+    /**
+     * Determines the order in which the children of a node are built. With histogram splits the smaller of two
+     * children is built first, so that the histograms of the larger one can be derived by subtraction (see
+     * {@link #isDeriveSiblingHistograms(DataMemberships, DataMemberships[])}), otherwise the natural order is used.
+     *
+     * @param parentMemberships the rows of the parent node
+     * @param childMemberships the rows of the children
+     * @return the indices of the children in the order they should be built
+     */
+    final int[] getChildOrder(final DataMemberships parentMemberships, final DataMemberships[] childMemberships) {
+        if (isDeriveSiblingHistograms(parentMemberships, childMemberships)
+            && childMemberships[1].getRowCount() < childMemberships[0].getRowCount()) {
+            return new int[]{1, 0};
+        }
+        final int[] order = new int[childMemberships.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    /**
+     * @param parentMemberships the rows of the parent node
+     * @param childMemberships the rows of the children
+     * @return true if histogram splits are used and the two children partition the rows of the parent, i.e. the
+     *         histograms of the second child equal the ones of the parent minus the ones of the first child
+     */
+    final boolean isDeriveSiblingHistograms(final DataMemberships parentMemberships,
+        final DataMemberships[] childMemberships) {
+        return m_config.isUseHistogramSplits() && childMemberships.length == 2 && childMemberships[0].getRowCount()
+            + childMemberships[1].getRowCount() == parentMemberships.getRowCount();
+    }
+
     /**
      * Learns a single decision tree model
      *
@@ -52,6 +52,7 @@
 import java.util.Comparator;
 
 import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.BinnedHistograms;
 import org.knime.base.node.mine.treeensemble2.data.ClassificationPriors;
 import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnData;
@@ -112,7 +113,7 @@ private TreeModelClassification learnSingleTreeRecursive(final ExecutionMonitor
         final ColumnSample rootColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(rootSignature);
         TreeNodeClassification rootNode = null;
         rootNode = buildTreeNode(exec, 0, rootDataMemberships, rootColumnSample, rootSignature, targetPriors,
-            forbiddenColumnSet);
+            forbiddenColumnSet, new BinnedHistograms());
         assert forbiddenColumnSet.cardinality() == 0;
         rootNode.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
         return new TreeModelClassification(rootNode);
@@ -121,7 +122,7 @@ private TreeModelClassification learnSingleTreeRecursive(final ExecutionMonitor
     private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final int currentDepth,
         final DataMemberships dataMemberships, final ColumnSample columnSample,
         final TreeNodeSignature treeNodeSignature, final ClassificationPriors targetPriors,
-        final BitSet forbiddenColumnSet) throws CanceledExecutionException {
+        final BitSet forbiddenColumnSet, final BinnedHistograms histograms) throws CanceledExecutionException {
         final TreeData data = getData();
         final TreeEnsembleLearnerConfiguration config = getConfig();
         exec.checkCanceled();
@@ -149,13 +150,13 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
                     getSignatureFactory().getChildSignatureFor(treeNodeSignature, (byte)i);
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
                 childNodes[i] = buildTreeNode(exec, currentDepth + 1, childMemberships, childColumnSample,
-                    childSignature, childTargetPriors, forbiddenColumnSet);
+                    childSignature, childTargetPriors, forbiddenColumnSet, new BinnedHistograms());
                 childNodes[i].setTreeNodeCondition(childConditions[i]);
             }
         } else {
             // handle non surrogate case
             SplitCandidate bestSplit = findBestSplitClassification(currentDepth, dataMemberships, columnSample,
-                treeNodeSignature, targetPriors, forbiddenColumnSet);
+                treeNodeSignature, targetPriors, forbiddenColumnSet, histograms);
             if (bestSplit == null) {
                 return new TreeNodeClassification(treeNodeSignature, targetPriors, config);
             }
@@ -172,17 +173,25 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
                         + " (maximum supported: " + Short.MAX_VALUE + "): " + childConditions.length);
             }
             // Build child nodes
+            final DataMemberships[] childMemberships = new DataMemberships[childConditions.length];
             for (int i = 0; i < childConditions.length; i++) {
-                DataMemberships childMemberships = null;
+                childMemberships[i] = dataMemberships.createChildMemberships(
+                    splitColumn.updateChildMemberships(childConditions[i], dataMemberships));
+            }
+            final int[] childOrder = getChildOrder(dataMemberships, childMemberships);
+            BinnedHistograms previousHistograms = null;
+            for (int k = 0; k < childOrder.length; k++) {
+                final int i = childOrder[k];
                 TreeNodeCondition cond = childConditions[i];
-                childMemberships =
-                    dataMemberships.createChildMemberships(splitColumn.updateChildMemberships(cond, dataMemberships));
-                ClassificationPriors childTargetPriors = targetColumn.getDistribution(childMemberships, config);
+                ClassificationPriors childTargetPriors = targetColumn.getDistribution(childMemberships[i], config);
                 TreeNodeSignature childSignature = treeNodeSignature.createChildSignature((byte)i);
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
-                childNodes[i] = buildTreeNode(exec, currentDepth + 1, childMemberships, childColumnSample,
-                    childSignature, childTargetPriors, forbiddenColumnSet);
+                final BinnedHistograms childHistograms = k == 1 && isDeriveSiblingHistograms(dataMemberships,
+                    childMemberships) ? histograms.deriveSibling(previousHistograms) : new BinnedHistograms();
+                childNodes[i] = buildTreeNode(exec, currentDepth + 1, childMemberships[i], childColumnSample,
+                    childSignature, childTargetPriors, forbiddenColumnSet, childHistograms);
                 childNodes[i].setTreeNodeCondition(cond);
+                previousHistograms = childHistograms;
             }
         }
         if (markAttributeAsForbidden) {
@@ -204,7 +213,7 @@ private TreeNodeClassification buildTreeNode(final ExecutionMonitor exec, final
      */
     private SplitCandidate[] findBestSplitsClassification(final int currentDepth, final DataMemberships dataMemberships,
         final ColumnSample columnSample, final TreeNodeSignature treeNodeSignature,
-        final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet) {
+        final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet) throws CanceledExecutionException {
         final TreeData data = getData();
         final RandomData rd = getRandomData();
         //        final ColumnSampleStrategy colSamplingStrategy = getColSamplingStrategy();
@@ -242,12 +251,9 @@ public int compare(final SplitCandidate o1, final SplitCandidate o2) {
 
         };
         ArrayList<SplitCandidate> candidates = new ArrayList<SplitCandidate>(columnSample.getNumCols());
-        for (TreeAttributeColumnData col : columnSample) {
-            if (forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
-                continue;
-            }
-            SplitCandidate currentColSplit =
-                col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+        final SplitCandidate[] columnSplits = calcColumnSplits(dataMemberships, columnSample, forbiddenColumnSet,
+            (col, colRd) -> col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, colRd));
+        for (SplitCandidate currentColSplit : columnSplits) {
             if (currentColSplit != null) {
                 candidates.add(currentColSplit);
             }
@@ -261,7 +267,8 @@ public int compare(final SplitCandidate o1, final SplitCandidate o2) {
 
     private SplitCandidate findBestSplitClassification(final int currentDepth, final DataMemberships dataMemberships,
         final ColumnSample columnSample, final TreeNodeSignature treeNodeSignature,
-        final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet) {
+        final ClassificationPriors targetPriors, final BitSet forbiddenColumnSet, final BinnedHistograms histograms)
+        throws CanceledExecutionException {
         final TreeData data = getData();
         final RandomData rd = getRandomData();
         //        final ColumnSampleStrategy colSamplingStrategy = getColSamplingStrategy();
@@ -288,12 +295,10 @@ private SplitCandidate findBestSplitClassification(final int currentDepth, final
             return rootColumn.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
         }
         double bestGainValue = 0.0;
-        for (TreeAttributeColumnData col : columnSample) {
-            if (forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
-                continue;
-            }
-            final SplitCandidate currentColSplit =
-                col.calcBestSplitClassification(dataMemberships, targetPriors, targetColumn, rd);
+        final SplitCandidate[] columnSplits = calcColumnSplits(dataMemberships, columnSample, forbiddenColumnSet,
+            (col, colRd) -> histograms.calcBestSplitClassification(col, dataMemberships, targetPriors, targetColumn,
+                colRd));
+        for (SplitCandidate currentColSplit : columnSplits) {
             if (currentColSplit != null) {
                 final double currentGain = currentColSplit.getGainValue();
                 final boolean tiebreaker = currentGain == bestGainValue ? (rd.nextInt(0, 1) == 0) : false;
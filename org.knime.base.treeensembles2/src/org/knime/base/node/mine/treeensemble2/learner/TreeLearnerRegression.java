@@ -53,6 +53,7 @@
 import java.util.List;
 
 import org.apache.commons.math.random.RandomData;
+import org.knime.base.node.mine.treeensemble2.data.BinnedHistograms;
 import org.knime.base.node.mine.treeensemble2.data.RegressionPriors;
 import org.knime.base.node.mine.treeensemble2.data.TreeAttributeColumnData;
 import org.knime.base.node.mine.treeensemble2.data.TreeColumnData;
@@ -123,7 +124,7 @@ public TreeModelRegression learnSingleTree(final ExecutionMonitor exec, final Ra
         final TreeNodeSignature rootSignature = TreeNodeSignature.ROOT_SIGNATURE;
         final ColumnSample rootColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(rootSignature);
         TreeNodeRegression rootNode = buildTreeNode(exec, 0, rootDataMemberships, rootColumnSample, getSignatureFactory().getRootSignature(),
-            targetPriors, forbiddenColumnSet);
+            targetPriors, forbiddenColumnSet, new BinnedHistograms());
         assert forbiddenColumnSet.cardinality() == 0;
         rootNode.setTreeNodeCondition(TreeNodeTrueCondition.INSTANCE);
         if (isGradientBoosting) {
@@ -134,7 +135,7 @@ public TreeModelRegression learnSingleTree(final ExecutionMonitor exec, final Ra
 
     private SplitCandidate findBestSplitRegression(final int currentDepth, final DataMemberships dataMemberships, final ColumnSample columnSample,
         final RegressionPriors targetPriors,
-        final BitSet forbiddenColumnSet) {
+        final BitSet forbiddenColumnSet, final BinnedHistograms histograms) throws CanceledExecutionException {
         final TreeData data = getData();
         final RandomData rd = getRandomData();
         final TreeEnsembleLearnerConfiguration config = getConfig();
@@ -159,12 +160,10 @@ private SplitCandidate findBestSplitRegression(final int currentDepth, final Dat
             return rootColumn.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
         } else {
             double bestGainValue = 0.0;
-            for (TreeAttributeColumnData col : columnSample) {
-                if (forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
-                    continue;
-                }
-                SplitCandidate currentColSplit =
-                    col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
+            final SplitCandidate[] columnSplits = calcColumnSplits(dataMemberships, columnSample, forbiddenColumnSet,
+                (col, colRd) -> histograms.calcBestSplitRegression(col, dataMemberships, targetPriors, targetColumn,
+                    colRd));
+            for (SplitCandidate currentColSplit : columnSplits) {
                 if (currentColSplit != null) {
                     double gainValue = currentColSplit.getGainValue();
                     if (gainValue > bestGainValue) {
@@ -179,7 +178,7 @@ private SplitCandidate findBestSplitRegression(final int currentDepth, final Dat
 
     private SplitCandidate[] findBestSplitsRegression(final int currentDepth, final DataMemberships dataMemberships, final ColumnSample columnSample,
         final RegressionPriors targetPriors,
-        final BitSet forbiddenColumnSet) {
+        final BitSet forbiddenColumnSet) throws CanceledExecutionException {
         final TreeData data = getData();
         final RandomData rd = getRandomData();
         final TreeEnsembleLearnerConfiguration config = getConfig();
@@ -205,12 +204,9 @@ private SplitCandidate[] findBestSplitsRegression(final int currentDepth, final
                 rootColumn.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd)};
         } else {
             splitCandidates = new ArrayList<SplitCandidate>(columnSample.getNumCols());
-            for (TreeAttributeColumnData col : columnSample) {
-                if (forbiddenColumnSet.get(col.getMetaData().getAttributeIndex())) {
-                    continue;
-                }
-                SplitCandidate currentColSplit =
-                    col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, rd);
+            final SplitCandidate[] columnSplits = calcColumnSplits(dataMemberships, columnSample, forbiddenColumnSet,
+                (col, colRd) -> col.calcBestSplitRegression(dataMemberships, targetPriors, targetColumn, colRd));
+            for (SplitCandidate currentColSplit : columnSplits) {
                 if (currentColSplit != null) {
                     splitCandidates.add(currentColSplit);
                 }
@@ -232,13 +228,14 @@ public int compare(final SplitCandidate arg0, final SplitCandidate arg1) {
 
     private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int currentDepth,
         final DataMemberships dataMemberships, final ColumnSample columnSample, final TreeNodeSignature treeNodeSignature,
-        final RegressionPriors targetPriors, final BitSet forbiddenColumnSet) throws CanceledExecutionException {
+        final RegressionPriors targetPriors, final BitSet forbiddenColumnSet, final BinnedHistograms histograms)
+        throws CanceledExecutionException {
         final TreeData data = getData();
         final RandomData rd = getRandomData();
         final TreeEnsembleLearnerConfiguration config = getConfig();
         exec.checkCanceled();
-        final SplitCandidate candidate =
-            findBestSplitRegression(currentDepth, dataMemberships, columnSample, targetPriors, forbiddenColumnSet);
+        final SplitCandidate candidate = findBestSplitRegression(currentDepth, dataMemberships, columnSample,
+            targetPriors, forbiddenColumnSet, histograms);
         if (candidate == null) {
             if (config instanceof GradientBoostingLearnerConfiguration) {
                 TreeNodeRegression leaf =
@@ -264,7 +261,7 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
                 RegressionPriors childTargetPriors = targetColumn.getPriors(childMemberships, config);
                 childNodes[i] = buildTreeNode(exec, currentDepth + 1, childMemberships, childColumnSample, childSignature,
-                    childTargetPriors, forbiddenColumnSet);
+                    childTargetPriors, forbiddenColumnSet, new BinnedHistograms());
                 childNodes[i].setTreeNodeCondition(childConditions[i]);
             }
         } else {
@@ -280,16 +277,25 @@ private TreeNodeRegression buildTreeNode(final ExecutionMonitor exec, final int
                         + " (maximum supported: " + Short.MAX_VALUE + "): " + childConditions.length);
             }
             childNodes = new TreeNodeRegression[childConditions.length];
+            final DataMemberships[] childMemberships = new DataMemberships[childConditions.length];
             for (int i = 0; i < childConditions.length; i++) {
+                childMemberships[i] = dataMemberships.createChildMemberships(
+                    splitColumn.updateChildMemberships(childConditions[i], dataMemberships));
+            }
+            final int[] childOrder = getChildOrder(dataMemberships, childMemberships);
+            BinnedHistograms previousHistograms = null;
+            for (int k = 0; k < childOrder.length; k++) {
+                final int i = childOrder[k];
                 TreeNodeCondition cond = childConditions[i];
-                DataMemberships childMemberships =
-                    dataMemberships.createChildMemberships(splitColumn.updateChildMemberships(cond, dataMemberships));
-                RegressionPriors childTargetPriors = targetColumn.getPriors(childMemberships, config);
+                RegressionPriors childTargetPriors = targetColumn.getPriors(childMemberships[i], config);
                 TreeNodeSignature childSignature = treeNodeSignature.createChildSignature((byte)i);
                 ColumnSample childColumnSample = getColSamplingStrategy().getColumnSampleForTreeNode(childSignature);
-                childNodes[i] = buildTreeNode(exec, currentDepth + 1, childMemberships, childColumnSample, childSignature,
-                    childTargetPriors, forbiddenColumnSet);
+                final BinnedHistograms childHistograms = k == 1 && isDeriveSiblingHistograms(dataMemberships,
+                    childMemberships) ? histograms.deriveSibling(previousHistograms) : new BinnedHistograms();
+                childNodes[i] = buildTreeNode(exec, currentDepth + 1, childMemberships[i], childColumnSample,
+                    childSignature, childTargetPriors, forbiddenColumnSet, childHistograms);
                 childNodes[i].setTreeNodeCondition(cond);
+                previousHistograms = childHistograms;
             }
             if (markAttributeAsForbidden) {
                 forbiddenColumnSet.set(attributeIndex, false);
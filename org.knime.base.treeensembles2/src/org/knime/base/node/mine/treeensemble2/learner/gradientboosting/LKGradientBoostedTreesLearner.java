@@ -252,6 +252,7 @@ public Pair<TreeModelRegression, Map<TreeNodeSignature, Double>> call() throws E
                 final RowSample rowSample = getRowSampler().createRowSample(m_rd);
                 final TreeLearnerRegression treeLearner =
                     new TreeLearnerRegression(getConfig(), pseudoResiduals, getIndexManager(), m_signatureFactory, m_rd, rowSample);
+                treeLearner.setParallelSplitSearch(getConfig().isUseParallelSplitSearch());
                 final TreeModelRegression tree = treeLearner.learnSingleTree(m_subExec, m_rd);
                 final Map<TreeNodeSignature, Double> coefficientMap =
                     calculateCoefficientMap(tree, pseudoResiduals, m_numClasses);
@@ -134,6 +134,7 @@ public AbstractGradientBoostingModel learn(final ExecutionMonitor exec) throws C
             final RowSample rowSample = getRowSampler().createRowSample(rdSingle);
             final TreeLearnerRegression treeLearner =
                 new TreeLearnerRegression(getConfig(), residualData, getIndexManager(), signatureFactory, rdSingle, rowSample);
+            treeLearner.setParallelSplitSearch(getConfig().isUseParallelSplitSearch());
             final TreeModelRegression tree = treeLearner.learnSingleTree(exec, rdSingle);
             final Map<TreeNodeSignature, Double> coefficientMap = calcCoefficientMap(residuals, quantile, tree);
             adaptPreviousPrediction(previousPrediction, tree, coefficientMap);
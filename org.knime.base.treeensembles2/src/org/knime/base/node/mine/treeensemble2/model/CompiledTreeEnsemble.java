@@ -0,0 +1,425 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.knime.base.node.mine.treeensemble2.data.NominalValueRepresentation;
+import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
+import org.knime.base.node.mine.treeensemble2.data.TreeNominalColumnMetaData;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel.TreeType;
+import org.knime.base.node.mine.treeensemble2.model.TreeNodeNumericCondition.NumericOperator;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.NominalValue;
+import org.knime.core.data.vector.bytevector.ByteVectorValue;
+import org.knime.core.data.vector.doublevector.DoubleVectorValue;
+
+/**
+ * A flat representation of the trees of an ensemble that is optimized for prediction. Instead of walking the
+ * {@link AbstractTreeNode node} objects and testing the {@link TreeNodeCondition conditions} against a
+ * {@link org.knime.base.node.mine.treeensemble2.data.PredictorRecord PredictorRecord}, the nodes of all trees are
+ * stored in primitive arrays (feature index, threshold, child offset and node value) and the rows are passed as
+ * primitive feature vectors. The two children of a node are stored next to each other.
+ * <p>
+ * Only binary splits on numeric columns and binary splits on nominal columns can be compiled, models that contain
+ * other conditions (e.g. surrogates or bit vector splits) have to be predicted with the original trees.
+ * <p>
+ * Instances are immutable and can be used concurrently.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class CompiledTreeEnsemble {
+
+    /**
+     * Provides the value of a compiled tree node. The value of leafs is the prediction of the tree, the value of inner
+     * nodes is used if a row stops in that node because neither child accepts a missing value.
+     *
+     * @param <N> the type of tree node
+     */
+    @FunctionalInterface
+    public interface NodeValueFunction<N extends AbstractTreeNode> {
+        /**
+         * @param treeIndex the index of the tree in the ensemble
+         * @param node a node of the tree
+         * @return the value of <b>node</b>, {@link Double#NaN} if there is none
+         */
+        double getValue(int treeIndex, N node);
+    }
+
+    private static final byte FLAG_LEFT_IF_GREATER = 1;
+
+    private static final byte FLAG_NOMINAL = 2;
+
+    private static final byte FLAG_MISSING_LEFT = 4;
+
+    private static final byte FLAG_MISSING_RIGHT = 8;
+
+    private final int m_nrFeatures;
+
+    /** Index of the root node of each tree. */
+    private final int[] m_roots;
+
+    /** The feature that is tested in a node, -1 for leafs. */
+    private final int[] m_features;
+
+    private final byte[] m_flags;
+
+    /** The split value of numeric splits, the offset into {@link #m_nominalMasks} for nominal splits. */
+    private final double[] m_thresholds;
+
+    /** Index of the left child, the right child follows immediately. */
+    private final int[] m_children;
+
+    private final double[] m_values;
+
+    /** For each nominal split the number of words followed by the bit mask of the values that go left. */
+    private final long[] m_nominalMasks;
+
+    private CompiledTreeEnsemble(final int nrFeatures, final int[] roots, final int[] features, final byte[] flags,
+        final double[] thresholds, final int[] children, final double[] values, final long[] nominalMasks) {
+        m_nrFeatures = nrFeatures;
+        m_roots = roots;
+        m_features = features;
+        m_flags = flags;
+        m_thresholds = thresholds;
+        m_children = children;
+        m_values = values;
+        m_nominalMasks = nominalMasks;
+    }
+
+    /**
+     * Compiles the given trees.
+     *
+     * @param model the ensemble the trees belong to (provides the attribute meta data)
+     * @param trees the trees to compile, the order defines the order of the predicted values
+     * @param valueFunction provides the value of each node
+     * @return the compiled ensemble or an empty optional if some trees contain conditions that can't be compiled
+     */
+    public static <N extends AbstractTreeNode> Optional<CompiledTreeEnsemble> compile(
+        final AbstractTreeEnsembleModel model, final List<? extends AbstractTreeModel<N>> trees,
+        final NodeValueFunction<N> valueFunction) {
+        final int nrTrees = trees.size();
+        final int[] roots = new int[nrTrees];
+        // breadth-first order in which the children of a node are adjacent
+        final List<N> nodes = new ArrayList<N>();
+        final List<Integer> treeIndices = new ArrayList<Integer>();
+        final List<Integer> childIndices = new ArrayList<Integer>();
+        for (int t = 0; t < nrTrees; t++) {
+            roots[t] = nodes.size();
+            nodes.add(trees.get(t).getRootNode());
+            for (int i = roots[t]; i < nodes.size(); i++) {
+                final N node = nodes.get(i);
+                treeIndices.add(t);
+                final int nrChildren = node.getNrChildren();
+                if (nrChildren == 0) {
+                    childIndices.add(-1);
+                } else if (nrChildren == 2) {
+                    childIndices.add(nodes.size());
+                    final List<N> children = node.getChildren();
+                    nodes.addAll(children);
+                } else {
+                    return Optional.empty();
+                }
+            }
+        }
+        final int nrNodes = nodes.size();
+        final int[] features = new int[nrNodes];
+        final byte[] flags = new byte[nrNodes];
+        final double[] thresholds = new double[nrNodes];
+        final int[] children = new int[nrNodes];
+        final double[] values = new double[nrNodes];
+        final List<long[]> masks = new ArrayList<long[]>();
+        int maskLength = 0;
+        for (int i = 0; i < nrNodes; i++) {
+            final N node = nodes.get(i);
+            values[i] = valueFunction.getValue(treeIndices.get(i), node);
+            children[i] = childIndices.get(i);
+            if (children[i] < 0) {
+                features[i] = -1;
+                continue;
+            }
+            final TreeNodeCondition left = node.getChild(0).getCondition();
+            final TreeNodeCondition right = node.getChild(1).getCondition();
+            if (left instanceof TreeNodeNumericCondition && right instanceof TreeNodeNumericCondition) {
+                final TreeNodeNumericCondition leftNum = (TreeNodeNumericCondition)left;
+                final TreeNodeNumericCondition rightNum = (TreeNodeNumericCondition)right;
+                final boolean leftIfGreater = isGreater(leftNum.getNumericOperator());
+                if (leftIfGreater == isGreater(rightNum.getNumericOperator())
+                    || leftNum.getSplitValue() != rightNum.getSplitValue()
+                    || getAttributeIndex(leftNum) != getAttributeIndex(rightNum)) {
+                    return Optional.empty();
+                }
+                features[i] = getAttributeIndex(leftNum);
+                thresholds[i] = leftNum.getSplitValue();
+                flags[i] = leftIfGreater ? FLAG_LEFT_IF_GREATER : 0;
+            } else if (left instanceof TreeNodeNominalBinaryCondition
+                && right instanceof TreeNodeNominalBinaryCondition) {
+                final TreeNodeNominalBinaryCondition leftNom = (TreeNodeNominalBinaryCondition)left;
+                final TreeNodeNominalBinaryCondition rightNom = (TreeNodeNominalBinaryCondition)right;
+                if (getAttributeIndex(leftNom) != getAttributeIndex(rightNom)) {
+                    return Optional.empty();
+                }
+                final int nrValues = leftNom.getColumnMetaData().getValues().length;
+                final long[] mask = new long[1 + (nrValues + 63) / 64];
+                mask[0] = mask.length - 1;
+                for (int v = 0; v < nrValues; v++) {
+                    final boolean goesLeft = leftNom.testCondition(v);
+                    if (goesLeft == rightNom.testCondition(v)) {
+                        return Optional.empty();
+                    }
+                    if (goesLeft) {
+                        mask[1 + (v >>> 6)] |= 1L << v;
+                    }
+                }
+                features[i] = getAttributeIndex(leftNom);
+                thresholds[i] = maskLength;
+                flags[i] = FLAG_NOMINAL;
+                masks.add(mask);
+                maskLength += mask.length;
+            } else {
+                return Optional.empty();
+            }
+            if (((TreeNodeColumnCondition)left).acceptsMissings()) {
+                flags[i] |= FLAG_MISSING_LEFT;
+            } else if (((TreeNodeColumnCondition)right).acceptsMissings()) {
+                flags[i] |= FLAG_MISSING_RIGHT;
+            }
+        }
+        final long[] nominalMasks = new long[maskLength];
+        int offset = 0;
+        for (long[] mask : masks) {
+            System.arraycopy(mask, 0, nominalMasks, offset, mask.length);
+            offset += mask.length;
+        }
+        return Optional.of(new CompiledTreeEnsemble(model.getMetaData().getNrAttributes(), roots, features, flags,
+            thresholds, children, values, nominalMasks));
+    }
+
+    private static boolean isGreater(final NumericOperator operator) {
+        return operator == NumericOperator.LargerThan || operator == NumericOperator.LargerThanOrMissing;
+    }
+
+    private static int getAttributeIndex(final TreeNodeColumnCondition condition) {
+        return condition.getColumnMetaData().getAttributeIndex();
+    }
+
+    /**
+     * @return the number of features of a row, i.e. the number of attributes of the model
+     */
+    public int getNrFeatures() {
+        return m_nrFeatures;
+    }
+
+    /**
+     * @return the number of trees
+     */
+    public int getNrTrees() {
+        return m_roots.length;
+    }
+
+    /**
+     * Predicts a block of rows. The trees are processed one after another so that the nodes of the current tree stay
+     * in the cache while all rows of the block are passed through it.
+     *
+     * @param features the features of the rows, row after row with {@link #getNrFeatures()} values each (missing values
+     *            are {@link Double#NaN}, nominal values are encoded by their assigned integer)
+     * @param nrRows the number of rows in the block
+     * @param values the array to fill with the values of the matching nodes, row after row with {@link #getNrTrees()}
+     *            values each
+     */
+    public void predict(final double[] features, final int nrRows, final double[] values) {
+        final int nrTrees = m_roots.length;
+        for (int t = 0; t < nrTrees; t++) {
+            final int root = m_roots[t];
+            for (int r = 0; r < nrRows; r++) {
+                values[r * nrTrees + t] = m_values[findNode(root, features, r * m_nrFeatures)];
+            }
+        }
+    }
+
+    private int findNode(final int root, final double[] features, final int offset) {
+        int node = root;
+        int feature;
+        while ((feature = m_features[node]) >= 0) {
+            final double value = features[offset + feature];
+            final byte flags = m_flags[node];
+            final boolean goesLeft;
+            if (Double.isNaN(value)) {
+                if ((flags & FLAG_MISSING_LEFT) != 0) {
+                    goesLeft = true;
+                } else if ((flags & FLAG_MISSING_RIGHT) != 0) {
+                    goesLeft = false;
+                } else {
+                    // no child accepts missing values
+                    return node;
+                }
+            } else if ((flags & FLAG_NOMINAL) != 0) {
+                final int maskOffset = (int)m_thresholds[node];
+                final int valueIndex = (int)value;
+                final int word = valueIndex >>> 6;
+                goesLeft = valueIndex >= 0 && word < m_nominalMasks[maskOffset]
+                    && (m_nominalMasks[maskOffset + 1 + word] & (1L << valueIndex)) != 0;
+            } else {
+                goesLeft = (value <= m_thresholds[node]) != ((flags & FLAG_LEFT_IF_GREATER) != 0);
+            }
+            node = goesLeft ? m_children[node] : m_children[node] + 1;
+        }
+        return node;
+    }
+
+    /**
+     * Reads the features of the (filtered) input rows in the layout expected by
+     * {@link CompiledTreeEnsemble#predict(double[], int, double[])}. Instances can be used concurrently.
+     */
+    public static final class FeatureReader {
+
+        private final TreeType m_type;
+
+        private final int m_nrFeatures;
+
+        private final int[] m_filterIndices;
+
+        /** Maps the nominal values of each learn column to their assigned integer, null for numeric columns. */
+        private final Map<String, Integer>[] m_nominalValues;
+
+        @SuppressWarnings("unchecked")
+        private FeatureReader(final AbstractTreeEnsembleModel model, final int[] filterIndices,
+            final DataTableSpec learnSpec) {
+            final TreeMetaData metaData = model.getMetaData();
+            m_type = model.getType();
+            m_nrFeatures = metaData.getNrAttributes();
+            m_filterIndices = filterIndices;
+            m_nominalValues = new Map[m_type == TreeType.Ordinary ? learnSpec.getNumColumns() : 0];
+            for (int i = 0; i < m_nominalValues.length; i++) {
+                final DataColumnSpec col = learnSpec.getColumnSpec(i);
+                final DataType colType = col.getType();
+                if (colType.isCompatible(NominalValue.class)) {
+                    final NominalValueRepresentation[] nomVals =
+                        ((TreeNominalColumnMetaData)metaData.getAttributeMetaData(i)).getValues();
+                    final Map<String, Integer> map = new HashMap<String, Integer>((int)(nomVals.length / 0.75 + 1));
+                    for (NominalValueRepresentation nomVal : nomVals) {
+                        map.putIfAbsent(nomVal.getNominalValue(), nomVal.getAssignedInteger());
+                    }
+                    m_nominalValues[i] = map;
+                } else if (!colType.isCompatible(DoubleValue.class)) {
+                    throw new IllegalStateException("Expected nominal or numeric column type for column \""
+                        + col.getName() + "\" but got \"" + colType + "\"");
+                }
+            }
+        }
+
+        /**
+         * Reads the features of <b>row</b>.
+         *
+         * @param row an input row
+         * @param features the array to fill, must have at least {@link CompiledTreeEnsemble#getNrFeatures()} entries
+         * @return false if the row can't be converted into features (e.g. a missing vector cell)
+         */
+        public boolean read(final DataRow row, final double[] features) {
+            switch (m_type) {
+                case Ordinary:
+                    for (int i = 0; i < m_filterIndices.length; i++) {
+                        final DataCell cell = row.getCell(m_filterIndices[i]);
+                        if (cell.isMissing()) {
+                            features[i] = Double.NaN;
+                        } else if (m_nominalValues[i] != null) {
+                            // values unknown to the model are treated as missing
+                            final Integer assignedInteger = m_nominalValues[i].get(cell.toString());
+                            features[i] = assignedInteger == null ? Double.NaN : assignedInteger;
+                        } else {
+                            features[i] = ((DoubleValue)cell).getDoubleValue();
+                        }
+                    }
+                    return true;
+                case ByteVector:
+                    final DataCell byteCell = row.getCell(m_filterIndices[0]);
+                    if (byteCell.isMissing() || ((ByteVectorValue)byteCell).length() != m_nrFeatures) {
+                        return false;
+                    }
+                    final ByteVectorValue bv = (ByteVectorValue)byteCell;
+                    for (int i = 0; i < m_nrFeatures; i++) {
+                        features[i] = bv.get(i);
+                    }
+                    return true;
+                case DoubleVector:
+                    final DataCell doubleCell = row.getCell(m_filterIndices[0]);
+                    if (doubleCell.isMissing() || ((DoubleVectorValue)doubleCell).getLength() != m_nrFeatures) {
+                        return false;
+                    }
+                    final DoubleVectorValue dv = (DoubleVectorValue)doubleCell;
+                    for (int i = 0; i < m_nrFeatures; i++) {
+                        features[i] = dv.getValue(i);
+                    }
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Creates a reader for the features of rows of a table that is predicted by a compiled version of <b>model</b>.
+     *
+     * @param model the model
+     * @param filterIndices the indices of the learn columns in the predicted table
+     * @param learnSpec the spec of the learn columns
+     * @return a feature reader
+     */
+    public static FeatureReader createFeatureReader(final AbstractTreeEnsembleModel model, final int[] filterIndices,
+        final DataTableSpec learnSpec) {
+        return new FeatureReader(model, filterIndices, learnSpec);
+    }
+}
@@ -55,6 +55,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
@@ -121,6 +122,25 @@ public double predict(final PredictorRecord record) {
         return prediction;
     }
 
+    /**
+     * Compiles the trees of this model for fast prediction. The values of the compiled ensemble are the coefficients of
+     * the matching leafs, their sum plus the {@link #getInitialValue() initial value} is the prediction.
+     *
+     * @return the compiled trees or an empty optional if the trees contain conditions that can't be compiled
+     * @since 3.6
+     */
+    public Optional<CompiledTreeEnsemble> compile() {
+        final int nrModels = getNrModels();
+        final List<TreeModelRegression> trees = new ArrayList<TreeModelRegression>(nrModels);
+        for (int i = 0; i < nrModels; i++) {
+            trees.add(getTreeModelRegression(i));
+        }
+        return CompiledTreeEnsemble.compile(this, trees, (i, node) -> {
+            final Double coefficient = m_coefficientMaps.get(i).get(node.getSignature());
+            return coefficient == null ? Double.NaN : coefficient;
+        });
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -54,6 +54,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
@@ -208,6 +209,25 @@ public int getNrLevels() {
         return getNrModels() / m_numClasses;
     }
 
+    /**
+     * Compiles the trees of this model for fast prediction. The trees are ordered by level and then by class, i.e. the
+     * value of the tree for class <i>c</i> in level <i>l</i> has index <i>l * {@link #getNrClasses()} + c</i>.
+     *
+     * @return the compiled trees or an empty optional if the trees contain conditions that can't be compiled
+     * @since 3.6
+     */
+    public Optional<CompiledTreeEnsemble> compile() {
+        final int nrModels = getNrModels();
+        final List<TreeModelRegression> trees = new ArrayList<TreeModelRegression>(nrModels);
+        for (int i = 0; i < nrModels; i++) {
+            trees.add(getTreeModelRegression(i));
+        }
+        return CompiledTreeEnsemble.compile(this, trees, (i, node) -> {
+            final Double coefficient = getCoefficientMap(i / m_numClasses, i % m_numClasses).get(node.getSignature());
+            return coefficient == null ? Double.NaN : coefficient;
+        });
+    }
+
     /**
      * {@inheritDoc}
      */
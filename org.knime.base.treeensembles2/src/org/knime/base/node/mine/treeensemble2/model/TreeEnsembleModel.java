@@ -49,11 +49,17 @@
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.knime.base.node.mine.decisiontree2.model.DecisionTree;
 import org.knime.base.node.mine.treeensemble2.data.TreeMetaData;
@@ -66,6 +72,9 @@
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.NodeLogger;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+
 /**
  *
  * @author Bernd Wiswedel, KNIME AG, Zurich, Switzerland
@@ -102,7 +111,13 @@ public enum Version {
          * Version 3.6.0.
          * Fix a serialization bug that only appears if a categorical column has many (>128) possible values.
          */
-        V360(20180702);
+        V360(20180702),
+
+        /**
+         * Version 3.6.1.
+         * Append an offset index of the trees, which allows to load single trees on demand.
+         */
+        V361(20181019);
 
         private int m_versionNumber;
 
@@ -131,7 +146,14 @@ public static Version getVersion(final int versionNumber) throws IOException {
 
     }
 
-    private final AbstractTreeModel[] m_models;
+    /** The newest version, used for saving. */
+    private static final Version CURRENT_VERSION = Version.V361;
+
+    /** The trees, individual entries are null until loaded if the model is {@link #load(File) read lazily}. */
+    private final AtomicReferenceArray<AbstractTreeModel<?>> m_models;
+
+    /** Reads the trees that are not loaded yet, null if all trees are in memory. */
+    private LazyTreeLoader m_treeLoader;
 
     /**
      * For classification models if each tree node/leaf contains an array with the target class distribution. It
@@ -154,7 +176,7 @@ public TreeEnsembleModel(final TreeEnsembleLearnerConfiguration configuration, f
     public TreeEnsembleModel(final TreeMetaData metaData, final AbstractTreeModel[] models, final TreeType treeType,
         final boolean containsClassDistribution) {
         super(metaData, treeType);
-        m_models = models;
+        m_models = new AtomicReferenceArray<AbstractTreeModel<?>>(models);
         m_containsClassDistribution = containsClassDistribution;
     }
 
@@ -170,7 +192,31 @@ public boolean containsClassDistribution() {
      * @return the models
      */
     public AbstractTreeModel<?> getTreeModel(final int index) {
-        return m_models[index];
+        final AbstractTreeModel<?> model = m_models.get(index);
+        return model != null ? model : loadTreeModel(index);
+    }
+
+    private synchronized AbstractTreeModel<?> loadTreeModel(final int index) {
+        AbstractTreeModel<?> model = m_models.get(index);
+        if (model == null) {
+            try {
+                model = m_treeLoader.load(index);
+            } catch (IOException e) {
+                throw new IllegalStateException(
+                    "Can't read tree model " + (index + 1) + "/" + getNrModels() + ": " + e.getMessage(), e);
+            }
+            m_models.set(index, model);
+        }
+        return model;
+    }
+
+    /**
+     * @param index the index of the tree
+     * @return whether the tree is in memory, i.e. the model was not {@link #load(File) read lazily} or the tree has
+     *         been accessed already
+     */
+    boolean isTreeModelLoaded(final int index) {
+        return m_models.get(index) != null;
     }
 
     /**
@@ -180,7 +226,7 @@ public AbstractTreeModel<?> getTreeModel(final int index) {
      * @return the model at <b>index</b>
      */
     public TreeModelClassification getTreeModelClassification(final int index) {
-        return (TreeModelClassification)m_models[index];
+        return (TreeModelClassification)getTreeModel(index);
     }
 
     /**
@@ -190,14 +236,14 @@ public TreeModelClassification getTreeModelClassification(final int index) {
      * @return the models
      */
     public TreeModelRegression getTreeModelRegression(final int index) {
-        return (TreeModelRegression)m_models[index];
+        return (TreeModelRegression)getTreeModel(index);
     }
 
     /**
      * @return the number of models
      */
     public int getNrModels() {
-        return m_models.length;
+        return m_models.length();
     }
 
 
@@ -242,12 +288,14 @@ public DecisionTree createDecisionTree(final int modelIndex, final DataTable sam
     public void save(final OutputStream out) throws IOException {
         // wrapping the (zip) output stream with a buffered stream reduces
         // the write operation from, e.g. 63s to 8s
-        DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(out));
+        CountingOutputStream countingOutput = new CountingOutputStream(new BufferedOutputStream(out));
+        DataOutputStream dataOutput = new DataOutputStream(countingOutput);
         // previous version numbers:
         // 20121019 - first public release
         // 20140201 - omit target distribution in each tree node
         // 20160114 - first version of gradient boosting
-        dataOutput.writeInt(Version.V360.getVersionNumber()); // version number
+        // 20180702 - fix serialization of nominal conditions with many values
+        dataOutput.writeInt(CURRENT_VERSION.getVersionNumber()); // version number
         if (this instanceof GradientBoostedTreesModel) {
             dataOutput.writeByte('t');
         } else if (this instanceof MultiClassGradientBoostedTreesModel) {
@@ -259,18 +307,29 @@ public void save(final OutputStream out) throws IOException {
         }
         getType().save(dataOutput);
         getMetaData().save(dataOutput);
-        dataOutput.writeInt(m_models.length);
+        final int nrModels = getNrModels();
+        dataOutput.writeInt(nrModels);
         dataOutput.writeBoolean(m_containsClassDistribution);
-        for (int i = 0; i < m_models.length; i++) {
-            AbstractTreeModel singleModel = m_models[i];
+        final long[] treeOffsets = new long[nrModels + 1];
+        for (int i = 0; i < nrModels; i++) {
+            treeOffsets[i] = countingOutput.getCount();
+            AbstractTreeModel<?> singleModel = getTreeModel(i);
             try {
                 singleModel.save(dataOutput);
             } catch (IOException ioe) {
-                throw new IOException("Can't save tree model " + (i + 1) + "/" + m_models.length, ioe);
+                throw new IOException("Can't save tree model " + (i + 1) + "/" + nrModels, ioe);
             }
             dataOutput.writeByte((byte)0);
         }
+        treeOffsets[nrModels] = countingOutput.getCount();
         saveData(dataOutput);
+        // the index is written last so that the trees don't need to be buffered,
+        // its position is stored in the last 8 bytes (see load(File))
+        final long indexOffset = countingOutput.getCount();
+        for (long offset : treeOffsets) {
+            dataOutput.writeLong(offset);
+        }
+        dataOutput.writeLong(indexOffset);
         dataOutput.flush();
     }
 
@@ -298,70 +357,185 @@ protected void saveData(final DataOutputStream dataOutput) throws IOException {
     }
 
     public static TreeEnsembleModel load(final InputStream in) throws IOException {
-        // wrapping the argument (zip input) stream in a buffered stream
+        // wrapping the argument (zip) input stream in a buffered stream
         // reduces read operation from, e.g. 42s to 2s
         TreeModelDataInputStream input =
             new TreeModelDataInputStream(new BufferedInputStream(new NonClosableInputStream(in)));
-        int version = input.readInt();
-        if (version > Version.V360.getVersionNumber()) {
-            throw new IOException("Tree Ensemble version " + version + " not supported");
+        Header header = Header.load(input);
+        AbstractTreeModel[] models = new AbstractTreeModel[header.m_nrModels];
+        final TreeBuildingInterner treeBuildingInterner = new TreeBuildingInterner();
+        for (int i = 0; i < header.m_nrModels; i++) {
+            models[i] = header.loadTree(input, i, treeBuildingInterner);
         }
-        byte ensembleType;
-        if (version >= Version.V320.getVersionNumber()) {
-            ensembleType = input.readByte();
-        } else {
-            ensembleType = 'r';
+        TreeEnsembleModel result = header.createEnsemble(models);
+        result.loadData(input);
+        if (header.m_version.sameOrNewer(Version.V361)) {
+            // skip the tree index, it is only needed for random access
+            ByteStreams.skipFully(input, (header.m_nrModels + 2) * 8L);
         }
-        input.setVersion(Version.getVersion(version));
-        TreeType type = TreeType.load(input);
-        TreeMetaData metaData = TreeMetaData.load(input);
-        int nrModels = input.readInt();
-        boolean containsClassDistribution;
-        if (version == Version.V260.getVersionNumber()) {
-            containsClassDistribution = true;
-        } else {
-            containsClassDistribution = input.readBoolean();
+        input.close(); // does not close the method argument stream!!
+        return result;
+    }
+
+    /**
+     * Loads the ensemble from a file that contains only the ensemble (as written by {@link #save(OutputStream)}). In
+     * contrast to {@link #load(InputStream)} the trees are not read immediately but only when they are accessed for
+     * the first time, which keeps the loading time and memory footprint proportional to the trees that are actually
+     * used. Files written by previous versions don't contain the required tree index and are read completely.
+     *
+     * @param file the file to read from, must not be modified or deleted while the returned model is in use
+     * @return the loaded ensemble
+     * @throws IOException if the file can't be read
+     * @since 3.6
+     */
+    public static TreeEnsembleModel load(final File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            TreeModelDataInputStream input = new TreeModelDataInputStream(new BufferedInputStream(in));
+            Header header = Header.load(input);
+            if (!header.m_version.sameOrNewer(Version.V361)) {
+                try (FileInputStream fullIn = new FileInputStream(file)) {
+                    return load(fullIn);
+                }
+            }
+            final long[] treeOffsets = readTreeIndex(file, header.m_nrModels);
+            TreeEnsembleModel result = header.createEnsemble(new AbstractTreeModel[header.m_nrModels]);
+            result.m_treeLoader = new LazyTreeLoader(file, treeOffsets, header);
+            // the additional data of subclasses follows the trees
+            ByteStreams.skipFully(input, treeOffsets[header.m_nrModels] - treeOffsets[0]);
+            result.loadData(input);
+            return result;
         }
-        input.setContainsClassDistribution(containsClassDistribution);
-        AbstractTreeModel[] models = new AbstractTreeModel[nrModels];
-        boolean isRegression = metaData.isRegression();
-        if (ensembleType != 'r') {
-            isRegression = true;
+    }
+
+    private static long[] readTreeIndex(final File file, final int nrModels) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 8);
+            raf.seek(raf.readLong());
+            final byte[] index = new byte[(nrModels + 1) * 8];
+            raf.readFully(index);
+            final long[] treeOffsets = new long[nrModels + 1];
+            ByteBuffer.wrap(index).asLongBuffer().get(treeOffsets);
+            return treeOffsets;
         }
-        final TreeBuildingInterner treeBuildingInterner = new TreeBuildingInterner();
-        for (int i = 0; i < nrModels; i++) {
-            AbstractTreeModel singleModel;
+    }
+
+    /** The information stored in front of the trees. */
+    private static final class Header {
+
+        private final Version m_version;
+
+        private final byte m_ensembleType;
+
+        private final TreeType m_type;
+
+        private final TreeMetaData m_metaData;
+
+        private final int m_nrModels;
+
+        private final boolean m_containsClassDistribution;
+
+        private Header(final Version version, final byte ensembleType, final TreeType type,
+            final TreeMetaData metaData, final int nrModels, final boolean containsClassDistribution) {
+            m_version = version;
+            m_ensembleType = ensembleType;
+            m_type = type;
+            m_metaData = metaData;
+            m_nrModels = nrModels;
+            m_containsClassDistribution = containsClassDistribution;
+        }
+
+        /** Reads the header and configures <b>input</b> for reading the trees. */
+        private static Header load(final TreeModelDataInputStream input) throws IOException {
+            int version = input.readInt();
+            if (version > CURRENT_VERSION.getVersionNumber()) {
+                throw new IOException("Tree Ensemble version " + version + " not supported");
+            }
+            byte ensembleType;
+            if (version >= Version.V320.getVersionNumber()) {
+                ensembleType = input.readByte();
+            } else {
+                ensembleType = 'r';
+            }
+            input.setVersion(Version.getVersion(version));
+            TreeType type = TreeType.load(input);
+            TreeMetaData metaData = TreeMetaData.load(input);
+            int nrModels = input.readInt();
+            boolean containsClassDistribution;
+            if (version == Version.V260.getVersionNumber()) {
+                containsClassDistribution = true;
+            } else {
+                containsClassDistribution = input.readBoolean();
+            }
+            input.setContainsClassDistribution(containsClassDistribution);
+            return new Header(input.getVersion(), ensembleType, type, metaData, nrModels, containsClassDistribution);
+        }
+
+        private AbstractTreeModel<?> loadTree(final TreeModelDataInputStream input, final int index,
+            final TreeBuildingInterner treeBuildingInterner) throws IOException {
+            // gradient boosting always uses regression trees
+            final boolean isRegression = m_ensembleType != 'r' || m_metaData.isRegression();
             try {
-                singleModel = isRegression ? TreeModelRegression.load(input, metaData, treeBuildingInterner)
-                    : TreeModelClassification.load(input, metaData, treeBuildingInterner);
+                AbstractTreeModel<?> singleModel = isRegression
+                    ? TreeModelRegression.load(input, m_metaData, treeBuildingInterner)
+                    : TreeModelClassification.load(input, m_metaData, treeBuildingInterner);
                 if (input.readByte() != 0) {
                     throw new IOException("Model not terminated by 0 byte");
                 }
+                return singleModel;
             } catch (IOException e) {
-                throw new IOException("Can't read tree model " + (i + 1) + "/" + nrModels + ": " + e.getMessage(), e);
+                throw new IOException(
+                    "Can't read tree model " + (index + 1) + "/" + m_nrModels + ": " + e.getMessage(), e);
             }
-            models[i] = singleModel;
         }
-        TreeEnsembleModel result;
-        switch (ensembleType) {
-            case 'r':
-                result = new TreeEnsembleModel(metaData, models, type, containsClassDistribution);
-                break;
-            case 'g':
-                result = new GradientBoostingModel(metaData, models, type, containsClassDistribution);
-                break;
-            case 't':
-                result = new GradientBoostedTreesModel(metaData, models, type, containsClassDistribution);
-                break;
-            case 'm':
-                result = new MultiClassGradientBoostedTreesModel(metaData, models, type, containsClassDistribution);
-                break;
-            default:
-                throw new IllegalStateException("Unknown ensemble type: '" + (char)ensembleType + "'");
+
+        private TreeEnsembleModel createEnsemble(final AbstractTreeModel[] models) {
+            switch (m_ensembleType) {
+                case 'r':
+                    return new TreeEnsembleModel(m_metaData, models, m_type, m_containsClassDistribution);
+                case 'g':
+                    return new GradientBoostingModel(m_metaData, models, m_type, m_containsClassDistribution);
+                case 't':
+                    return new GradientBoostedTreesModel(m_metaData, models, m_type, m_containsClassDistribution);
+                case 'm':
+                    return new MultiClassGradientBoostedTreesModel(m_metaData, models, m_type,
+                        m_containsClassDistribution);
+                default:
+                    throw new IllegalStateException("Unknown ensemble type: '" + (char)m_ensembleType + "'");
+            }
+        }
+    }
+
+    /** Reads single trees from a file using the offsets of the tree index. */
+    private static final class LazyTreeLoader {
+
+        private final File m_file;
+
+        private final long[] m_treeOffsets;
+
+        private final Header m_header;
+
+        /** Shared by all trees of the ensemble, just like when the ensemble is read in one go. */
+        private final TreeBuildingInterner m_treeBuildingInterner = new TreeBuildingInterner();
+
+        private LazyTreeLoader(final File file, final long[] treeOffsets, final Header header) {
+            m_file = file;
+            m_treeOffsets = treeOffsets;
+            m_header = header;
+        }
+
+        private AbstractTreeModel<?> load(final int index) throws IOException {
+            final byte[] bytes = new byte[Math.toIntExact(m_treeOffsets[index + 1] - m_treeOffsets[index])];
+            try (RandomAccessFile raf = new RandomAccessFile(m_file, "r")) {
+                raf.seek(m_treeOffsets[index]);
+                raf.readFully(bytes);
+            }
+            try (TreeModelDataInputStream input =
+                new TreeModelDataInputStream(new ByteArrayInputStream(bytes))) {
+                input.setVersion(m_header.m_version);
+                input.setContainsClassDistribution(m_header.m_containsClassDistribution);
+                return m_header.loadTree(input, index, m_treeBuildingInterner);
+            }
         }
-        result.loadData(input);
-        input.close(); // does not close the method argument stream!!
-        return result;
     }
 
     /**
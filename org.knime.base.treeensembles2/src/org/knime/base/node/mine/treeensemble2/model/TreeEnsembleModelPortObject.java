@@ -48,7 +48,6 @@
 package org.knime.base.node.mine.treeensemble2.model;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
@@ -166,12 +165,8 @@ public synchronized TreeEnsembleModel getEnsembleModel() {
     }
 
     private TreeEnsembleModel deserialize() throws IOException {
-        final File file = getFileStore(0).getFile();
-        TreeEnsembleModel ensembleModel;
-        try (FileInputStream input = new FileInputStream(file)) {
-            ensembleModel = TreeEnsembleModel.load(input);
-        }
-        return ensembleModel;
+        // the trees are only read once they are accessed
+        return TreeEnsembleModel.load(getFileStore(0).getFile());
     }
 
     /** {@inheritDoc} */
@@ -70,6 +70,7 @@
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
 
+import org.knime.base.node.mine.treeensemble2.data.TreeBinnedNumericColumnData;
 import org.knime.base.node.mine.treeensemble2.node.gradientboosting.learner.GradientBoostingLearnerConfiguration;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration;
 import org.knime.base.node.mine.treeensemble2.node.learner.TreeEnsembleLearnerConfiguration.ColumnSamplingMode;
@@ -117,6 +118,10 @@ public class AdvancedOptionsPanel extends JPanel {
 
     private final JCheckBox m_useBinaryNominalSplitsChecker;
 
+    private final JCheckBox m_useHistogramSplitsChecker;
+
+    private final JCheckBox m_useParallelSplitSearchChecker;
+
     private final JSpinner m_alphaFractionSpinner;
 
     private final JComboBox<MissingValueHandling> m_missingValueHandlingComboBox;
@@ -219,6 +224,9 @@ public void actionPerformed(final ActionEvent e) {
 
         m_useAverageSplitPointsChecker = new JCheckBox("Use mid point splits (only for numeric attributes)");
         m_useBinaryNominalSplitsChecker = new JCheckBox("Use binary splits for nominal columns");
+        m_useHistogramSplitsChecker = new JCheckBox("Use histogram splits for numeric columns (at most "
+            + TreeBinnedNumericColumnData.MAX_NR_BINS + " bins)");
+        m_useParallelSplitSearchChecker = new JCheckBox("Search the splits of a tree node on columns in parallel");
         m_missingValueHandlingComboBox = new JComboBox<MissingValueHandling>(MissingValueHandling.values());
 
         initPanel();
@@ -259,6 +267,20 @@ private void initPanel() {
         add(m_useBinaryNominalSplitsChecker, gbc);
         gbc.gridwidth = 1;
 
+        gbc.gridx = 0;
+        gbc.gridy += 1;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 2;
+        add(m_useHistogramSplitsChecker, gbc);
+        gbc.gridwidth = 1;
+
+        gbc.gridx = 0;
+        gbc.gridy += 1;
+        gbc.weightx = 0.0;
+        gbc.gridwidth = 2;
+        add(m_useParallelSplitSearchChecker, gbc);
+        gbc.gridwidth = 1;
+
         gbc.gridy += 1;
         gbc.gridwidth = 2;
         add(new JLabel("Missing value handling"), gbc);
@@ -395,6 +417,8 @@ public void loadSettings(final GradientBoostingLearnerConfiguration cfg) {
         m_alphaFractionSpinner.setValue(cfg.getAlpha());
         m_useAverageSplitPointsChecker.setSelected(cfg.isUseAverageSplitPoints());
         m_useBinaryNominalSplitsChecker.setSelected(cfg.isUseBinaryNominalSplits());
+        m_useHistogramSplitsChecker.setSelected(cfg.isUseHistogramSplits());
+        m_useParallelSplitSearchChecker.setSelected(cfg.isUseParallelSplitSearch());
         m_missingValueHandlingComboBox.setSelectedItem(cfg.getMissingValueHandling());
 
         double dataFrac = cfg.getDataFractionPerTree();
@@ -451,6 +475,8 @@ public void saveSettings(final GradientBoostingLearnerConfiguration cfg) throws
         cfg.setAlpha((Double)m_alphaFractionSpinner.getValue());
         cfg.setUseAverageSplitPoints(m_useAverageSplitPointsChecker.isSelected());
         cfg.setUseBinaryNominalSplits(m_useBinaryNominalSplitsChecker.isSelected());
+        cfg.setUseHistogramSplits(m_useHistogramSplitsChecker.isSelected());
+        cfg.setUseParallelSplitSearch(m_useParallelSplitSearchChecker.isSelected());
         final MissingValueHandling missValHandling = (MissingValueHandling)m_missingValueHandlingComboBox.getSelectedItem();
         if (missValHandling == MissingValueHandling.Surrogate && !m_useBinaryNominalSplitsChecker.isSelected()) {
             throw new InvalidSettingsException("Surrogate missing value handling can only be used if binary nominal splits are enabled.");
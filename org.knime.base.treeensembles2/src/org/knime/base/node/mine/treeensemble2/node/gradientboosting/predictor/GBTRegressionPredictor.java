@@ -6,6 +6,8 @@
 import java.util.function.Function;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble.FeatureReader;
 import org.knime.base.node.mine.treeensemble2.model.GradientBoostedTreesModel;
 import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractPredictor;
 import org.knime.base.node.mine.treeensemble2.node.predictor.RegressionPrediction;
@@ -18,6 +20,10 @@ public class GBTRegressionPredictor extends AbstractPredictor<RegressionPredicti
 
     private final GradientBoostedTreesModel m_model;
 
+    private final CompiledTreeEnsemble m_compiledModel;
+
+    private final FeatureReader m_featureReader;
+
     /**
      * Constructor for a {@link GBTRegressionPredictor}.
      *
@@ -26,8 +32,45 @@ public class GBTRegressionPredictor extends AbstractPredictor<RegressionPredicti
      */
     public GBTRegressionPredictor(final GradientBoostedTreesModel model,
         final Function<DataRow, PredictorRecord> rowConverter) {
+        this(model, rowConverter, null);
+    }
+
+    /**
+     * Constructor for a {@link GBTRegressionPredictor} that predicts with a {@link CompiledTreeEnsemble compiled}
+     * version of the model if possible.
+     *
+     * @param model the gbt model
+     * @param rowConverter converts input {@link DataRow rows} into {@link PredictorRecord records}
+     * @param featureReader reads the features of input rows for the compiled model (may be null)
+     * @since 3.6
+     */
+    public GBTRegressionPredictor(final GradientBoostedTreesModel model,
+        final Function<DataRow, PredictorRecord> rowConverter, final FeatureReader featureReader) {
         super(rowConverter);
         m_model = model;
+        m_featureReader = featureReader;
+        m_compiledModel = featureReader == null ? null : model.compile().orElse(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RegressionPrediction predict(final DataRow row) {
+        if (m_compiledModel != null) {
+            final double[] features = new double[m_compiledModel.getNrFeatures()];
+            if (m_featureReader.read(row, features)) {
+                final double[] values = new double[m_compiledModel.getNrTrees()];
+                m_compiledModel.predict(features, 1, values);
+                double sum = m_model.getInitialValue();
+                for (double value : values) {
+                    sum += value;
+                }
+                final double prediction = sum;
+                return () -> prediction;
+            }
+        }
+        return super.predict(row);
     }
 
     /* (non-Javadoc)
@@ -7,6 +7,8 @@
 import java.util.function.Function;
 
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble.FeatureReader;
 import org.knime.base.node.mine.treeensemble2.model.MultiClassGradientBoostedTreesModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeNodeRegression;
 import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractPredictor;
@@ -22,6 +24,10 @@ public class LKGradientBoostedTreesPredictor extends AbstractPredictor<Classific
 
     private final boolean m_calculateProbabilities;
 
+    private final CompiledTreeEnsemble m_compiledModel;
+
+    private final FeatureReader m_featureReader;
+
     /**
      * Constructor for classification gbt predictors.
      *
@@ -31,9 +37,49 @@ public class LKGradientBoostedTreesPredictor extends AbstractPredictor<Classific
      */
     public LKGradientBoostedTreesPredictor(final MultiClassGradientBoostedTreesModel model,
         final boolean calculateProbabilities, final Function<DataRow, PredictorRecord> rowConverter) {
+        this(model, calculateProbabilities, rowConverter, null);
+    }
+
+    /**
+     * Constructor for classification gbt predictors that predict with a {@link CompiledTreeEnsemble compiled} version
+     * of the model if possible.
+     *
+     * @param model the gradient boosted trees model
+     * @param calculateProbabilities indicates whether probabilities should be calculated
+     * @param rowConverter converts input {@link DataRow rows} into {@link PredictorRecord records}
+     * @param featureReader reads the features of input rows for the compiled model (may be null)
+     * @since 3.6
+     */
+    public LKGradientBoostedTreesPredictor(final MultiClassGradientBoostedTreesModel model,
+        final boolean calculateProbabilities, final Function<DataRow, PredictorRecord> rowConverter,
+        final FeatureReader featureReader) {
         super(rowConverter);
         m_model = model;
         m_calculateProbabilities = calculateProbabilities;
+        m_featureReader = featureReader;
+        m_compiledModel = featureReader == null ? null : model.compile().orElse(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClassificationPrediction predict(final DataRow row) {
+        if (m_compiledModel != null) {
+            final double[] features = new double[m_compiledModel.getNrFeatures()];
+            if (m_featureReader.read(row, features)) {
+                final double[] values = new double[m_compiledModel.getNrTrees()];
+                m_compiledModel.predict(features, 1, values);
+                final int nrClasses = m_model.getNrClasses();
+                final double[] logits = new double[nrClasses];
+                Arrays.fill(logits, m_model.getInitialValue());
+                for (int i = 0; i < values.length; i++) {
+                    logits[i % nrClasses] += values[i];
+                }
+                return createPrediction(logits);
+            }
+        }
+        return super.predict(row);
     }
 
     /* (non-Javadoc)
@@ -41,7 +87,10 @@ public LKGradientBoostedTreesPredictor(final MultiClassGradientBoostedTreesModel
      */
     @Override
     public ClassificationPrediction predictRecord(final PredictorRecord record) {
-        double[] logits = calculateLogits(record);
+        return createPrediction(calculateLogits(record));
+    }
+
+    private ClassificationPrediction createPrediction(final double[] logits) {
         if (m_calculateProbabilities) {
             transformToProbabilities(logits);
             return new LKGBTPrediction(argmax(logits), logits);
@@ -132,7 +132,8 @@ private PredictionRearrangerCreator createPredictionRearrangerCreator(final Data
         PredictionRearrangerCreator crc =
             new PredictionRearrangerCreator(testSpec, new LKGradientBoostedTreesPredictor(model,
                 m_configuration.isAppendClassConfidences() || m_configuration.isAppendPredictionConfidence(),
-                TreeEnsemblePredictionUtil.createRowConverter(modelSpec, model, testSpec)));
+                TreeEnsemblePredictionUtil.createRowConverter(modelSpec, model, testSpec),
+                TreeEnsemblePredictionUtil.createFeatureReader(modelSpec, model, testSpec)));
         TreeEnsemblePredictionUtil.setupRearrangerCreatorGBT(m_pre36, crc, modelSpec, model, m_configuration);
         return crc;
     }
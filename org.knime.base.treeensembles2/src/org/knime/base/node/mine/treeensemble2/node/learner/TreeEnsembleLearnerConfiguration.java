@@ -115,6 +115,10 @@ public class TreeEnsembleLearnerConfiguration {
 
     private static final String KEY_USE_BINARY_NOMINAL_SPLITS = "useBinaryNominalSplits";
 
+    private static final String KEY_USE_HISTOGRAM_SPLITS = "useHistogramSplits";
+
+    private static final String KEY_USE_PARALLEL_SPLIT_SEARCH = "useParallelSplitSearch";
+
     private static final String KEY_SPLIT_CRITERION = "splitCriterion";
 
     private static final String KEY_MISSING_VALUE_HANDLING = "missingValueHandling";
@@ -280,6 +284,19 @@ public enum ColumnSamplingMode {
      */
     public static final boolean DEF_BINARY_NOMINAL_SPLITS = true;
 
+    /**
+     * Default for the use of histogram (binned) split search in numeric attributes
+     * @since 3.6
+     */
+    public static final boolean DEF_HISTOGRAM_SPLITS = false;
+
+    /**
+     * Default for the concurrent split search of boosting learners in new nodes. Nodes saved without this setting
+     * don't use it, because it changes the random numbers used for tie breaking and hence the learned models.
+     * @since 3.6
+     */
+    public static final boolean DEF_PARALLEL_SPLIT_SEARCH = true;
+
     /**
      * Default for saving the target distribution in each node
      */
@@ -316,6 +333,10 @@ public enum ColumnSamplingMode {
 
     private boolean m_useBinaryNominalSplits = DEF_BINARY_NOMINAL_SPLITS;
 
+    private boolean m_useHistogramSplits = DEF_HISTOGRAM_SPLITS;
+
+    private boolean m_useParallelSplitSearch = DEF_PARALLEL_SPLIT_SEARCH;
+
     private SplitCriterion m_splitCriterion;
 
     private MissingValueHandling m_missingValueHandling = DEF_MISSING_VALUE_HANDLING;
@@ -689,6 +710,42 @@ public void setUseBinaryNominalSplits(final boolean useBinaryNominalSplits) {
         m_useBinaryNominalSplits = useBinaryNominalSplits;
     }
 
+    /**
+     * @return true if numeric attributes are quantized into at most
+     *         {@link org.knime.base.node.mine.treeensemble2.data.TreeBinnedNumericColumnData#MAX_NR_BINS} bins and
+     *         splits are searched on bin histograms
+     * @since 3.6
+     */
+    public boolean isUseHistogramSplits() {
+        return m_useHistogramSplits;
+    }
+
+    /**
+     * @param useHistogramSplits set to true if numeric attributes should be binned and split on histograms
+     * @since 3.6
+     */
+    public void setUseHistogramSplits(final boolean useHistogramSplits) {
+        m_useHistogramSplits = useHistogramSplits;
+    }
+
+    /**
+     * @return true if learners that build their trees one after another (gradient boosting) evaluate the candidate
+     *         columns of a tree node concurrently
+     * @since 3.6
+     */
+    public boolean isUseParallelSplitSearch() {
+        return m_useParallelSplitSearch;
+    }
+
+    /**
+     * @param useParallelSplitSearch set to true if the candidate columns of a tree node should be evaluated
+     *            concurrently by learners that build their trees one after another
+     * @since 3.6
+     */
+    public void setUseParallelSplitSearch(final boolean useParallelSplitSearch) {
+        m_useParallelSplitSearch = useParallelSplitSearch;
+    }
+
     /**
      * @return the name of the fingerprint column to learn from (each bit position is an binary attribute) or null if to
      *         learn from a set of columns.
@@ -815,6 +872,8 @@ public void save(final NodeSettingsWO settings) {
         settings.addString(KEY_MISSING_VALUE_HANDLING, m_missingValueHandling.name());
         settings.addBoolean(KEY_USE_AVERAGE_SPLIT_POINTS, m_useAverageSplitPoints);
         settings.addBoolean(KEY_USE_BINARY_NOMINAL_SPLITS, m_useBinaryNominalSplits);
+        settings.addBoolean(KEY_USE_HISTOGRAM_SPLITS, m_useHistogramSplits);
+        settings.addBoolean(KEY_USE_PARALLEL_SPLIT_SEARCH, m_useParallelSplitSearch);
         settings.addString(KEY_FINGERPRINT_COLUMN, m_fingerprintColumn);
         //        m_columnFilterConfig = new DataColumnSpecFilterConfiguration(KEY_COLUMN_FILTER_CONFIG);
         m_columnFilterConfig.saveConfiguration(settings);
@@ -890,6 +949,10 @@ public void loadInModel(final NodeSettingsRO settings) throws InvalidSettingsExc
         }
         setUseAverageSplitPoints(settings.getBoolean(KEY_USE_AVERAGE_SPLIT_POINTS));
         setUseBinaryNominalSplits(settings.getBoolean(KEY_USE_BINARY_NOMINAL_SPLITS, false));
+        // added in 3.6
+        setUseHistogramSplits(settings.getBoolean(KEY_USE_HISTOGRAM_SPLITS, DEF_HISTOGRAM_SPLITS));
+        // added in 3.6, off for existing workflows so that they learn the same models
+        setUseParallelSplitSearch(settings.getBoolean(KEY_USE_PARALLEL_SPLIT_SEARCH, false));
         setFingerprintColumn(settings.getString(KEY_FINGERPRINT_COLUMN));
         m_columnFilterConfig.loadConfigurationInModel(settings);
         //        setIncludeAllColumns(settings.getBoolean(KEY_INCLUDE_ALL_COLUMNS));
@@ -1074,6 +1137,8 @@ public void loadInDialog(final NodeSettingsRO settings, final DataTableSpec inSp
         m_splitCriterion = splitCriterion;
         m_useAverageSplitPoints = settings.getBoolean(KEY_USE_AVERAGE_SPLIT_POINTS, DEF_AVERAGE_SPLIT_POINTS);
         m_useBinaryNominalSplits = settings.getBoolean(KEY_USE_BINARY_NOMINAL_SPLITS, DEF_BINARY_NOMINAL_SPLITS);
+        m_useHistogramSplits = settings.getBoolean(KEY_USE_HISTOGRAM_SPLITS, DEF_HISTOGRAM_SPLITS);
+        m_useParallelSplitSearch = settings.getBoolean(KEY_USE_PARALLEL_SPLIT_SEARCH, false);
 
         String missingValueHandlingS =
             settings.getString(KEY_MISSING_VALUE_HANDLING, DEF_MISSING_VALUE_HANDLING.name());
@@ -9,6 +9,8 @@
 import org.knime.base.data.filter.column.FilterColumnRow;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble.FeatureReader;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
@@ -70,6 +72,14 @@ public P predict(final DataRow row) {
         return predictRecord(m_model.createPredictorRecord(filterRow, m_learnSpec), row.getKey());
     }
 
+    /**
+     * @return a reader for the features of input rows for a {@link CompiledTreeEnsemble compiled} version of the model
+     * @since 3.6
+     */
+    protected final FeatureReader createFeatureReader() {
+        return CompiledTreeEnsemble.createFeatureReader(m_model, m_filterIndices, m_learnSpec);
+    }
+
     /**
      * @param record the record to predict
      * @param key the row key to access out of bag information
@@ -12,6 +12,8 @@
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
 import org.knime.base.node.mine.treeensemble2.model.AbstractTreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble.FeatureReader;
 import org.knime.base.node.mine.treeensemble2.model.MultiClassGradientBoostedTreesModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
@@ -54,6 +56,26 @@ public static Function<DataRow, PredictorRecord> createRowConverter(final TreeEn
         return r -> model.createPredictorRecord(new FilterColumnRow(r, filterIndices), learnSpec);
     }
 
+    /**
+     * Creates a reader for the features of the rows to predict with a {@link CompiledTreeEnsemble compiled} random
+     * forest or gradient boosted trees model.
+     *
+     * @param modelSpec the spec of the model
+     * @param model the actual model (may be null)
+     * @param tableSpec the table on which to predict
+     * @return a feature reader or null if <b>model</b> is null
+     * @throws InvalidSettingsException if columns required by <b>modelSpec</b> are not present in <b>tableSpec</b>
+     * @since 3.6
+     */
+    public static FeatureReader createFeatureReader(final TreeEnsembleModelPortObjectSpec modelSpec,
+        final AbstractTreeEnsembleModel model, final DataTableSpec tableSpec) throws InvalidSettingsException {
+        if (model == null) {
+            return null;
+        }
+        return CompiledTreeEnsemble.createFeatureReader(model, modelSpec.calculateFilterIndices(tableSpec),
+            modelSpec.getLearnTableSpec());
+    }
+
     /**
      * Setups the PredictionRearrangerCreator for classification gbts.
      *
@@ -3,17 +3,23 @@
  */
 package org.knime.base.node.mine.treeensemble2.node.predictor.regression;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
 import org.apache.commons.math.stat.descriptive.moment.Mean;
 import org.apache.commons.math.stat.descriptive.moment.Variance;
 import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
 import org.knime.base.node.mine.treeensemble2.data.TreeTargetColumnData;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble.FeatureReader;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
 import org.knime.base.node.mine.treeensemble2.model.TreeModelRegression;
-import org.knime.base.node.mine.treeensemble2.model.TreeNodeRegression;
 import org.knime.base.node.mine.treeensemble2.node.predictor.AbstractRandomForestPredictor;
 import org.knime.base.node.mine.treeensemble2.node.predictor.RandomForestRegressionPrediction;
 import org.knime.base.node.mine.treeensemble2.sample.row.RowSample;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.RowKey;
 import org.knime.core.node.InvalidSettingsException;
@@ -23,6 +29,10 @@
  */
 public class RandomForestRegressionPredictor extends AbstractRandomForestPredictor<RandomForestRegressionPrediction> {
 
+    private final CompiledTreeEnsemble m_compiledModel;
+
+    private final FeatureReader m_featureReader;
+
     /**
      * @param model
      * @param modelSpec
@@ -33,6 +43,8 @@ public RandomForestRegressionPredictor(final TreeEnsembleModel model,
         final TreeEnsembleModelPortObjectSpec modelSpec, final DataTableSpec predictSpec)
         throws InvalidSettingsException {
         super(model, modelSpec, predictSpec);
+        m_compiledModel = compile(model);
+        m_featureReader = m_compiledModel == null ? null : createFeatureReader();
     }
 
     /**
@@ -48,6 +60,36 @@ public RandomForestRegressionPredictor(final TreeEnsembleModel model,
         final RowSample[] modelRowSamples, final TreeTargetColumnData targetColumnData)
         throws InvalidSettingsException {
         super(model, modelSpec, predictSpec, modelRowSamples, targetColumnData);
+        m_compiledModel = compile(model);
+        m_featureReader = m_compiledModel == null ? null : createFeatureReader();
+    }
+
+    private static CompiledTreeEnsemble compile(final TreeEnsembleModel model) {
+        if (model == null) {
+            return null;
+        }
+        final int nrModels = model.getNrModels();
+        final List<TreeModelRegression> trees = new ArrayList<TreeModelRegression>(nrModels);
+        for (int i = 0; i < nrModels; i++) {
+            trees.add(model.getTreeModelRegression(i));
+        }
+        return CompiledTreeEnsemble.compile(model, trees, (i, node) -> node.getMean()).orElse(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RandomForestRegressionPrediction predict(final DataRow row) {
+        if (m_compiledModel != null) {
+            final double[] features = new double[m_compiledModel.getNrFeatures()];
+            if (m_featureReader.read(row, features)) {
+                final double[] means = new double[m_compiledModel.getNrTrees()];
+                m_compiledModel.predict(features, 1, means);
+                return new RFRegressionPrediction(i -> means[i], row.getKey(), hasOutOfBagFilter());
+            }
+        }
+        return super.predict(row);
     }
 
     /* (non-Javadoc)
@@ -55,7 +97,8 @@ public RandomForestRegressionPredictor(final TreeEnsembleModel model,
      */
     @Override
     protected RandomForestRegressionPrediction predictRecord(final PredictorRecord record, final RowKey key) {
-        return new RFRegressionPrediction(record, key, hasOutOfBagFilter());
+        return new RFRegressionPrediction(i -> m_model.getTreeModelRegression(i).findMatchingNode(record).getMean(),
+            key, hasOutOfBagFilter());
     }
 
     private class RFRegressionPrediction implements RandomForestRegressionPrediction {
@@ -69,7 +112,8 @@ private class RFRegressionPrediction implements RandomForestRegressionPrediction
         /**
          *
          */
-        RFRegressionPrediction(final PredictorRecord record, final RowKey key, final boolean hasOutOfBagFilter) {
+        RFRegressionPrediction(final IntToDoubleFunction treeMean, final RowKey key,
+            final boolean hasOutOfBagFilter) {
             Mean mean = new Mean();
             Variance variance = new Variance();
             final int nrModels = m_model.getNrModels();
@@ -77,9 +121,7 @@ private class RFRegressionPrediction implements RandomForestRegressionPrediction
                 if (hasOutOfBagFilter && isRowPartOfTrainingData(key, i)) {
                     // ignore, row was used to train the model
                 } else {
-                    TreeModelRegression m = m_model.getTreeModelRegression(i);
-                    TreeNodeRegression match = m.findMatchingNode(record);
-                    double nodeMean = match.getMean();
+                    double nodeMean = treeMean.applyAsDouble(i);
                     mean.increment(nodeMean);
                     variance.increment(nodeMean);
                 }
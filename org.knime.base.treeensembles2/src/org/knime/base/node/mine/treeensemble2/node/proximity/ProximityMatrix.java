@@ -131,7 +131,7 @@ public int compare(final Integer arg0, final Integer arg1) {
             DataCell[][] cells = new DataCell[2][k];
             for (int j = 0; j < k; j++) {
                 cells[0][j] = new StringCell(getRowKeyForTable(1, idx[j]).getString());
-                cells[1][j] = new DoubleCell(getEntryAt(i, j));
+                cells[1][j] = new DoubleCell(matRow[idx[j]]);
             }
             RowKey key = getRowKeyForTable(0, i);
             containerNeighbors.addRowToTable(new DefaultRow(key, cells[0]));
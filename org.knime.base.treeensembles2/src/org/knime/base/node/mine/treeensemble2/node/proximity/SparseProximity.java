@@ -0,0 +1,407 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.treeensemble2.node.proximity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.knime.base.data.filter.column.FilterColumnRow;
+import org.knime.base.node.mine.treeensemble2.data.PredictorRecord;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeModel;
+import org.knime.base.node.mine.treeensemble2.model.AbstractTreeNode;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble;
+import org.knime.base.node.mine.treeensemble2.model.CompiledTreeEnsemble.FeatureReader;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModel;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
+import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ParallelTasks.Task;
+
+/**
+ * Calculates the nearest neighbors with respect to the random forest proximity without materializing the proximity
+ * matrix. For each tree the rows are grouped by the leaf they fall into, the proximity of a row to all other rows is
+ * then accumulated by visiting the members of its leafs only. The memory consumption is therefore linear in the number
+ * of rows (two integers per row and tree) instead of quadratic.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class SparseProximity {
+
+    /** Number of rows whose leafs are determined in a single task. */
+    private static final int BLOCK_SIZE = 1024;
+
+    private final TreeEnsembleModel m_ensemble;
+
+    private final DataTableSpec m_learnSpec;
+
+    private final TreeEnsembleModelPortObjectSpec m_modelSpec;
+
+    private final int m_nrTrees;
+
+    /** Maps the nodes of each tree to their index in the tree. */
+    private final List<Map<AbstractTreeNode, Integer>> m_nodeIndices;
+
+    /** Determines the leaf indices if the ensemble can be compiled, null otherwise. */
+    private final CompiledTreeEnsemble m_compiled;
+
+    /**
+     * @param ensemble the random forest
+     * @param modelSpec the spec of the random forest
+     */
+    SparseProximity(final TreeEnsembleModel ensemble, final TreeEnsembleModelPortObjectSpec modelSpec) {
+        m_ensemble = ensemble;
+        m_modelSpec = modelSpec;
+        m_learnSpec = m_modelSpec.getLearnTableSpec();
+        m_nrTrees = m_ensemble.getNrModels();
+        m_nodeIndices = new ArrayList<Map<AbstractTreeNode, Integer>>(m_nrTrees);
+        final List<AbstractTreeModel<AbstractTreeNode>> trees =
+            new ArrayList<AbstractTreeModel<AbstractTreeNode>>(m_nrTrees);
+        for (int t = 0; t < m_nrTrees; t++) {
+            @SuppressWarnings("unchecked")
+            final AbstractTreeModel<AbstractTreeNode> tree =
+                (AbstractTreeModel<AbstractTreeNode>)m_ensemble.getTreeModel(t);
+            trees.add(tree);
+            final Map<AbstractTreeNode, Integer> indices = new IdentityHashMap<AbstractTreeNode, Integer>();
+            final List<AbstractTreeNode> queue = new ArrayList<AbstractTreeNode>();
+            queue.add(tree.getRootNode());
+            for (int i = 0; i < queue.size(); i++) {
+                final AbstractTreeNode node = queue.get(i);
+                indices.put(node, i);
+                for (int c = 0; c < node.getNrChildren(); c++) {
+                    queue.add(node.getChild(c));
+                }
+            }
+            m_nodeIndices.add(indices);
+        }
+        final Optional<CompiledTreeEnsemble> compiled =
+            CompiledTreeEnsemble.compile(m_ensemble, trees, (t, node) -> m_nodeIndices.get(t).get(node));
+        m_compiled = compiled.orElse(null);
+    }
+
+    /**
+     * Calculates the <b>k</b> nearest neighbors of each row in the first table. The neighbors are searched in the
+     * second table, or in the first table if there is only one table (in which case each row is its own nearest
+     * neighbor, just like in the proximity matrix).
+     *
+     * @param tables one or two tables
+     * @param modelPortObject the random forest
+     * @param k the number of neighbors
+     * @param exec for progress and cancellation, also used to create the output tables
+     * @return the table with the neighbors and the table with their proximities
+     * @throws InvalidSettingsException if the tables don't contain the learn columns of the model
+     * @throws CanceledExecutionException if the execution is canceled
+     */
+    public static BufferedDataTable[] calcNearestNeighbors(final BufferedDataTable[] tables,
+        final TreeEnsembleModelPortObject modelPortObject, final int k, final ExecutionContext exec)
+        throws InvalidSettingsException, CanceledExecutionException {
+        return new SparseProximity(modelPortObject.getEnsembleModel(), modelPortObject.getSpec())
+            .calcNearestNeighbors(tables, k, exec);
+    }
+
+    /**
+     * Calculates the <b>k</b> nearest neighbors of each row in the first table, see
+     * {@link #calcNearestNeighbors(BufferedDataTable[], TreeEnsembleModelPortObject, int, ExecutionContext)}.
+     *
+     * @param tables one or two tables
+     * @param k the number of neighbors
+     * @param exec for progress and cancellation, also used to create the output tables
+     * @return the table with the neighbors and the table with their proximities
+     * @throws InvalidSettingsException if the tables don't contain the learn columns of the model
+     * @throws CanceledExecutionException if the execution is canceled
+     */
+    BufferedDataTable[] calcNearestNeighbors(final BufferedDataTable[] tables, final int k,
+        final ExecutionContext exec) throws InvalidSettingsException, CanceledExecutionException {
+        if (tables.length < 1 || tables.length > 2) {
+            throw new IllegalArgumentException("Currently only up to two tables are supported.");
+        }
+        for (BufferedDataTable table : tables) {
+            if (table.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The table contains more than " + Integer.MAX_VALUE + " rows.");
+            }
+        }
+        final BufferedDataTable refTable = tables[tables.length - 1];
+        if (k < 0 || k >= refTable.size()) {
+            throw new IllegalArgumentException("k must be within the range of the proximity matrix.");
+        }
+        final double leafShare = tables.length == 1 ? 0.4 : 0.2;
+        exec.setMessage("Assigning rows to leafs");
+        final RowKey[] queryKeys = new RowKey[(int)tables[0].size()];
+        final int[][] queryLeafs = calcLeafs(tables[0], queryKeys, exec.createSubProgress(leafShare));
+        final RowKey[] refKeys;
+        final int[][] refLeafs;
+        if (tables.length == 1) {
+            refKeys = queryKeys;
+            refLeafs = queryLeafs;
+        } else {
+            refKeys = new RowKey[(int)refTable.size()];
+            refLeafs = calcLeafs(refTable, refKeys, exec.createSubProgress(leafShare));
+        }
+        exec.setMessage("Calculating nearest neighbors");
+        final LeafIndex[] leafIndex = createLeafIndices(refLeafs);
+        final int[][] neighbors = new int[queryKeys.length][];
+        final double[][] proximities = new double[queryKeys.length][];
+        calcNearestNeighbors(queryLeafs, leafIndex, refKeys.length, k, neighbors, proximities,
+            exec.createSubProgress(0.4));
+        exec.setMessage("Creating output");
+        return createOutput(queryKeys, refKeys, neighbors, proximities, k, exec.createSubExecutionContext(0.2));
+    }
+
+    /**
+     * Determines for each row of <b>table</b> the index of the leaf it falls into for each tree (-1 if the row can't
+     * be predicted, e.g. if the vector cell is missing).
+     *
+     * @return the leaf indices as [tree][row]
+     */
+    private int[][] calcLeafs(final BufferedDataTable table, final RowKey[] keys, final ExecutionMonitor exec)
+        throws InvalidSettingsException, CanceledExecutionException {
+        final int[] filterIndices = m_modelSpec.calculateFilterIndices(table.getDataTableSpec());
+        final FeatureReader featureReader =
+            CompiledTreeEnsemble.createFeatureReader(m_ensemble, filterIndices, m_learnSpec);
+        final int nrRows = keys.length;
+        final int[][] leafs = new int[m_nrTrees][nrRows];
+        final int maxBlocks = 2 * Runtime.getRuntime().availableProcessors();
+        final List<Task<Void, RuntimeException>> tasks = new ArrayList<>(maxBlocks);
+        List<DataRow> block = new ArrayList<DataRow>(BLOCK_SIZE);
+        int rowIndex = 0;
+        for (DataRow row : table) {
+            keys[rowIndex] = row.getKey();
+            block.add(row);
+            rowIndex++;
+            if (block.size() == BLOCK_SIZE || rowIndex == nrRows) {
+                final List<DataRow> rows = block;
+                final int firstRow = rowIndex - rows.size();
+                tasks.add(() -> {
+                    calcLeafs(rows, firstRow, filterIndices, featureReader, leafs);
+                    return null;
+                });
+                block = new ArrayList<DataRow>(BLOCK_SIZE);
+            }
+            if (tasks.size() == maxBlocks || (rowIndex == nrRows && !tasks.isEmpty())) {
+                exec.checkCanceled();
+                ParallelTasks.invokeAll(tasks);
+                tasks.clear();
+                exec.setProgress(rowIndex / (double)nrRows, "Row " + rowIndex + "/" + nrRows);
+            }
+        }
+        return leafs;
+    }
+
+    private void calcLeafs(final List<DataRow> rows, final int firstRow, final int[] filterIndices,
+        final FeatureReader featureReader, final int[][] leafs) {
+        final double[] features = m_compiled == null ? null : new double[m_compiled.getNrFeatures()];
+        final double[] values = new double[m_nrTrees];
+        for (int r = 0; r < rows.size(); r++) {
+            final DataRow row = rows.get(r);
+            final int rowIndex = firstRow + r;
+            if (m_compiled != null && featureReader.read(row, features)) {
+                m_compiled.predict(features, 1, values);
+                for (int t = 0; t < m_nrTrees; t++) {
+                    leafs[t][rowIndex] = (int)values[t];
+                }
+            } else {
+                final PredictorRecord record =
+                    m_ensemble.createPredictorRecord(new FilterColumnRow(row, filterIndices), m_learnSpec);
+                for (int t = 0; t < m_nrTrees; t++) {
+                    leafs[t][rowIndex] = record == null ? -1
+                        : m_nodeIndices.get(t).get(m_ensemble.getTreeModel(t).findMatchingNode(record));
+                }
+            }
+        }
+    }
+
+    /** The rows of a table grouped by the node they fall into, for a single tree. */
+    private static final class LeafIndex {
+
+        /** The rows of node <i>n</i> are m_members[m_starts[n]] to m_members[m_starts[n + 1] - 1]. */
+        private final int[] m_starts;
+
+        private final int[] m_members;
+
+        private LeafIndex(final int[] leafs, final int nrNodes) {
+            m_starts = new int[nrNodes + 1];
+            for (int leaf : leafs) {
+                if (leaf >= 0) {
+                    m_starts[leaf + 1]++;
+                }
+            }
+            for (int n = 0; n < nrNodes; n++) {
+                m_starts[n + 1] += m_starts[n];
+            }
+            m_members = new int[m_starts[nrNodes]];
+            final int[] next = Arrays.copyOf(m_starts, nrNodes);
+            for (int r = 0; r < leafs.length; r++) {
+                if (leafs[r] >= 0) {
+                    m_members[next[leafs[r]]++] = r;
+                }
+            }
+        }
+    }
+
+    private LeafIndex[] createLeafIndices(final int[][] leafs) throws CanceledExecutionException {
+        final LeafIndex[] indices = new LeafIndex[m_nrTrees];
+        final List<Task<Void, RuntimeException>> tasks = new ArrayList<>(m_nrTrees);
+        for (int t = 0; t < m_nrTrees; t++) {
+            final int tree = t;
+            tasks.add(() -> {
+                indices[tree] = new LeafIndex(leafs[tree], m_nodeIndices.get(tree).size());
+                return null;
+            });
+        }
+        ParallelTasks.invokeAll(tasks);
+        return indices;
+    }
+
+    private void calcNearestNeighbors(final int[][] queryLeafs, final LeafIndex[] leafIndex, final int nrRefRows,
+        final int k, final int[][] neighbors, final double[][] proximities, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        final int nrQueryRows = neighbors.length;
+        final int nrChunks = Math.max(1, Math.min(nrQueryRows, 4 * Runtime.getRuntime().availableProcessors()));
+        final List<Task<Void, RuntimeException>> tasks = new ArrayList<>(nrChunks);
+        for (int c = 0; c < nrChunks; c++) {
+            final int start = (int)((long)nrQueryRows * c / nrChunks);
+            final int end = (int)((long)nrQueryRows * (c + 1) / nrChunks);
+            tasks.add(() -> {
+                // the counts are reset after each row, so they can be reused for all rows of the chunk
+                final int[] counts = new int[nrRefRows];
+                int[] touched = new int[BLOCK_SIZE];
+                for (int q = start; q < end; q++) {
+                    exec.checkCanceled();
+                    int nrTouched = 0;
+                    for (int t = 0; t < m_nrTrees; t++) {
+                        final int leaf = queryLeafs[t][q];
+                        if (leaf < 0) {
+                            continue;
+                        }
+                        final LeafIndex index = leafIndex[t];
+                        for (int m = index.m_starts[leaf]; m < index.m_starts[leaf + 1]; m++) {
+                            final int ref = index.m_members[m];
+                            if (counts[ref]++ == 0) {
+                                if (nrTouched == touched.length) {
+                                    touched = Arrays.copyOf(touched, 2 * nrTouched);
+                                }
+                                touched[nrTouched++] = ref;
+                            }
+                        }
+                    }
+                    selectNeighbors(counts, touched, nrTouched, k, q, neighbors, proximities);
+                }
+                return null;
+            });
+        }
+        ParallelTasks.invokeAll(tasks);
+        exec.setProgress(1.0);
+    }
+
+    /** Picks the <b>k</b> rows with the highest counts (ties are broken by the row index) and resets the counts. */
+    private void selectNeighbors(final int[] counts, final int[] touched, final int nrTouched, final int k,
+        final int queryRow, final int[][] neighbors, final double[][] proximities) {
+        final long[] keys = new long[nrTouched];
+        for (int i = 0; i < nrTouched; i++) {
+            final int ref = touched[i];
+            keys[i] = ((long)(m_nrTrees - counts[ref]) << 32) | ref;
+        }
+        Arrays.sort(keys);
+        final int[] rowNeighbors = new int[k];
+        final double[] rowProximities = new double[k];
+        final int nrFound = Math.min(k, nrTouched);
+        for (int i = 0; i < nrFound; i++) {
+            rowNeighbors[i] = (int)keys[i];
+            rowProximities[i] = (m_nrTrees - (keys[i] >>> 32)) / (double)m_nrTrees;
+        }
+        // rows that never share a leaf have proximity 0, fill up with the first of them
+        for (int ref = 0, i = nrFound; i < k; ref++) {
+            if (counts[ref] == 0) {
+                rowNeighbors[i++] = ref;
+            }
+        }
+        for (int i = 0; i < nrTouched; i++) {
+            counts[touched[i]] = 0;
+        }
+        neighbors[queryRow] = rowNeighbors;
+        proximities[queryRow] = rowProximities;
+    }
+
+    private static BufferedDataTable[] createOutput(final RowKey[] queryKeys, final RowKey[] refKeys,
+        final int[][] neighbors, final double[][] proximities, final int k, final ExecutionContext exec)
+        throws CanceledExecutionException {
+        final DataTableSpec[] tableSpecs = ProximityMatrix.createNearestNeighborOutSpecs(k);
+        final BufferedDataContainer containerNeighbors = exec.createDataContainer(tableSpecs[0]);
+        final BufferedDataContainer containerProximities = exec.createDataContainer(tableSpecs[1]);
+        final int nrRows = queryKeys.length;
+        for (int i = 0; i < nrRows; i++) {
+            exec.checkCanceled();
+            exec.setProgress(((double)i + 1) / nrRows, "Row " + (i + 1) + "/" + nrRows);
+            final DataCell[][] cells = new DataCell[2][k];
+            for (int j = 0; j < k; j++) {
+                cells[0][j] = new StringCell(refKeys[neighbors[i][j]].getString());
+                cells[1][j] = new DoubleCell(proximities[i][j]);
+            }
+            containerNeighbors.addRowToTable(new DefaultRow(queryKeys[i], cells[0]));
+            containerProximities.addRowToTable(new DefaultRow(queryKeys[i], cells[1]));
+        }
+        containerNeighbors.close();
+        containerProximities.close();
+        return new BufferedDataTable[]{containerNeighbors.getTable(), containerProximities.getTable()};
+    }
+}
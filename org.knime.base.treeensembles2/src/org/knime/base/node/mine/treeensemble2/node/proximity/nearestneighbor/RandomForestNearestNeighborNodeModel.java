@@ -54,10 +54,10 @@
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObject;
 import org.knime.base.node.mine.treeensemble2.model.TreeEnsembleModelPortObjectSpec;
 import org.knime.base.node.mine.treeensemble2.node.proximity.PathProximity;
-import org.knime.base.node.mine.treeensemble2.node.proximity.Proximity;
 import org.knime.base.node.mine.treeensemble2.node.proximity.ProximityMatrix;
 import org.knime.base.node.mine.treeensemble2.node.proximity.RandomForestProximityNodeModel;
 import org.knime.base.node.mine.treeensemble2.node.proximity.RandomForestProximityNodeModel.ProximityMeasure;
+import org.knime.base.node.mine.treeensemble2.node.proximity.SparseProximity;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -141,12 +141,13 @@ protected BufferedDataTable[] execute(final PortObject[] inObjects, final Execut
         ExecutionContext nnExec = exec.createSubExecutionContext(0.4);
         exec.setMessage("Calculating");
 
-        ProximityMatrix proximityMatrix = Proximity.calcProximities(tables, ensembleModel, proxExec);
+        int k = m_numNearestNeighbors.getIntValue();
         ProximityMeasure proximityMeasure = ProximityMeasure.valueOf(m_proximityMeasure.getStringValue());
+        ProximityMatrix proximityMatrix;
         switch (proximityMeasure) {
             case Proximity :
-                proximityMatrix = Proximity.calcProximities(tables, ensembleModel, proxExec);
-                break;
+                // avoids the quadratic proximity matrix by working on the leaf memberships directly
+                return SparseProximity.calcNearestNeighbors(tables, ensembleModel, k, exec);
             case PathProximity :
                 proximityMatrix = new PathProximity(tables,ensembleModel).calculatePathProximities(proxExec);
                 break;
@@ -156,7 +157,6 @@ protected BufferedDataTable[] execute(final PortObject[] inObjects, final Execut
 
         exec.setMessage("Calculating nearest neighbors");
 
-        int k = m_numNearestNeighbors.getIntValue();
         return proximityMatrix.getNearestNeighbors(nnExec, k);
     }
 
@@ -0,0 +1,319 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.aggregation.numerical;
+
+import javax.swing.JTabbedPane;
+
+import org.knime.base.data.aggregation.AggregationOperator;
+import org.knime.base.data.aggregation.GlobalSettings;
+import org.knime.base.data.aggregation.OperatorColumnSettings;
+import org.knime.base.data.aggregation.OperatorData;
+import org.knime.base.data.statistics.KLLQuantileSketch;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.NotConfigurableException;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+
+/**
+ * Approximates the pth quantile per group with a {@link KLLQuantileSketch}, which requires constant memory per group
+ * instead of storing all values.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public class ApproximateQuantileOperator extends AggregationOperator {
+
+    private static final DataType TYPE = DoubleCell.TYPE;
+
+    private ApproximateQuantileSettingsPanel m_settingsPanel;
+
+    private final ApproximateQuantileSettings m_settings = new ApproximateQuantileSettings();
+
+    private KLLQuantileSketch m_sketch;
+
+    /**
+     * Constructor for class ApproximateQuantileOperator.
+     *
+     * @param operatorData the operator data
+     * @param globalSettings the global settings
+     * @param opColSettings the operator column specific settings
+     * @param quantile the quantile value
+     * @param k the accuracy parameter of the sketch
+     */
+    public ApproximateQuantileOperator(final OperatorData operatorData, final GlobalSettings globalSettings,
+        final OperatorColumnSettings opColSettings, final double quantile, final int k) {
+        super(operatorData, globalSettings, AggregationOperator.setInclMissingFlag(opColSettings, false));
+        m_settings.getQuantileModel().setDoubleValue(quantile);
+        m_settings.getAccuracyModel().setIntValue(k);
+        m_sketch = new KLLQuantileSketch(k);
+    }
+
+    /**
+     * Constructor for class ApproximateQuantileOperator.
+     *
+     * @param globalSettings the global settings
+     * @param opColSettings the operator column specific settings
+     */
+    public ApproximateQuantileOperator(final GlobalSettings globalSettings,
+        final OperatorColumnSettings opColSettings) {
+        this(new OperatorData("Approximate quantile", false, false, DoubleValue.class, false), globalSettings,
+            opColSettings, ApproximateQuantileSettings.DEFAULT_QUANTILE, KLLQuantileSketch.DEFAULT_K);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataType getDataType(final DataType origType) {
+        return TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AggregationOperator createInstance(final GlobalSettings globalSettings,
+        final OperatorColumnSettings opColSettings) {
+        return new ApproximateQuantileOperator(getOperatorData(), globalSettings, opColSettings,
+            m_settings.getQuantileModel().getDoubleValue(), m_settings.getAccuracyModel().getIntValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getColumnLabel() {
+        return m_settings.getQuantileModel().getDoubleValue() + "-approximate quantile";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean computeInternal(final DataCell cell) {
+        m_sketch.update(((DoubleValue)cell).getDoubleValue());
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataCell getResultInternal() {
+        if (m_sketch.isEmpty()) {
+            return DataType.getMissingCell();
+        }
+        return new DoubleCell(m_sketch.getQuantile(m_settings.getQuantileModel().getDoubleValue()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void resetInternal() {
+        m_sketch = new KLLQuantileSketch(m_settings.getAccuracyModel().getIntValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Approximates the quantile per group in constant memory.";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDetailedDescription() {
+        return "Approximates the quantile per group by skipping missing cells. Instead of storing all values of a "
+            + "group it uses a KLL sketch (see <a href=\"https://arxiv.org/abs/1603.05346\">here</a>) whose size "
+            + "depends only on the accuracy parameter k (see advanced tab). The rank of the returned value deviates "
+            + "from the requested quantile by about one percent for the default k=" + KLLQuantileSketch.DEFAULT_K
+            + "; larger values of k increase the accuracy as well as the memory consumption.";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasOptionalSettings() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ApproximateQuantileSettingsPanel getSettingsPanel() {
+        if (m_settingsPanel == null) {
+            m_settingsPanel = new ApproximateQuantileSettingsPanel(m_settings);
+        }
+        return m_settingsPanel;
+    }
+
+    @Override
+    public void loadValidatedSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+        m_settings.loadSettingsFrom(settings);
+        resetInternal();
+    }
+
+    @Override
+    public void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSpec spec)
+        throws NotConfigurableException {
+        getSettingsPanel().loadSettingsFrom(settings, spec);
+    }
+
+    @Override
+    public void saveSettingsTo(final NodeSettingsWO settings) {
+        m_settings.saveSettingsTo(settings);
+    }
+
+    @Override
+    public void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+        m_settings.validateSettings(settings);
+    }
+
+    @Override
+    public void validate() throws InvalidSettingsException {
+        m_settings.validate();
+    }
+
+    /**
+     * Panel that allows the user to specify the quantile and the accuracy.
+     */
+    private class ApproximateQuantileSettingsPanel extends JTabbedPane {
+
+        private static final long serialVersionUID = 1;
+
+        private final DialogComponentNumber m_quantileComponent;
+
+        private final DialogComponentNumber m_accuracyComponent;
+
+        /**
+         * @param settings the {@link ApproximateQuantileSettings} to use
+         */
+        public ApproximateQuantileSettingsPanel(final ApproximateQuantileSettings settings) {
+            m_quantileComponent = new DialogComponentNumber(settings.getQuantileModel(), "Quantile: ", 0.1);
+            addTab("Basic", m_quantileComponent.getComponentPanel());
+            m_accuracyComponent = new DialogComponentNumber(settings.getAccuracyModel(), "Accuracy (k): ", 50);
+            addTab("Advanced", m_accuracyComponent.getComponentPanel());
+        }
+
+        /**
+         * @param settings the <code>NodeSettings</code> to read from
+         * @param spec the input {@link DataTableSpec}
+         * @throws NotConfigurableException if the settings are invalid
+         */
+        public void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSpec spec)
+            throws NotConfigurableException {
+            final DataTableSpec[] specs = new DataTableSpec[]{spec};
+            m_quantileComponent.loadSettingsFrom(settings, specs);
+            m_accuracyComponent.loadSettingsFrom(settings, specs);
+        }
+    }
+
+    /**
+     * Class that saves the settings of the {@link ApproximateQuantileSettingsPanel}.
+     */
+    private static class ApproximateQuantileSettings {
+
+        private static final String CFG_QUANTILE = "approximateQuantile";
+
+        private static final String CFG_ACCURACY = "sketchAccuracy";
+
+        /** The default quantile. */
+        static final double DEFAULT_QUANTILE = 0.5;
+
+        private final SettingsModelDouble m_quantile = new SettingsModelDouble(CFG_QUANTILE, DEFAULT_QUANTILE);
+
+        private final SettingsModelIntegerBounded m_accuracy =
+            new SettingsModelIntegerBounded(CFG_ACCURACY, KLLQuantileSketch.DEFAULT_K, 8, 1 << 16);
+
+        SettingsModelDouble getQuantileModel() {
+            return m_quantile;
+        }
+
+        SettingsModelIntegerBounded getAccuracyModel() {
+            return m_accuracy;
+        }
+
+        void validate() throws InvalidSettingsException {
+            checkBoundary(m_quantile.getDoubleValue());
+        }
+
+        private static void checkBoundary(final double val) throws InvalidSettingsException {
+            if (val <= 0 || val > 1) {
+                throw new InvalidSettingsException("Quantile must be greater than 0 and less or equal than 1");
+            }
+        }
+
+        void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+            checkBoundary(
+                ((SettingsModelDouble)m_quantile.createCloneWithValidatedValue(settings)).getDoubleValue());
+            m_accuracy.validateSettings(settings);
+        }
+
+        void loadSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+            m_quantile.loadSettingsFrom(settings);
+            m_accuracy.loadSettingsFrom(settings);
+        }
+
+        void saveSettingsTo(final NodeSettingsWO settings) {
+            m_quantile.saveSettingsTo(settings);
+            m_accuracy.saveSettingsTo(settings);
+        }
+    }
+}
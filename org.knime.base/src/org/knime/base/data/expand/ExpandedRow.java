@@ -40,34 +40,78 @@
  *  propagated with or for interoperation with KNIME.  The owner of a Node
  *  may freely choose the license terms applicable to such Node, including
  *  when such Node is propagated with or for interoperation with KNIME.
- * ------------------------------------------------------------------------
+ * ---------------------------------------------------------------------
+ *
  */
-package org.knime.base.node.preproc.transpose;
+package org.knime.base.data.expand;
+
+import java.util.Iterator;
 
-import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
-import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
-import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultCellIterator;
 
 /**
- * 
- * @author Thomas Gabriel, University of Konstanz
+ * Row created by a {@link RowExpander}. It does not copy the cells of the input row but looks them up via the column
+ * map shared by all rows of the expander, only the cells generated for this row are held in an own array.
+ *
+ * @author KNIME AG, Zurich, Switzerland
  */
-public class TransposeTableNodeDialogPane extends DefaultNodeSettingsPane {
+final class ExpandedRow implements DataRow {
+
+    private final RowKey m_key;
+
+    private final DataRow m_inputRow;
+
+    private final int[] m_columnMap;
+
+    private final DataCell[] m_newCells;
 
     /**
-     * Create new dialog with option to set number of columns to chunk.
+     * @param key the key of the row
+     * @param inputRow the row this row has been expanded from
+     * @param columnMap the column map, see {@link RowExpander#RowExpander(int[], RowExpander.Expansion,
+     *            RowExpander.KeyFactory)}
+     * @param newCells the cells generated for this row
      */
-    TransposeTableNodeDialogPane() {
-        super.addDialogComponent(new DialogComponentNumber(
-                createChunkSizeModel(), "Chunk size (columns): ", 10)); 
+    ExpandedRow(final RowKey key, final DataRow inputRow, final int[] columnMap, final DataCell[] newCells) {
+        m_key = key;
+        m_inputRow = inputRow;
+        m_columnMap = columnMap;
+        m_newCells = newCells;
     }
-    
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumCells() {
+        return m_columnMap.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RowKey getKey() {
+        return m_key;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataCell getCell(final int index) {
+        final int column = m_columnMap[index];
+        return column >= 0 ? m_inputRow.getCell(column) : m_newCells[-column - 1];
+    }
+
     /**
-     * @return bounded integer model for chunk size
+     * {@inheritDoc}
      */
-    static final SettingsModelIntegerBounded createChunkSizeModel() {
-        return new SettingsModelIntegerBounded(
-                "chunk_size", 10, 1, Integer.MAX_VALUE);
+    @Override
+    public Iterator<DataCell> iterator() {
+        return new DefaultCellIterator(this);
     }
-    
 }
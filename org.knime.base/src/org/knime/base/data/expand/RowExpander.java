@@ -0,0 +1,331 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.expand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.RowKey;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ParallelTasks.Task;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Expands each input row into an arbitrary number of output rows, as done by the ungroup and unpivot nodes. The output
+ * rows are views on their input row: the cells of retained columns are looked up via a column map shared by all output
+ * rows, only the newly generated cells are stored per output row.
+ *
+ * <p>
+ * If the calling thread belongs to a {@link ThreadPool}, blocks of input rows are expanded concurrently; the output
+ * rows are always pushed in the order of the input rows.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class RowExpander {
+
+    /** Number of input rows that are expanded by one task. */
+    static final int ROWS_PER_BLOCK = 1000;
+
+    /**
+     * Generates the new cells of the output rows of a single input row. Implementations are called concurrently for
+     * different input rows and must therefore not hold any state.
+     */
+    @FunctionalInterface
+    public interface Expansion {
+        /**
+         * @param row the input row
+         * @param output receives the new cells of each output row, in order
+         */
+        void expand(DataRow row, Output output);
+    }
+
+    /** Receives the output rows of a single input row. */
+    public interface Output {
+        /**
+         * Adds an output row whose key is created by the {@link KeyFactory}.
+         *
+         * @param newCells the new cells of the output row, indexed as in the column map
+         */
+        void add(DataCell[] newCells);
+
+        /**
+         * Adds an output row which has the same key as its input row.
+         *
+         * @param newCells the new cells of the output row, indexed as in the column map
+         */
+        void addWithInputKey(DataCell[] newCells);
+    }
+
+    /** Creates the keys of output rows. */
+    @FunctionalInterface
+    public interface KeyFactory {
+        /**
+         * @param inputKey the key of the input row
+         * @param index the index of the output row among the rows added for the input row by
+         *            {@link Output#add(DataCell[])}, starting at 0
+         * @param outputIndex the overall index of the output row, starting at 0
+         * @return the key of the output row
+         */
+        RowKey createKey(RowKey inputKey, int index, long outputIndex);
+    }
+
+    private final int[] m_columnMap;
+
+    private final Expansion m_expansion;
+
+    private final KeyFactory m_keyFactory;
+
+    private Map<RowKey, Set<RowKey>> m_hiliteMapping;
+
+    private boolean m_mapRowsWithoutOutput;
+
+    private long m_outputCount;
+
+    /**
+     * Creates a new expander.
+     *
+     * @param columnMap for each output column either the index of the input column whose cell is repeated, or
+     *            {@link #newCell(int)} for the columns filled with generated cells
+     * @param expansion generates the new cells
+     * @param keyFactory creates the keys of the output rows
+     */
+    public RowExpander(final int[] columnMap, final Expansion expansion, final KeyFactory keyFactory) {
+        m_columnMap = columnMap.clone();
+        m_expansion = expansion;
+        m_keyFactory = keyFactory;
+    }
+
+    /**
+     * Returns the entry of the column map referring to a generated cell.
+     *
+     * @param index the index of the cell in the arrays passed to the {@link Output}
+     * @return the column map entry
+     */
+    public static int newCell(final int index) {
+        return -index - 1;
+    }
+
+    /**
+     * Enables the creation of the mapping from input to output row keys, see {@link #getHiLiteMapping()}.
+     *
+     * @param mapRowsWithoutOutput whether input rows without any output row are mapped to an empty set, otherwise they
+     *            are not part of the mapping
+     */
+    public void enableHiLiteMapping(final boolean mapRowsWithoutOutput) {
+        m_hiliteMapping = new LinkedHashMap<>();
+        m_mapRowsWithoutOutput = mapRowsWithoutOutput;
+    }
+
+    /**
+     * @return the mapping from the key of each input row to the keys of its output rows, <code>null</code> if not
+     *         enabled
+     */
+    public Map<RowKey, Set<RowKey>> getHiLiteMapping() {
+        return m_hiliteMapping;
+    }
+
+    /**
+     * Expands all rows of the input and pushes the results to the output.
+     *
+     * @param in the row input, will NOT be closed when finished
+     * @param out the row output, will NOT be closed when finished
+     * @param exec to check cancellation and (optional) progress logging
+     * @param rowCount row count to track the progress or <code>-1</code> without progress tracking
+     * @throws CanceledExecutionException if the execution has been canceled
+     * @throws InterruptedException if the execution has been interrupted
+     */
+    public void expand(final RowInput in, final RowOutput out, final ExecutionMonitor exec, final long rowCount)
+        throws CanceledExecutionException, InterruptedException {
+        if (ThreadPool.currentPool() == null || Runtime.getRuntime().availableProcessors() < 2
+            || (rowCount >= 0 && rowCount < 2 * ROWS_PER_BLOCK)) {
+            final Block block = new Block(1);
+            long rowCounter = 0;
+            DataRow row;
+            while ((row = in.poll()) != null) {
+                reportProgress(exec, ++rowCounter, rowCount);
+                block.clear();
+                block.expand(row);
+                push(block, out);
+            }
+            return;
+        }
+
+        // the blocks of rows are expanded concurrently and pushed in their order
+        final long[] rowCounter = new long[1];
+        final boolean[] exhausted = new boolean[1];
+        ParallelTasks.<Block, InterruptedException> invokeOrdered(() -> {
+            final List<DataRow> rows = new ArrayList<>(ROWS_PER_BLOCK);
+            while (!exhausted[0] && rows.size() < ROWS_PER_BLOCK) {
+                final DataRow row = in.poll();
+                if (row == null) {
+                    exhausted[0] = true;
+                } else {
+                    reportProgress(exec, ++rowCounter[0], rowCount);
+                    rows.add(row);
+                }
+            }
+            return rows.isEmpty() ? null : createExpandTask(rows);
+        }, block -> push(block, out));
+    }
+
+    private static void reportProgress(final ExecutionMonitor exec, final long rowCounter, final long rowCount)
+        throws CanceledExecutionException {
+        exec.checkCanceled();
+        if (rowCount > 0) {
+            exec.setProgress(rowCounter / (double)rowCount, "Processing row " + rowCounter + " of " + rowCount);
+        }
+    }
+
+    private Task<Block, InterruptedException> createExpandTask(final List<DataRow> rows) {
+        return () -> {
+            final Block block = new Block(rows.size());
+            for (final DataRow row : rows) {
+                block.expand(row);
+            }
+            return block;
+        };
+    }
+
+    /** Creates the output rows of the block in order and pushes them, this is always done by a single thread. */
+    private void push(final Block block, final RowOutput out) throws InterruptedException {
+        int o = 0;
+        for (int r = 0; r < block.m_nrRows; r++) {
+            final DataRow row = block.m_rows[r];
+            final RowKey inputKey = row.getKey();
+            final Set<RowKey> keys = m_hiliteMapping != null ? new LinkedHashSet<>() : null;
+            for (; o < block.m_nrOutputs && block.m_inputIndices[o] == r; o++) {
+                final int index = block.m_keyIndices[o];
+                final RowKey key = index < 0 ? inputKey : m_keyFactory.createKey(inputKey, index, m_outputCount);
+                m_outputCount++;
+                out.push(new ExpandedRow(key, row, m_columnMap, block.m_newCells[o]));
+                if (keys != null) {
+                    keys.add(key);
+                }
+            }
+            if (keys != null && (m_mapRowsWithoutOutput || !keys.isEmpty())) {
+                m_hiliteMapping.put(inputKey, keys);
+            }
+        }
+    }
+
+    /** The output of a consecutive range of input rows, stored without creating the rows themselves. */
+    private final class Block implements Output {
+
+        private DataRow[] m_rows;
+
+        private int m_nrRows;
+
+        /** For each output the index of its input row within the block. */
+        private int[] m_inputIndices;
+
+        /** For each output its index among the outputs of its input row, -1 if it keeps the input key. */
+        private int[] m_keyIndices;
+
+        private DataCell[][] m_newCells;
+
+        private int m_nrOutputs;
+
+        private int m_nextKeyIndex;
+
+        Block(final int nrRows) {
+            m_rows = new DataRow[nrRows];
+            m_inputIndices = new int[nrRows];
+            m_keyIndices = new int[nrRows];
+            m_newCells = new DataCell[nrRows][];
+        }
+
+        void expand(final DataRow row) {
+            if (m_nrRows == m_rows.length) {
+                m_rows = Arrays.copyOf(m_rows, 2 * m_nrRows);
+            }
+            m_rows[m_nrRows++] = row;
+            m_nextKeyIndex = 0;
+            m_expansion.expand(row, this);
+        }
+
+        void clear() {
+            Arrays.fill(m_rows, 0, m_nrRows, null);
+            Arrays.fill(m_newCells, 0, m_nrOutputs, null);
+            m_nrRows = 0;
+            m_nrOutputs = 0;
+        }
+
+        @Override
+        public void add(final DataCell[] newCells) {
+            addOutput(newCells, m_nextKeyIndex++);
+        }
+
+        @Override
+        public void addWithInputKey(final DataCell[] newCells) {
+            addOutput(newCells, -1);
+        }
+
+        private void addOutput(final DataCell[] newCells, final int keyIndex) {
+            if (m_nrOutputs == m_newCells.length) {
+                final int capacity = Math.max(2 * m_nrOutputs, 1);
+                m_inputIndices = Arrays.copyOf(m_inputIndices, capacity);
+                m_keyIndices = Arrays.copyOf(m_keyIndices, capacity);
+                m_newCells = Arrays.copyOf(m_newCells, capacity);
+            }
+            m_inputIndices[m_nrOutputs] = m_nrRows - 1;
+            m_keyIndices[m_nrOutputs] = keyIndex;
+            m_newCells[m_nrOutputs] = newCells;
+            m_nrOutputs++;
+        }
+    }
+}
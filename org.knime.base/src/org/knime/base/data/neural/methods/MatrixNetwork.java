@@ -0,0 +1,386 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.neural.methods;
+
+import org.knime.base.data.neural.Layer;
+import org.knime.base.data.neural.MultiLayerPerceptron;
+import org.knime.base.data.neural.Perceptron;
+import org.knime.base.data.neural.SigmoidPerceptron;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ParallelTasks.ResultConsumer;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * A copy of the weights of a {@link MultiLayerPerceptron} with sigmoid neurons stored as one contiguous row-major
+ * matrix per layer. Forward and backward waves are computed for mini-batches of rows with blocked matrix kernels, the
+ * rows are split into chunks of a fixed size that are processed concurrently in the current {@link ThreadPool}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class MatrixNetwork {
+
+    /** The number of rows that are propagated through the net at once. */
+    static final int BATCH_SIZE = 64;
+
+    /**
+     * The number of rows per chunk. The chunks only depend on the number of rows and their sums are merged in their
+     * order, so the results don't depend on the number of processors or on whether there is a thread pool.
+     */
+    static final int CHUNK_SIZE = 16 * BATCH_SIZE;
+
+    /** The number of neurons per layer, the first layer is the input layer. */
+    private final int[] m_sizes;
+
+    /** The weights of layer l + 1, row j holding the weights of neuron j. */
+    private final double[][] m_weights;
+
+    /** The thresholds of layer l + 1. */
+    private final double[][] m_thresholds;
+
+    /**
+     * Copies the weights of the given net.
+     *
+     * @param nn the net, must be {@link #isApplicable(MultiLayerPerceptron) applicable}
+     */
+    MatrixNetwork(final MultiLayerPerceptron nn) {
+        final Layer[] layers = nn.getLayers();
+        m_sizes = new int[layers.length];
+        for (int l = 0; l < layers.length; l++) {
+            m_sizes[l] = layers[l].getPerceptrons().length;
+        }
+        m_weights = new double[layers.length - 1][];
+        m_thresholds = new double[layers.length - 1][];
+        for (int l = 1; l < layers.length; l++) {
+            final int in = m_sizes[l - 1];
+            final double[] weights = new double[m_sizes[l] * in];
+            final double[] thresholds = new double[m_sizes[l]];
+            for (int j = 0; j < m_sizes[l]; j++) {
+                final Perceptron p = layers[l].getPerceptron(j);
+                System.arraycopy(p.getWeights(), 0, weights, j * in, in);
+                thresholds[j] = p.getThreshold();
+            }
+            m_weights[l - 1] = weights;
+            m_thresholds[l - 1] = thresholds;
+        }
+    }
+
+    /**
+     * @param nn a net
+     * @return true if all non-input neurons of the net are {@link SigmoidPerceptron sigmoid neurons}, which is the
+     *         activation the matrix kernels implement
+     */
+    static boolean isApplicable(final MultiLayerPerceptron nn) {
+        final Layer[] layers = nn.getLayers();
+        if (layers == null || layers.length < 2) {
+            return false;
+        }
+        for (int l = 1; l < layers.length; l++) {
+            for (Perceptron p : layers[l].getPerceptrons()) {
+                if (p.getClass() != SigmoidPerceptron.class) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the error derivations of all samples to the given arrays, which are laid out as in {@link RProp}, i.e.
+     * <code>errDers[l][j][k]</code> is the derivation for the weight from neuron k in layer l to neuron j in layer l +
+     * 1.
+     *
+     * @param samples the input values of the samples
+     * @param outputs the desired outputs of the samples
+     * @param errDers the weight error derivations to add to
+     * @param thrErrDers the threshold error derivations to add to
+     * @throws CanceledExecutionException if the calling thread has been interrupted
+     */
+    void addGradient(final double[][] samples, final double[][] outputs, final double[][][] errDers,
+        final double[][] thrErrDers) throws CanceledExecutionException {
+        run(samples, outputs, true, worker -> {
+            for (int l = 0; l < m_weights.length; l++) {
+                final int in = m_sizes[l];
+                final double[] gradient = worker.m_gradient[l];
+                for (int j = 0; j < m_sizes[l + 1]; j++) {
+                    final double[] target = errDers[l][j];
+                    for (int k = 0; k < in; k++) {
+                        target[k] += gradient[j * in + k];
+                    }
+                    thrErrDers[l][j] += worker.m_thrGradient[l][j];
+                }
+            }
+        });
+    }
+
+    /**
+     * @param samples the input values of the samples
+     * @param outputs the desired outputs of the samples
+     * @return the sum of the squared differences between the outputs of the net and the desired outputs
+     * @throws CanceledExecutionException if the calling thread has been interrupted
+     */
+    double sumOfSquaredErrors(final double[][] samples, final double[][] outputs)
+        throws CanceledExecutionException {
+        final double[] error = new double[1];
+        run(samples, outputs, false, worker -> error[0] += worker.m_error);
+        return error[0];
+    }
+
+    /**
+     * Runs the waves for chunks of {@link #CHUNK_SIZE} rows and passes the worker of each chunk to <b>merger</b> in
+     * the order of the chunks.
+     */
+    private void run(final double[][] samples, final double[][] outputs, final boolean backward,
+        final ResultConsumer<Worker, RuntimeException> merger) throws CanceledExecutionException {
+        final int nrRows = samples.length;
+        final int[] nextRow = new int[1];
+        ParallelTasks.<Worker, RuntimeException> invokeOrdered(() -> {
+            final int from = nextRow[0];
+            if (from >= nrRows) {
+                return null;
+            }
+            final int to = Math.min(nrRows, from + CHUNK_SIZE);
+            nextRow[0] = to;
+            return () -> {
+                final Worker worker = new Worker(backward);
+                worker.run(samples, outputs, from, to);
+                return worker;
+            };
+        }, merger);
+    }
+
+    /**
+     * Same as {@link SigmoidPerceptron#activationFunction(double)}.
+     */
+    private static double sigmoid(final double value) {
+        if (value < -37) {
+            return 0;
+        } else if (value > 37) {
+            return 1;
+        }
+        return 1 / (1 + Math.exp(-value));
+    }
+
+    /**
+     * Computes out = sigmoid(in * weights^T - thresholds) for the first <b>nrRows</b> rows of <b>in</b>. Four neurons
+     * are computed at once so that each input value is loaded only once for them.
+     */
+    private static void forward(final double[] in, final int inSize, final double[] weights,
+        final double[] thresholds, final double[] out, final int outSize, final int nrRows) {
+        for (int r = 0; r < nrRows; r++) {
+            final int inOffset = r * inSize;
+            final int outOffset = r * outSize;
+            int j = 0;
+            for (; j + 3 < outSize; j += 4) {
+                final int w0 = j * inSize;
+                final int w1 = w0 + inSize;
+                final int w2 = w1 + inSize;
+                final int w3 = w2 + inSize;
+                double s0 = 0;
+                double s1 = 0;
+                double s2 = 0;
+                double s3 = 0;
+                for (int k = 0; k < inSize; k++) {
+                    final double x = in[inOffset + k];
+                    s0 += x * weights[w0 + k];
+                    s1 += x * weights[w1 + k];
+                    s2 += x * weights[w2 + k];
+                    s3 += x * weights[w3 + k];
+                }
+                out[outOffset + j] = sigmoid(s0 - thresholds[j]);
+                out[outOffset + j + 1] = sigmoid(s1 - thresholds[j + 1]);
+                out[outOffset + j + 2] = sigmoid(s2 - thresholds[j + 2]);
+                out[outOffset + j + 3] = sigmoid(s3 - thresholds[j + 3]);
+            }
+            for (; j < outSize; j++) {
+                final int w = j * inSize;
+                double s = 0;
+                for (int k = 0; k < inSize; k++) {
+                    s += in[inOffset + k] * weights[w + k];
+                }
+                out[outOffset + j] = sigmoid(s - thresholds[j]);
+            }
+        }
+    }
+
+    /**
+     * The buffers and gradient accumulators of one thread.
+     */
+    private final class Worker {
+
+        /** The outputs of all layers for a mini-batch, row-major. */
+        private final double[][] m_outputs;
+
+        /** The error terms of the non-input layers for a mini-batch, row-major. */
+        private final double[][] m_deltas;
+
+        private final double[][] m_gradient;
+
+        private final double[][] m_thrGradient;
+
+        private double m_error;
+
+        private Worker(final boolean backward) {
+            final int nrLayers = m_sizes.length;
+            m_outputs = new double[nrLayers][];
+            for (int l = 0; l < nrLayers; l++) {
+                m_outputs[l] = new double[BATCH_SIZE * m_sizes[l]];
+            }
+            if (backward) {
+                m_deltas = new double[nrLayers][];
+                m_gradient = new double[nrLayers - 1][];
+                m_thrGradient = new double[nrLayers - 1][];
+                for (int l = 1; l < nrLayers; l++) {
+                    m_deltas[l] = new double[BATCH_SIZE * m_sizes[l]];
+                    m_gradient[l - 1] = new double[m_weights[l - 1].length];
+                    m_thrGradient[l - 1] = new double[m_sizes[l]];
+                }
+            } else {
+                m_deltas = null;
+                m_gradient = null;
+                m_thrGradient = null;
+            }
+        }
+
+        private void run(final double[][] samples, final double[][] outputs, final int from, final int to) {
+            for (int start = from; start < to; start += BATCH_SIZE) {
+                final int nrRows = Math.min(BATCH_SIZE, to - start);
+                forwardBatch(samples, start, nrRows);
+                if (m_deltas == null) {
+                    addError(outputs, start, nrRows);
+                } else {
+                    backwardBatch(outputs, start, nrRows);
+                }
+            }
+        }
+
+        private void forwardBatch(final double[][] samples, final int start, final int nrRows) {
+            final int nrInputs = m_sizes[0];
+            for (int r = 0; r < nrRows; r++) {
+                System.arraycopy(samples[start + r], 0, m_outputs[0], r * nrInputs, nrInputs);
+            }
+            for (int l = 1; l < m_sizes.length; l++) {
+                forward(m_outputs[l - 1], m_sizes[l - 1], m_weights[l - 1], m_thresholds[l - 1], m_outputs[l],
+                    m_sizes[l], nrRows);
+            }
+        }
+
+        private void addError(final double[][] outputs, final int start, final int nrRows) {
+            final int last = m_sizes.length - 1;
+            final int nrOutputs = m_sizes[last];
+            final double[] y = m_outputs[last];
+            for (int r = 0; r < nrRows; r++) {
+                final double[] desired = outputs[start + r];
+                for (int j = 0; j < nrOutputs; j++) {
+                    final double diff = y[r * nrOutputs + j] - desired[j];
+                    m_error += diff * diff;
+                }
+            }
+        }
+
+        private void backwardBatch(final double[][] outputs, final int start, final int nrRows) {
+            final int last = m_sizes.length - 1;
+            // error terms of the output layer
+            final int nrOutputs = m_sizes[last];
+            final double[] yOut = m_outputs[last];
+            final double[] deltaOut = m_deltas[last];
+            for (int r = 0; r < nrRows; r++) {
+                final double[] desired = outputs[start + r];
+                for (int j = 0; j < nrOutputs; j++) {
+                    final int idx = r * nrOutputs + j;
+                    final double y = yOut[idx];
+                    deltaOut[idx] = (desired[j] - y) * y * (1 - y);
+                }
+            }
+            // propagate the error terms back to the hidden layers: delta_l = y (1 - y) (delta_l+1 * W_l+1)
+            for (int l = last - 1; l >= 1; l--) {
+                final int size = m_sizes[l];
+                final int nextSize = m_sizes[l + 1];
+                final double[] weights = m_weights[l];
+                final double[] nextDelta = m_deltas[l + 1];
+                final double[] delta = m_deltas[l];
+                final double[] y = m_outputs[l];
+                for (int r = 0; r < nrRows; r++) {
+                    final int offset = r * size;
+                    for (int j = 0; j < size; j++) {
+                        delta[offset + j] = 0;
+                    }
+                    for (int k = 0; k < nextSize; k++) {
+                        final double d = nextDelta[r * nextSize + k];
+                        final int w = k * size;
+                        for (int j = 0; j < size; j++) {
+                            delta[offset + j] += d * weights[w + j];
+                        }
+                    }
+                    for (int j = 0; j < size; j++) {
+                        final double v = y[offset + j];
+                        delta[offset + j] *= v * (1 - v);
+                    }
+                }
+            }
+            // accumulate the error derivations: G_l -= delta_l+1^T * y_l
+            for (int l = 0; l < last; l++) {
+                final int inSize = m_sizes[l];
+                final int outSize = m_sizes[l + 1];
+                final double[] gradient = m_gradient[l];
+                final double[] thrGradient = m_thrGradient[l];
+                final double[] delta = m_deltas[l + 1];
+                final double[] y = m_outputs[l];
+                for (int r = 0; r < nrRows; r++) {
+                    final int inOffset = r * inSize;
+                    for (int j = 0; j < outSize; j++) {
+                        final double d = delta[r * outSize + j];
+                        thrGradient[j] += d;
+                        final int g = j * inSize;
+                        for (int k = 0; k < inSize; k++) {
+                            gradient[g + k] -= d * y[inOffset + k];
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -51,6 +51,7 @@
 import org.knime.base.data.neural.Layer;
 import org.knime.base.data.neural.MultiLayerPerceptron;
 import org.knime.base.data.neural.Perceptron;
+import org.knime.core.node.CanceledExecutionException;
 
 /**
  * Implementation of the RProp Algorithm, as proposed by M. Riedmiller, H.Braun:
@@ -186,16 +187,89 @@ public void train(final MultiLayerPerceptron nn, final Double[][] samples,
             final Double[][] outputs) {
 
         m_nn = nn;
+        init();
+        addGradient(samples, outputs);
+        updateWeights();
+    }
+
+    /**
+     * Train the neural network once. If all neurons are sigmoid neurons the
+     * gradient is computed for mini-batches of samples on a matrix copy of
+     * the weights, split among the threads of the current thread pool. The
+     * weights are updated once with the gradient of all samples as before.
+     *
+     * @param nn neural net to train
+     * @param samples the samples
+     * @param outputs the desired outputs for these samples
+     * @throws CanceledExecutionException if the calling thread has been
+     *             interrupted
+     * @since 3.6
+     */
+    public void train(final MultiLayerPerceptron nn, final double[][] samples,
+            final double[][] outputs) throws CanceledExecutionException {
+
+        m_nn = nn;
+        init();
+        if (MatrixNetwork.isApplicable(nn)) {
+            new MatrixNetwork(nn).addGradient(samples, outputs, m_errDers,
+                    m_thrErrDers);
+        } else {
+            addGradient(box(samples), box(outputs));
+        }
+        updateWeights();
+    }
+
+    /**
+     * Computes the sum of the squared differences between the outputs of the
+     * net and the desired outputs of the given samples.
+     *
+     * @param nn the neural net
+     * @param samples the samples
+     * @param outputs the desired outputs for these samples
+     * @return the sum of squared errors
+     * @throws CanceledExecutionException if the calling thread has been
+     *             interrupted
+     * @since 3.6
+     */
+    public static double sumOfSquaredErrors(final MultiLayerPerceptron nn,
+            final double[][] samples, final double[][] outputs)
+            throws CanceledExecutionException {
+        if (MatrixNetwork.isApplicable(nn)) {
+            return new MatrixNetwork(nn).sumOfSquaredErrors(samples, outputs);
+        }
+        double error = 0;
+        for (int s = 0; s < samples.length; s++) {
+            double[] output = nn.output(samples[s]);
+            for (int o = 0; o < output.length; o++) {
+                double diff = output[o] - outputs[s][o];
+                error += diff * diff;
+            }
+        }
+        return error;
+    }
+
+    private static Double[][] box(final double[][] values) {
+        Double[][] boxed = new Double[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = new Double[values[i].length];
+            for (int j = 0; j < values[i].length; j++) {
+                boxed[i][j] = values[i][j];
+            }
+        }
+        return boxed;
+    }
+
+    /*
+     * Adds the error derivations of all samples, computed neuron by neuron.
+     */
+    private void addGradient(final Double[][] samples,
+            final Double[][] outputs) {
         m_samples = samples;
         m_outputs = outputs;
-        init();
+        final MultiLayerPerceptron nn = m_nn;
 
         double sum = 0.0;
         double y = 0.0;
-        double errDer;
-        double thrErrDer;
-        double oldErrDer;
-        double oldThrErrDer;
 
         /*
          * For all samples
@@ -261,6 +335,20 @@ public void train(final MultiLayerPerceptron nn, final Double[][] samples,
                 }
             }
         }
+        m_samples = null;
+        m_outputs = null;
+    }
+
+    /*
+     * Updates the weights and thresholds according to the error derivations.
+     */
+    private void updateWeights() {
+        final MultiLayerPerceptron nn = m_nn;
+        double errDer;
+        double thrErrDer;
+        double oldErrDer;
+        double oldThrErrDer;
+
         // STEP 2: for all weights set delta_w
         for (int i = 1; i < nn.getLayers().length; i++) {
             for (int j = 0; j < nn.getLayer(i).getPerceptrons().length; j++) {
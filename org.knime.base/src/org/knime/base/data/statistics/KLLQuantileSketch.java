@@ -0,0 +1,312 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mergeable sketch that approximates the quantiles of a stream of doubles in constant memory, following
+ * "Optimal Quantile Approximation in Streams" by Karnin, Lang and Liberty (KLL). The values are kept in a hierarchy
+ * of compactors; a full compactor sorts its values and promotes every other of them to the next level, where each
+ * value represents twice as many values of the stream. The rank error of the approximated quantiles decreases with
+ * the parameter <i>k</i>, with the default <i>k</i> = {@value #DEFAULT_K} it is in the order of one percent.
+ * <p>
+ * Values are ordered as in {@link Double#compare(double, double)}, i.e. {@link Double#NaN} is larger than all other
+ * values. The random choices of the compactors are seeded, so that the result is reproducible. This class is not
+ * thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class KLLQuantileSketch {
+
+    /** The default value of the accuracy parameter <i>k</i>. */
+    public static final int DEFAULT_K = 200;
+
+    /** The factor by which the capacity of the compactors decreases from the top level downwards. */
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private static final long DEFAULT_SEED = 42L;
+
+    private final int m_k;
+
+    private final Random m_random;
+
+    private double[][] m_levels = new double[0][];
+
+    private int[] m_levelSizes = new int[0];
+
+    private int m_size;
+
+    private int m_maxSize;
+
+    private long m_count;
+
+    private double m_min = Double.NaN;
+
+    private double m_max = Double.NaN;
+
+    /** The values sorted by rank, created lazily by {@link #getQuantile(double)}. */
+    private double[] m_sortedValues;
+
+    /** The cumulative weights of {@link #m_sortedValues}. */
+    private long[] m_cumulativeWeights;
+
+    /**
+     * Creates a sketch with the default accuracy.
+     */
+    public KLLQuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k the accuracy parameter, larger values reduce the rank error but require more memory, at least 2
+     */
+    public KLLQuantileSketch(final int k) {
+        this(k, DEFAULT_SEED);
+    }
+
+    /**
+     * @param k the accuracy parameter, larger values reduce the rank error but require more memory, at least 2
+     * @param seed the seed for the random choices of the compactors
+     */
+    public KLLQuantileSketch(final int k, final long seed) {
+        if (k < 2) {
+            throw new IllegalArgumentException("k must be at least 2: " + k);
+        }
+        m_k = k;
+        m_random = new Random(seed);
+        grow();
+    }
+
+    /**
+     * @return the accuracy parameter <i>k</i>
+     */
+    public int getK() {
+        return m_k;
+    }
+
+    /**
+     * @return the number of values added to this sketch (including merged sketches)
+     */
+    public long getCount() {
+        return m_count;
+    }
+
+    /**
+     * @return <code>true</code> if no values have been added
+     */
+    public boolean isEmpty() {
+        return m_count == 0;
+    }
+
+    /**
+     * @param value the value to add
+     */
+    public void update(final double value) {
+        if (m_count == 0 || Double.compare(value, m_min) < 0) {
+            m_min = value;
+        }
+        if (m_count == 0 || Double.compare(value, m_max) > 0) {
+            m_max = value;
+        }
+        m_count++;
+        append(0, value);
+        m_size++;
+        m_sortedValues = null;
+        if (m_size >= m_maxSize) {
+            compress();
+        }
+    }
+
+    /**
+     * Merges the other sketch into this one. The result approximates the quantiles of the union of both streams.
+     *
+     * @param other the sketch to merge, not modified
+     */
+    public void merge(final KLLQuantileSketch other) {
+        if (other.isEmpty()) {
+            return;
+        }
+        if (m_count == 0 || Double.compare(other.m_min, m_min) < 0) {
+            m_min = other.m_min;
+        }
+        if (m_count == 0 || Double.compare(other.m_max, m_max) > 0) {
+            m_max = other.m_max;
+        }
+        m_count += other.m_count;
+        while (m_levels.length < other.m_levels.length) {
+            grow();
+        }
+        for (int h = 0; h < other.m_levels.length; h++) {
+            for (int i = 0; i < other.m_levelSizes[h]; i++) {
+                append(h, other.m_levels[h][i]);
+            }
+            m_size += other.m_levelSizes[h];
+        }
+        m_sortedValues = null;
+        while (m_size >= m_maxSize) {
+            compress();
+        }
+    }
+
+    /**
+     * @param quantile the quantile in [0, 1]
+     * @return the approximated quantile, the smallest value for 0 and the largest one for 1, {@link Double#NaN} if
+     *         the sketch is empty
+     */
+    public double getQuantile(final double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + quantile);
+        }
+        if (m_count == 0) {
+            return Double.NaN;
+        }
+        if (quantile == 0) {
+            return m_min;
+        }
+        if (quantile == 1) {
+            return m_max;
+        }
+        if (m_sortedValues == null) {
+            sortValues();
+        }
+        final double rank = quantile * m_count;
+        int idx = Arrays.binarySearch(m_cumulativeWeights, (long)Math.ceil(rank));
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        return m_sortedValues[Math.min(idx, m_sortedValues.length - 1)];
+    }
+
+    private int capacity(final int level) {
+        final int depth = m_levels.length - level - 1;
+        return Math.max(2, (int)Math.ceil(m_k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void grow() {
+        final int noOfLevels = m_levels.length + 1;
+        m_levels = Arrays.copyOf(m_levels, noOfLevels);
+        m_levelSizes = Arrays.copyOf(m_levelSizes, noOfLevels);
+        m_levels[noOfLevels - 1] = new double[0];
+        m_maxSize = 0;
+        for (int h = 0; h < noOfLevels; h++) {
+            m_maxSize += capacity(h);
+        }
+    }
+
+    private void append(final int level, final double value) {
+        double[] values = m_levels[level];
+        if (m_levelSizes[level] == values.length) {
+            values = Arrays.copyOf(values, Math.max(8, 2 * values.length));
+            m_levels[level] = values;
+        }
+        values[m_levelSizes[level]++] = value;
+    }
+
+    /** Compacts the lowest full level into the next one. */
+    private void compress() {
+        for (int h = 0; h < m_levels.length; h++) {
+            if (m_levelSizes[h] >= capacity(h)) {
+                if (h + 1 == m_levels.length) {
+                    grow();
+                }
+                compact(h);
+                return;
+            }
+        }
+    }
+
+    private void compact(final int level) {
+        final double[] values = m_levels[level];
+        int size = m_levelSizes[level];
+        // an odd value stays in this level, so that the total weight is preserved
+        final boolean odd = size % 2 == 1;
+        if (odd) {
+            size--;
+        }
+        Arrays.sort(values, 0, size);
+        for (int i = m_random.nextBoolean() ? 1 : 0; i < size; i += 2) {
+            append(level + 1, values[i]);
+        }
+        m_size -= size / 2;
+        if (odd) {
+            values[0] = values[size];
+            m_levelSizes[level] = 1;
+        } else {
+            m_levelSizes[level] = 0;
+        }
+    }
+
+    private void sortValues() {
+        final long[] items = new long[m_size];
+        final double[] values = new double[m_size];
+        int n = 0;
+        for (int h = 0; h < m_levels.length; h++) {
+            for (int i = 0; i < m_levelSizes[h]; i++) {
+                values[n] = m_levels[h][i];
+                // the index of the value and its level are packed into one long to sort them along the values
+                items[n] = ((long)n << 8) | h;
+                n++;
+            }
+        }
+        final Long[] order = new Long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = items[i];
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[(int)(a >>> 8)], values[(int)(b >>> 8)]));
+        m_sortedValues = new double[n];
+        m_cumulativeWeights = new long[n];
+        long cumulativeWeight = 0;
+        for (int i = 0; i < n; i++) {
+            final long item = order[i];
+            m_sortedValues[i] = values[(int)(item >>> 8)];
+            cumulativeWeight += 1L << (item & 0xFF);
+            m_cumulativeWeights[i] = cumulativeWeight;
+        }
+    }
+}
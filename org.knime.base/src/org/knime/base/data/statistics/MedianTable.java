@@ -46,25 +46,16 @@
  */
 package org.knime.base.data.statistics;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
-import org.apache.commons.lang.mutable.MutableLong;
 import org.knime.core.data.DataCell;
-import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.DataValueComparator;
 import org.knime.core.data.DoubleValue;
-import org.knime.core.data.def.DoubleCell;
-import org.knime.core.data.sort.ColumnBufferedDataTableSorter;
-import org.knime.core.data.sort.SortingConsumer;
-import org.knime.core.data.sort.SortingDescription;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
-import org.knime.core.node.InvalidSettingsException;
 
 /**
  * Finds the median for selected ({@link DoubleValue}d) columns.
@@ -166,90 +157,21 @@ public synchronized double[] medianValues(final ExecutionContext context) throws
                     }
                 }
             }
-            List<String> incList = new ArrayList<String>(m_indices.length);
-            final String[] columnNames = m_table.getSpec().getColumnNames();
-            for (int i : m_indices) {
-                incList.add(columnNames[i]);
-            }
-
-            // two indices per column that denote the lower and upper index of the median value (or both the same)
-            long[][] k = new long[2][m_indices.length];
-            for (int i = 0; i < 2; i++) {
-                for (int j = 0; j < m_indices.length; j++) {
-                    k[i][j] = validCount[j] > 0 ? (validCount[j] - 1 + i) / 2 : 0;
+            // two ranks per column that denote the lower and upper index of the median value (or both the same)
+            final long[][] k = new long[m_indices.length][2];
+            for (int j = 0; j < m_indices.length; j++) {
+                for (int i = 0; i < 2; i++) {
+                    k[j][i] = validCount[j] > 0 ? (validCount[j] - 1 + i) / 2 : 0;
                 }
             }
-            sortOnDisk(context, k);
-        }
-        return m_medians.clone();
-    }
-
-    /**
-     * Sorts the data on the disk, it moves the missing values to the end.
-     *
-     * @param context An {@link ExecutionContext}.
-     * @param k The indices to read from the different columns
-     *        (first dim: length 2 (above & below median indices), second dim: columns)
-     * @throws CanceledExecutionException Execution was cancelled.
-     */
-    private void sortOnDisk(final ExecutionContext context, final long[][] k) throws CanceledExecutionException {
-        final SortingDescription[] sorting = new SortingDescription[m_indices.length];
-        final DataTableSpec spec = m_table.getSpec();
-        for (int i = 0; i < m_indices.length; i++) {
-            final DataColumnSpec columnSpec = spec.getColumnSpec(m_indices[i]);
-            final DataValueComparator comparator = columnSpec.getType().getComparator();
-            sorting[i] = new SortingDescription(columnSpec.getName()) {
-
-                @Override
-                public int compare(final DataRow o1, final DataRow o2) {
-                    // Move missing values to the end.
-                    final DataCell c1 = o1.getCell(0);
-                    final DataCell c2 = o2.getCell(0);
-                    if (c1.isMissing()) {
-                        return c2.isMissing() ? 0 : 1;
-                    }
-                    if (c2.isMissing()) {
-                        return -1;
-                    }
-                    return comparator.compare(c1, c2);
-                }
-            };
-        }
-        final ColumnBufferedDataTableSorter tableSorter;
-        try {
-            tableSorter = new ColumnBufferedDataTableSorter(m_table.getSpec(), m_table.size(), sorting);
-        } catch (InvalidSettingsException e) {
-            throw new IllegalStateException(e);
-        }
-        final MutableLong counter = new MutableLong();
-        final DoubleValue[][] cells = new DoubleValue[2][m_indices.length];
-        tableSorter.sort(m_table, context, new SortingConsumer() {
-            @Override
-            public void consume(final DataRow row) {
-                for (int kindex = 0; kindex < 2; kindex++) {
-                    for (int i = 0; i < m_indices.length; i++) {
-                        if (counter.longValue() == k[kindex][i]) {
-                            DataCell cell = row.getCell(i);
-                            if (cell instanceof DoubleValue) {
-                                DoubleValue dv = (DoubleValue)cell;
-                                cells[kindex][i] = dv;
-                            } else {
-                                cells[kindex][i] = new DoubleCell(Double.NaN);
-                            }
-                        }
-                    }
-                }
-                counter.increment();
-            }
-        });
-        for (int index = m_indices.length; index-- > 0;) {
-            if (cells[0][index] == null || cells[1][index] == null) {
-                //No non-missing rows
-                m_medians[index] = Double.NaN;
-            } else {
-                m_medians[index] = (cells[0][index].getDoubleValue() + cells[1][index].getDoubleValue()) / 2;
+            // selecting the ranks avoids sorting the table; the selector skips missing cells and returns NaN for
+            // ranks beyond the non-missing values, which is where included missing values would be ranked
+            final double[][] values = new RadixQuantileSelector(m_table).select(m_indices, k, context);
+            for (int j = 0; j < m_indices.length; j++) {
+                m_medians[j] = (values[j][0] + values[j][1]) / 2;
             }
         }
+        return m_medians.clone();
     }
 
     /**
@@ -0,0 +1,418 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Selects values of given ranks from {@link DoubleValue} columns of a table without sorting it. The values are
+ * mapped to 64 bit keys that preserve their order; each pass over the table either counts the next 16 bits of the
+ * keys of the remaining candidates in a histogram, which narrows down the candidates of a rank to a single bucket,
+ * or, as soon as the candidates fit into memory, collects them in a primitive array and selects the value with
+ * quickselect. Hence, the memory is bounded independent of the table size. A single rank needs at most five passes
+ * over the table (four histograms and the final collection), usually only one or two. As at most
+ * {@value #MAX_HISTOGRAMS_PER_PASS} histograms are counted per pass, the histograms of more ranks with too many
+ * candidates are deferred to later passes, so selecting many ranks can take more passes.
+ * <p>
+ * The values are ordered as in {@link Double#compare(double, double)}, i.e. {@link Double#NaN} is larger than all
+ * other values. Missing cells are ignored.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class RadixQuantileSelector {
+
+    /** The default maximum number of values that are held in memory in one pass. */
+    public static final int DEFAULT_MAX_VALUES_IN_MEMORY = 1 << 22;
+
+    private static final int DIGIT_BITS = 16;
+
+    private static final int NO_OF_BUCKETS = 1 << DIGIT_BITS;
+
+    /** The maximum number of histograms, each of {@value #NO_OF_BUCKETS} longs, that are created in one pass. */
+    private static final int MAX_HISTOGRAMS_PER_PASS = 32;
+
+    private final BufferedDataTable m_table;
+
+    private final int m_maxValuesInMemory;
+
+    /**
+     * @param table the table to select the values from
+     */
+    public RadixQuantileSelector(final BufferedDataTable table) {
+        this(table, DEFAULT_MAX_VALUES_IN_MEMORY);
+    }
+
+    /**
+     * @param table the table to select the values from
+     * @param maxValuesInMemory the maximum number of values that are held in memory in one pass
+     */
+    public RadixQuantileSelector(final BufferedDataTable table, final int maxValuesInMemory) {
+        if (maxValuesInMemory < 1) {
+            throw new IllegalArgumentException("The number of values in memory must be positive: "
+                + maxValuesInMemory);
+        }
+        m_table = table;
+        m_maxValuesInMemory = maxValuesInMemory;
+    }
+
+    /**
+     * Selects the values of the given ranks.
+     *
+     * @param columnIndices the indices of the {@link DoubleValue} columns
+     * @param ranks the 0-based ranks to select per column, the first dimension corresponds to
+     *            <code>columnIndices</code>
+     * @param exec the monitor to report progress to and to check for cancelation
+     * @return the selected values in the same layout as <code>ranks</code>, {@link Double#NaN} if a rank is not
+     *         smaller than the number of non-missing values of the column
+     * @throws CanceledExecutionException if the execution was canceled
+     * @throws IllegalStateException if a column contains a cell that is neither missing nor a {@link DoubleValue}
+     */
+    public double[][] select(final int[] columnIndices, final long[][] ranks, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        if (columnIndices.length != ranks.length) {
+            throw new IllegalArgumentException("Ranks must be given for each column");
+        }
+        final double[][] result = new double[ranks.length][];
+        final List<Target> targets = new ArrayList<>();
+        for (int i = 0; i < ranks.length; i++) {
+            result[i] = new double[ranks[i].length];
+            for (int j = 0; j < ranks[i].length; j++) {
+                if (ranks[i][j] < 0) {
+                    throw new IllegalArgumentException("Ranks must not be negative: " + ranks[i][j]);
+                }
+                targets.add(new Target(i, j, ranks[i][j], m_table.size()));
+            }
+        }
+        int pass = 0;
+        while (true) {
+            final List<Group> groups = createGroups(targets);
+            if (groups.isEmpty()) {
+                break;
+            }
+            exec.setMessage("Selecting values (pass " + ++pass + ")");
+            scan(columnIndices, groups, exec);
+            for (Group group : groups) {
+                group.evaluate();
+            }
+        }
+        for (Target target : targets) {
+            result[target.m_colIdx][target.m_rankIdx] = target.m_value;
+        }
+        return result;
+    }
+
+    /**
+     * Groups the unresolved targets with the same candidates and decides which of these groups are processed in
+     * the next pass.
+     */
+    private List<Group> createGroups(final List<Target> targets) {
+        final List<Group> groups = new ArrayList<>();
+        for (Target target : targets) {
+            if (target.m_resolved) {
+                continue;
+            }
+            Group group = null;
+            for (Group g : groups) {
+                if (g.accepts(target)) {
+                    group = g;
+                    break;
+                }
+            }
+            if (group == null) {
+                group = new Group(target);
+                groups.add(group);
+            }
+            group.m_targets.add(target);
+        }
+        long remainingValues = m_maxValuesInMemory;
+        int noOfHistograms = 0;
+        final List<Group> scheduled = new ArrayList<>();
+        for (Group group : groups) {
+            if (group.m_candidates <= remainingValues) {
+                group.m_values = new long[(int)group.m_candidates];
+                remainingValues -= group.m_candidates;
+            } else if (noOfHistograms < MAX_HISTOGRAMS_PER_PASS) {
+                group.m_histogram = new long[NO_OF_BUCKETS];
+                noOfHistograms++;
+            } else {
+                // deferred to the next pass
+                continue;
+            }
+            scheduled.add(group);
+        }
+        return scheduled;
+    }
+
+    private void scan(final int[] columnIndices, final List<Group> groups, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        // the groups of each column
+        final Group[][] groupsPerCol = new Group[columnIndices.length][];
+        for (int i = 0; i < columnIndices.length; i++) {
+            final List<Group> colGroups = new ArrayList<>();
+            for (Group group : groups) {
+                if (group.m_colIdx == i) {
+                    colGroups.add(group);
+                }
+            }
+            groupsPerCol[i] = colGroups.toArray(new Group[colGroups.size()]);
+        }
+        final double noOfRows = m_table.size();
+        long rowIdx = 0;
+        for (DataRow row : m_table) {
+            exec.checkCanceled();
+            exec.setProgress(++rowIdx / noOfRows);
+            for (int i = 0; i < columnIndices.length; i++) {
+                if (groupsPerCol[i].length == 0) {
+                    continue;
+                }
+                final DataCell cell = row.getCell(columnIndices[i]);
+                if (cell.isMissing()) {
+                    continue;
+                }
+                if (!(cell instanceof DoubleValue)) {
+                    throw new IllegalStateException("Not a double value: " + cell + " in column: "
+                        + m_table.getSpec().getColumnSpec(columnIndices[i]).getName());
+                }
+                final long key = toKey(((DoubleValue)cell).getDoubleValue());
+                for (Group group : groupsPerCol[i]) {
+                    group.add(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param value a double value
+     * @return a key whose unsigned order corresponds to {@link Double#compare(double, double)}
+     */
+    private static long toKey(final double value) {
+        final long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    /**
+     * @param key a key created by {@link #toKey(double)}
+     * @return the corresponding double value
+     */
+    private static double fromKey(final long key) {
+        final long bits = key ^ Long.MIN_VALUE;
+        return Double.longBitsToDouble(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+    }
+
+    /**
+     * Returns the <code>k</code>th smallest of the first <code>n</code> keys in unsigned order, reordering the
+     * array.
+     */
+    private static long quickSelect(final long[] keys, final int n, final int k) {
+        int left = 0;
+        int right = n - 1;
+        while (left < right) {
+            final long pivot = medianOfThree(keys[left], keys[(left + right) >>> 1], keys[right]);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (Long.compareUnsigned(keys[i], pivot) < 0) {
+                    i++;
+                }
+                while (Long.compareUnsigned(keys[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    final long swap = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                // the values between j and i are equal to the pivot
+                return keys[k];
+            }
+        }
+        return keys[k];
+    }
+
+    private static long medianOfThree(final long a, final long b, final long c) {
+        if (Long.compareUnsigned(a, b) < 0) {
+            if (Long.compareUnsigned(b, c) < 0) {
+                return b;
+            }
+            return Long.compareUnsigned(a, c) < 0 ? c : a;
+        }
+        if (Long.compareUnsigned(a, c) < 0) {
+            return a;
+        }
+        return Long.compareUnsigned(b, c) < 0 ? c : b;
+    }
+
+    /** A rank to select, narrowed down to the keys that start with a common prefix. */
+    private static final class Target {
+
+        private final int m_colIdx;
+
+        private final int m_rankIdx;
+
+        /** The rank among the keys with the prefix. */
+        private long m_rank;
+
+        private long m_prefix;
+
+        /** The number of bits of the prefix. */
+        private int m_prefixLength;
+
+        /** Upper bound for the number of keys with the prefix. */
+        private long m_candidates;
+
+        private boolean m_resolved;
+
+        private double m_value;
+
+        private Target(final int colIdx, final int rankIdx, final long rank, final long candidates) {
+            m_colIdx = colIdx;
+            m_rankIdx = rankIdx;
+            m_rank = rank;
+            m_candidates = candidates;
+        }
+
+        private void resolve(final double value) {
+            m_value = value;
+            m_resolved = true;
+        }
+    }
+
+    /** The targets of a column that share the same candidates. */
+    private static final class Group {
+
+        private final int m_colIdx;
+
+        private final long m_prefix;
+
+        private final int m_prefixLength;
+
+        private final long m_candidates;
+
+        private final List<Target> m_targets = new ArrayList<>();
+
+        /** The collected candidates or <code>null</code> if a histogram is created. */
+        private long[] m_values;
+
+        private int m_noOfValues;
+
+        /** The histogram of the next digit of the candidates or <code>null</code> if they are collected. */
+        private long[] m_histogram;
+
+        private Group(final Target target) {
+            m_colIdx = target.m_colIdx;
+            m_prefix = target.m_prefix;
+            m_prefixLength = target.m_prefixLength;
+            m_candidates = target.m_candidates;
+        }
+
+        private boolean accepts(final Target target) {
+            return target.m_colIdx == m_colIdx && target.m_prefixLength == m_prefixLength
+                && target.m_prefix == m_prefix;
+        }
+
+        private void add(final long key) {
+            if (m_prefixLength > 0 && key >>> (Long.SIZE - m_prefixLength) != m_prefix) {
+                return;
+            }
+            if (m_values != null) {
+                m_values[m_noOfValues++] = key;
+            } else {
+                m_histogram[(int)(key >>> (Long.SIZE - m_prefixLength - DIGIT_BITS)) & (NO_OF_BUCKETS - 1)]++;
+            }
+        }
+
+        private void evaluate() {
+            if (m_values != null) {
+                for (Target target : m_targets) {
+                    if (target.m_rank >= m_noOfValues) {
+                        target.resolve(Double.NaN);
+                    } else {
+                        target.resolve(fromKey(quickSelect(m_values, m_noOfValues, (int)target.m_rank)));
+                    }
+                }
+                return;
+            }
+            for (Target target : m_targets) {
+                long smaller = 0;
+                int digit = 0;
+                while (digit < NO_OF_BUCKETS && smaller + m_histogram[digit] <= target.m_rank) {
+                    smaller += m_histogram[digit];
+                    digit++;
+                }
+                if (digit == NO_OF_BUCKETS) {
+                    // fewer values than the rank
+                    target.resolve(Double.NaN);
+                    continue;
+                }
+                target.m_rank -= smaller;
+                target.m_prefix = (m_prefix << DIGIT_BITS) | digit;
+                target.m_prefixLength = m_prefixLength + DIGIT_BITS;
+                target.m_candidates = m_histogram[digit];
+                if (target.m_prefixLength == Long.SIZE) {
+                    // all candidates are equal
+                    target.resolve(fromKey(target.m_prefix));
+                }
+            }
+        }
+    }
+}
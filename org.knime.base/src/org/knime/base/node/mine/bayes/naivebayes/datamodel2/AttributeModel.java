@@ -287,6 +287,35 @@ void addValue(final String classValue,
     abstract void addValueInternal(final String classValue,
             final DataCell attrValue) throws TooManyValuesException;
 
+    /**
+     * Adds the counts and statistics of the given model, which has been learned on a different part of the
+     * training data, to this model. Merging the partial models of consecutive partitions in partition order
+     * results in the same model as learning on the whole table at once.
+     * @param other the model to merge into this model. Must be of the same type and for the same attribute.
+     * @throws TooManyValuesException if the merged model contains more unique
+     * values than supported by this attribute model
+     */
+    void merge(final AttributeModel other) throws TooManyValuesException {
+        if (other == null) {
+            throw new NullPointerException("Model to merge must not be null");
+        }
+        if (!getType().equals(other.getType()) || !m_attributeName.equals(other.m_attributeName)) {
+            throw new IllegalArgumentException("Model of type " + other.getType() + " for attribute "
+                + other.m_attributeName + " can not be merged into model of type " + getType() + " for attribute "
+                + m_attributeName);
+        }
+        m_noOfMissingVals += other.m_noOfMissingVals;
+        mergeInternal(other);
+    }
+
+    /**
+     * Adds the counts and statistics of the given model of the same type to the concrete implementation.
+     * @param other the model to merge into this model
+     * @throws TooManyValuesException if the merged model contains more unique
+     * values than supported by this attribute model
+     */
+    abstract void mergeInternal(final AttributeModel other) throws TooManyValuesException;
+
     /**
      * @return the noOfMissingVals
      */
@@ -342,15 +371,32 @@ String getMissingValueHeader(final Collection<String>colNames) {
      * one and missing values should be skipped
      */
     Double getProbability(final String classValue, final DataCell attributeValue, final double probabilityThreshold) {
+        checkCompatibility(attributeValue);
+        if (attributeValue.isMissing() && m_ignoreMissingVals) {
+            return null;
+        }
+        return new Double(getProbabilityInternal(classValue, attributeValue, probabilityThreshold));
+    }
+
+    /**
+     * @param attributeValue the attribute value to check
+     * @throws IllegalArgumentException if the value is not compatible with this model
+     */
+    void checkCompatibility(final DataCell attributeValue) {
         if (!isCompatible(attributeValue.getType())) {
             throw new IllegalArgumentException(String.format("Value in column '%s' (%s) is not "
                     + "compatible with attribute model %s (Column type %s)",
                     getAttributeName(), attributeValue, getType(), attributeValue.getType()));
         }
-        if (attributeValue.isMissing() && m_ignoreMissingVals) {
-            return null;
-        }
-        return new Double(getProbabilityInternal(classValue, attributeValue, probabilityThreshold));
+    }
+
+    /**
+     * Computes all lazily initialized values that are needed by
+     * {@link #getProbabilityInternal(String, DataCell, double)}, so that the model is not modified during prediction
+     * and can be used by several threads concurrently. The default implementation does nothing.
+     */
+    void prepareForPrediction() {
+        // no lazily initialized values by default
     }
 
     /**
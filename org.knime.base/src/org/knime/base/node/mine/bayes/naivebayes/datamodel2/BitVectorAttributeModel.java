@@ -203,15 +203,32 @@ private void addValue(final DataCell attrValue) {
                 } else if (bitVec.length() != m_bitCounts.length) {
                     throw new IllegalArgumentException("Illegal bit vector length");
                 }
-                for (int i = 0; i < m_bitCounts.length; i++) {
-                    if (bitVec.get(i)) {
-                        m_bitCounts[i] += 1;
-                    }
+                for (long i = bitVec.nextSetBit(0); i >= 0; i = bitVec.nextSetBit(i + 1)) {
+                    m_bitCounts[(int)i] += 1;
                 }
             }
             m_noOfRows++;
         }
 
+        /**
+         * @param other the counts of the same class value to add to this one
+         */
+        private void merge(final BitVectorClassValue other) {
+            if (other.m_bitCounts != null) {
+                if (m_bitCounts == null) {
+                    m_bitCounts = other.m_bitCounts.clone();
+                } else if (other.m_bitCounts.length != m_bitCounts.length) {
+                    throw new IllegalArgumentException("Illegal bit vector length");
+                } else {
+                    for (int i = 0; i < m_bitCounts.length; i++) {
+                        m_bitCounts[i] += other.m_bitCounts[i];
+                    }
+                }
+            }
+            m_missingValueRecs.add(other.m_missingValueRecs.intValue());
+            m_noOfRows += other.m_noOfRows;
+        }
+
         /**
          * @param attributeValue the attribute value to calculate the probability for
          * @param probabilityThreshold the probability to use in lieu of P(Ij | Tk) when count[IjTi] is zero for
@@ -442,6 +459,21 @@ void addValueInternal(final String classValue, final DataCell attrValue)
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void mergeInternal(final AttributeModel other) {
+        for (final BitVectorClassValue otherClassObject : ((BitVectorAttributeModel)other).m_classValues.values()) {
+            BitVectorClassValue classObject = m_classValues.get(otherClassObject.m_classValue);
+            if (classObject == null) {
+                classObject = new BitVectorClassValue(otherClassObject.m_classValue);
+                m_classValues.put(otherClassObject.m_classValue, classObject);
+            }
+            classObject.merge(otherClassObject);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
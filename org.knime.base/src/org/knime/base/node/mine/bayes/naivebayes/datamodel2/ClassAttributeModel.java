@@ -267,6 +267,28 @@ void addValueInternal(final String classValue,
         m_totalNoOfRecs++;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void mergeInternal(final AttributeModel other) throws TooManyValuesException {
+        final ClassAttributeModel otherModel = (ClassAttributeModel)other;
+        for (final Map.Entry<String, MutableInteger> entry : otherModel.m_recsCounterByClassVal.entrySet()) {
+            final String classValue = entry.getKey();
+            MutableInteger classCounter = m_recsCounterByClassVal.get(classValue);
+            if (classCounter == null) {
+                if (m_recsCounterByClassVal.size() > m_maxNoOfClassVals) {
+                    throw new TooManyValuesException("Class value "
+                            + classValue + " doesn't fit into model");
+                }
+                classCounter = new MutableInteger(0);
+                m_recsCounterByClassVal.put(classValue, classCounter);
+            }
+            classCounter.add(entry.getValue().intValue());
+        }
+        m_totalNoOfRecs += otherModel.m_totalNoOfRecs;
+    }
+
     /**
      * {@inheritDoc}
      */
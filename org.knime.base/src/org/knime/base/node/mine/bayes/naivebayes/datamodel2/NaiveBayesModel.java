@@ -49,6 +49,7 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -91,6 +92,9 @@
 import org.knime.core.node.config.ConfigWO;
 import org.knime.core.node.port.pmml.PMMLDataDictionaryTranslator;
 import org.knime.core.node.port.pmml.preproc.DerivedFieldMapper;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ParallelTasks.Task;
+import org.knime.core.util.ThreadPool;
 
 
 /**
@@ -145,6 +149,11 @@ public class NaiveBayesModel {
 
     private BufferedDataTable m_statisticsTable;
 
+    /**
+     * The number of rows that are learned by a single partial model if the model is learned concurrently.
+     */
+    private static final int ROWS_PER_PARTIAL_MODEL = 10000;
+
     /**Constructor which iterates through the <code>DataTable</code> to
      * calculate the needed Bayes variables.
      *
@@ -168,17 +177,44 @@ public NaiveBayesModel(final BufferedDataTable data, final String classColName,
             final int maxNoOfNominalVals, final boolean ignoreMissingVals, final boolean pmmlCompatible,
             final double probabilityThreshold)
         throws CanceledExecutionException, InvalidSettingsException {
+        this(getTrainingTableSpec(data), classColName, maxNoOfNominalVals, ignoreMissingVals, pmmlCompatible,
+            probabilityThreshold);
         if (exec == null) {
             throw new IllegalArgumentException("exec must not be null");
         }
+        final int classColIdx = data.getDataTableSpec().findColumnIndex(m_classColName);
+        exec.setMessage("Building model");
+        final ExecutionMonitor subExec = exec.createSubProgress(0.8);
+        createModel(data, subExec, classColIdx, maxNoOfNominalVals, pmmlCompatible);
+        exec.setMessage("Model created");
+        exec.checkCanceled();
+        finishModel(exec);
+    }
+
+    /**Constructor for an empty model that is filled row by row via
+     * {@link #updateModel(DataRow, DataTableSpec, int)}. Models that have been learned on different parts of the
+     * training data can be combined via {@link #merge(NaiveBayesModel)}. Once all rows have been added
+     * {@link #finishModel(ExecutionContext)} needs to be called to validate the model.
+     *
+     * @param tableSpec the {@link DataTableSpec} of the training data
+     * @param classColName The name of the column with the class
+     * @param maxNoOfNominalVals the maximum number of supported unique
+     * nominal attribute values
+     * @param ignoreMissingVals set to <code>true</code> if the missing values
+     * should be ignored during learning and prediction
+     * @param pmmlCompatible flag that indicates that a PMML compatible model should be learned
+     * @param probabilityThreshold the probability to use in lieu of P(Ij | Tk) when count[IjTi] is zero for
+     * categorical fields or when the calculated probability of the distribution falls below the threshold for
+     * continuous fields.
+     * @since 3.6
+     */
+    public NaiveBayesModel(final DataTableSpec tableSpec, final String classColName, final int maxNoOfNominalVals,
+        final boolean ignoreMissingVals, final boolean pmmlCompatible, final double probabilityThreshold) {
         if (probabilityThreshold < 0) {
             throw new IllegalArgumentException("Probability threshold should be positive");
         }
-        if (data == null) {
-            throw new NullPointerException("Training table must not be null.");
-        }
-        if (data.size() < 1) {
-            throw new InvalidSettingsException("Input data contains no rows");
+        if (tableSpec == null) {
+            throw new NullPointerException("TableSpec must not be null");
         }
         if (classColName == null) {
             throw new NullPointerException("Class column must not be null.");
@@ -186,7 +222,6 @@ public NaiveBayesModel(final BufferedDataTable data, final String classColName,
         if (maxNoOfNominalVals < 0) {
             throw new IllegalArgumentException("The maximum number of unique nominal values must be greater zero");
         }
-        final DataTableSpec tableSpec = data.getDataTableSpec();
         final int classColIdx = tableSpec.findColumnIndex(classColName);
         if (classColIdx < 0) {
             throw new IllegalArgumentException("Class column not found in table specification");
@@ -202,14 +237,31 @@ public NaiveBayesModel(final BufferedDataTable data, final String classColName,
             ignoreMissingVals, pmmlCompatible);
         m_pmmlZeroProbThreshold = probabilityThreshold;
         //end of initialise all internal variable
-        ExecutionMonitor subExec = null;
-        exec.setMessage("Building model");
-        subExec = exec.createSubProgress(0.8);
-        createModel(data, subExec, classColIdx);
-        exec.setMessage("Model created");
-        exec.checkCanceled();
+    }
+
+    private static DataTableSpec getTrainingTableSpec(final BufferedDataTable data) throws InvalidSettingsException {
+        if (data == null) {
+            throw new NullPointerException("Training table must not be null.");
+        }
+        if (data.size() < 1) {
+            throw new InvalidSettingsException("Input data contains no rows");
+        }
+        return data.getDataTableSpec();
+    }
+
+    /**
+     * Validates the model and creates the statistics table. Needs to be called once after all training rows
+     * have been added to a model that was created via
+     * {@link #NaiveBayesModel(DataTableSpec, String, int, boolean, boolean, double)}.
+     *
+     * @param exec the <code>ExecutionContext</code> to provide progress
+     * information, check for cancel and create the statistics table
+     * @throws CanceledExecutionException if the user presses the cancel button
+     * @since 3.6
+     */
+    public void finishModel(final ExecutionContext exec) throws CanceledExecutionException {
         exec.setMessage("Validating model");
-        subExec = exec.createSubProgress(0.1);
+        ExecutionMonitor subExec = exec.createSubProgress(0.1);
         validateModel(subExec);
         exec.checkCanceled();
         subExec.setProgress(1, "Model validated");
@@ -228,6 +280,7 @@ public NaiveBayesModel(final BufferedDataTable data, final String classColName,
             exec.checkCanceled();
             final ExecutionMonitor subSubExec = subExec.createSubProgress(1.0 / m_modelByAttrName.size());
             model.createDataRows(subSubExec, nodc, m_ignoreMissingVals, rowId);
+            counter++;
         }
         nodc.close();
         m_statisticsTable = nodc.getTable();
@@ -317,24 +370,59 @@ public static AttributeModel getCompatibleModel(final DataColumnSpec colSpec, fi
         return null;
     }
 
-    private void createModel(final BufferedDataTable data, final ExecutionMonitor exec, final int classColIdx)
+    private void createModel(final BufferedDataTable data, final ExecutionMonitor exec, final int classColIdx,
+        final int maxNoOfNominalVals, final boolean pmmlCompatible)
             throws InvalidSettingsException, CanceledExecutionException {
         final DataTableSpec tableSpec = data.getDataTableSpec();
         final double noOfRows = data.size();
-        long progress = 0;
-        //start to proceed row by row
-        for (final DataRow row : data) {
-            updateModel(row, tableSpec, classColIdx);
-            if (exec != null) {
-                exec.setProgress(progress / noOfRows);
-                exec.checkCanceled();
+        if (ThreadPool.currentPool() == null || Runtime.getRuntime().availableProcessors() < 2
+            || noOfRows < 2 * ROWS_PER_PARTIAL_MODEL) {
+            long progress = 0;
+            //start to proceed row by row
+            for (final DataRow row : data) {
+                updateModel(row, tableSpec, classColIdx);
+                if (exec != null) {
+                    exec.setProgress(++progress / noOfRows);
+                    exec.checkCanceled();
+                }
             }
+        } else {
+            //the chunks of the table are learned concurrently by partial models that are merged in the order
+            //of the chunks, which results in the same model as learning row by row
+            final Iterator<DataRow> rows = data.iterator();
+            final long[] progress = new long[1];
+            ParallelTasks.<NaiveBayesModel, InvalidSettingsException> invokeOrdered(() -> {
+                if (exec != null) {
+                    exec.setProgress(progress[0] / noOfRows);
+                    exec.checkCanceled();
+                }
+                final List<DataRow> chunk = new ArrayList<>(ROWS_PER_PARTIAL_MODEL);
+                while (chunk.size() < ROWS_PER_PARTIAL_MODEL && rows.hasNext()) {
+                    chunk.add(rows.next());
+                }
+                progress[0] += chunk.size();
+                return chunk.isEmpty() ? null
+                    : createPartialModel(chunk, tableSpec, classColIdx, maxNoOfNominalVals, pmmlCompatible);
+            }, this::merge);
         }
         if (exec != null) {
             exec.setProgress(1.0, "\'Naive Bayesian\' created ");
         }
     }
 
+    private Task<NaiveBayesModel, InvalidSettingsException> createPartialModel(final List<DataRow> rows,
+        final DataTableSpec tableSpec, final int classColIdx, final int maxNoOfNominalVals,
+        final boolean pmmlCompatible) {
+        return () -> {
+            final NaiveBayesModel partialModel = new NaiveBayesModel(tableSpec, m_classColName, maxNoOfNominalVals,
+                m_ignoreMissingVals, pmmlCompatible, m_pmmlZeroProbThreshold.doubleValue());
+            for (final DataRow row : rows) {
+                partialModel.updateModel(row, tableSpec, classColIdx);
+            }
+            return partialModel;
+        };
+    }
+
     /**
      * Updates the current {@link NaiveBayesModel} with the values from the
      * given {@link DataRow}.
@@ -370,18 +458,60 @@ public void updateModel(final DataRow row, final DataTableSpec tableSpec,
                 try {
                     model.addValue(classVal, cell);
                 } catch (final TooManyValuesException e) {
-                    if (model instanceof ClassAttributeModel) {
-                        throw new InvalidSettingsException("Class attribute has too many unique values. "
-                                + "To avoid this exception increase the maximum number of allowed nominal "
-                                + "values in the node dialog");
-                    }
-                    //delete the model if it contains too many unique values
-                    m_modelByAttrName.remove(model.getAttributeName());
-                    model.setInvalidCause("Too many values");
+                    skipModelWithTooManyValues(model);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the given model, which has been learned on another part of the training data, into this model.
+     * Merging the models of consecutive parts of the training data in the order of the parts results in the same
+     * model as learning all rows at once.
+     * @param other the model to merge into this model. Must have been learned on data with the same table
+     * specification and settings.
+     * @throws InvalidSettingsException if the class attribute has too many unique values
+     * @since 3.6
+     */
+    public void merge(final NaiveBayesModel other) throws InvalidSettingsException {
+        if (other == null) {
+            throw new NullPointerException("Model to merge must not be null");
+        }
+        if (!m_classColName.equals(other.m_classColName)) {
+            throw new IllegalArgumentException("Model for class column " + other.m_classColName
+                + " can not be merged into model for class column " + m_classColName);
+        }
+        if (other.m_skippedAttributes != null) {
+            for (final AttributeModel skippedModel : other.m_skippedAttributes) {
+                final AttributeModel model = m_modelByAttrName.remove(skippedModel.getAttributeName());
+                if (model != null) {
+                    model.setInvalidCause(skippedModel.getInvalidCause());
                     m_skippedAttributes.add(model);
                 }
             }
         }
+        for (final AttributeModel otherModel : other.m_modelByAttrName.values()) {
+            final AttributeModel model = m_modelByAttrName.get(otherModel.getAttributeName());
+            if (model != null) {
+                try {
+                    model.merge(otherModel);
+                } catch (final TooManyValuesException e) {
+                    skipModelWithTooManyValues(model);
+                }
+            }
+        }
+    }
+
+    private void skipModelWithTooManyValues(final AttributeModel model) throws InvalidSettingsException {
+        if (model instanceof ClassAttributeModel) {
+            throw new InvalidSettingsException("Class attribute has too many unique values. "
+                    + "To avoid this exception increase the maximum number of allowed nominal "
+                    + "values in the node dialog");
+        }
+        //delete the model if it contains too many unique values
+        m_modelByAttrName.remove(model.getAttributeName());
+        model.setInvalidCause("Too many values");
+        m_skippedAttributes.add(model);
     }
 
 
@@ -953,6 +1083,53 @@ public DataCell getMostLikelyClassCell(final String[] attributeNames, final Data
         return createPredictedClassCell(getClassColumnDataType(), mostLikelyClass);
     }
 
+    /**
+     * Creates a classifier that computes the class probabilities and the most likely class of rows with the given
+     * attributes more efficiently than {@link #getClassProbabilities(String[], DataRow, List, boolean)} and
+     * {@link #getMostLikelyClassCell(String[], DataRow)}. The classifier can be used by several threads concurrently.
+     * @param attributeNames the attribute names in the same order
+     * they appear in the rows to classify
+     * @return the classifier for rows with the given attributes. The class values are in the order of
+     * {@link #getSortedClassValues()}.
+     * @since 3.6
+     */
+    public NaiveBayesRowClassifier createRowClassifier(final String[] attributeNames) {
+        if (attributeNames == null) {
+            throw new NullPointerException("ColumSpec must not be null");
+        }
+        final AttributeModel[] models = new AttributeModel[attributeNames.length];
+        for (int i = 0; i < attributeNames.length; i++) {
+            final AttributeModel model = m_modelByAttrName.get(attributeNames[i]);
+            //skip unknown attributes and the class value column
+            if (model != null && !(model instanceof ClassAttributeModel)) {
+                model.prepareForPrediction();
+                models[i] = model;
+            }
+        }
+        final List<String> sortedClassValues = getSortedClassValues();
+        final String[] classValues = sortedClassValues.toArray(new String[sortedClassValues.size()]);
+        final DataCell[] classCells = new DataCell[classValues.length];
+        final double[] priorProbabilities = new double[classValues.length];
+        for (int c = 0; c < classValues.length; c++) {
+            classCells[c] = createPredictedClassCell(getClassColumnDataType(), classValues[c]);
+            priorProbabilities[c] = getClassPriorProbability(classValues[c]);
+        }
+        final Collection<String> modelClassValues = getClassValues();
+        final int[] modelOrder = new int[modelClassValues.size()];
+        int idx = 0;
+        for (final String classValue : modelClassValues) {
+            modelOrder[idx++] = sortedClassValues.indexOf(classValue);
+        }
+        final double probabilityThreshold;
+        if (m_pmmlZeroProbThreshold.isNaN()) {
+            probabilityThreshold = 0;
+        } else {
+            probabilityThreshold = m_pmmlZeroProbThreshold.doubleValue();
+        }
+        return new NaiveBayesRowClassifier(models, classValues, classCells, priorProbabilities, modelOrder,
+            probabilityThreshold, m_pmmlZeroProbThreshold.doubleValue());
+    }
+
     /**
      * @param dataType the {@link DataType} to convert to
      * @param val the value to convert
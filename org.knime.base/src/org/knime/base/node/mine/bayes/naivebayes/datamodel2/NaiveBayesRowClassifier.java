@@ -0,0 +1,210 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.bayes.naivebayes.datamodel2;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+
+/**
+ * Computes the class probabilities and the most likely class of rows with a fixed column layout using a
+ * {@link NaiveBayesModel}. The attribute model of each column, the class prior probabilities and the class cells are
+ * resolved once when the classifier is created, and the probabilities of all class values are computed in a single
+ * pass over the row. The results are identical to the ones of
+ * {@link NaiveBayesModel#getClassProbabilities(String[], DataRow, java.util.List, boolean)} and
+ * {@link NaiveBayesModel#getMostLikelyClassCell(String[], DataRow)}.
+ * <p>
+ * Instances are immutable and can be used by several threads concurrently.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @see NaiveBayesModel#createRowClassifier(String[])
+ * @since 3.6
+ */
+public final class NaiveBayesRowClassifier {
+
+    /** The attribute model per column or <code>null</code> if the column is skipped. */
+    private final AttributeModel[] m_models;
+
+    /** The class values in their natural order. */
+    private final String[] m_classValues;
+
+    /** The class cells in the same order as {@link #m_classValues}. */
+    private final DataCell[] m_classCells;
+
+    private final double[] m_priorProbabilities;
+
+    private final double[] m_logPriorProbabilities;
+
+    /**
+     * The indices of the class values in the order of the class attribute model, which determines the winner if
+     * several classes have the same probability.
+     */
+    private final int[] m_modelOrder;
+
+    private final double m_probabilityThreshold;
+
+    private final double m_zeroProbability;
+
+    /**
+     * @param models the attribute model per column or <code>null</code> if the column should be skipped
+     * @param classValues the class values in their natural order
+     * @param classCells the class cells in the same order as the class values
+     * @param priorProbabilities the prior probabilities of the class values
+     * @param modelOrder the indices of the class values in the order of the class attribute model
+     * @param probabilityThreshold the probability threshold to pass to the attribute models
+     * @param zeroProbability the probability to use if an attribute model returns a probability of zero
+     */
+    NaiveBayesRowClassifier(final AttributeModel[] models, final String[] classValues, final DataCell[] classCells,
+        final double[] priorProbabilities, final int[] modelOrder, final double probabilityThreshold,
+        final double zeroProbability) {
+        m_models = models;
+        m_classValues = classValues;
+        m_classCells = classCells;
+        m_priorProbabilities = priorProbabilities;
+        m_logPriorProbabilities = new double[priorProbabilities.length];
+        for (int c = 0; c < priorProbabilities.length; c++) {
+            m_logPriorProbabilities[c] = Math.log(priorProbabilities[c]);
+        }
+        m_modelOrder = modelOrder;
+        m_probabilityThreshold = probabilityThreshold;
+        m_zeroProbability = zeroProbability;
+    }
+
+    /**
+     * @return the number of class values
+     */
+    public int getNoOfClassValues() {
+        return m_classValues.length;
+    }
+
+    /**
+     * @param classIdx the index of the class value
+     * @return the class value with the given index in the natural order of the class values
+     */
+    public String getClassValue(final int classIdx) {
+        return m_classValues[classIdx];
+    }
+
+    /**
+     * @param classIdx the index of the class value
+     * @return the {@link DataCell} of the class value with the given index
+     */
+    public DataCell getClassCell(final int classIdx) {
+        return m_classCells[classIdx];
+    }
+
+    /**
+     * Computes the normalized probability of each class value for the given row and returns the index of the most
+     * likely class value.
+     *
+     * @param row the row with the attributes in the order of the attribute names the classifier was created for
+     * @param probabilities the array to write the probability of each class value to in the natural order of the
+     *            class values. Must have at least {@link #getNoOfClassValues()} entries.
+     * @return the index of the most likely class value
+     */
+    public int classify(final DataRow row, final double[] probabilities) {
+        if (row == null) {
+            throw new NullPointerException("Row must not be null");
+        }
+        if (m_models.length != row.getNumCells()) {
+            throw new IllegalArgumentException("Attribute names array and data row must be the same size");
+        }
+        final int noOfClasses = m_classValues.length;
+        //the logs are summed up in the same order as in the model to get identical results
+        System.arraycopy(m_logPriorProbabilities, 0, probabilities, 0, noOfClasses);
+        for (int i = 0; i < m_models.length; i++) {
+            final AttributeModel model = m_models[i];
+            if (model == null) {
+                continue;
+            }
+            final DataCell cell = row.getCell(i);
+            model.checkCompatibility(cell);
+            if (cell.isMissing() && model.ignoreMissingVals()) {
+                continue;
+            }
+            for (int c = 0; c < noOfClasses; c++) {
+                double probability = model.getProbabilityInternal(m_classValues[c], cell, m_probabilityThreshold);
+                if (probability <= 0) {
+                    probability = m_zeroProbability;
+                }
+                probabilities[c] += Math.log(probability);
+            }
+        }
+        double sum = 0;
+        for (int c = 0; c < noOfClasses; c++) {
+            probabilities[c] = Math.exp(probabilities[c]);
+            sum += probabilities[c];
+        }
+        int mostLikelyClass = getMostLikelyClass(probabilities, -1);
+        if (mostLikelyClass >= 0 && probabilities[mostLikelyClass] == 0) {
+            //all classes have a combined probability of zero for this row ->
+            //use only the prior probability
+            mostLikelyClass = getMostLikelyClass(m_priorProbabilities, 0);
+        }
+        if (sum == 0) {
+            System.arraycopy(m_priorProbabilities, 0, probabilities, 0, noOfClasses);
+        } else {
+            for (int c = 0; c < noOfClasses; c++) {
+                probabilities[c] = probabilities[c] / sum;
+            }
+        }
+        if (mostLikelyClass < 0) {
+            throw new IllegalStateException("Most likely class must not be null");
+        }
+        return mostLikelyClass;
+    }
+
+    private int getMostLikelyClass(final double[] probabilities, final double minProbability) {
+        double maxProbability = minProbability;
+        int mostLikelyClass = -1;
+        for (final int c : m_modelOrder) {
+            if (probabilities[c] >= maxProbability) {
+                maxProbability = probabilities[c];
+                mostLikelyClass = c;
+            }
+        }
+        return mostLikelyClass;
+    }
+}
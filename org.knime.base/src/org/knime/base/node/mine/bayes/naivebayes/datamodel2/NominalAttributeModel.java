@@ -197,6 +197,22 @@ private void addCount(final String attributeValue, final int rowCount) {
             m_noOfRows += rowCount;
         }
 
+        /**
+         * @param other the counts of the same class value to add to this one
+         */
+        private void merge(final NominalClassValue other) {
+            for (final Map.Entry<String, MutableInteger> entry : other.m_recsByAttrValue.entrySet()) {
+                final MutableInteger counter = m_recsByAttrValue.get(entry.getKey());
+                if (counter == null) {
+                    m_recsByAttrValue.put(entry.getKey(), new MutableInteger(entry.getValue().intValue()));
+                } else {
+                    counter.add(entry.getValue().intValue());
+                }
+            }
+            m_missingValueRecs.add(other.getNoOfMissingValueRecs());
+            m_noOfRows += other.m_noOfRows;
+        }
+
         /**
          * @return the classValue
          */
@@ -453,6 +469,31 @@ void addValueInternal(final String classValue,
         classObject.addValue(attrValue);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void mergeInternal(final AttributeModel other) throws TooManyValuesException {
+        final NominalAttributeModel otherModel = (NominalAttributeModel)other;
+        for (final String attrValString : otherModel.m_attributeVals) {
+            if (!m_attributeVals.contains(attrValString)) {
+                //check the different number of attribute values
+                if (m_attributeVals.size() >= getMaxNoOfAttrVals()) {
+                    throw new TooManyValuesException("Attribute value " + attrValString + " doesn't fit into model");
+                }
+                m_attributeVals.add(attrValString);
+            }
+        }
+        for (final NominalClassValue otherClassObject : otherModel.m_classValues.values()) {
+            NominalClassValue classObject = m_classValues.get(otherClassObject.getClassValue());
+            if (classObject == null) {
+                classObject = new NominalClassValue(otherClassObject.getClassValue(), 0);
+                m_classValues.put(classObject.getClassValue(), classObject);
+            }
+            classObject.merge(otherClassObject);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -263,6 +263,17 @@ private void addValue(final DataCell attrVal) {
             m_noOfRows++;
         }
 
+        /**
+         * @param other the statistics of the same class value to add to this one
+         */
+        private void merge(final NumericalClassValue other) {
+            m_noOfRows += other.m_noOfRows;
+            m_sum += other.m_sum;
+            m_squareSum += other.m_squareSum;
+            m_missingValueRecs.add(other.getNoOfMissingValueRecs());
+            m_recompute = true;
+        }
+
         /**
          * @param attrVal the attribute value to calculate the probability for
          * @param probabilityThreshold the probability to use in lieu of P(Ij | Tk) when count[IjTi] is zero for
@@ -501,6 +512,33 @@ void addValueInternal(final String classValue,
         classObject.addValue(attrValue);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void prepareForPrediction() {
+        for (final NumericalClassValue classValue : m_classValues.values()) {
+            if (classValue.m_recompute && classValue.getNoOfNotMissingRows() > 0) {
+                classValue.calculateProbabilityValues();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void mergeInternal(final AttributeModel other) {
+        for (final NumericalClassValue otherClassObject : ((NumericalAttributeModel)other).m_classValues.values()) {
+            NumericalClassValue classObject = m_classValues.get(otherClassObject.getClassValue());
+            if (classObject == null) {
+                classObject = new NumericalClassValue(otherClassObject.getClassValue());
+                m_classValues.put(classObject.getClassValue(), classObject);
+            }
+            classObject.merge(otherClassObject);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -44,6 +44,10 @@
  */
 package org.knime.base.node.mine.bayes.naivebayes.learner2;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -59,6 +63,7 @@
 import org.knime.base.node.mine.bayes.naivebayes.datamodel2.PMMLNaiveBayesModelTranslator;
 import org.knime.core.data.DataColumnDomain;
 import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.NominalValue;
@@ -81,9 +86,21 @@
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
 import org.knime.core.node.port.PortType;
+import org.knime.core.node.port.PortUtil;
 import org.knime.core.node.port.pmml.PMMLPortObject;
 import org.knime.core.node.port.pmml.PMMLPortObjectSpec;
 import org.knime.core.node.port.pmml.PMMLPortObjectSpecCreator;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.MergeOperator;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortObjectInput;
+import org.knime.core.node.streamable.PortObjectOutput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.knime.core.node.streamable.StreamableOperatorInternals;
 
 /**
  * This is the <code>NodeModel</code> implementation of the
@@ -133,6 +150,11 @@ public class NaiveBayesLearnerNodeModel2 extends NodeModel {
      */
     public static final int BAYES_MODEL_PORT = 0;
 
+    /**
+     * The number of the statistics table out put port.
+     */
+    private static final int STATISTICS_PORT = 1;
+
     private final SettingsModelString m_classifyColumnName = createClassifyColumnModel();
 
     private final SettingsModelBoolean m_pmmlCompatible = createPMMLCompatibilityFlagModel();
@@ -335,6 +357,20 @@ protected PortObject[] execute(final PortObject[] inData, final ExecutionContext
         final int maxNoOfNomVals = m_maxNoOfNominalVals.getIntValue();
         m_model = new NaiveBayesModel(trainingTable, m_classifyColumnName.getStringValue(), exec, maxNoOfNomVals,
             ignoreMissingVals, pmmlCompatible, m_threshold.getDoubleValue());
+        LOGGER.debug("Exiting execute of " + NaiveBayesLearnerNodeModel2.class.getName());
+
+        // handle the optional PMML input
+        final PMMLPortObject inPMMLPort = m_pmmlInEnabled ? (PMMLPortObject)inData[MODEL_INPORT] : null;
+        return createOutput(inPMMLPort, trainingTable.getSpec());
+    }
+
+    /**
+     * Sets the warning messages of the learned model and creates the output port objects.
+     * @param inPMMLPort the optional PMML input port object or <code>null</code>
+     * @param tableSpec the specification of the training data
+     * @return the PMML model and the statistics table
+     */
+    private PortObject[] createOutput(final PMMLPortObject inPMMLPort, final DataTableSpec tableSpec) {
         final List<String> missingModels = m_model.getAttributesWithMissingVals();
         if (missingModels.size() > 0) {
             final StringBuilder buf = new StringBuilder();
@@ -354,11 +390,6 @@ protected PortObject[] execute(final PortObject[] inData, final ExecutionContext
         if (m_model.containsSkippedAttributes()) {
             setWarningMessage(m_model.getSkippedAttributesString(3));
         }
-        LOGGER.debug("Exiting execute of " + NaiveBayesLearnerNodeModel2.class.getName());
-
-        // handle the optional PMML input
-        final PMMLPortObject inPMMLPort = m_pmmlInEnabled ? (PMMLPortObject)inData[MODEL_INPORT] : null;
-        final DataTableSpec tableSpec = trainingTable.getSpec();
         final PMMLPortObjectSpec outPortSpec = createPMMLSpec(tableSpec,
             inPMMLPort == null ? null : inPMMLPort.getSpec(),
                 m_model.getPMMLLearningCols(), m_model.getClassColumnName());
@@ -367,6 +398,207 @@ protected PortObject[] execute(final PortObject[] inData, final ExecutionContext
         return new PortObject[]{outPMMLPort, m_model.getStatisticsTable()};
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputPortRole[] getInputPortRoles() {
+        final InputPortRole[] inputPortRoles = super.getInputPortRoles();
+        inputPortRoles[TRAINING_DATA_PORT] = InputPortRole.DISTRIBUTED_STREAMABLE;
+        return inputPortRoles;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+        final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        return new StreamableOperator() {
+
+            private StreamInternalsForNaiveBayesModel m_internals;
+
+            @Override
+            public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+                throws Exception {
+                final RowInput rowInput = (RowInput)inputs[TRAINING_DATA_PORT];
+                final DataTableSpec tableSpec = rowInput.getDataTableSpec();
+                final String classColumn = m_classifyColumnName.getStringValue();
+                final int classColIdx = tableSpec.findColumnIndex(classColumn);
+                //learn a partial model on this partition which is merged with the models of the other partitions
+                final NaiveBayesModel partialModel = new NaiveBayesModel(tableSpec, classColumn,
+                    m_maxNoOfNominalVals.getIntValue(), m_ignoreMissingVals.getBooleanValue(),
+                    m_pmmlCompatible.getBooleanValue(), m_threshold.getDoubleValue());
+                long rowCount = 0;
+                DataRow row;
+                while ((row = rowInput.poll()) != null) {
+                    partialModel.updateModel(row, tableSpec, classColIdx);
+                    exec.setMessage("Processing row " + ++rowCount);
+                    exec.checkCanceled();
+                }
+                rowInput.close();
+                PMMLPortObject inPMMLPort = null;
+                if (m_pmmlInEnabled && inputs[MODEL_INPORT] != null) {
+                    inPMMLPort = (PMMLPortObject)((PortObjectInput)inputs[MODEL_INPORT]).getPortObject();
+                }
+                m_internals = new StreamInternalsForNaiveBayesModel().setContent(tableSpec, partialModel, inPMMLPort);
+            }
+
+            @Override
+            public StreamableOperatorInternals saveInternals() {
+                return m_internals;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MergeOperator createMergeOperator() {
+        return new MergeOperator() {
+            @Override
+            public StreamableOperatorInternals mergeFinal(final StreamableOperatorInternals[] operators) {
+                //the partitions are merged in their order which results in the same model as
+                //learning the whole table at once
+                final StreamInternalsForNaiveBayesModel merged = (StreamInternalsForNaiveBayesModel)operators[0];
+                for (int i = 1; i < operators.length; i++) {
+                    try {
+                        merged.getModel().merge(((StreamInternalsForNaiveBayesModel)operators[i]).getModel());
+                    } catch (final InvalidSettingsException e) {
+                        throw new IllegalStateException(e.getMessage(), e);
+                    }
+                }
+                return merged;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finishStreamableExecution(final StreamableOperatorInternals internals, final ExecutionContext exec,
+        final PortOutput[] output) throws Exception {
+        final StreamInternalsForNaiveBayesModel modelInternals = (StreamInternalsForNaiveBayesModel)internals;
+        m_model = modelInternals.getModel();
+        if (m_model.getNoOfRecs() < 1) {
+            throw new InvalidSettingsException("Input data contains no rows");
+        }
+        m_model.finishModel(exec);
+        final PortObject[] outObjects = createOutput(modelInternals.getPMMLInPort(), modelInternals.getTableSpec());
+        ((PortObjectOutput)output[BAYES_MODEL_PORT]).setPortObject(outObjects[BAYES_MODEL_PORT]);
+        ((RowOutput)output[STATISTICS_PORT]).setFully((BufferedDataTable)outObjects[STATISTICS_PORT]);
+    }
+
+    /**
+     * The partial Naive Bayes model of a partition of the training data together with the training data
+     * specification and the optional PMML input that are needed to create the output.
+     * This should be private, but cannot be unfortunately because it's deserialized by the framework.
+     * @noinstantiate This class is not intended to be instantiated by clients.
+     * @noreference This class is not intended to be referenced by clients.
+     * @since 3.6
+     */
+    public static final class StreamInternalsForNaiveBayesModel extends StreamableOperatorInternals {
+
+        private static final String CFG_TABLE_SPEC = "tableSpec";
+
+        private DataTableSpec m_tableSpec;
+
+        private NaiveBayesModel m_model;
+
+        private PMMLPortObject m_pmmlInPort;
+
+        /**
+         * Creates empty internals.
+         */
+        public StreamInternalsForNaiveBayesModel() {
+        }
+
+        /**
+         * @param tableSpec the specification of the training data
+         * @param model the partial model
+         * @param pmmlInPort the optional PMML input port object or <code>null</code>
+         * @return this object
+         */
+        StreamInternalsForNaiveBayesModel setContent(final DataTableSpec tableSpec, final NaiveBayesModel model,
+            final PMMLPortObject pmmlInPort) {
+            m_tableSpec = tableSpec;
+            m_model = model;
+            m_pmmlInPort = pmmlInPort;
+            return this;
+        }
+
+        /**
+         * @return the specification of the training data
+         */
+        DataTableSpec getTableSpec() {
+            return m_tableSpec;
+        }
+
+        /**
+         * @return the partial model
+         */
+        NaiveBayesModel getModel() {
+            return m_model;
+        }
+
+        /**
+         * @return the optional PMML input port object or <code>null</code>
+         */
+        PMMLPortObject getPMMLInPort() {
+            return m_pmmlInPort;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void load(final DataInputStream input) throws IOException {
+            m_pmmlInPort = null;
+            if (input.readBoolean()) {
+                final byte[] pmmlBytes = new byte[input.readInt()];
+                input.readFully(pmmlBytes);
+                try {
+                    m_pmmlInPort = (PMMLPortObject)PortUtil.readObjectFromStream(
+                        new ByteArrayInputStream(pmmlBytes), new ExecutionMonitor());
+                } catch (CanceledExecutionException e) {
+                    throw new IOException(e);
+                }
+            }
+            //the model content needs to be read last since it closes the stream
+            final ModelContentRO content = ModelContent.loadFromXML(input);
+            try {
+                m_tableSpec = DataTableSpec.load(content.getModelContent(CFG_TABLE_SPEC));
+                m_model = new NaiveBayesModel(content.getModelContent(CFG_DATA_MODEL));
+            } catch (final InvalidSettingsException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void save(final DataOutputStream output) throws IOException {
+            output.writeBoolean(m_pmmlInPort != null);
+            if (m_pmmlInPort != null) {
+                final ByteArrayOutputStream pmmlBytes = new ByteArrayOutputStream();
+                try {
+                    PortUtil.writeObjectToStream(m_pmmlInPort, pmmlBytes, new ExecutionMonitor());
+                } catch (CanceledExecutionException e) {
+                    throw new IOException(e);
+                }
+                output.writeInt(pmmlBytes.size());
+                pmmlBytes.writeTo(output);
+            }
+            final ModelContent content = new ModelContent(CFG_DATA);
+            m_tableSpec.save(content.addModelContent(CFG_TABLE_SPEC));
+            m_model.savePredictorParams(content.addModelContent(CFG_DATA_MODEL));
+            content.saveToXML(output);
+        }
+    }
+
     /**
      * @return Returns the naivebayesModel.
      */
@@ -50,6 +50,7 @@
 
 import org.knime.base.data.append.column.AppendedCellFactory;
 import org.knime.base.node.mine.bayes.naivebayes.datamodel2.NaiveBayesModel;
+import org.knime.base.node.mine.bayes.naivebayes.datamodel2.NaiveBayesRowClassifier;
 import org.knime.base.node.mine.util.PredictorHelper;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -57,18 +58,17 @@
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
-import org.knime.core.data.RowKey;
-import org.knime.core.data.container.CellFactory;
+import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.def.DoubleCell;
-import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.port.pmml.PMMLDataDictionaryTranslator;
 
 /**
  * Naive Bayes <code>AppendCellFactory</code> class which uses the given
  * <code>NaiveBayesModel</code> to predict the class membership of each row.
+ * The rows are processed concurrently.
  * @author Tobias Koetter, KNIME AG, Zurich, Switzerland
  */
-class NaiveBayesCellFactory implements AppendedCellFactory, CellFactory {
+class NaiveBayesCellFactory extends AbstractCellFactory implements AppendedCellFactory {
 
     /**
      * The <code>NaiveBayesModel</code> which holds all necessary information
@@ -76,18 +76,10 @@ class NaiveBayesCellFactory implements AppendedCellFactory, CellFactory {
      */
     private final NaiveBayesModel m_model;
 
-    private final List<String> m_sortedClassVals;
-
-    private final DataTableSpec m_tableSpec;
-
-    private final String[] m_attributeNames;
+    private final NaiveBayesRowClassifier m_classifier;
 
     private final boolean m_inclClassProbVals;
 
-    private final String m_columnName;
-
-    private final String m_suffix;
-
     /**Constructor for class NaiveBayesAlgorithm.
      * @param model the <code>NaiveBayesModel</code> which holds all necessary
      * information to calculate the probability for new records.
@@ -99,22 +91,22 @@ class NaiveBayesCellFactory implements AppendedCellFactory, CellFactory {
      */
     NaiveBayesCellFactory(final NaiveBayesModel model, final String columnName,
             final DataTableSpec tableSpec, final boolean inclClassProbVals, final String suffix) {
-        this.m_columnName = columnName;
-        this.m_suffix = suffix;
-        if (model == null) {
-           throw new NullPointerException("Model must not be null.");
-        }
+        super(true, createResultColSpecs(checkNotNull(model, "Model"), columnName,
+            checkNotNull(tableSpec, "TableSpec"), inclClassProbVals, suffix));
         m_model = model;
-        m_sortedClassVals = model.getSortedClassValues();
-        if (tableSpec == null) {
-            throw new NullPointerException("TableSpec must not be null.");
-         }
-        m_tableSpec = tableSpec;
         m_inclClassProbVals = inclClassProbVals;
-        m_attributeNames = new String[tableSpec.getNumColumns()];
+        final String[] attributeNames = new String[tableSpec.getNumColumns()];
         for (int i = 0, length = tableSpec.getNumColumns(); i < length; i++) {
-            m_attributeNames[i] = tableSpec.getColumnSpec(i).getName();
+            attributeNames[i] = tableSpec.getColumnSpec(i).getName();
         }
+        m_classifier = model.createRowClassifier(attributeNames);
+    }
+
+    private static <T> T checkNotNull(final T value, final String name) {
+        if (value == null) {
+            throw new NullPointerException(name + " must not be null.");
+        }
+        return value;
     }
 
     /**
@@ -191,7 +183,7 @@ private static DataColumnSpec createPredictedClassColSpec(final String classColu
      * should be append at the end of the original table specification
      */
     DataColumnSpec[] getResultColumnsSpec() {
-        return createResultColSpecs(m_model, m_columnName, m_tableSpec, m_inclClassProbVals, m_suffix);
+        return getColumnSpecs();
     }
 
     /**
@@ -218,38 +210,20 @@ public String toString() {
      */
     @Override
     public DataCell[] getCells(final DataRow row) {
-        final DataCell predictedClassCell = m_model.getMostLikelyClassCell(m_attributeNames, row);
-        if (predictedClassCell == null) {
-            throw new IllegalStateException("No class found for row with id " + row.getKey());
-        }
+        final int noOfClassVals = m_classifier.getNoOfClassValues();
+        final double[] classProbs = new double[noOfClassVals];
+        final int mostLikelyClass = m_classifier.classify(row, classProbs);
+        final DataCell predictedClassCell = m_classifier.getClassCell(mostLikelyClass);
         if (!m_inclClassProbVals) {
             return new DataCell[] {predictedClassCell};
         }
-        final Collection<DataCell> resultCells = new ArrayList<>(m_sortedClassVals.size() + 1);
-        final double[] classProbs = m_model.getClassProbabilities(m_attributeNames, row, m_sortedClassVals, true);
+        final DataCell[] resultCells = new DataCell[noOfClassVals + 1];
         //add the probability per class
-        for (final double classVal : classProbs) {
-            resultCells.add(new DoubleCell(classVal));
+        for (int i = 0; i < noOfClassVals; i++) {
+            resultCells[i] = new DoubleCell(classProbs[i]);
         }
         //add the class cell last
-        resultCells.add(predictedClassCell);
-        return resultCells.toArray(new DataCell[0]);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public DataColumnSpec[] getColumnSpecs() {
-        return getResultColumnsSpec();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void setProgress(final int curRowNr, final int rowCount,
-            final RowKey lastKey, final ExecutionMonitor exec) {
-        exec.setProgress(1.0 / rowCount * curRowNr);
+        resultCells[noOfClassVals] = predictedClassCell;
+        return resultCells;
     }
 }
@@ -50,6 +50,7 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.knime.base.node.mine.cluster.hierarchical.distfunctions.DistanceFunction;
@@ -58,7 +59,6 @@
 import org.knime.base.node.util.DataArray;
 import org.knime.base.node.util.DefaultDataArray;
 import org.knime.base.node.viz.plotter.DataProvider;
-import org.knime.base.util.HalfFloatMatrix;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
@@ -72,11 +72,13 @@
 import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.IntCell;
 import org.knime.core.data.def.StringCell;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettings;
 import org.knime.core.node.NodeSettingsRO;
@@ -94,6 +96,8 @@
 public class HierarchicalClusterNodeModel extends NodeModel implements
         DataProvider {
 
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(HierarchicalClusterNodeModel.class);
+
     /**
      * Different types of determination of the distance between two clusters.
      *
@@ -215,12 +219,21 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] data,
         }
 
         BufferedDataTable inputData = data[0];
-        if (inputData.size() > 65500) {
-            throw new RuntimeException("At most 65,500 patterns can be clustered");
+        if (inputData.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("At most " + Integer.MAX_VALUE + " patterns can be clustered");
         }
-
-
-        DataTable outputData = null;
+        final int numberDataRows = (int)inputData.size();
+        // the distance matrix is the dominating memory consumer, report (and check) it before computing anything
+        final long requiredMemory = NNChainClustering.estimateMemory(numberDataRows);
+        final long availableMemory = MemoryAlertSystem.getMaximumMemory();
+        final String memoryMessage = "Distance matrix for " + numberDataRows + " rows requires about "
+            + (requiredMemory >> 20) + " MB of memory (" + (availableMemory >> 20) + " MB available)";
+        LOGGER.info(memoryMessage);
+        if (requiredMemory > availableMemory) {
+            throw new IllegalArgumentException(memoryMessage
+                + "; reduce the number of rows (e.g. by sampling) or increase the heap space.");
+        }
+        exec.setMessage(memoryMessage);
 
         if (DistanceFunction.Names.Manhattan.toString().equals(
                 m_distFunctionName.getStringValue())) {
@@ -229,114 +242,54 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] data,
             m_distFunction = EuclideanDist.EUCLIDEAN_DISTANCE;
         }
 
-        // generate initial clustering
-        // which means that every data point is one cluster
-        List<ClusterNode> clusters = initClusters(inputData, exec);
-        // store the distance per each fusion step
-        DataContainer fusionCont = exec.createDataContainer(createFusionSpec());
-        int iterationStep = 0;
-
-        final HalfFloatMatrix cache;
-        if (m_cacheDistances.getBooleanValue()) {
-            cache = new HalfFloatMatrix((int) inputData.size(), false);
-            cache.fill(Float.NaN);
-        } else {
-            cache = null;
+        // keep the rows in memory, they are the leafs of the cluster tree
+        ExecutionContext initExec = exec.createSubExecutionContext(0.1);
+        m_dataArray = new DefaultDataArray(inputData, 1, numberDataRows, initExec);
+        List<DataRow> rows = new ArrayList<DataRow>(numberDataRows);
+        for (DataRow row : m_dataArray) {
+            rows.add(row);
         }
 
-        double max = inputData.size();
-        // the number of clusters at the beginning is equal to the number
-        // of data rows (each row is a cluster)
-        int numberDataRows = clusters.size();
+        NNChainClustering clustering = new NNChainClustering(rows, selectedColIndices, m_distFunction,
+            Linkage.valueOf(m_linkageType.getStringValue()));
+        clustering.run(exec.createSubProgress(0.7));
 
-        while (clusters.size() > 1) {
-            // checks if number clusters to generate output table is reached
-            if (m_numClustersForOutput.getIntValue() == clusters.size()) {
-                outputData = createResultTable(inputData, clusters, exec);
-            }
-            exec.setProgress((numberDataRows - clusters.size())
-                    / (double)numberDataRows, clusters.size()
-                    + " clusters left to merge.");
-            iterationStep++;
-            exec.setProgress(iterationStep / max, "Iteration " + iterationStep
-                    + ", " + clusters.size() + " clusters remaining");
-
-            // calculate distance between all clusters
-            float currentSmallestDist = Float.MAX_VALUE;
-            ClusterNode currentClosestCluster1 = null;
-            ClusterNode currentClosestCluster2 = null;
-
-            // subprogress for loop
-            double availableProgress = (1.0 / numberDataRows);
-            ExecutionContext subexec =
-                    exec.createSubExecutionContext(availableProgress);
-            for (int i = 0; i < clusters.size(); i++) {
-                exec.checkCanceled();
-                ClusterNode node1 = clusters.get(i);
-                for (int j = i + 1; j < clusters.size(); j++) {
-                    final float dist;
-                    ClusterNode node2 = clusters.get(j);
-
-                    // call the chosen function to calculate the distance
-                    // between two clusters. At the moment is single linkage
-                    // and average linkage supported.
-                    if (m_linkageType.getStringValue().equals(Linkage.SINGLE.name())) {
-                        dist = calculateSingleLinkageDist(node1, node2, cache,
-                                selectedColIndices);
-                    } else if (m_linkageType.getStringValue().equals(Linkage.AVERAGE.name())) {
-                        dist = calculateAverageLinkageDist(node1, node2, cache,
-                                selectedColIndices);
-                    } else {
-                        dist = calculateCompleteLinkageDist(node1, node2, cache,
-                                selectedColIndices);
-                    }
-
-                    if (dist < currentSmallestDist) {
-                        currentClosestCluster1 = node1;
-                        currentClosestCluster2 = node2;
-                        currentSmallestDist = dist;
-                    }
+        // store the distance per each fusion step
+        final DataContainer fusionCont = exec.createDataContainer(createFusionSpec());
+        final List<List<ClusterNode>> outputClusters = new ArrayList<List<ClusterNode>>(1);
+        m_rootNode = clustering.buildTree(m_numClustersForOutput.getIntValue(),
+            new NNChainClustering.FusionListener() {
+                @Override
+                public void merged(final int remainingClusters, final ClusterNode node) {
+                    fusionCont.addRowToTable(new DefaultRow(
+                    // row key
+                            Integer.toString(remainingClusters),
+                            // x-axis scatter plotter
+                            new IntCell(remainingClusters),
+                            // y-axis scatter plotter
+                            new DoubleCell(node.getDist())));
                 }
-            }
-            subexec.setProgress(1.0);
-            // make one cluster of the two closest
-            ClusterNode newNode =
-                    new ClusterNode(currentClosestCluster1,
-                            currentClosestCluster2, currentSmallestDist);
-            clusters.remove(currentClosestCluster1);
-            clusters.remove(currentClosestCluster2);
-
-            clusters.add(newNode);
-
-            // store the distance per each fusion step
-            fusionCont.addRowToTable(new DefaultRow(
-            // row key
-                    Integer.toString(clusters.size()),
-                    // x-axis scatter plotter
-                    new IntCell(clusters.size()),
-                    // y-axis scatter plotter
-                    new DoubleCell(newNode.getDist())));
-
-            // // print number clusters and their data points
-            // LOGGER.debug("Iteration " + iterationStep + ":");
-            // LOGGER.debug(" Number Clusters: " + clusters.size());
-            // printClustersDataRows(clusters);
-
-        }
-        if (clusters.size() > 0) {
-            m_rootNode = clusters.get(0);
-
-        }
 
+                @Override
+                public void clustersReached(final List<ClusterNode> clusters) {
+                    outputClusters.add(clusters);
+                }
+            });
         fusionCont.close();
 
-        // if there was no input data create an empty output data
-        if (outputData == null) {
-            outputData = createResultTable(inputData, clusters, exec);
+        // if the number of clusters was never reached the output contains the final clustering
+        final List<ClusterNode> clusters;
+        if (!outputClusters.isEmpty()) {
+            clusters = outputClusters.get(0);
+        } else if (m_rootNode != null) {
+            clusters = Collections.singletonList(m_rootNode);
+        } else {
+            clusters = Collections.emptyList();
         }
-        m_dataArray = new DefaultDataArray(inputData, 1, (int)inputData.size());
+        DataTable outputData = createResultTable(inputData, clusters, exec.createSubExecutionContext(0.2));
+
         m_fusionTable = new DefaultDataArray(
-                fusionCont.getTable(), 1, iterationStep);
+                fusionCont.getTable(), 1, Math.max(numberDataRows - 1, 0));
 
         return new BufferedDataTable[]{exec.createBufferedDataTable(outputData,
                 exec)};
@@ -362,143 +315,6 @@ public final void reset() {
         m_fusionTable = null;
     }
 
-    /*
-     * Calculates the distance via the single linkage paradigm. That means two
-     * clusters have the distance of its closest data rows
-     *
-     */
-    private float calculateSingleLinkageDist(final ClusterNode node1,
-            final ClusterNode node2, final HalfFloatMatrix cache,
-            final int[] selectedColIndices) {
-        float minDist = Float.MAX_VALUE;
-
-        for (ClusterNode node1Leaf : node1.leafs()) {
-            final DataRow row1 = node1Leaf.getLeafDataPoint();
-            final int row1Index = node1Leaf.getRowIndex();
-            for (ClusterNode node2Leaf : node2.leafs()) {
-                final DataRow row2 = node2Leaf.getLeafDataPoint();
-                final int row2Index = node2Leaf.getRowIndex();
-
-                float f = Float.NaN;
-                if (cache != null) {
-                    f = cache.get(row1Index, row2Index);
-                    if (Float.isNaN(f)) {
-                        f =
-                                (float)m_distFunction.calcDistance(row1, row2,
-                                        selectedColIndices);
-                        cache.set(row1Index, row2Index, f);
-                    }
-                } else {
-                    f =
-                            (float)m_distFunction.calcDistance(row1, row2,
-                                    selectedColIndices);
-                }
-                minDist = Math.min(minDist, f);
-            }
-        }
-
-        return minDist;
-    }
-
-    /*
-     * Calculates the distance via the complete linkage paradigm. That means two
-     * clusters have the distance of its farest data rows
-     *
-     */
-    private float calculateCompleteLinkageDist(final ClusterNode node1,
-            final ClusterNode node2, final HalfFloatMatrix cache,
-            final int[] selectedColIndices) {
-        float maxDist = 0;
-
-        for (ClusterNode node1Leaf : node1.leafs()) {
-            final DataRow row1 = node1Leaf.getLeafDataPoint();
-            final int row1Index = node1Leaf.getRowIndex();
-            for (ClusterNode node2Leaf : node2.leafs()) {
-                final DataRow row2 = node2Leaf.getLeafDataPoint();
-                final int row2Index = node2Leaf.getRowIndex();
-
-                float f = Float.NaN;
-                if (cache != null) {
-                    f = cache.get(row1Index, row2Index);
-                    if (Float.isNaN(f)) {
-                        f =
-                                (float)m_distFunction.calcDistance(row1, row2,
-                                        selectedColIndices);
-                        cache.set(row1Index, row2Index, f);
-                    }
-                } else {
-                    f =
-                            (float)m_distFunction.calcDistance(row1, row2,
-                                    selectedColIndices);
-                }
-                maxDist = Math.max(maxDist, f);
-            }
-        }
-
-        return maxDist;
-    }
-
-    /*
-     * Calculates the distance via the average linkage paradigm. That means two
-     * clusters have the distance of the average distance of all their member
-     * data rows.
-     */
-    private float calculateAverageLinkageDist(final ClusterNode node1,
-            final ClusterNode node2, final HalfFloatMatrix cache,
-            final int[] selectedColIndices) {
-        float sumDist = 0;
-
-        for (ClusterNode node1Leaf : node1.leafs()) {
-            final DataRow row1 = node1Leaf.getLeafDataPoint();
-            final int row1Index = node1Leaf.getRowIndex();
-            for (ClusterNode node2Leaf : node2.leafs()) {
-                final DataRow row2 = node2Leaf.getLeafDataPoint();
-                final int row2Index = node2Leaf.getRowIndex();
-
-                float f = Float.NaN;
-                if (cache != null) {
-                    f = cache.get(row1Index, row2Index);
-                    if (Float.isNaN(f)) {
-                        f = (float)m_distFunction.calcDistance(row1, row2,
-                                        selectedColIndices);
-                        cache.set(row1Index, row2Index, f);
-                    }
-                } else {
-                    f = (float)m_distFunction.calcDistance(row1, row2,
-                                    selectedColIndices);
-                }
-                sumDist += f;
-            }
-        }
-
-        // divide by the number pairewise distances
-        return sumDist / (node1.getLeafCount() * node2.getLeafCount());
-    }
-
-    /**
-     * Creates number of data rows clusters as initial clustering.
-     *
-     * @param inputData
-     *            the input data rows
-     * @param exec
-     *            to check for user cancelations
-     *
-     * @throws CanceledExecutionException
-     *             if user canceled
-     *
-     * @return the vector with all initial clusters.
-     */
-    private List<ClusterNode> initClusters(final DataTable inputData,
-            final ExecutionContext exec) throws CanceledExecutionException {
-        List<ClusterNode> rowVector = new ArrayList<ClusterNode>();
-        int rowIdx = 0;
-        for (DataRow row : inputData) {
-            rowVector.add(new ClusterNode(row, rowIdx++));
-            exec.checkCanceled();
-        }
-        return rowVector;
-    }
-
     /**
      * Creates a standard table as the result table. The result table is
      * constructed for the desired number of clusters.
@@ -0,0 +1,393 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.cluster.hierarchical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.knime.base.node.mine.cluster.hierarchical.HierarchicalClusterNodeModel.Linkage;
+import org.knime.base.node.mine.cluster.hierarchical.distfunctions.DistanceFunction;
+import org.knime.base.node.mine.cluster.hierarchical.distfunctions.EuclideanDist;
+import org.knime.base.node.mine.cluster.hierarchical.distfunctions.ManhattanDist;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.ParallelTasks;
+
+/**
+ * Agglomerative clustering using the nearest-neighbor-chain algorithm. The pairwise distances between all rows are
+ * computed once (in parallel) into a triangular float matrix; the distances between merged clusters are then derived
+ * from this matrix using the Lance-Williams update formulas. As single, average and complete linkage are reducible,
+ * the chain algorithm yields the same hierarchy as the naive algorithm, at O(n&sup2;) time and memory.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class NNChainClustering {
+
+    /** Number of matrix entries per chunk of the distance matrix (must be a power of 2). */
+    private static final int CHUNK_SIZE = 1 << 24;
+
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+
+    private final List<DataRow> m_rows;
+
+    private final int[] m_includedCols;
+
+    private final DistanceFunction m_distFunction;
+
+    private final Linkage m_linkage;
+
+    private float[][] m_distances;
+
+    /** The merges in the order they are applied: both merged slots and the distance. */
+    private int[] m_mergeA;
+
+    private int[] m_mergeB;
+
+    private float[] m_mergeDist;
+
+    /**
+     * @param rows the rows to cluster
+     * @param includedCols the columns to use for the distance calculation
+     * @param distFunction the distance function
+     * @param linkage the linkage
+     */
+    NNChainClustering(final List<DataRow> rows, final int[] includedCols, final DistanceFunction distFunction,
+        final Linkage linkage) {
+        m_rows = rows;
+        m_includedCols = includedCols;
+        m_distFunction = distFunction;
+        m_linkage = linkage;
+    }
+
+    /**
+     * Returns the number of bytes required to hold the distance matrix for the given number of rows.
+     *
+     * @param nrRows the number of rows
+     * @return the estimated memory in bytes
+     */
+    static long estimateMemory(final long nrRows) {
+        return Float.BYTES * (nrRows * (nrRows - 1) / 2);
+    }
+
+    /**
+     * Computes the distance matrix and the merges.
+     *
+     * @param exec for progress and cancelation, the first half of the progress is used for the distance matrix
+     * @throws CanceledExecutionException if canceled
+     */
+    void run(final ExecutionMonitor exec) throws CanceledExecutionException {
+        computeDistances(exec.createSubProgress(0.5));
+        computeMerges(exec.createSubProgress(0.5));
+    }
+
+    /**
+     * Builds the cluster tree from the merges.
+     *
+     * @param numClustersForOutput the number of clusters for which a snapshot of the clusters is reported
+     * @param listener notified about each fusion step and the snapshot
+     * @return the root node or <code>null</code> if there are no rows
+     */
+    ClusterNode buildTree(final int numClustersForOutput, final FusionListener listener) {
+        final int n = m_rows.size();
+        if (n == 0) {
+            return null;
+        }
+        final ClusterNode[] nodes = new ClusterNode[n];
+        // the step the cluster at a representative was created in, -1 for leafs
+        final int[] created = new int[n];
+        final int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = new ClusterNode(m_rows.get(i), i);
+            created[i] = -1;
+            parent[i] = i;
+        }
+        // merges of reducible linkages must be applied in order of their distance
+        final Integer[] order = new Integer[n - 1];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> Float.compare(m_mergeDist[i1], m_mergeDist[i2]));
+
+        if (numClustersForOutput == n) {
+            listener.clustersReached(currentClusters(nodes, created, parent));
+        }
+        for (int step = 0; step < order.length; step++) {
+            final int m = order[step];
+            final int a = find(parent, m_mergeA[m]);
+            final int b = find(parent, m_mergeB[m]);
+            final ClusterNode node = new ClusterNode(nodes[a], nodes[b], m_mergeDist[m]);
+            parent[a] = b;
+            nodes[a] = null;
+            nodes[b] = node;
+            created[b] = step;
+            final int remaining = n - 1 - step;
+            listener.merged(remaining, node);
+            if (numClustersForOutput == remaining) {
+                listener.clustersReached(currentClusters(nodes, created, parent));
+            }
+        }
+        return nodes[find(parent, 0)];
+    }
+
+    /**
+     * Listener for {@link NNChainClustering#buildTree(int, FusionListener)}.
+     */
+    interface FusionListener {
+
+        /**
+         * Called after each fusion step.
+         *
+         * @param remainingClusters the number of clusters after this step
+         * @param node the newly created node
+         */
+        void merged(int remainingClusters, ClusterNode node);
+
+        /**
+         * Called when the desired number of clusters is reached.
+         *
+         * @param clusters the clusters, leafs first (in row order) followed by the merged clusters in the order
+         *            of their creation
+         */
+        void clustersReached(List<ClusterNode> clusters);
+    }
+
+    private static List<ClusterNode> currentClusters(final ClusterNode[] nodes, final int[] created,
+        final int[] parent) {
+        final List<Integer> roots = new ArrayList<>();
+        for (int i = 0; i < nodes.length; i++) {
+            if (parent[i] == i) {
+                roots.add(i);
+            }
+        }
+        final long n = nodes.length;
+        Collections.sort(roots, (r1, r2) -> Long.compare(created[r1] < 0 ? r1 : n + created[r1],
+            created[r2] < 0 ? r2 : n + created[r2]));
+        final List<ClusterNode> result = new ArrayList<>(roots.size());
+        for (Integer r : roots) {
+            result.add(nodes[r]);
+        }
+        return result;
+    }
+
+    private static int find(final int[] parent, final int i) {
+        int root = i;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        int j = i;
+        while (parent[j] != root) {
+            final int next = parent[j];
+            parent[j] = root;
+            j = next;
+        }
+        return root;
+    }
+
+    private static long index(final int i, final int j) {
+        return i > j ? (long)i * (i - 1) / 2 + j : (long)j * (j - 1) / 2 + i;
+    }
+
+    private float get(final int i, final int j) {
+        final long idx = index(i, j);
+        return m_distances[(int)(idx >>> CHUNK_SHIFT)][(int)(idx & (CHUNK_SIZE - 1))];
+    }
+
+    private void set(final int i, final int j, final float value) {
+        final long idx = index(i, j);
+        m_distances[(int)(idx >>> CHUNK_SHIFT)][(int)(idx & (CHUNK_SIZE - 1))] = value;
+    }
+
+    private void computeDistances(final ExecutionMonitor exec) throws CanceledExecutionException {
+        final int n = m_rows.size();
+        final long size = (long)n * (n - 1) / 2;
+        final int nrChunks = (int)((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        m_distances = new float[nrChunks][];
+        for (int c = 0; c < nrChunks; c++) {
+            m_distances[c] = new float[(int)Math.min(CHUNK_SIZE, size - ((long)c << CHUNK_SHIFT))];
+        }
+
+        final int p;
+        if (m_distFunction instanceof ManhattanDist) {
+            p = 1;
+        } else if (m_distFunction instanceof EuclideanDist) {
+            p = 2;
+        } else {
+            p = -1;
+        }
+        final int dim = m_includedCols.length;
+        final double[] values = p > 0 ? extractValues(dim) : null;
+
+        final int nrTasks = Math.min(Math.max(n / 64, 1), Runtime.getRuntime().availableProcessors());
+        ParallelTasks.forEach(nrTasks, task -> {
+            // interleaved rows keep the (triangular) work balanced
+            for (int i = task + 1; i < n; i += nrTasks) {
+                if (task == 0) {
+                    exec.checkCanceled();
+                    exec.setProgress((double)i * i / ((double)n * n),
+                        "Computing distances (row " + i + " of " + n + ")");
+                }
+                final long rowStart = (long)i * (i - 1) / 2;
+                for (int j = 0; j < i; j++) {
+                    final long idx = rowStart + j;
+                    m_distances[(int)(idx >>> CHUNK_SHIFT)][(int)(idx & (CHUNK_SIZE - 1))] =
+                        p > 0 ? minkowski(values, i * dim, j * dim, dim, p)
+                            : (float)m_distFunction.calcDistance(m_rows.get(i), m_rows.get(j), m_includedCols);
+                }
+            }
+        });
+        exec.setProgress(1.0);
+    }
+
+    /** Copies the included columns into a row-major array, missing cells are represented by NaN. */
+    private double[] extractValues(final int dim) {
+        final double[] values = new double[m_rows.size() * dim];
+        int pos = 0;
+        for (DataRow row : m_rows) {
+            for (int c : m_includedCols) {
+                final DataCell cell = row.getCell(c);
+                values[pos++] = !cell.isMissing() && cell instanceof DoubleValue
+                    ? ((DoubleValue)cell).getDoubleValue() : Double.NaN;
+            }
+        }
+        return values;
+    }
+
+    /** Same as {@link org.knime.base.node.mine.cluster.hierarchical.distfunctions.MinkowskiDist} for p = 1, 2. */
+    private static float minkowski(final double[] values, final int offset1, final int offset2, final int dim,
+        final int p) {
+        double sum = 0;
+        for (int d = 0; d < dim; d++) {
+            final double x = values[offset1 + d];
+            final double y = values[offset2 + d];
+            if (!Double.isNaN(x) && !Double.isNaN(y)) {
+                final double diff = Math.abs(x - y);
+                sum += p == 1 ? diff : diff * diff;
+            }
+        }
+        return (float)(p == 1 ? sum : Math.sqrt(sum));
+    }
+
+    private void computeMerges(final ExecutionMonitor exec) throws CanceledExecutionException {
+        final int n = m_rows.size();
+        m_mergeA = new int[Math.max(n - 1, 0)];
+        m_mergeB = new int[m_mergeA.length];
+        m_mergeDist = new float[m_mergeA.length];
+        final int[] size = new int[n];
+        Arrays.fill(size, 1);
+        final boolean[] active = new boolean[n];
+        Arrays.fill(active, true);
+        final int[] chain = new int[n];
+        int chainLength = 0;
+        int nextStart = 0;
+
+        for (int step = 0; step < n - 1; step++) {
+            exec.checkCanceled();
+            exec.setProgress(step / (double)(n - 1), (n - step) + " clusters left to merge.");
+            if (chainLength == 0) {
+                while (!active[nextStart]) {
+                    nextStart++;
+                }
+                chain[chainLength++] = nextStart;
+            }
+            int a;
+            int b;
+            float dist;
+            while (true) {
+                a = chain[chainLength - 1];
+                final int prev = chainLength > 1 ? chain[chainLength - 2] : -1;
+                // prefer the predecessor on ties, otherwise the chain may cycle
+                b = prev;
+                dist = prev >= 0 ? get(a, prev) : Float.POSITIVE_INFINITY;
+                for (int k = 0; k < n; k++) {
+                    if (active[k] && k != a) {
+                        final float d = get(a, k);
+                        if (d < dist || b < 0) {
+                            b = k;
+                            dist = d;
+                        }
+                    }
+                }
+                if (b == prev) {
+                    break;
+                }
+                chain[chainLength++] = b;
+            }
+            chainLength -= 2;
+
+            // the merged cluster is kept at b, a becomes inactive
+            m_mergeA[step] = a;
+            m_mergeB[step] = b;
+            m_mergeDist[step] = dist;
+            active[a] = false;
+            final int sizeA = size[a];
+            final int sizeB = size[b];
+            for (int k = 0; k < n; k++) {
+                if (active[k] && k != b) {
+                    final float dA = get(a, k);
+                    final float dB = get(b, k);
+                    final float d;
+                    switch (m_linkage) {
+                        case SINGLE:
+                            d = Math.min(dA, dB);
+                            break;
+                        case COMPLETE:
+                            d = Math.max(dA, dB);
+                            break;
+                        default:
+                            d = (float)(((double)sizeA * dA + (double)sizeB * dB) / (sizeA + sizeB));
+                    }
+                    set(b, k, d);
+                }
+            }
+            size[b] = sizeA + sizeB;
+        }
+    }
+}
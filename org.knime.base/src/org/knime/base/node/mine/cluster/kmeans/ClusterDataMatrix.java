@@ -0,0 +1,314 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.cluster.kmeans;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.FileUtil;
+
+/**
+ * The numeric input of the k-Means algorithm as contiguous, row major primitive blocks. The table is read and
+ * converted only once. If the matrix does not fit into a quarter of the available heap, the blocks are written to a
+ * temporary file and read block by block into reusable buffers while iterating. The reads are positional, so several
+ * threads can read from the file concurrently.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ClusterDataMatrix implements AutoCloseable {
+
+    /** Number of values in one block (64k doubles, i.e. 512kB), blocks are the unit of parallel work. */
+    private static final int BLOCK_CELLS = 1 << 16;
+
+    private final int m_dimension;
+
+    private final int m_rowCount;
+
+    private final int m_rowsPerBlock;
+
+    private final boolean m_containsNaN;
+
+    // in memory blocks, null if spilled
+    private final double[][] m_blocks;
+
+    // spill file and its channel, null if held in memory
+    private final File m_file;
+
+    private final RandomAccessFile m_raf;
+
+    private final FileChannel m_channel;
+
+    private ClusterDataMatrix(final int dimension, final int rowCount, final int rowsPerBlock,
+        final boolean containsNaN, final double[][] blocks, final File file) throws IOException {
+        m_dimension = dimension;
+        m_rowCount = rowCount;
+        m_rowsPerBlock = rowsPerBlock;
+        m_containsNaN = containsNaN;
+        m_blocks = blocks;
+        m_file = file;
+        m_raf = file == null ? null : new RandomAccessFile(file, "r");
+        m_channel = m_raf == null ? null : m_raf.getChannel();
+    }
+
+    /**
+     * Reads the given columns of the table into a new matrix.
+     *
+     * @param table the input table
+     * @param columns the indices of the columns to read, all compatible to {@link DoubleValue}
+     * @param exec for progress and cancelation
+     * @return the matrix
+     * @throws CanceledExecutionException if canceled
+     * @throws IOException if the matrix needs to be spilled and writing the file fails
+     * @throws IllegalArgumentException if the table contains missing values in the selected columns or has more than
+     *             {@link Integer#MAX_VALUE} rows
+     */
+    static ClusterDataMatrix create(final BufferedDataTable table, final int[] columns, final ExecutionMonitor exec)
+        throws CanceledExecutionException, IOException {
+        final long size = table.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("k-Means supports at most " + Integer.MAX_VALUE + " rows.");
+        }
+        final int rowCount = (int)size;
+        final int dimension = columns.length;
+        final int rowsPerBlock = Math.max(1, BLOCK_CELLS / Math.max(1, dimension));
+        final int blockCount = (rowCount + rowsPerBlock - 1) / rowsPerBlock;
+        final boolean spill = 8.0 * rowCount * dimension > MemoryAlertSystem.getMaximumMemory() / 4.0;
+
+        final List<double[]> blocks = new ArrayList<>(spill ? 0 : blockCount);
+        File file = null;
+        DataOutputStream out = null;
+        if (spill) {
+            file = FileUtil.createTempFile("kmeans_", ".bin");
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        }
+        boolean containsNaN = false;
+        try {
+            double[] block = null;
+            int row = 0;
+            int blockRow = 0;
+            int blockRows = 0;
+            for (DataRow r : table) {
+                if (block == null) {
+                    blockRows = Math.min(rowsPerBlock, rowCount - row);
+                    block = new double[blockRows * dimension];
+                    blockRow = 0;
+                }
+                final int offset = blockRow * dimension;
+                for (int i = 0; i < dimension; i++) {
+                    final DataCell cell = r.getCell(columns[i]);
+                    if (cell.isMissing()) {
+                        throw new IllegalArgumentException("Missing Values not (yet) allowed in k-Means.");
+                    }
+                    final double value = ((DoubleValue)cell).getDoubleValue();
+                    containsNaN |= Double.isNaN(value);
+                    block[offset + i] = value;
+                }
+                row++;
+                blockRow++;
+                if (blockRow == blockRows) {
+                    if (spill) {
+                        for (double v : block) {
+                            out.writeDouble(v);
+                        }
+                    } else {
+                        blocks.add(block);
+                    }
+                    block = null;
+                    exec.checkCanceled();
+                    exec.setProgress(row / (double)rowCount, "Reading row " + row + " of " + rowCount);
+                }
+            }
+        } catch (IOException | CanceledExecutionException | RuntimeException e) {
+            if (out != null) {
+                out.close();
+                file.delete();
+            }
+            throw e;
+        }
+        if (out != null) {
+            out.close();
+        }
+        return new ClusterDataMatrix(dimension, rowCount, rowsPerBlock, containsNaN,
+            spill ? null : blocks.toArray(new double[blocks.size()][]), file);
+    }
+
+    /** @return the number of values per row */
+    int getDimension() {
+        return m_dimension;
+    }
+
+    /** @return the number of rows */
+    int getRowCount() {
+        return m_rowCount;
+    }
+
+    /** @return the number of blocks */
+    int getBlockCount() {
+        return (m_rowCount + m_rowsPerBlock - 1) / m_rowsPerBlock;
+    }
+
+    /**
+     * @param block the block index
+     * @return the index of the first row of the block
+     */
+    int getBlockStart(final int block) {
+        return block * m_rowsPerBlock;
+    }
+
+    /**
+     * @param block the block index
+     * @return the number of rows in the block
+     */
+    int getBlockRowCount(final int block) {
+        return Math.min(m_rowsPerBlock, m_rowCount - getBlockStart(block));
+    }
+
+    /** @return whether any value is NaN, in which case distances are not metric */
+    boolean containsNaN() {
+        return m_containsNaN;
+    }
+
+    /**
+     * Returns the values of a block, row major.
+     *
+     * @param block the block index
+     * @param buffer a buffer that can hold {@link #getBlockRowCount(int)} rows, used if the matrix is spilled; may be
+     *            <code>null</code> in which case a new buffer is allocated if needed
+     * @param bytes a buffer created by {@link #createReadBuffer()}, used if the matrix is spilled; may be
+     *            <code>null</code> in which case a new buffer is allocated if needed
+     * @return the values of the block, must not be modified
+     * @throws IOException if reading the spill file fails
+     */
+    double[] getBlock(final int block, final double[] buffer, final ByteBuffer bytes) throws IOException {
+        if (m_blocks != null) {
+            return m_blocks[block];
+        }
+        final int length = getBlockRowCount(block) * m_dimension;
+        final double[] result = buffer != null && buffer.length >= length ? buffer : new double[length];
+        final ByteBuffer in = bytes != null ? bytes : createReadBuffer();
+        in.clear().limit(8 * length);
+        read(in, 8L * ((long)getBlockStart(block) * m_dimension));
+        in.asDoubleBuffer().get(result, 0, length);
+        return result;
+    }
+
+    /**
+     * Copies a single row.
+     *
+     * @param row the row index
+     * @param dest the array to copy the {@link #getDimension()} values to
+     * @throws IOException if reading the spill file fails
+     */
+    void getRow(final int row, final double[] dest) throws IOException {
+        final int block = row / m_rowsPerBlock;
+        final int offset = (row - getBlockStart(block)) * m_dimension;
+        if (m_blocks != null) {
+            System.arraycopy(m_blocks[block], offset, dest, 0, m_dimension);
+        } else {
+            final ByteBuffer in = ByteBuffer.allocate(8 * m_dimension);
+            read(in, 8L * ((long)row * m_dimension));
+            in.asDoubleBuffer().get(dest, 0, m_dimension);
+        }
+    }
+
+    /**
+     * Fills the remaining bytes of the buffer from the spill file and flips it. The file was written by a
+     * {@link DataOutputStream}, i.e. big endian, which is the default order of byte buffers.
+     */
+    private void read(final ByteBuffer bytes, final long position) throws IOException {
+        long pos = position;
+        while (bytes.hasRemaining()) {
+            final int read = m_channel.read(bytes, pos);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of k-Means data file \"" + m_file.getAbsolutePath() + "\"");
+            }
+            pos += read;
+        }
+        bytes.flip();
+    }
+
+    /** @return the size of the buffer to pass to {@link #getBlock(int, double[], ByteBuffer)} */
+    int getBlockBufferSize() {
+        return m_rowsPerBlock * m_dimension;
+    }
+
+    /**
+     * @return a buffer for reading blocks from the spill file, to pass to {@link #getBlock(int, double[], ByteBuffer)},
+     *         or <code>null</code> if the matrix is held in memory
+     */
+    ByteBuffer createReadBuffer() {
+        return m_channel == null ? null : ByteBuffer.allocate(8 * getBlockBufferSize());
+    }
+
+    /** Deletes the spill file, if any. */
+    @Override
+    public void close() {
+        if (m_raf != null) {
+            try {
+                m_raf.close();
+            } catch (IOException e) {
+                // ignore, deleting the file is all we can do
+            }
+            m_file.delete();
+        }
+    }
+}
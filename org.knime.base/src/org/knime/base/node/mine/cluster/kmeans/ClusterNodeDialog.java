@@ -44,6 +44,9 @@
  */
 package org.knime.base.node.mine.cluster.kmeans;
 
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
 import org.knime.core.data.DoubleValue;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
 import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
@@ -51,6 +54,7 @@
 import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelFilterString;
+import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 
 
@@ -89,8 +93,20 @@ public class ClusterNodeDialog extends DefaultNodeSettingsPane {
             new SettingsModelBoolean(ClusterNodeModel.CFG_ENABLE_HILITE, false),
             "Enable Hilite Mapping");
 
+        final SettingsModelBoolean kMeansPlusPlus = ClusterNodeModel.createKMeansPlusPlusModel();
+        final SettingsModelInteger seed = ClusterNodeModel.createSeedModel();
+        seed.setEnabled(kMeansPlusPlus.getBooleanValue());
+        kMeansPlusPlus.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                seed.setEnabled(kMeansPlusPlus.getBooleanValue());
+            }
+        });
+
         addDialogComponent(nrOfClusters);
         addDialogComponent(maxNrOfIterations);
+        addDialogComponent(new DialogComponentBoolean(kMeansPlusPlus, "Use k-means++ initialization"));
+        addDialogComponent(new DialogComponentNumber(seed, "Random seed: ", 1));
         addDialogComponent(columnFilter);
         addDialogComponent(enableHilite);
         setDefaultTabTitle("K-Means Properties");
@@ -68,7 +68,6 @@
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataTableSpecCreator;
 import org.knime.core.data.DoubleValue;
-import org.knime.core.data.RowIterator;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.append.AppendedColumnRow;
 import org.knime.core.data.container.DataContainer;
@@ -87,6 +86,7 @@
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelFilterString;
+import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
@@ -128,6 +128,14 @@ public class ClusterNodeModel extends NodeModel {
     /** Config key for the used columns. */
     public static final String CFG_COLUMNS = "cfgColmns";
 
+    /** Config key for the k-means++ initialization setting.
+     * @since 3.6 */
+    public static final String CFG_KMEANS_PLUS_PLUS = "useKMeansPlusPlus";
+
+    /** Config key for the seed of the k-means++ initialization.
+     * @since 3.6 */
+    public static final String CFG_SEED = "kMeansPlusPlusSeed";
+
     private static final String SETTINGS_FILE_NAME = "kMeansInternalSettings";
 
     private static final String CFG_COVERAGE = "clusterCoverage";
@@ -168,6 +176,10 @@ public class ClusterNodeModel extends NodeModel {
 
     private final SettingsModelBoolean m_enableHilite = new SettingsModelBoolean(CFG_ENABLE_HILITE, false);
 
+    private final SettingsModelBoolean m_kMeansPlusPlus = createKMeansPlusPlusModel();
+
+    private final SettingsModelInteger m_seed = createSeedModel();
+
     private ClusterViewData m_viewData;
 
     private boolean m_pmmlInEnabled;
@@ -243,6 +255,8 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_nrMaxIterations.saveSettingsTo(settings);
         m_usedColumns.saveSettingsTo(settings);
         m_enableHilite.saveSettingsTo(settings);
+        m_kMeansPlusPlus.saveSettingsTo(settings);
+        m_seed.saveSettingsTo(settings);
     }
 
     /**
@@ -267,6 +281,11 @@ protected void validateSettings(final NodeSettingsRO settings) throws InvalidSet
         } catch (InvalidSettingsException ise) {
             // do nothing: problably an old workflow
         }
+        // added in 3.6
+        if (settings.containsKey(CFG_KMEANS_PLUS_PLUS)) {
+            m_kMeansPlusPlus.validateSettings(settings);
+            m_seed.validateSettings(settings);
+        }
     }
 
     /**
@@ -290,6 +309,13 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws I
         } else {
             m_enableHilite.setBooleanValue(false);
         }
+        // added in 3.6
+        if (settings.containsKey(CFG_KMEANS_PLUS_PLUS)) {
+            m_kMeansPlusPlus.loadSettingsFrom(settings);
+            m_seed.loadSettingsFrom(settings);
+        } else {
+            m_kMeansPlusPlus.setBooleanValue(false);
+        }
         try {
             m_usedColumns.loadSettingsFrom(settings);
         } catch (InvalidSettingsException ise) {
@@ -313,69 +339,29 @@ protected PortObject[] execute(final PortObject[] data, final ExecutionContext e
         m_dimension = inData.getDataTableSpec().getNumColumns();
         HashMap<RowKey, Set<RowKey>> mapping = new HashMap<RowKey, Set<RowKey>>();
         addExcludeColumnsToIgnoreList(spec);
-        double[][] clusters = initializeClusters(inData);
-
-        // also keep counts of how many patterns fall in a specific cluster
-        int[] clusterCoverage = new int[m_nrOfClusters.getIntValue()];
-
-        // --------- create clusters --------------
-        // reserve space for cluster center updates (do batch update!)
-        double[][] delta = new double[m_nrOfClusters.getIntValue()][];
-        for (int c = 0; c < m_nrOfClusters.getIntValue(); c++) {
-            delta[c] = new double[m_dimension - m_nrIgnoredColumns];
+        int[] usedColumns = new int[m_dimension - m_nrIgnoredColumns];
+        for (int i = 0, pos = 0; i < m_dimension; i++) {
+            if (!m_ignoreColumn[i]) {
+                usedColumns[pos++] = i;
+            }
         }
 
-        // main loop - until clusters stop changing or maxNrIterations reached
-        int currentIteration = 0;
-        boolean finished = false;
-        while ((!finished) && (currentIteration < m_nrMaxIterations.getIntValue())) {
-            exec.checkCanceled();
-            exec.setProgress((double)currentIteration / (double)m_nrMaxIterations.getIntValue(),
-                                 "Iteration " + currentIteration);
-            // initialize counts and cluster-deltas
-            for (int c = 0; c < m_nrOfClusters.getIntValue(); c++) {
-                clusterCoverage[c] = 0;
-                delta[c] = new double[m_dimension - m_nrIgnoredColumns];
-                int deltaPos = 0;
-                for (int i = 0; i < m_dimension; i++) {
-                    if (!m_ignoreColumn[i]) {
-                        delta[c][deltaPos++] = 0.0;
-                    }
-                }
-            }
-            // assume that we are done (i.e. clusters have stopped changing)
-            finished = true;
-            RowIterator rowIt = inData.iterator(); // first training example
-            while (rowIt.hasNext()) {
-                DataRow currentRow = rowIt.next();
-                int winner = findClosestPrototypeFor(currentRow, clusters);
-                if (winner >= 0) {
-                    // update winning cluster centers delta
-                    int deltaPos = 0;
-                    for (int i = 0; i < m_dimension; i++) {
-                        DataCell currentCell = currentRow.getCell(i);
-                        if (!m_ignoreColumn[i]) {
-                            if (!currentCell.isMissing()) {
-                                delta[winner][deltaPos] += ((DoubleValue)(currentCell)).getDoubleValue();
-                            } else {
-                                throw new Exception("Missing Values not (yet) allowed in k-Means.");
-                            }
-                            deltaPos++;
-                        }
-                    }
-                    clusterCoverage[winner]++;
-                } else {
-                    // we didn't find any winner - very odd
-                    assert (winner >= 0); // let's report this during
-                    // debugging!
-                    // otherwise just don't reproduce result
-                    throw new IllegalStateException("No winner found: " + winner);
-                }
+        // read the numeric values once into a primitive matrix (spilled to disk if too large)
+        final double[][] clusters;
+        final int[] clusterCoverage;
+        final int[] assignment;
+        try (ClusterDataMatrix matrix = ClusterDataMatrix.create(inData, usedColumns, exec.createSubProgress(0.1))) {
+            KMeansAlgorithm kMeans = new KMeansAlgorithm(matrix, m_nrOfClusters.getIntValue());
+            if (m_kMeansPlusPlus.getBooleanValue()) {
+                clusters = kMeans.initializeKMeansPlusPlus(m_seed.getIntValue(), exec.createSubProgress(0.1));
+            } else {
+                clusters = kMeans.initializeWithFirstRows();
             }
-            // update cluster centers
-            finished = updateClusterCenters(clusterCoverage, clusters, delta);
-            currentIteration++;
-        } // while(!finished & nrIt<maxNrIt)
+            // --------- create clusters --------------
+            // main loop - until clusters stop changing or maxNrIterations reached
+            clusterCoverage = kMeans.run(clusters, m_nrMaxIterations.getIntValue(), exec.createSubProgress(0.7));
+            assignment = kMeans.getAssignment();
+        }
         // create list of feature names
         int k = 0;  // index of not-ignored columns
         int j = 0;  // index of column
@@ -388,9 +374,12 @@ protected PortObject[] execute(final PortObject[] data, final ExecutionContext e
             j++;
         } while (j < m_dimension);
         // create output container and also mapping for HiLiteing
-        BufferedDataContainer labeledInput = exec.createDataContainer(createAppendedSpec(spec));
+        ExecutionContext labelExec = exec.createSubExecutionContext(0.1);
+        BufferedDataContainer labeledInput = labelExec.createDataContainer(createAppendedSpec(spec));
+        int rowIndex = 0;
         for (DataRow row : inData) {
-            int winner = findClosestPrototypeFor(row, clusters);
+            labelExec.checkCanceled();
+            int winner = assignment[rowIndex++];
             DataCell cell = new StringCell(CLUSTER + winner);
             labeledInput.addRowToTable(new AppendedColumnRow(row, cell));
             if (m_enableHilite.getBooleanValue()) {
@@ -444,93 +433,6 @@ protected PortObject[] execute(final PortObject[] data, final ExecutionContext e
         }
      }
 
-    private boolean updateClusterCenters(final int[] clusterCoverage,
-                                        final double[][] clusters,
-                                        final double[][] delta) {
-        boolean finished = true;
-        for (int c = 0; c < m_nrOfClusters.getIntValue(); c++) {
-            if (clusterCoverage[c] > 0) {
-                // only update clusters who do cover some pattern:
-                int pos = 0;
-                for (int i = 0; i < m_dimension; i++) {
-                    if (m_ignoreColumn[i]) {
-                        continue;
-                    }
-                    // normalize delta by nr of covered patterns
-                    double newValue = delta[c][pos] / clusterCoverage[c];
-                    // compare before assigning the value to make sure we
-                    // don't stop if things have changed substantially
-                    if (Math.abs(clusters[c][pos] - newValue) > 1e-10) {
-                        finished = false;
-                    }
-                    clusters[c][pos] = newValue;
-                    pos++;
-                }
-            }
-        }
-        return finished;
-    }
-
-    private double[][] initializeClusters(final DataTable input) {
-        // initialize matrix of double (nr clusters * input dimension)
-        double[][] clusters = new double[m_nrOfClusters.getIntValue()][];
-        for (int c = 0; c < m_nrOfClusters.getIntValue(); c++) {
-            clusters[c] = new double[m_dimension - m_nrIgnoredColumns];
-        }
-        // initialize cluster centers with values of first rows in table
-        RowIterator rowIt = input.iterator();
-        int c = 0;
-        while (rowIt.hasNext() && c < m_nrOfClusters.getIntValue()) {
-            DataRow currentRow = rowIt.next();
-            int pos = 0;
-            for (int i = 0; i < currentRow.getNumCells(); i++) {
-                if (!m_ignoreColumn[i]) {
-                    if (currentRow.getCell(i).isMissing()) {
-                        clusters[c][pos] = 0;
-                        // missing value: replace with zero
-                    } else {
-                        assert currentRow.getCell(i).getType().isCompatible(DoubleValue.class);
-                        DoubleValue currentValue = (DoubleValue)currentRow.getCell(i);
-                        clusters[c][pos] = currentValue.getDoubleValue();
-                    }
-                    pos++;
-                }
-            }
-            c++;
-        }
-        return clusters;
-    }
-
-    private int findClosestPrototypeFor(final DataRow row, final double[][] clusters) {
-        // find closest cluster center
-        int winner = -1; // closest cluster so far
-        double winnerDistance = Double.MAX_VALUE; // best distance
-        for (int c = 0; c < m_nrOfClusters.getIntValue(); c++) {
-            double distance = 0.0;
-            int pos = 0;
-            for (int i = 0; i < m_dimension; i++) {
-                DataCell currentCell = row.getCell(i);
-                if (!m_ignoreColumn[i]) {
-                    if (!currentCell.isMissing()) {
-                        assert currentCell.getType().isCompatible(DoubleValue.class);
-                        double d = (clusters[c][pos] - ((DoubleValue)(currentCell)).getDoubleValue());
-                        if (!Double.isNaN(d)) {
-                            distance += d * d;
-                        }
-                    } else {
-                        distance += 0.0; // missing
-                    }
-                    pos++;
-                }
-            }
-            if (distance < winnerDistance) { // found closer cluster
-                winner = c; // make it new winner
-                winnerDistance = distance;
-            }
-        } // for all clusters (find closest one)
-        return winner;
-    }
-
     /**
      * Clears the model.
      *
@@ -804,4 +706,18 @@ protected void saveInternals(final File internDir,
     ClusterViewData getViewData() {
         return m_viewData;
     }
+
+    /**
+     * @return settings model for the k-means++ initialization
+     */
+    static SettingsModelBoolean createKMeansPlusPlusModel() {
+        return new SettingsModelBoolean(CFG_KMEANS_PLUS_PLUS, false);
+    }
+
+    /**
+     * @return settings model for the seed of the k-means++ initialization
+     */
+    static SettingsModelInteger createSeedModel() {
+        return new SettingsModelInteger(CFG_SEED, 1234567);
+    }
 }
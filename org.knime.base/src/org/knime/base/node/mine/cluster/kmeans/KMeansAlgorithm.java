@@ -0,0 +1,415 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.cluster.kmeans;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.ParallelTasks;
+
+/**
+ * Multi-threaded k-Means (Lloyd's algorithm) on a {@link ClusterDataMatrix}. The rows are assigned to their closest
+ * prototype in parallel over the blocks of the matrix, each task accumulating partial sums which are merged in a fixed
+ * order, so results do not depend on thread scheduling or on the number of processors.
+ *
+ * <p>
+ * Distance computations are pruned using Hamerly's bounds: for every row an upper bound on the distance to its
+ * assigned prototype and a lower bound on the distance to all other prototypes are maintained. A row whose upper bound
+ * is below both the lower bound and half the distance of its prototype to the closest other prototype keeps its
+ * assignment without computing any distance. Pruning is disabled if the data contains NaN values (the distance is then
+ * computed over the non-NaN dimensions only and is not a metric) or if the bounds don't fit into memory.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class KMeansAlgorithm {
+
+    /**
+     * The maximum number of tasks the blocks are distributed to. It is fixed (rather than derived from the number of
+     * processors) because the partial sums of the tasks are merged in task order, so the partition of the blocks
+     * determines the rounding of the prototypes.
+     */
+    private static final int MAX_NR_TASKS = 64;
+
+    private final ClusterDataMatrix m_data;
+
+    private final int m_nrClusters;
+
+    private final int m_dimension;
+
+    private final int m_nrTasks;
+
+    private final int[] m_assignment;
+
+    // Hamerly bounds, null if pruning is disabled
+    private final double[] m_upper;
+
+    private final double[] m_lower;
+
+    // whether m_assignment and the bounds have been computed
+    private boolean m_boundsValid;
+
+    /**
+     * @param data the data to cluster
+     * @param nrClusters the number of prototypes
+     */
+    KMeansAlgorithm(final ClusterDataMatrix data, final int nrClusters) {
+        m_data = data;
+        m_nrClusters = nrClusters;
+        m_dimension = data.getDimension();
+        m_nrTasks = Math.max(1, Math.min(data.getBlockCount(), MAX_NR_TASKS));
+        final int rowCount = data.getRowCount();
+        m_assignment = new int[rowCount];
+        final boolean prune = !data.containsNaN() && nrClusters > 1
+            && 16.0 * rowCount < MemoryAlertSystem.getMaximumMemory() / 4.0;
+        m_upper = prune ? new double[rowCount] : null;
+        m_lower = prune ? new double[rowCount] : null;
+    }
+
+    /**
+     * Initializes the prototypes with the first rows of the data. If there are fewer rows than prototypes the
+     * remaining prototypes are located at the origin.
+     *
+     * @return the initial prototypes
+     * @throws IOException if reading spilled data fails
+     */
+    double[][] initializeWithFirstRows() throws IOException {
+        final double[][] clusters = new double[m_nrClusters][m_dimension];
+        for (int c = 0; c < Math.min(m_nrClusters, m_data.getRowCount()); c++) {
+            m_data.getRow(c, clusters[c]);
+        }
+        return clusters;
+    }
+
+    /**
+     * Initializes the prototypes using k-means++ seeding, i.e. the first prototype is a random row and every further
+     * prototype is a row drawn with probability proportional to its squared distance to the closest prototype chosen
+     * so far.
+     *
+     * @param seed the seed of the random number generator
+     * @param exec for progress and cancelation
+     * @return the initial prototypes
+     * @throws CanceledExecutionException if canceled
+     * @throws IOException if reading spilled data fails
+     */
+    double[][] initializeKMeansPlusPlus(final long seed, final ExecutionMonitor exec)
+        throws CanceledExecutionException, IOException {
+        final double[][] clusters = new double[m_nrClusters][m_dimension];
+        final int rowCount = m_data.getRowCount();
+        if (rowCount == 0) {
+            return clusters;
+        }
+        final Random random = new Random(seed);
+        final double[] minDistances = new double[rowCount];
+        Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+        m_data.getRow(random.nextInt(rowCount), clusters[0]);
+        final int nrSeeds = Math.min(m_nrClusters, rowCount);
+        for (int c = 1; c < nrSeeds; c++) {
+            exec.checkCanceled();
+            exec.setProgress(c / (double)nrSeeds, "Choosing initial prototype " + (c + 1) + " of " + nrSeeds);
+            final double[] last = clusters[c - 1];
+            forEachBlock((task, block, values, start, rows) -> {
+                for (int r = 0; r < rows; r++) {
+                    final double d = squaredDistance(values, r * m_dimension, last, 0);
+                    if (d < minDistances[start + r]) {
+                        minDistances[start + r] = d;
+                    }
+                }
+            });
+            double total = 0.0;
+            for (double d : minDistances) {
+                total += d;
+            }
+            int next;
+            if (total > 0.0 && !Double.isInfinite(total)) {
+                final double target = random.nextDouble() * total;
+                double cumulative = 0.0;
+                next = rowCount - 1;
+                for (int i = 0; i < rowCount; i++) {
+                    cumulative += minDistances[i];
+                    if (cumulative > target) {
+                        next = i;
+                        break;
+                    }
+                }
+            } else {
+                // all rows coincide with the prototypes chosen so far
+                next = random.nextInt(rowCount);
+            }
+            m_data.getRow(next, clusters[c]);
+        }
+        return clusters;
+    }
+
+    /**
+     * Runs k-Means until the prototypes stop changing or the maximum number of iterations is reached. Afterwards the
+     * rows are assigned to the final prototypes, see {@link #getAssignment()}.
+     *
+     * @param clusters the initial prototypes, updated in place
+     * @param maxIterations the maximum number of iterations
+     * @param exec for progress and cancelation
+     * @return the number of rows covered by each prototype in the last iteration
+     * @throws CanceledExecutionException if canceled
+     * @throws IOException if reading spilled data fails
+     */
+    int[] run(final double[][] clusters, final int maxIterations, final ExecutionMonitor exec)
+        throws CanceledExecutionException, IOException {
+        int[] coverage = new int[m_nrClusters];
+        double[] moves = new double[m_nrClusters];
+        boolean finished = false;
+        int iteration = 0;
+        while (!finished && iteration < maxIterations) {
+            exec.checkCanceled();
+            exec.setProgress(iteration / (double)maxIterations, "Iteration " + iteration);
+            final Partial[] partials = assign(clusters, moves, true);
+            final double[] sums = new double[m_nrClusters * m_dimension];
+            Arrays.fill(coverage, 0);
+            for (Partial p : partials) {
+                for (int i = 0; i < sums.length; i++) {
+                    sums[i] += p.m_sums[i];
+                }
+                for (int c = 0; c < m_nrClusters; c++) {
+                    coverage[c] += p.m_counts[c];
+                }
+            }
+            finished = updateClusterCenters(clusters, sums, coverage, moves);
+            iteration++;
+        }
+        // label rows with respect to the final prototypes
+        assign(clusters, moves, false);
+        return coverage;
+    }
+
+    /**
+     * @return the index of the closest prototype for each row, valid after {@link #run(double[][], int,
+     *         ExecutionMonitor)}
+     */
+    int[] getAssignment() {
+        return m_assignment;
+    }
+
+    /**
+     * Sets the prototypes to the mean of their rows. Prototypes without rows are left untouched.
+     *
+     * @return whether no prototype moved by more than 1e-10 in any dimension
+     */
+    private boolean updateClusterCenters(final double[][] clusters, final double[] sums, final int[] coverage,
+        final double[] moves) {
+        boolean finished = true;
+        for (int c = 0; c < m_nrClusters; c++) {
+            moves[c] = 0.0;
+            if (coverage[c] > 0) {
+                double move = 0.0;
+                for (int i = 0; i < m_dimension; i++) {
+                    final double newValue = sums[c * m_dimension + i] / coverage[c];
+                    final double diff = clusters[c][i] - newValue;
+                    if (Math.abs(diff) > 1e-10) {
+                        finished = false;
+                    }
+                    move += diff * diff;
+                    clusters[c][i] = newValue;
+                }
+                moves[c] = Math.sqrt(move);
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Assigns every row to its closest prototype, using and updating the Hamerly bounds if enabled.
+     *
+     * @param clusters the current prototypes
+     * @param moves the distance each prototype moved since the bounds were last updated
+     * @param accumulate whether to compute partial sums and counts
+     * @return the partial sums of the tasks, in task order, <code>null</code> entries if not accumulated
+     */
+    private Partial[] assign(final double[][] clusters, final double[] moves, final boolean accumulate)
+        throws CanceledExecutionException, IOException {
+        final Partial[] partials = new Partial[m_nrTasks];
+        for (int t = 0; t < m_nrTasks; t++) {
+            partials[t] = accumulate ? new Partial(m_nrClusters, m_dimension) : null;
+        }
+        final boolean prune = m_upper != null && m_boundsValid;
+        final double[] halfMin = prune ? halfMinimumCenterDistances(clusters) : null;
+        double maxMoveTmp = 0.0;
+        for (double m : moves) {
+            maxMoveTmp = Math.max(maxMoveTmp, m);
+        }
+        final double maxMove = maxMoveTmp;
+        forEachBlock((task, block, values, start, rows) -> {
+            final Partial partial = partials[task];
+            for (int r = 0; r < rows; r++) {
+                final int row = start + r;
+                final int offset = r * m_dimension;
+                int winner;
+                if (prune) {
+                    winner = m_assignment[row];
+                    double upper = m_upper[row] + moves[winner];
+                    final double lower = m_lower[row] - maxMove;
+                    final double bound = Math.max(halfMin[winner], lower);
+                    if (upper >= bound) {
+                        upper = Math.sqrt(squaredDistance(values, offset, clusters[winner], 0));
+                        if (upper >= bound) {
+                            winner = findClosest(values, offset, clusters, row);
+                        } else {
+                            m_upper[row] = upper;
+                            m_lower[row] = lower;
+                        }
+                    } else {
+                        m_upper[row] = upper;
+                        m_lower[row] = lower;
+                    }
+                } else {
+                    winner = findClosest(values, offset, clusters, row);
+                }
+                m_assignment[row] = winner;
+                if (partial != null) {
+                    final int sumOffset = winner * m_dimension;
+                    for (int i = 0; i < m_dimension; i++) {
+                        partial.m_sums[sumOffset + i] += values[offset + i];
+                    }
+                    partial.m_counts[winner]++;
+                }
+            }
+        });
+        m_boundsValid = true;
+        Arrays.fill(moves, 0.0);
+        return partials;
+    }
+
+    /**
+     * Finds the closest prototype by comparing squared distances; ties are resolved in favor of the lower index. Also
+     * resets the bounds of the row if pruning is enabled.
+     */
+    private int findClosest(final double[] values, final int offset, final double[][] clusters, final int row) {
+        int winner = -1;
+        double winnerDistance = Double.MAX_VALUE;
+        double secondDistance = Double.MAX_VALUE;
+        for (int c = 0; c < m_nrClusters; c++) {
+            final double distance = squaredDistance(values, offset, clusters[c], 0);
+            if (distance < winnerDistance) {
+                secondDistance = winnerDistance;
+                winner = c;
+                winnerDistance = distance;
+            } else if (distance < secondDistance) {
+                secondDistance = distance;
+            }
+        }
+        if (winner < 0) {
+            throw new IllegalStateException("No winner found: " + winner);
+        }
+        if (m_upper != null) {
+            m_upper[row] = Math.sqrt(winnerDistance);
+            m_lower[row] = Math.sqrt(secondDistance);
+        }
+        return winner;
+    }
+
+    /** @return for every prototype half the distance to its closest other prototype */
+    private double[] halfMinimumCenterDistances(final double[][] clusters) {
+        final double[] halfMin = new double[m_nrClusters];
+        Arrays.fill(halfMin, Double.POSITIVE_INFINITY);
+        for (int c1 = 0; c1 < m_nrClusters; c1++) {
+            for (int c2 = c1 + 1; c2 < m_nrClusters; c2++) {
+                final double half = 0.5 * Math.sqrt(squaredDistance(clusters[c1], 0, clusters[c2], 0));
+                halfMin[c1] = Math.min(halfMin[c1], half);
+                halfMin[c2] = Math.min(halfMin[c2], half);
+            }
+        }
+        return halfMin;
+    }
+
+    /** Squared euclidean distance, dimensions with a NaN difference are ignored. */
+    private double squaredDistance(final double[] a, final int aOffset, final double[] b, final int bOffset) {
+        double distance = 0.0;
+        for (int i = 0; i < m_dimension; i++) {
+            final double d = a[aOffset + i] - b[bOffset + i];
+            if (!Double.isNaN(d)) {
+                distance += d * d;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Runs the consumer for all blocks of the matrix. Task <code>t</code> processes the blocks <code>t</code>,
+     * <code>t + nrTasks</code>, ... so the partition of the rows into tasks is independent of the scheduling.
+     */
+    private void forEachBlock(final BlockConsumer consumer) throws CanceledExecutionException, IOException {
+        final int blockCount = m_data.getBlockCount();
+        ParallelTasks.<IOException> forEach(m_nrTasks, task -> {
+            final double[] buffer = new double[m_data.getBlockBufferSize()];
+            final ByteBuffer bytes = m_data.createReadBuffer();
+            for (int b = task; b < blockCount; b += m_nrTasks) {
+                consumer.accept(task, b, m_data.getBlock(b, buffer, bytes), m_data.getBlockStart(b),
+                    m_data.getBlockRowCount(b));
+            }
+        });
+    }
+
+    /** Processes the rows of one block. */
+    @FunctionalInterface
+    private interface BlockConsumer {
+        void accept(int task, int block, double[] values, int start, int rows) throws IOException;
+    }
+
+    /** Partial cluster sums and counts of one task. */
+    private static final class Partial {
+
+        private final double[] m_sums;
+
+        private final int[] m_counts;
+
+        Partial(final int nrClusters, final int dimension) {
+            m_sums = new double[nrClusters * dimension];
+            m_counts = new int[nrClusters];
+        }
+    }
+}
@@ -51,6 +51,7 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -362,6 +363,18 @@ public class DecisionTreeLearnerNodeModel2 extends NodeModel {
 
     private double m_alloverRowCount;
 
+    /**
+     * Whether the attribute splits of a node may be evaluated concurrently in
+     * the thread pool of the building thread.
+     */
+    private boolean m_parallelSplits;
+
+    /**
+     * Collects the time spent on finding the splits and partitioning per
+     * tree level.
+     */
+    private LevelTimer m_levelTimer;
+
     /**
      * Builder for warning message
      */
@@ -525,11 +538,17 @@ protected PortObject[] execute(final PortObject[] data,
         // before this set the node counter to 0
         m_counter.set(0);
         exec.setMessage("Building tree...");
+        m_parallelSplits = parallelProcessing.getMaxNumberThreads() > 1;
+        m_levelTimer = new LevelTimer();
 
         final int firstSplitColIdx = initialTable.getAttributeIndex(m_firstSplitCol.getStringValue());
 
         DecisionTreeNode root = null;
         root = buildTree(initialTable, exec, 0, splitQualityMeasure, parallelProcessing, firstSplitColIdx);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Tree building time per level:\n" + m_levelTimer);
+        }
+        m_levelTimer = null;
         boolean isBinaryNominal = m_binaryNominalSplitMode.getBooleanValue();
         boolean isFilterInvalidAttributeValues =
             m_filterNominalValuesFromParent.getBooleanValue();
@@ -698,6 +717,7 @@ private DecisionTreeNode buildTree(final InMemoryTable table, final ExecutionCon
                             + nodeId + " at level " + depth);
             return new DecisionTreeNodeLeaf(nodeId, majorityClass, frequencies);
         } else {
+            final long start = System.nanoTime();
             Split split = null;
             // find best split in specified column for first split
             if (depth == 0 && m_useFirstSplitCol.getBooleanValue()) {
@@ -723,7 +743,8 @@ private DecisionTreeNode buildTree(final InMemoryTable table, final ExecutionCon
                 // find the best splits for all attributes
                 SplitFinder splittFinder = new SplitFinder(table, splitQualityMeasure,
                     m_averageSplitpoint.getBooleanValue(), m_minNumberRecordsPerNode.getIntValue(),
-                    m_binaryNominalSplitMode.getBooleanValue(), m_maxNumNominalsForCompleteComputation.getIntValue());
+                    m_binaryNominalSplitMode.getBooleanValue(), m_maxNumNominalsForCompleteComputation.getIntValue(),
+                    m_parallelSplits);
                 // check for enough memory
                 checkMemory();
 
@@ -733,6 +754,7 @@ private DecisionTreeNode buildTree(final InMemoryTable table, final ExecutionCon
 
             // if no best split could be evaluated, create a leaf node
             if (split == null || !split.isValidSplit()) {
+                m_levelTimer.add(depth, System.nanoTime() - start);
                 table.freeUnderlyingDataRows();
                 double value =
                         m_finishedCounter.incrementAndGet(table
@@ -746,6 +768,7 @@ private DecisionTreeNode buildTree(final InMemoryTable table, final ExecutionCon
             // partition the attribute lists according to this split
             Partitioner partitioner = new Partitioner(table, split,
                     m_minNumberRecordsPerNode.getIntValue());
+            m_levelTimer.add(depth, System.nanoTime() - start);
 
             if (!partitioner.couldBeUsefulPartitioned()) {
                 table.freeUnderlyingDataRows();
@@ -1156,6 +1179,45 @@ public DecisionTree getDecisionTree() {
         return m_decisionTree;
     }
 
+    /**
+     * Sums up the time spent on finding the splits and partitioning the data
+     * per tree level. The nodes of a level may be built by different threads,
+     * the time is therefore the accumulated time of all threads.
+     */
+    private static final class LevelTimer {
+
+        private long[] m_nanos = new long[16];
+
+        private int[] m_numNodes = new int[16];
+
+        private int m_numLevels;
+
+        private synchronized void add(final int depth, final long nanos) {
+            if (depth >= m_nanos.length) {
+                int newLength = Math.max(2 * m_nanos.length, depth + 1);
+                m_nanos = Arrays.copyOf(m_nanos, newLength);
+                m_numNodes = Arrays.copyOf(m_numNodes, newLength);
+            }
+            m_nanos[depth] += nanos;
+            m_numNodes[depth]++;
+            m_numLevels = Math.max(m_numLevels, depth + 1);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < m_numLevels; i++) {
+                sb.append("Level ").append(i).append(": ")
+                        .append(m_numNodes[i]).append(" split nodes, ")
+                        .append(m_nanos[i] / 1000000).append(" ms\n");
+            }
+            return sb.toString();
+        }
+    }
+
     private final class ParallelBuilding extends ThreadWithContext {
 
         private final InMemoryTable m_table;
@@ -131,6 +131,38 @@ public class InMemoryTable implements Iterable<DataRowWeighted> {
      */
     private double m_sumOfWeights;
 
+    /**
+     * For each numeric attribute the positions of the rows sorted ascending
+     * by the attribute value with the missing values at the end. Entries are
+     * <code>null</code> for nominal attributes and for attributes that have
+     * not been sorted yet. Once created at the root, the orders are handed
+     * down to the partitions so that no further sorting is necessary.
+     */
+    private final int[][] m_sortedRowIndices;
+
+    /**
+     * The attribute values in the order of {@link #m_sortedRowIndices}.
+     */
+    private final double[][] m_sortedValues;
+
+    /**
+     * The class values of the rows as primitive column, created on
+     * {@link #pack()}.
+     */
+    private int[] m_classColumn;
+
+    /**
+     * The weights of the rows as primitive column, created on
+     * {@link #pack()}.
+     */
+    private double[] m_weightColumn;
+
+    /**
+     * Whether any of the primitive columns or sort orders has been created,
+     * i.e. whether they need to be cleared if the rows change.
+     */
+    private boolean m_hasDerivedColumns;
+
     /**
      * Creates an empty table that keeps all rows in memory. The
      * {@link ValueMapper} array must contain mappers only at array positions
@@ -189,6 +221,8 @@ public InMemoryTable(
         for (int i = 0; i < m_considerAttribute.length; i++) {
             m_considerAttribute[i] = true;
         }
+        m_sortedRowIndices = new int[nominalAttributeValueMapper.length][];
+        m_sortedValues = new double[nominalAttributeValueMapper.length][];
     }
 
     /**
@@ -229,6 +263,8 @@ public InMemoryTable(final InMemoryTable tableTemplate) {
         // initialize the boolean array remembering whether an attribute
         // should be considered during learning
         m_considerAttribute = tableTemplate.m_considerAttribute.clone();
+        m_sortedRowIndices = new int[m_nominalAttributeValueMapper.length][];
+        m_sortedValues = new double[m_nominalAttributeValueMapper.length][];
     }
 
     /**
@@ -297,6 +333,7 @@ public boolean isNominal(final int index) {
      */
     public void freeUnderlyingDataRows() {
         m_rows = null;
+        clearDerivedColumns();
     }
 
     /**
@@ -373,6 +410,9 @@ public void addRow(final DataRowWeighted row) {
 
         }
 
+        // the primitive columns and sort orders do not know the new row
+        clearDerivedColumns();
+
         // add the row, before this, check the capacity of the array
         ensureCapacity(m_size + 1);
         m_rows[m_size] = row;
@@ -537,13 +577,242 @@ private void ensureCapacity(final int minCapacity) {
 
     /**
      * Sets the size of the underlying array to the number of elements in the
-     * list.
+     * list and creates the primitive class value and weight columns.
      */
     public void pack() {
         int oldCapacity = m_rows.length;
         if (m_size < oldCapacity) {
             m_rows = Arrays.copyOf(m_rows, m_size);
         }
+        int[] classColumn = new int[m_size];
+        double[] weightColumn = new double[m_size];
+        for (int i = 0; i < m_size; i++) {
+            classColumn[i] = m_rows[i].getClassValue();
+            weightColumn[i] = m_rows[i].getWeight();
+        }
+        m_classColumn = classColumn;
+        m_weightColumn = weightColumn;
+        m_hasDerivedColumns = true;
+    }
+
+    /**
+     * Drops the primitive columns and sort orders. Only does work if they
+     * have been created since they were cleared last, so that adding rows
+     * one by one stays linear in the number of rows.
+     */
+    private void clearDerivedColumns() {
+        if (m_hasDerivedColumns) {
+            m_classColumn = null;
+            m_weightColumn = null;
+            Arrays.fill(m_sortedRowIndices, null);
+            Arrays.fill(m_sortedValues, null);
+            m_hasDerivedColumns = false;
+        }
+    }
+
+    /**
+     * Returns the class values of all rows as primitive column. The table
+     * must have been {@link #pack() packed}.
+     *
+     * @return the class values indexed by row position
+     */
+    int[] getClassColumn() {
+        if (m_classColumn == null) {
+            pack();
+        }
+        return m_classColumn;
+    }
+
+    /**
+     * Returns the weights of all rows as primitive column. The table must
+     * have been {@link #pack() packed}.
+     *
+     * @return the weights indexed by row position
+     */
+    double[] getWeightColumn() {
+        if (m_weightColumn == null) {
+            pack();
+        }
+        return m_weightColumn;
+    }
+
+    /**
+     * Returns the row positions sorted ascending on the given numeric
+     * attribute with the missing values at the end. The order is computed on
+     * the first call (usually at the root of the tree) and afterwards handed
+     * down to the partitions (see {@link #passSortedIndicesTo}). Concurrent
+     * calls are only allowed for different attributes.
+     *
+     * @param attributeIndex the index of the numeric attribute
+     * @return the sorted row positions, must not be modified
+     */
+    int[] getSortedRowIndices(final int attributeIndex) {
+        ensureSorted(attributeIndex);
+        return m_sortedRowIndices[attributeIndex];
+    }
+
+    /**
+     * Returns the values of the given numeric attribute in the order of
+     * {@link #getSortedRowIndices(int)}, i.e. ascending with the missing
+     * values (NaN) at the end.
+     *
+     * @param attributeIndex the index of the numeric attribute
+     * @return the sorted attribute values, must not be modified
+     */
+    double[] getSortedValues(final int attributeIndex) {
+        ensureSorted(attributeIndex);
+        return m_sortedValues[attributeIndex];
+    }
+
+    private void ensureSorted(final int attributeIndex) {
+        assert !isNominal(attributeIndex);
+        if (m_sortedRowIndices[attributeIndex] != null) {
+            return;
+        }
+        if (m_rows == null) {
+            throw new RuntimeException("Data rows have been removed.");
+        }
+        int[] indices = new int[m_size];
+        double[] values = new double[m_size];
+        int numValid = 0;
+        int missingPos = m_size;
+        // missing values are put at the end in the order of the rows
+        for (int i = m_size - 1; i >= 0; i--) {
+            double value = m_rows[i].getValue(attributeIndex);
+            if (Double.isNaN(value)) {
+                missingPos--;
+                indices[missingPos] = i;
+                values[missingPos] = value;
+            }
+        }
+        for (int i = 0; i < m_size; i++) {
+            double value = m_rows[i].getValue(attributeIndex);
+            if (!Double.isNaN(value)) {
+                indices[numValid] = i;
+                values[numValid] = value;
+                numValid++;
+            }
+        }
+        sort(values, indices, 0, numValid - 1);
+        m_sortedValues[attributeIndex] = values;
+        m_sortedRowIndices[attributeIndex] = indices;
+        m_hasDerivedColumns = true;
+    }
+
+    /**
+     * Sorts the values and the row positions in the given (inclusive) range
+     * ascending on the values. Recurses into the smaller part only to limit
+     * the stack depth.
+     */
+    private static void sort(final double[] values, final int[] indices,
+            final int left, final int right) {
+        int l = left;
+        int r = right;
+        while (r - l > 16) {
+            int mid = partition(values, indices, l, r);
+            if (mid - l < r - mid) {
+                sort(values, indices, l, mid);
+                l = mid + 1;
+            } else {
+                sort(values, indices, mid + 1, r);
+                r = mid;
+            }
+        }
+        // insertion sort for the small remainder
+        for (int i = l + 1; i <= r; i++) {
+            double value = values[i];
+            int index = indices[i];
+            int j = i - 1;
+            while (j >= l && values[j] > value) {
+                values[j + 1] = values[j];
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            values[j + 1] = value;
+            indices[j + 1] = index;
+        }
+    }
+
+    private static int partition(final double[] values, final int[] indices,
+            final int left, final int right) {
+        final double pivot = values[(left + right) >>> 1];
+        int i = left - 1;
+        int j = right + 1;
+        while (true) {
+            do {
+                i++;
+            } while (values[i] < pivot);
+            do {
+                j--;
+            } while (values[j] > pivot);
+            if (i >= j) {
+                return j;
+            }
+            double tempValue = values[i];
+            values[i] = values[j];
+            values[j] = tempValue;
+            int tempIndex = indices[i];
+            indices[i] = indices[j];
+            indices[j] = tempIndex;
+        }
+    }
+
+    /**
+     * Hands the sort orders of this table down to the partitions created from
+     * it. The orders are partitioned stably, i.e. the partitions receive
+     * their rows already sorted and do not have to sort again.
+     *
+     * @param partitions the partition tables, already filled and packed
+     * @param partitionOfRow for each row of this table the index of the
+     *            partition it was added to or -1 if it was added to all
+     *            partitions (missing split value)
+     * @param positionOfRow for each row of this table the position in its
+     *            partition; for rows added to all partitions the offset into
+     *            <code>replicatedPositions</code>
+     * @param replicatedPositions the positions of the rows added to all
+     *            partitions; for the k-th such row the position in partition
+     *            p is stored at <code>k * partitions.length + p</code>
+     */
+    void passSortedIndicesTo(final InMemoryTable[] partitions,
+            final int[] partitionOfRow, final int[] positionOfRow,
+            final int[] replicatedPositions) {
+        final int numPartitions = partitions.length;
+        for (int a = 0; a < m_sortedRowIndices.length; a++) {
+            int[] parentIndices = m_sortedRowIndices[a];
+            if (parentIndices == null) {
+                continue;
+            }
+            double[] parentValues = m_sortedValues[a];
+            int[][] indices = new int[numPartitions][];
+            double[][] values = new double[numPartitions][];
+            int[] fill = new int[numPartitions];
+            for (int p = 0; p < numPartitions; p++) {
+                int size = partitions[p].getNumberDataRows();
+                indices[p] = new int[size];
+                values[p] = new double[size];
+            }
+            for (int i = 0; i < parentIndices.length; i++) {
+                int row = parentIndices[i];
+                int partition = partitionOfRow[row];
+                if (partition >= 0) {
+                    int pos = fill[partition]++;
+                    indices[partition][pos] = positionOfRow[row];
+                    values[partition][pos] = parentValues[i];
+                } else {
+                    int offset = positionOfRow[row] * numPartitions;
+                    for (int p = 0; p < numPartitions; p++) {
+                        int pos = fill[p]++;
+                        indices[p][pos] = replicatedPositions[offset + p];
+                        values[p][pos] = parentValues[i];
+                    }
+                }
+            }
+            for (int p = 0; p < numPartitions; p++) {
+                partitions[p].m_sortedRowIndices[a] = indices[p];
+                partitions[p].m_sortedValues[a] = values[p];
+                partitions[p].m_hasDerivedColumns = true;
+            }
+        }
     }
 
     /**
@@ -625,6 +894,9 @@ public double[] sortDataRows(final int attributeIndex) {
         // nominal attributes
         assert !isNominal(attributeIndex);
 
+        // reordering the rows invalidates the primitive columns and orders
+        clearDerivedColumns();
+
         double[] sumOfMissingValueWeights =
                 new double[m_classFrequencyArray.length];
 
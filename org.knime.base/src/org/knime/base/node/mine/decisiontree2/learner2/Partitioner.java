@@ -47,6 +47,7 @@
  */
 package org.knime.base.node.mine.decisiontree2.learner2;
 
+import java.util.Arrays;
 
 /**
  * Partitions a table according to a given split.
@@ -109,11 +110,22 @@ public Partitioner(final InMemoryTable table, final Split split,
         // iterate over the rows and assign them to the corresponding
         // partition table
         // for the missing values get the partition weights from the split
+        // the position of each row in its partition(s) is remembered to hand
+        // the presorted attribute orders down to the partitions
         double[] partitionWeights = split.getPartitionWeights();
+        int numRows = table.getNumberDataRows();
+        int[] partitionOfRow = new int[numRows];
+        int[] positionOfRow = new int[numRows];
+        int[] replicatedPositions = new int[0];
+        int numReplicated = 0;
+        int r = 0;
         for (DataRowWeighted row : table) {
             int partitionIndex = split.getPartitionForRow(row);
             if (partitionIndex >= 0) {
                 // the split attribute value is not missing
+                partitionOfRow[r] = partitionIndex;
+                positionOfRow[r] =
+                        partitionTables[partitionIndex].getNumberDataRows();
                 partitionTables[partitionIndex].addRow(row);
             } else {
                 // the split attribute value is missing
@@ -121,12 +133,25 @@ public Partitioner(final InMemoryTable table, final Split split,
                 // to the valid number of rows in each partition
                 // (this information was collected during split calculation,
                 // see "partitionWeights" above)
+                partitionOfRow[r] = -1;
+                positionOfRow[r] = numReplicated;
+                int offset = numReplicated * partitionTables.length;
+                if (offset + partitionTables.length
+                        > replicatedPositions.length) {
+                    replicatedPositions = Arrays.copyOf(replicatedPositions,
+                            Math.max(2 * replicatedPositions.length,
+                                    offset + partitionTables.length));
+                }
                 for (int i = 0; i < partitionTables.length; i++) {
+                    replicatedPositions[offset + i] =
+                            partitionTables[i].getNumberDataRows();
                     double newWeight = row.getWeight() * partitionWeights[i];
                     partitionTables[i].addRow(new DataRowWeighted(row,
                             newWeight));
                 }
+                numReplicated++;
             }
+            r++;
         }
 
         // pack the table
@@ -134,6 +159,10 @@ public Partitioner(final InMemoryTable table, final Split split,
             partitionTable.pack();
         }
 
+        // partition the presorted attribute orders stably
+        table.passSortedIndicesTo(partitionTables, partitionOfRow,
+                positionOfRow, replicatedPositions);
+
         // delete the undelying data row array
         // NOTE: just the array is garbage collected, not the rows itself
         // as they are distributed over the new partition tables
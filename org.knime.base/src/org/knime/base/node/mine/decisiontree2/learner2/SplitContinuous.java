@@ -47,8 +47,6 @@
  */
 package org.knime.base.node.mine.decisiontree2.learner2;
 
-import java.util.Iterator;
-
 /**
  * This class determines the best split for a numeric attribute.
  *
@@ -121,22 +119,29 @@ private void findBestSplit(final InMemoryTable table,
         // default value is the worst one
         setBestQualityMeasure(splitQualityMeasure.getWorstValue());
 
-        // get the iterator for the data rows of the table
-        // (NOTE: the missing values are at the end of the table)
-        Iterator<DataRowWeighted> rowIterator = table.iterator();
         // if there are no rows return
-        if (!rowIterator.hasNext()) {
+        final int numRows = table.getNumberDataRows();
+        if (numRows == 0) {
             // set the quality measure to NaN marking as "not a valid split"
             setBestQualityMeasure(Double.NaN);
             return;
         }
 
-        // now sort the table on this splits attribute index and get the
+        // get the presorted order of the rows on this splits attribute index
+        // (NOTE: the missing values are at the end) and collect the
         // frequency array for the missing values
         // the missing value frequencies must be subtracted from the
         // counter
+        final int[] rowIndices = table.getSortedRowIndices(attributeIndex);
+        final double[] values = table.getSortedValues(attributeIndex);
+        final int[] classColumn = table.getClassColumn();
+        final double[] weightColumn = table.getWeightColumn();
         double[] missingValueClassFrequencies =
-                table.sortDataRows(attributeIndex);
+                new double[table.getClassFrequencyArray().length];
+        for (int i = numRows - 1; i >= 0 && Double.isNaN(values[i]); i--) {
+            int row = rowIndices[i];
+            missingValueClassFrequencies[classColumn[row]] += weightColumn[row];
+        }
 
         // the split is determined by sweeping linearly through the
         // ordered attribute list
@@ -180,10 +185,9 @@ private void findBestSplit(final InMemoryTable table,
         }
 
         // get the first valid attribute value, the class value and its weight
-        DataRowWeighted firstRow = rowIterator.next();
-        double previouseAttrValue = firstRow.getValue(attributeIndex);
-        int previousClassValue = firstRow.getClassValue();
-        double weight = firstRow.getWeight();
+        double previouseAttrValue = values[0];
+        int previousClassValue = classColumn[rowIndices[0]];
+        double weight = weightColumn[rowIndices[0]];
 
         // to remember the best split
         // the best split value is the mean of the two split separating values
@@ -191,7 +195,7 @@ private void findBestSplit(final InMemoryTable table,
         double bestSplitValue = Double.NaN;
         double bestQualityMeasure = splitQualityMeasure.getWorstValue();
         m_partitionValidCount = new double[2];
-        while (rowIterator.hasNext()) {
+        for (int i = 1; i < numRows; i++) {
             // if the above part has too few rows terminate the loop
             if (partitionCount[ABOVE_INDEX] <= minCount) {
                 break;
@@ -203,12 +207,12 @@ private void findBestSplit(final InMemoryTable table,
             partitionCount[ABOVE_INDEX] -= weight;
 
             // get the next data row
-            DataRowWeighted row = rowIterator.next();
-            double attrValue = row.getValue(attributeIndex);
+            double attrValue = values[i];
             if (Double.isNaN(attrValue)) {
                 break;
             }
-            int classValue = row.getClassValue();
+            int row = rowIndices[i];
+            int classValue = classColumn[row];
 
             // the quality measure is only calculated if the value changes
             if (attrValue != previouseAttrValue
@@ -245,7 +249,7 @@ private void findBestSplit(final InMemoryTable table,
             // set the current values to the previous ones
             previouseAttrValue = attrValue;
             previousClassValue = classValue;
-            weight = row.getWeight();
+            weight = weightColumn[row];
         }
 
         setBestQualityMeasure(bestQualityMeasure);
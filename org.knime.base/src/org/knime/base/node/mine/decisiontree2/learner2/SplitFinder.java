@@ -47,8 +47,11 @@
  */
 package org.knime.base.node.mine.decisiontree2.learner2;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ThreadPool;
 
 
 /**
@@ -60,6 +63,13 @@
  * @since 2.6
  */
 public class SplitFinder {
+
+    /**
+     * The minimum number of cells (rows times attributes) of a table for which
+     * the attributes are evaluated concurrently.
+     */
+    private static final long MIN_CELLS_FOR_PARALLEL_EVALUATION = 10000;
+
     private int m_splitAttributeIndex;
 
     private Split m_split;
@@ -89,31 +99,115 @@ public SplitFinder(final InMemoryTable table,
             final boolean averageSplitpoint, final double minObjectsCount,
             final boolean binaryNominalSplits,
             final int maxNumNominalsForCompleteComputation) {
+        final int[] attributes = getConsideredAttributes(table);
+        final Split[] candidates = new Split[attributes.length];
+        createSplits(table, attributes, candidates, splitQualityMeasure,
+                averageSplitpoint, minObjectsCount, binaryNominalSplits,
+                maxNumNominalsForCompleteComputation);
+        selectBestSplit(candidates, splitQualityMeasure);
+    }
+
+    /**
+     * Finds the best split for the given data. If requested, the best splits
+     * of the single attributes are evaluated concurrently in the thread pool
+     * of the calling thread, provided the table is large enough. If the
+     * calling thread is not a pool thread, the attributes are evaluated
+     * sequentially.
+     *
+     * @param table the data table for which to find the best split attribute
+     *            and for this the best split
+     * @param splitQualityMeasure the quality measure (e.g. gini or gain
+     *            ratio)
+     * @param averageSplitpoint if true, the split point is set as the average
+     *            of the partition borders, else the upper value of the lower
+     *            partition is used
+     * @param minObjectsCount minimum number of examples for a partition
+     * @param binaryNominalSplits if true, nominal attributes are split
+     *            according to binary subsets, else each nominal value
+     *            represents one branch
+     * @param maxNumNominalsForCompleteComputation the maximum number of nominal
+     *            values for which all subsets are calculated (results in the
+     *            optimal binary split); this parameter is only use if
+     *            <code>binaryNominalSplits</code> is <code>true</code>; if
+     *            the number of nominal values is higher, a heuristic is applied
+     * @param parallel if true, the attributes may be evaluated concurrently
+     * @throws CanceledExecutionException if the thread is interrupted while
+     *             waiting for the concurrent evaluations
+     * @since 3.6
+     */
+    public SplitFinder(final InMemoryTable table,
+            final SplitQualityMeasure splitQualityMeasure,
+            final boolean averageSplitpoint, final double minObjectsCount,
+            final boolean binaryNominalSplits,
+            final int maxNumNominalsForCompleteComputation,
+            final boolean parallel) throws CanceledExecutionException {
+        final int[] attributes = getConsideredAttributes(table);
+        final Split[] candidates = new Split[attributes.length];
+        if (!parallel || ThreadPool.currentPool() == null
+                || attributes.length < 2 || (long)table.getNumberDataRows()
+                * attributes.length < MIN_CELLS_FOR_PARALLEL_EVALUATION) {
+            createSplits(table, attributes, candidates, splitQualityMeasure,
+                    averageSplitpoint, minObjectsCount, binaryNominalSplits,
+                    maxNumNominalsForCompleteComputation);
+        } else {
+            // make sure the primitive columns exist before the attributes
+            // access them concurrently
+            table.getClassColumn();
+            table.getWeightColumn();
+            // the quality measures keep state, so each split gets its own copy
+            final SplitQualityMeasure[] measures =
+                    new SplitQualityMeasure[attributes.length];
+            for (int c = 0; c < measures.length; c++) {
+                measures[c] = copyOf(splitQualityMeasure);
+            }
+            ParallelTasks.forEach(attributes.length, c -> {
+                candidates[c] = createSplit(table, attributes[c], measures[c],
+                        averageSplitpoint, minObjectsCount,
+                        binaryNominalSplits,
+                        maxNumNominalsForCompleteComputation);
+            });
+        }
+        selectBestSplit(candidates, splitQualityMeasure);
+    }
 
-        // create the best splits for each attribute
-        List<Split> splitCandidates = new ArrayList<Split>();
+    private static SplitQualityMeasure copyOf(
+            final SplitQualityMeasure splitQualityMeasure) {
+        try {
+            return (SplitQualityMeasure)splitQualityMeasure.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(
+                    "Split quality measure can't be copied", e);
+        }
+    }
 
+    /** Returns the indices of the attributes to create the best splits for. */
+    private static int[] getConsideredAttributes(final InMemoryTable table) {
+        final int[] attributes = new int[table.getNumAttributes()];
+        int numCandidates = 0;
         for (int i = 0; i < table.getNumAttributes(); i++) {
             // check if the attribute should be considered
-            if (!table.considerAttribute(i)) {
-                continue;
-            }
-            if (table.isNominal(i)) {
-                if (binaryNominalSplits) {
-                    splitCandidates.add(new SplitNominalBinary(table, i,
-                            splitQualityMeasure, minObjectsCount,
-                            maxNumNominalsForCompleteComputation));
-                } else {
-                    splitCandidates.add(new SplitNominalNormal(table, i,
-                            splitQualityMeasure, minObjectsCount));
-                }
-            } else {
-                splitCandidates.add(new SplitContinuous(table, i,
-                        splitQualityMeasure, averageSplitpoint,
-                        minObjectsCount));
+            if (table.considerAttribute(i)) {
+                attributes[numCandidates++] = i;
             }
         }
+        return Arrays.copyOf(attributes, numCandidates);
+    }
+
+    private static void createSplits(final InMemoryTable table,
+            final int[] attributes, final Split[] candidates,
+            final SplitQualityMeasure splitQualityMeasure,
+            final boolean averageSplitpoint, final double minObjectsCount,
+            final boolean binaryNominalSplits,
+            final int maxNumNominalsForCompleteComputation) {
+        for (int c = 0; c < attributes.length; c++) {
+            candidates[c] = createSplit(table, attributes[c],
+                    splitQualityMeasure, averageSplitpoint, minObjectsCount,
+                    binaryNominalSplits, maxNumNominalsForCompleteComputation);
+        }
+    }
 
+    private void selectBestSplit(final Split[] splitCandidates,
+            final SplitQualityMeasure splitQualityMeasure) {
         // get the best split
         Split bestSplit = null;
         double bestQualityMeasure = splitQualityMeasure.getWorstValue();
@@ -134,6 +228,25 @@ public SplitFinder(final InMemoryTable table,
         m_split = bestSplit;
     }
 
+    private static Split createSplit(final InMemoryTable table,
+            final int attributeIndex,
+            final SplitQualityMeasure splitQualityMeasure,
+            final boolean averageSplitpoint, final double minObjectsCount,
+            final boolean binaryNominalSplits,
+            final int maxNumNominalsForCompleteComputation) {
+        if (table.isNominal(attributeIndex)) {
+            if (binaryNominalSplits) {
+                return new SplitNominalBinary(table, attributeIndex,
+                        splitQualityMeasure, minObjectsCount,
+                        maxNumNominalsForCompleteComputation);
+            }
+            return new SplitNominalNormal(table, attributeIndex,
+                    splitQualityMeasure, minObjectsCount);
+        }
+        return new SplitContinuous(table, attributeIndex, splitQualityMeasure,
+                averageSplitpoint, minObjectsCount);
+    }
+
     /**
      * Returns the split evaluated as the best for the given data.
      *
@@ -54,9 +54,8 @@
 import java.util.List;
 import java.util.Map;
 
-import org.knime.base.util.kdtree.KDTree;
-import org.knime.base.util.kdtree.KDTreeBuilder;
-import org.knime.base.util.kdtree.NearestNeighbour;
+import org.knime.base.util.kdtree.FlatKDTree;
+import org.knime.base.util.kdtree.NeighbourHeap;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
@@ -214,7 +213,7 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs)
         }
 
         ColumnRearranger crea =
-                createRearranger(inSpecs[1], classColSpec, null, null, null, -1);
+                createRearranger(inSpecs[1], classColSpec, null, null, null, null, -1);
 
         return new DataTableSpec[]{crea.createSpec()};
     }
@@ -282,11 +281,13 @@ private ColumnRearranger createRearranger(final BufferedDataTable trainData, fin
         Map<Integer, Integer> firstToSecond = new HashMap<Integer, Integer>();
         checkInputTables(new DataTableSpec[]{trainData.getDataTableSpec(), inSpec2}, featureColumns, firstToSecond);
 
-        KDTreeBuilder<DataCell> treeBuilder = new KDTreeBuilder<DataCell>(featureColumns.size());
-        int count = 0;
+        final int dimensions = featureColumns.size();
+        double[] patterns = new double[(int)Math.min(trainData.size(), 1024) * dimensions];
+        List<DataCell> classes = new ArrayList<DataCell>();
+        long count = 0;
         for (DataRow currentRow : trainData) {
             exec.checkCanceled();
-            exec.setProgress(0.1 * count * trainData.size(), "Reading row " + currentRow.getKey());
+            exec.setProgress(0.1 * count++ / trainData.size(), "Reading row " + currentRow.getKey());
 
             double[] features = createFeatureVector(currentRow, featureColumns);
             if (features == null) {
@@ -294,7 +295,12 @@ private ColumnRearranger createRearranger(final BufferedDataTable trainData, fin
             } else {
                 DataCell thisClassCell = currentRow.getCell(classColIndex);
                 // and finally add data
-                treeBuilder.addPattern(features, thisClassCell);
+                final int offset = classes.size() * dimensions;
+                if (offset + dimensions > patterns.length) {
+                    patterns = Arrays.copyOf(patterns, Math.max(2 * patterns.length, offset + dimensions));
+                }
+                System.arraycopy(features, 0, patterns, offset, dimensions);
+                classes.add(thisClassCell);
 
                 // compute the majority class for breaking possible ties later
                 MutableInteger t = m_classDistribution.get(thisClassCell);
@@ -310,7 +316,9 @@ private ColumnRearranger createRearranger(final BufferedDataTable trainData, fin
         DataColumnSpec classColumnSpec = trainData.getDataTableSpec().getColumnSpec(classColIndex);
 
         exec.setMessage("Building kd-tree");
-        KDTree<DataCell> tree = treeBuilder.buildTree(exec.createSubProgress(0.3));
+        FlatKDTree tree = new FlatKDTree(Arrays.copyOf(patterns, classes.size() * dimensions), dimensions,
+            FlatKDTree.DEFAULT_BUCKET_SIZE);
+        exec.setProgress(0.4);
 
         if (tree.size() < m_settings.k()) {
             setWarningMessage("There are only " + tree.size() + " patterns in the input table, but " + m_settings.k()
@@ -320,7 +328,8 @@ private ColumnRearranger createRearranger(final BufferedDataTable trainData, fin
 
         exec.setMessage("Classifying");
         ColumnRearranger c =
-            createRearranger(inSpec2, classColumnSpec, featureColumns, firstToSecond, tree, numRowsTable2);
+            createRearranger(inSpec2, classColumnSpec, featureColumns, firstToSecond, tree,
+                classes.toArray(new DataCell[classes.size()]), numRowsTable2);
         return c;
     }
 
@@ -385,7 +394,7 @@ private ColumnRearranger createRearranger(final DataTableSpec in,
             final DataColumnSpec classColumnSpec,
             final List<Integer> featureColumns,
             final Map<Integer, Integer> firstToSecond,
-            final KDTree<DataCell> tree, final double maxRows) {
+            final FlatKDTree tree, final DataCell[] classes, final double maxRows) {
         ColumnRearranger c = new ColumnRearranger(in);
         String newName = "Class [kNN]";
         while (in.containsName(newName)) {
@@ -423,7 +432,14 @@ public int compare(final DataCell o1, final DataCell o2) {
 
         final DataColumnSpec[] colSpecArray =
                 colSpecs.toArray(new DataColumnSpec[colSpecs.size()]);
-        c.append(new AbstractCellFactory(colSpecArray) {
+        // the heaps are reused for all rows classified by the same thread
+        final ThreadLocal<NeighbourHeap> heaps = new ThreadLocal<NeighbourHeap>() {
+            @Override
+            protected NeighbourHeap initialValue() {
+                return new NeighbourHeap(m_settings.k());
+            }
+        };
+        c.append(new AbstractCellFactory(true, colSpecArray) {
 
             /** {@inheritDoc} */
             @Override
@@ -439,8 +455,8 @@ public void setProgress(final long curRowNr, final long rowCount,
             @Override
             public DataCell[] getCells(final DataRow row) {
                 List<DataCell> output =
-                        classify(row, tree, featureColumns, firstToSecond,
-                                possibleValues);
+                        classify(row, tree, classes, heaps.get(), featureColumns,
+                                firstToSecond, possibleValues);
                 return output.toArray(new DataCell[output.size()]);
             }
 
@@ -451,7 +467,8 @@ public DataCell[] getCells(final DataRow row) {
     // returns a list where the first value if the winner class, and the
     // following values are the class probabilities (if enabled)
     private List<DataCell> classify(final DataRow row,
-            final KDTree<DataCell> tree, final List<Integer> featureColumns,
+            final FlatKDTree tree, final DataCell[] classes,
+            final NeighbourHeap heap, final List<Integer> featureColumns,
             final Map<Integer, Integer> firstToSecond,
             final DataCell[] allClassValues) {
         double[] features =
@@ -466,18 +483,18 @@ private List<DataCell> classify(final DataRow row,
 
         HashMap<DataCell, MutableDouble> classWeights =
                 new LinkedHashMap<DataCell, MutableDouble>();
-        List<NearestNeighbour<DataCell>> nearestN =
-                tree.getKNearestNeighbours(features,
-                        Math.min(m_settings.k(), tree.size()));
+        heap.reset(Math.min(m_settings.k(), tree.size()));
+        tree.search(features, 0, heap);
 
-        for (NearestNeighbour<DataCell> n : nearestN) {
-            MutableDouble count = classWeights.get(n.getData());
+        for (int i = 0; i < heap.size(); i++) {
+            final DataCell classCell = classes[heap.getId(i)];
+            MutableDouble count = classWeights.get(classCell);
             if (count == null) {
                 count = new MutableDouble(0);
-                classWeights.put(n.getData(), count);
+                classWeights.put(classCell, count);
             }
             if (m_settings.weightByDistance()) {
-                count.add(1 / n.getDistance());
+                count.add(1 / heap.getDistance(i));
             } else {
                 count.inc();
             }
@@ -451,16 +451,16 @@ protected PortObject[] execute(final PortObject[] inData,
         // Convert inputs to double arrays. Values from the class column are
         // encoded as bitvectors.
         int classColNr = posSpec.findColumnIndex(m_classcol.getStringValue());
-        List<Double[]> samples = new ArrayList<Double[]>();
-        List<Double[]> outputs = new ArrayList<Double[]>();
-        Double[] sample = new Double[nrInputs];
-        Double[] output = new Double[nrOutputs];
+        List<double[]> samples = new ArrayList<double[]>();
+        List<double[]> outputs = new ArrayList<double[]>();
+        double[] sample = new double[nrInputs];
+        double[] output = new double[nrOutputs];
         final RowIterator rowIt = ((BufferedDataTable)inData[INDATA]).iterator();
         int rowcounter = 0;
         while (rowIt.hasNext()) {
             boolean add = true;
-            output = new Double[nrOutputs];
-            sample = new Double[nrInputs];
+            output = new double[nrOutputs];
+            sample = new double[nrInputs];
             DataRow row = rowIt.next();
             int nrCells = row.getNumCells();
             int index = 0;
@@ -494,9 +494,9 @@ protected PortObject[] execute(final PortObject[] inData,
                     } else {
                         for (int j = 0; j < nrOutputs; j++) {
                             if (classMap.get(row.getCell(i)) == j) {
-                                output[j] = new Double(1.0);
+                                output[j] = 1.0;
                             } else {
-                                output[j] = new Double(0.0);
+                                output[j] = 0.0;
                             }
                         }
                     }
@@ -508,12 +508,8 @@ protected PortObject[] execute(final PortObject[] inData,
                 rowcounter++;
             }
         }
-        Double[][] samplesarr = new Double[rowcounter][nrInputs];
-        Double[][] outputsarr = new Double[rowcounter][nrInputs];
-        for (int i = 0; i < samplesarr.length; i++) {
-            samplesarr[i] = samples.get(i);
-            outputsarr[i] = outputs.get(i);
-        }
+        double[][] samplesarr = samples.toArray(new double[rowcounter][]);
+        double[][] outputsarr = outputs.toArray(new double[rowcounter][]);
         // Now finally train the network.
         m_mlp.setClassMapping(classMap);
         m_mlp.setInputMapping(inputmap);
@@ -525,16 +521,8 @@ protected PortObject[] execute(final PortObject[] inData,
                     / (double)m_nrIterations.getIntValue(), "Iteration "
                     + iteration);
             myrprop.train(m_mlp, samplesarr, outputsarr);
-            double error = 0;
-            for (int j = 0; j < outputsarr.length; j++) {
-                double[] myoutput = m_mlp.output(samplesarr[j]);
-                for (int o = 0; o < outputsarr[0].length; o++) {
-                    error +=
-                            (myoutput[o] - outputsarr[j][o])
-                                    * (myoutput[o] - outputsarr[j][o]);
-                }
-            }
-            m_errors[iteration] = error;
+            m_errors[iteration] =
+                    RProp.sumOfSquaredErrors(m_mlp, samplesarr, outputsarr);
             exec.checkCanceled();
         }
 
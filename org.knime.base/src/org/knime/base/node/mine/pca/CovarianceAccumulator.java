@@ -0,0 +1,284 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.pca;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Computes the mean vector and the covariance matrix of table columns in a single pass. The rows are read in blocks,
+ * each block is centered at its own mean and merged into the accumulated co-moments with the pairwise update of Chan
+ * et al., which is numerically stable even if the means are large compared to the variances. The entries of the
+ * co-moment matrix are updated in parallel.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class CovarianceAccumulator {
+
+    /** Number of rows merged at once. */
+    static final int BLOCK_SIZE = 256;
+
+    /** Minimum number of multiplications to justify splitting a loop across threads. */
+    private static final long MIN_WORK_FOR_PARALLEL = 1L << 18;
+
+    private final int m_dimensions;
+
+    private final double[] m_means;
+
+    /** Sums of the products of the deviations from the mean, only the upper triangle is filled. */
+    private final double[][] m_comoments;
+
+    private long m_count;
+
+    private int m_missingCount;
+
+    private CovarianceAccumulator(final int dimensions) {
+        m_dimensions = dimensions;
+        m_means = new double[dimensions];
+        m_comoments = new double[dimensions][dimensions];
+    }
+
+    /**
+     * Reads the values of the given columns from the row.
+     *
+     * @param row the row to read
+     * @param columnIndices the indices of the columns to read
+     * @param values to write the values to
+     * @param table the table the row belongs to, for error messages
+     * @return false if the row contains missing, infinite or NaN values
+     * @throws IllegalArgumentException if a column is not numeric
+     */
+    static boolean readValues(final DataRow row, final int[] columnIndices, final double[] values,
+        final BufferedDataTable table) {
+        for (int i = 0; i < columnIndices.length; i++) {
+            final DataCell cell = row.getCell(columnIndices[i]);
+            if (cell.isMissing()) {
+                return false;
+            }
+            if (!cell.getType().isCompatible(DoubleValue.class)) {
+                throw new IllegalArgumentException("column "
+                    + table.getSpec().getColumnSpec(columnIndices[i]).getName() + " has incompatible type!");
+            }
+            final double val = ((DoubleValue)cell).getDoubleValue();
+            if (Double.isInfinite(val) || Double.isNaN(val)) {
+                return false;
+            }
+            values[i] = val;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the means and covariances of the given columns, rows with missing, infinite or NaN values are ignored.
+     *
+     * @param exec for progress and cancellation
+     * @param dataTable the table to read
+     * @param columnIndices the indices of the columns
+     * @param failOnMissing if true, the computation is aborted with an exception when an invalid value is encountered
+     * @return the accumulated statistics
+     * @throws CanceledExecutionException if execution is canceled
+     * @throws IllegalArgumentException if there are less than two valid rows or if <b>failOnMissing</b> is set and an
+     *             invalid value is encountered
+     */
+    static CovarianceAccumulator compute(final ExecutionMonitor exec, final BufferedDataTable dataTable,
+        final int[] columnIndices, final boolean failOnMissing) throws CanceledExecutionException {
+        final int dimensions = columnIndices.length;
+        final CovarianceAccumulator accumulator = new CovarianceAccumulator(dimensions);
+        // column major, so that the products of two columns can be computed on contiguous arrays
+        final double[][] block = new double[dimensions][BLOCK_SIZE];
+        final double[] values = new double[dimensions];
+        final long rowCount = dataTable.size();
+        long rowIndex = 0;
+        int blockRows = 0;
+        for (final DataRow row : dataTable) {
+            rowIndex++;
+            if (readValues(row, columnIndices, values, dataTable)) {
+                for (int i = 0; i < dimensions; i++) {
+                    block[i][blockRows] = values[i];
+                }
+                blockRows++;
+            } else if (failOnMissing) {
+                throw new IllegalArgumentException("missing, infinite or impossible values in table");
+            } else {
+                accumulator.m_missingCount++;
+            }
+            if (blockRows == BLOCK_SIZE) {
+                exec.checkCanceled();
+                accumulator.merge(block, blockRows);
+                blockRows = 0;
+                exec.setProgress((double)rowIndex / rowCount,
+                    "create covariance matrix, processing row " + rowIndex + " of " + rowCount);
+            }
+        }
+        accumulator.merge(block, blockRows);
+        if (accumulator.m_count < 2) {
+            throw new IllegalArgumentException("Input table has too few rows with valid values! "
+                + "Do some columns only contain missing values?");
+        }
+        return accumulator;
+    }
+
+    /** Merges the first <b>nrRows</b> rows of the (column major) block, the block is modified. */
+    private void merge(final double[][] block, final int nrRows) throws CanceledExecutionException {
+        if (nrRows == 0) {
+            return;
+        }
+        final double[] delta = new double[m_dimensions];
+        for (int i = 0; i < m_dimensions; i++) {
+            final double[] column = block[i];
+            double sum = 0;
+            for (int r = 0; r < nrRows; r++) {
+                sum += column[r];
+            }
+            final double blockMean = sum / nrRows;
+            for (int r = 0; r < nrRows; r++) {
+                column[r] -= blockMean;
+            }
+            delta[i] = blockMean - m_means[i];
+        }
+        final long count = m_count + nrRows;
+        final double factor = (double)m_count * nrRows / count;
+        parallelForInterleaved(m_dimensions, (long)m_dimensions * m_dimensions * nrRows / 2, i -> {
+            final double[] columnI = block[i];
+            final double[] comomentsI = m_comoments[i];
+            for (int j = i; j < m_dimensions; j++) {
+                final double[] columnJ = block[j];
+                double sum = 0;
+                for (int r = 0; r < nrRows; r++) {
+                    sum += columnI[r] * columnJ[r];
+                }
+                comomentsI[j] += sum + delta[i] * delta[j] * factor;
+            }
+        });
+        for (int i = 0; i < m_dimensions; i++) {
+            m_means[i] += delta[i] * nrRows / count;
+        }
+        m_count = count;
+    }
+
+    /** Body of a loop over indices. */
+    interface IndexTask {
+        /**
+         * @param i the index
+         */
+        void run(int i);
+    }
+
+    /**
+     * Runs the task for all indices in [0, <b>size</b>). If there is enough work and the calling thread belongs to a
+     * {@link ThreadPool}, the indices are distributed round robin over several threads of the pool, which also
+     * balances the work of triangular loops.
+     *
+     * @param size the number of indices
+     * @param work the estimated total number of operations
+     * @param task the loop body, must only write data that belongs to its index
+     * @throws CanceledExecutionException if the thread is interrupted while waiting for the pool threads
+     */
+    static void parallelForInterleaved(final int size, final long work, final IndexTask task)
+        throws CanceledExecutionException {
+        final int nrThreads = (int)Math.min(Math.min(Runtime.getRuntime().availableProcessors(), size),
+            work / MIN_WORK_FOR_PARALLEL);
+        if (nrThreads < 2) {
+            for (int i = 0; i < size; i++) {
+                task.run(i);
+            }
+            return;
+        }
+        ParallelTasks.forEach(nrThreads, first -> {
+            for (int i = first; i < size; i += nrThreads) {
+                task.run(i);
+            }
+        });
+    }
+
+    /**
+     * @return the number of valid rows
+     */
+    long getCount() {
+        return m_count;
+    }
+
+    /**
+     * @return the number of ignored rows (containing missing, infinite or NaN values)
+     */
+    int getMissingCount() {
+        return m_missingCount;
+    }
+
+    /**
+     * @return the mean vector
+     */
+    double[] getMeans() {
+        return m_means.clone();
+    }
+
+    /**
+     * @return the (sample) covariance matrix
+     * @throws IllegalArgumentException if the covariances are not finite
+     */
+    double[][] getCovarianceMatrix() {
+        final double[][] covariances = new double[m_dimensions][m_dimensions];
+        for (int i = 0; i < m_dimensions; i++) {
+            for (int j = i; j < m_dimensions; j++) {
+                // we don't know the complete population, so we use #samples-1
+                final double covariance = m_comoments[i][j] / (m_count - 1);
+                if (Double.isInfinite(covariance) || Double.isNaN(covariance)) {
+                    throw new IllegalArgumentException(
+                        "computation failed for numerical problems, probably some numbers are too huge");
+                }
+                covariances[i][j] = covariance;
+                covariances[j][i] = covariance;
+            }
+        }
+        return covariances;
+    }
+}
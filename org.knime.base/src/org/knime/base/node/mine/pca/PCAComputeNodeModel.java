@@ -119,22 +119,14 @@ protected PortObject[] execute(final PortObject[] inData,
             throw new IllegalArgumentException("Input table is empty!");
         }
 
-        final double[] meanVector =
-            PCANodeModel.getMeanVector(dataTable, m_inputColumnIndices,
-                    m_failOnMissingValues.getBooleanValue(), exec
-                    .createSubExecutionContext(0.4));
-        final double[][] m =
-            new double[m_inputColumnIndices.length][m_inputColumnIndices.length];
-        exec.checkCanceled();
-        final int missingValues =
-            PCANodeModel.getCovarianceMatrix(exec
-                    .createSubExecutionContext(0.4), dataTable,
-                    m_inputColumnIndices, meanVector, m);
+        final CovarianceAccumulator covariance =
+            CovarianceAccumulator.compute(exec.createSubExecutionContext(0.8),
+                    dataTable, m_inputColumnIndices,
+                    m_failOnMissingValues.getBooleanValue());
+        final double[] meanVector = covariance.getMeans();
+        final double[][] m = covariance.getCovarianceMatrix();
+        final int missingValues = covariance.getMissingCount();
         if (missingValues > 0) {
-            if (m_failOnMissingValues.getBooleanValue()) {
-                throw new IllegalArgumentException(
-                        "missing, infinite or impossible values in table");
-            }
             setWarningMessage(missingValues
                     + " rows ignored because of missing, "
                     + "infinite or impossible values");
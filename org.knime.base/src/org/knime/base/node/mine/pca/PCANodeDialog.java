@@ -73,6 +73,10 @@ public PCANodeDialog() {
         addDialogComponent(new DialogComponentChoiceConfig(
                 new SettingsModelPCADimensions(
                         PCANodeModel.DIMENSIONS_SELECTION, 2, 100, false), false));
+        addDialogComponent(new DialogComponentBoolean(new SettingsModelBoolean(
+                PCANodeModel.RANDOMIZED, false),
+                "Approximate components (faster for many columns, "
+                + "fixed number of dimensions only)"));
         addDialogComponent(new DialogComponentBoolean(new SettingsModelBoolean(
                 PCANodeModel.REMOVE_COLUMNS, false),
                 "Replace original data columns"));
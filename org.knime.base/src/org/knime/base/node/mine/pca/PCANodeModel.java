@@ -55,7 +55,6 @@
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
-import org.knime.core.data.DataTable;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.DoubleValue;
@@ -144,6 +143,16 @@ public class PCANodeModel extends NodeModel {
     private final SettingsModelPCADimensions m_dimSelection = new SettingsModelPCADimensions(
             DIMENSIONS_SELECTION, 2, 100, false);
 
+    /**
+     * config String for approximating the principal components with a
+     * randomized algorithm.
+     */
+    static final String RANDOMIZED = "randomized";
+
+    /** approximate the principal components (fixed dimensions only)? */
+    private final SettingsModelBoolean m_randomized = new SettingsModelBoolean(
+            RANDOMIZED, false);
+
     /**
      * One input, one output table.
      */
@@ -341,15 +350,58 @@ protected PortObject[] execute(final PortObject[] inData,
             throw new IllegalArgumentException("Input table has only one row!");
         }
 
-        final double[] meanVector = getMeanVector(dataTable,
-                m_inputColumnIndices, false,
-                exec.createSubExecutionContext(0.2));
-        final double[][] m = new double[m_inputColumnIndices.length][m_inputColumnIndices.length];
-
-        final int missingValues = getCovarianceMatrix(
-                exec.createSubExecutionContext(0.2), dataTable,
-                m_inputColumnIndices, meanVector, m);
-        final Matrix covarianceMatrix = new Matrix(m);
+        final double[] meanVector;
+        final Matrix eigenvectors;
+        final int dimensions;
+        final int missingValues;
+        if (m_randomized.getBooleanValue()
+                && m_dimSelection.getDimensionsSelected()
+                && RandomizedPCA.isApplicable(m_dimSelection.getDimensions(),
+                        m_inputColumnIndices.length)) {
+            dimensions = m_dimSelection.getDimensions();
+            if (dimensions < 1) {
+                throw new IllegalArgumentException(
+                        "invalid number of dimensions to reduce to: "
+                        + dimensions);
+            }
+            final RandomizedPCA.Result pca = RandomizedPCA.compute(
+                    exec.createSubExecutionContext(0.6), dataTable,
+                    m_inputColumnIndices, dimensions);
+            meanVector = pca.getMeans();
+            eigenvectors = pca.getEigenvectors();
+            missingValues = pca.getMissingCount();
+        } else {
+            final CovarianceAccumulator covariance =
+                CovarianceAccumulator.compute(
+                        exec.createSubExecutionContext(0.4), dataTable,
+                        m_inputColumnIndices, false);
+            meanVector = covariance.getMeans();
+            missingValues = covariance.getMissingCount();
+            final Matrix covarianceMatrix =
+                new Matrix(covariance.getCovarianceMatrix());
+            final ExecutionContext evdContext =
+                exec.createSubExecutionContext(0.2);
+            evdContext.setMessage("computing spectral decomposition");
+            final EigenvalueDecomposition eig = covarianceMatrix.eig();
+            exec.checkCanceled();
+            evdContext.setProgress(0.8);
+            final double[] evs = EigenValue.extractEVVector(eig);
+            m_dimSelection.setEigenValues(evs);
+            dimensions = m_dimSelection.getNeededDimensions();
+            // don't remember these in case input changes
+            m_dimSelection.setEigenValues(null);
+            // adjust to selected numerical columns
+            if (dimensions > m_inputColumnIndices.length || dimensions < 1) {
+                throw new IllegalArgumentException(
+                        "invalid number of dimensions to reduce to: "
+                        + dimensions);
+            }
+            exec.checkCanceled();
+            evdContext.setProgress(0.9);
+            eigenvectors = EigenValue.getSortedEigenVectors(eig.getV()
+                    .getArray(), evs, dimensions);
+            evdContext.setProgress(1);
+        }
         if (missingValues > 0) {
             if (m_failOnMissingValues.getBooleanValue()) {
                 throw new IllegalArgumentException(
@@ -360,27 +412,6 @@ protected PortObject[] execute(final PortObject[] inData,
                     + ", infinite or impossible values");
 
         }
-        final ExecutionContext evdContext = exec.createSubExecutionContext(0.2);
-        evdContext.setMessage("computing spectral decomposition");
-        final EigenvalueDecomposition eig = covarianceMatrix.eig();
-        exec.checkCanceled();
-        evdContext.setProgress(0.8);
-        final double[] evs = EigenValue.extractEVVector(eig);
-        m_dimSelection.setEigenValues(evs);
-        final int dimensions = m_dimSelection.getNeededDimensions();
-        // don't remember these in case input changes
-        m_dimSelection.setEigenValues(null);
-        // adjust to selected numerical columns
-        if (dimensions > m_inputColumnIndices.length || dimensions < 1) {
-            throw new IllegalArgumentException(
-                    "invalid number of dimensions to reduce to: " + dimensions);
-        }
-        exec.checkCanceled();
-        evdContext.setProgress(0.9);
-        final Matrix eigenvectors = EigenValue.getSortedEigenVectors(eig.getV()
-                .getArray(), evs, dimensions);
-        exec.checkCanceled();
-        evdContext.setProgress(1);
         exec.checkCanceled();
 
         final DataColumnSpec[] specs = createAddTableSpec(
@@ -524,155 +555,6 @@ protected static DataCell[] convertInputRow(final Matrix eigenvectors,
         return cells;
     }
 
-    /**
-     * Converts a {@link DataTable} to the 2D-double array representing its
-     * covariance matrix. Only numeric attributes are included.
-     *
-     * @param exec
-     *            the execution context for progress report (a subcontext)
-     *
-     * @param dataTable
-     *            the {@link DataTable} to convert
-     * @param numericIndices
-     *            indices of input columns
-     * @param means
-     *            mean values of columns
-     * @param dataMatrix
-     *            matrix to write covariances to
-     * @return number of ignored rows (containing missing values)
-     * @throws CanceledExecutionException
-     *             if execution is canceled
-     */
-    static int getCovarianceMatrix(final ExecutionContext exec,
-            final BufferedDataTable dataTable, final int[] numericIndices,
-            final double[] means, final double[][] dataMatrix)
-    throws CanceledExecutionException {
-
-        // create result 2-D array
-        // fist dim corresponds to the rows, second dim to columns
-
-        int counter = 0;
-        int missingCount = 0;
-        // for all rows
-        ROW: for (final DataRow row : dataTable) {
-            // ignore rows with missing cells
-            for (int i = 0; i < numericIndices.length; i++) {
-                if (row.getCell(numericIndices[i]).isMissing()) {
-                    missingCount++;
-                    continue ROW;
-                }
-                if (!row.getCell(numericIndices[i]).getType()
-                        .isCompatible(DoubleValue.class)) {
-                    throw new IllegalArgumentException("column "
-                            + dataTable.getSpec()
-                            .getColumnSpec(numericIndices[i]).getName()
-                            + " has incompatible type!");
-                }
-                final double val = ((DoubleValue) row
-                        .getCell(numericIndices[i])).getDoubleValue();
-                if (Double.isInfinite(val) || Double.isNaN(val)) {
-                    missingCount++;
-                    continue ROW;
-                }
-            }
-            // for all valid attributes
-            for (int i = 0; i < numericIndices.length; i++) {
-                for (int j = 0; j < numericIndices.length; j++) {
-
-                    dataMatrix[i][j] += (((DoubleValue) row
-                            .getCell(numericIndices[i])).getDoubleValue() - means[i])
-
-                            * (((DoubleValue) row.getCell(numericIndices[j]))
-                                    .getDoubleValue() - means[j]);
-                    if (Double.isInfinite(dataMatrix[i][j])
-                            || Double.isNaN(dataMatrix[i][j])) {
-                        throw new IllegalArgumentException(
-                                "computation failed for numerical problems"
-                                + ", probably some numbers are too huge");
-                    }
-                }
-            }
-            counter++;
-            exec.setProgress((double) counter / dataTable.size(),
-                    "create covariance matrix, processing row " + counter
-                    + " of " + dataTable.size());
-            exec.checkCanceled();
-        }
-        if (counter < 2) {
-            throw new IllegalArgumentException(
-                    "Input table has too few rows with valid values! "
-                    + "Do some columns only contain missing values?");
-        }
-        for (int i = 0; i < dataMatrix.length; i++) {
-            for (int j = 0; j < dataMatrix[i].length; j++) {
-                // counter equals number of rows, since we don't know
-                // the complete population, we use #samples-1
-                dataMatrix[i][j] /= (counter - 1);
-            }
-        }
-        return missingCount;
-    }
-
-    /**
-     * calculate means of all columns.
-     *
-     * @param dataTable
-     *            input table
-     * @param numericIndices
-     *            indices of columns to use
-     * @param failOnMissingValues
-     *            if true, throw exception if missing values are encountered
-     * @param exec
-     *            execution context
-     * @return vector of column mean values
-     * @throws CanceledExecutionException
-     */
-    static double[] getMeanVector(final DataTable dataTable,
-            final int[] numericIndices, final boolean failOnMissingValues,
-            final ExecutionContext exec) throws CanceledExecutionException {
-        final double[] means = new double[numericIndices.length];
-        int numRows = 0;
-        final double rowCount = ((BufferedDataTable) dataTable).size();
-        int totalRowCount = 0;
-        // calculate mean for each row and column
-        ROW: for (final DataRow row : dataTable) {
-            totalRowCount++;
-            exec.checkCanceled();
-            exec.setProgress(totalRowCount / rowCount,
-                    "mean calculations, row " + totalRowCount + " of "
-                    + rowCount);
-            // ignore rows with missing cells
-            for (int i = 0; i < numericIndices.length; i++) {
-                if (row.getCell(numericIndices[i]).isMissing()) {
-                    if (failOnMissingValues) {
-                        throw new IllegalArgumentException(
-                        "missing values in table");
-                    }
-                    continue ROW;
-                }
-                final double val = ((DoubleValue) row
-                        .getCell(numericIndices[i])).getDoubleValue();
-                if (Double.isInfinite(val) || Double.isNaN(val)) {
-
-                    continue ROW;
-                }
-
-            }
-
-            int i = 0;
-            for (final Integer index : numericIndices) {
-                means[i++] += ((DoubleValue) row.getCell(index))
-                .getDoubleValue();
-            }
-            numRows++;
-
-        }
-        for (int i = 0; i < means.length; i++) {
-            means[i] /= numRows;
-        }
-        return means;
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -703,6 +585,12 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
         m_removeOriginalCols.loadSettingsFrom(settings);
         m_failOnMissingValues.loadSettingsFrom(settings);
         m_dimSelection.loadSettingsFrom(settings);
+        // added in 3.6
+        if (settings.containsKey(RANDOMIZED)) {
+            m_randomized.loadSettingsFrom(settings);
+        } else {
+            m_randomized.setBooleanValue(false);
+        }
 
     }
 
@@ -723,6 +611,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_removeOriginalCols.saveSettingsTo(settings);
         m_failOnMissingValues.saveSettingsTo(settings);
         m_dimSelection.saveSettingsTo(settings);
+        m_randomized.saveSettingsTo(settings);
     }
 
     /**
@@ -735,6 +624,10 @@ protected void validateSettings(final NodeSettingsRO settings)
         m_removeOriginalCols.validateSettings(settings);
         m_failOnMissingValues.validateSettings(settings);
         m_dimSelection.validateSettings(settings);
+        // added in 3.6
+        if (settings.containsKey(RANDOMIZED)) {
+            m_randomized.validateSettings(settings);
+        }
 
     }
 
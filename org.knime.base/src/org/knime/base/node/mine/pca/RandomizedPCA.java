@@ -0,0 +1,292 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.pca;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
+
+/**
+ * Approximates the leading principal components with a randomized range finder (Halko, Martinsson, Tropp: Finding
+ * structure with randomness, 2011). The covariance matrix is never formed, instead its product with a thin matrix is
+ * accumulated while streaming over the table. Besides the pass computing the means, the table is read
+ * {@link #POWER_ITERATIONS} + 2 times and the memory is linear in the number of columns.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RandomizedPCA {
+
+    /** Number of additional random directions, improves the accuracy of the last requested components. */
+    static final int OVERSAMPLING = 10;
+
+    /** Number of power iterations, improves the accuracy if the eigenvalues decay slowly. */
+    static final int POWER_ITERATIONS = 2;
+
+    private static final long SEED = 20180101L;
+
+    private final int[] m_columnIndices;
+
+    private final BufferedDataTable m_table;
+
+    private final double[] m_means;
+
+    private long m_count;
+
+    private int m_missingCount;
+
+    private RandomizedPCA(final BufferedDataTable table, final int[] columnIndices) {
+        m_table = table;
+        m_columnIndices = columnIndices;
+        m_means = new double[columnIndices.length];
+    }
+
+    /**
+     * @param dimensions the number of requested components
+     * @param nrColumns the number of input columns
+     * @return true if the randomized algorithm works on a subspace that is considerably smaller than the input space
+     */
+    static boolean isApplicable(final int dimensions, final int nrColumns) {
+        return 2 * (dimensions + OVERSAMPLING) <= nrColumns;
+    }
+
+    /**
+     * Computes the leading principal components, rows with missing, infinite or NaN values are ignored.
+     *
+     * @param exec for progress and cancellation
+     * @param table the table to read
+     * @param columnIndices the indices of the input columns
+     * @param dimensions the number of components to compute
+     * @return the result, see {@link #getMeans()} and {@link #getEigenvectors()}
+     * @throws CanceledExecutionException if execution is canceled
+     */
+    static Result compute(final ExecutionMonitor exec, final BufferedDataTable table, final int[] columnIndices,
+        final int dimensions) throws CanceledExecutionException {
+        final RandomizedPCA pca = new RandomizedPCA(table, columnIndices);
+        final int nrPasses = POWER_ITERATIONS + 3;
+        pca.computeMeans(exec.createSubProgress(1.0 / nrPasses));
+        final int d = columnIndices.length;
+        final int l = Math.min(d, dimensions + OVERSAMPLING);
+        final Random random = new Random(SEED);
+        double[][] q = new double[d][l];
+        for (int i = 0; i < d; i++) {
+            for (int j = 0; j < l; j++) {
+                q[i][j] = random.nextGaussian();
+            }
+        }
+        double[][] y = pca.multiplyCovariance(q, exec.createSubProgress(1.0 / nrPasses));
+        for (int p = 0; p < POWER_ITERATIONS + 1; p++) {
+            // orthonormalizing avoids that all columns converge to the leading eigenvector
+            q = new Matrix(y).qr().getQ().getArray();
+            y = pca.multiplyCovariance(q, exec.createSubProgress(1.0 / nrPasses));
+        }
+        // the projection of the covariance matrix onto the subspace spanned by q
+        final Matrix projected = new Matrix(q).transpose().times(new Matrix(y));
+        // symmetrize to remove rounding errors, the eigen decomposition relies on it
+        final Matrix symmetric = projected.plus(projected.transpose()).times(0.5);
+        final EigenvalueDecomposition evd = symmetric.eig();
+        final double[] evs = EigenValue.extractEVVector(evd);
+        final Integer[] order = IntStream.range(0, l).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -Math.abs(evs[i])));
+        final int[] selected = new int[dimensions];
+        final double[] eigenvalues = new double[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            selected[i] = order[i];
+            eigenvalues[i] = evs[order[i]];
+        }
+        final Matrix eigenvectors =
+            new Matrix(q).times(evd.getV().getMatrix(0, l - 1, selected));
+        return new Result(pca.m_means, eigenvectors, eigenvalues, pca.m_missingCount);
+    }
+
+    private void computeMeans(final ExecutionMonitor exec) throws CanceledExecutionException {
+        final double[] values = new double[m_means.length];
+        final long rowCount = m_table.size();
+        long rowIndex = 0;
+        for (final DataRow row : m_table) {
+            rowIndex++;
+            if (CovarianceAccumulator.readValues(row, m_columnIndices, values, m_table)) {
+                m_count++;
+                // incremental mean
+                for (int i = 0; i < values.length; i++) {
+                    m_means[i] += (values[i] - m_means[i]) / m_count;
+                }
+            } else {
+                m_missingCount++;
+            }
+            exec.checkCanceled();
+            exec.setProgress((double)rowIndex / rowCount, "mean calculations, row " + rowIndex + " of " + rowCount);
+        }
+        if (m_count < 2) {
+            throw new IllegalArgumentException("Input table has too few rows with valid values! "
+                + "Do some columns only contain missing values?");
+        }
+    }
+
+    /** Computes the product of the covariance matrix and <b>q</b> (d x l) in one pass over the table. */
+    private double[][] multiplyCovariance(final double[][] q, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        final int d = m_means.length;
+        final int l = q[0].length;
+        final double[][] y = new double[d][l];
+        final double[][] block = new double[CovarianceAccumulator.BLOCK_SIZE][];
+        final double[] values = new double[d];
+        final long rowCount = m_table.size();
+        long rowIndex = 0;
+        int blockRows = 0;
+        for (final DataRow row : m_table) {
+            rowIndex++;
+            if (CovarianceAccumulator.readValues(row, m_columnIndices, values, m_table)) {
+                final double[] centered = new double[d];
+                for (int i = 0; i < d; i++) {
+                    centered[i] = values[i] - m_means[i];
+                }
+                block[blockRows++] = centered;
+            }
+            if (blockRows == block.length) {
+                exec.checkCanceled();
+                accumulate(block, blockRows, q, y);
+                blockRows = 0;
+                exec.setProgress((double)rowIndex / rowCount, "processing row " + rowIndex + " of " + rowCount);
+            }
+        }
+        accumulate(block, blockRows, q, y);
+        for (int i = 0; i < d; i++) {
+            for (int j = 0; j < l; j++) {
+                y[i][j] /= m_count - 1;
+            }
+        }
+        return y;
+    }
+
+    /** Adds X^T X q to y, where X are the centered rows of the block. */
+    private static void accumulate(final double[][] block, final int nrRows, final double[][] q, final double[][] y)
+        throws CanceledExecutionException {
+        final int d = q.length;
+        final int l = q[0].length;
+        // t = X q
+        final double[][] t = new double[nrRows][l];
+        final long work = (long)nrRows * d * l;
+        CovarianceAccumulator.parallelForInterleaved(nrRows, work, r -> {
+            final double[] x = block[r];
+            final double[] tr = t[r];
+            for (int i = 0; i < d; i++) {
+                final double xi = x[i];
+                final double[] qi = q[i];
+                for (int j = 0; j < l; j++) {
+                    tr[j] += xi * qi[j];
+                }
+            }
+        });
+        // y += X^T t
+        CovarianceAccumulator.parallelForInterleaved(d, work, i -> {
+            final double[] yi = y[i];
+            for (int r = 0; r < nrRows; r++) {
+                final double xi = block[r][i];
+                final double[] tr = t[r];
+                for (int j = 0; j < l; j++) {
+                    yi[j] += xi * tr[j];
+                }
+            }
+        });
+    }
+
+    /** The approximated principal components. */
+    static final class Result {
+
+        private final double[] m_means;
+
+        private final Matrix m_eigenvectors;
+
+        private final double[] m_eigenvalues;
+
+        private final int m_missingCount;
+
+        private Result(final double[] means, final Matrix eigenvectors, final double[] eigenvalues,
+            final int missingCount) {
+            m_means = means;
+            m_eigenvectors = eigenvectors;
+            m_eigenvalues = eigenvalues;
+            m_missingCount = missingCount;
+        }
+
+        /**
+         * @return the mean vector
+         */
+        double[] getMeans() {
+            return m_means;
+        }
+
+        /**
+         * @return the eigenvectors as columns, sorted by decreasing eigenvalue
+         */
+        Matrix getEigenvectors() {
+            return m_eigenvectors;
+        }
+
+        /**
+         * @return the eigenvalues in decreasing order
+         */
+        double[] getEigenvalues() {
+            return m_eigenvalues;
+        }
+
+        /**
+         * @return the number of ignored rows (containing missing, infinite or NaN values)
+         */
+        int getMissingCount() {
+            return m_missingCount;
+        }
+    }
+}
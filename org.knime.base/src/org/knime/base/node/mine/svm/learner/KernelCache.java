@@ -0,0 +1,189 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.mine.svm.learner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.knime.base.node.mine.svm.kernel.Kernel;
+import org.knime.base.node.mine.svm.util.DoubleVector;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Caches rows of the kernel matrix of the training data, the least recently used rows are dropped once the memory
+ * budget is exhausted. The diagonal of the kernel matrix is always kept.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class KernelCache {
+
+    /** Minimum number of vector entries visited by a loop to justify splitting it across threads. */
+    private static final int MIN_WORK_FOR_PARALLEL = 1 << 16;
+
+    /** Work package of a {@link #parallelFor(int, int, RangeTask)} loop. */
+    interface RangeTask {
+        /**
+         * @param from the first index (inclusive)
+         * @param to the last index (exclusive)
+         */
+        void run(int from, int to);
+    }
+
+    private final DoubleVector[] m_inputData;
+
+    private final Kernel m_kernel;
+
+    private final double[] m_diagonal;
+
+    /** Kernel rows in access order. */
+    private final LinkedHashMap<Integer, double[]> m_rows;
+
+    private final int m_dimensions;
+
+    /**
+     * @param inputData the training data
+     * @param kernel the kernel
+     * @param cacheSize the memory budget for the cached rows in bytes, at least two rows are always cached
+     * @throws CanceledExecutionException if the thread is interrupted while computing the diagonal
+     */
+    KernelCache(final DoubleVector[] inputData, final Kernel kernel, final long cacheSize)
+        throws CanceledExecutionException {
+        m_inputData = inputData;
+        m_kernel = kernel;
+        m_dimensions = inputData.length == 0 ? 0 : inputData[0].getNumberValues();
+        final long rowSize = 8L * Math.max(1, inputData.length);
+        final int maxRows = (int)Math.min(inputData.length, Math.max(2, cacheSize / rowSize));
+        m_rows = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, double[]> eldest) {
+                return size() > maxRows;
+            }
+        };
+        m_diagonal = new double[inputData.length];
+        parallelFor(inputData.length, m_dimensions, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                m_diagonal[i] = m_kernel.evaluate(m_inputData[i], m_inputData[i]);
+            }
+        });
+    }
+
+    /**
+     * @param i the index of the vector
+     * @return the kernel value of the vector with itself
+     */
+    double getDiagonal(final int i) {
+        return m_diagonal[i];
+    }
+
+    /**
+     * @param i1 the index of the first vector
+     * @param i2 the index of the second vector
+     * @return the kernel value, read from the cache if possible
+     */
+    double evaluate(final int i1, final int i2) {
+        if (i1 == i2) {
+            return m_diagonal[i1];
+        }
+        double[] row = m_rows.get(i1);
+        if (row != null) {
+            return row[i2];
+        }
+        row = m_rows.get(i2);
+        if (row != null) {
+            return row[i1];
+        }
+        return m_kernel.evaluate(m_inputData[i1], m_inputData[i2]);
+    }
+
+    /**
+     * Returns the kernel row of vector <b>i</b> if it is cached or if computing it is expected to pay off because at
+     * least a quarter of it is going to be used.
+     *
+     * @param i the index of the vector
+     * @param nrUses the number of entries of the row the caller is about to use
+     * @return the kernel row or null if the caller should evaluate the kernel for the used entries only
+     * @throws CanceledExecutionException if the thread is interrupted while computing the row
+     */
+    double[] getRow(final int i, final int nrUses) throws CanceledExecutionException {
+        double[] row = m_rows.get(i);
+        if (row == null && 4L * nrUses >= m_inputData.length) {
+            final double[] newRow = new double[m_inputData.length];
+            parallelFor(newRow.length, m_dimensions, (from, to) -> {
+                for (int j = from; j < to; j++) {
+                    newRow[j] = m_kernel.evaluate(m_inputData[i], m_inputData[j]);
+                }
+            });
+            m_rows.put(i, newRow);
+            row = newRow;
+        }
+        return row;
+    }
+
+    /**
+     * Runs <b>task</b> on the index range [0, <b>size</b>), split into chunks that are processed in parallel if the
+     * calling thread belongs to a {@link ThreadPool} and there is enough work.
+     *
+     * @param size the number of indices
+     * @param workPerIndex the estimated work per index, e.g. the number of dimensions
+     * @param task the loop body
+     * @throws CanceledExecutionException if the thread is interrupted while waiting for the pool threads
+     */
+    static void parallelFor(final int size, final int workPerIndex, final RangeTask task)
+        throws CanceledExecutionException {
+        final int nrChunks = (int)Math.min(Runtime.getRuntime().availableProcessors(),
+            (long)size * Math.max(1, workPerIndex) / MIN_WORK_FOR_PARALLEL);
+        if (nrChunks < 2) {
+            task.run(0, size);
+            return;
+        }
+        ParallelTasks.forEach(nrChunks, c -> task.run((int)((long)size * c / nrChunks),
+            (int)((long)size * (c + 1) / nrChunks)));
+    }
+}
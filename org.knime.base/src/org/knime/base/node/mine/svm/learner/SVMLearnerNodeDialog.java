@@ -114,6 +114,10 @@ public SVMLearnerNodeDialog() {
                         SVMLearnerNodeModel.DEFAULT_PARAMC),
                 "Overlapping penalty: ", .1));
 
+        this.addDialogComponent(new DialogComponentNumber(
+                SVMLearnerNodeModel.createCacheSizeModel(),
+                "Kernel cache size (MB): ", 10));
+
         JPanel kernelsettingsPanel = new JPanel();
         kernelsettingsPanel.setLayout(new BoxLayout(kernelsettingsPanel,
                 BoxLayout.Y_AXIS));
@@ -87,6 +87,7 @@
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
@@ -141,12 +142,31 @@ public class SVMLearnerNodeModel extends NodeModel {
     /** Default c parameter. */
     public static final double DEFAULT_PARAMC = 1.0;
 
+    /**
+     * Key to store the size of the kernel cache (in MB) in the NodeSettings.
+     * @since 3.6
+     */
+    public static final String CFG_CACHESIZE = "kernel_cache_size";
+
+    /**
+     * Default size of the kernel cache in MB.
+     * @since 3.6
+     */
+    public static final int DEFAULT_CACHESIZE =
+            (int)(SvmAlgorithm.DEFAULT_CACHE_SIZE >> 20);
+
     /*
      * The c parameter value.
      */
     private final SettingsModelDouble m_paramC =
             new SettingsModelDouble(CFG_PARAMC, DEFAULT_PARAMC);
 
+    /*
+     * The memory budget of the kernel cache in MB, shared by all classes.
+     */
+    private final SettingsModelIntegerBounded m_cacheSize =
+            createCacheSizeModel();
+
     /*
      * Class column
      */
@@ -172,6 +192,14 @@ public class SVMLearnerNodeModel extends NodeModel {
      */
     private String m_svmInfo = "";
 
+    /**
+     * @return the settings model for the size of the kernel cache in MB
+     */
+    static SettingsModelIntegerBounded createCacheSizeModel() {
+        return new SettingsModelIntegerBounded(CFG_CACHESIZE,
+                DEFAULT_CACHESIZE, 0, Integer.MAX_VALUE);
+    }
+
     /**
      * creates the kernel parameter SettingsModels.
      *
@@ -291,13 +319,16 @@ protected PortObject[] execute(final PortObject[] inData,
         }
 
         final Svm[] svms = new Svm[categories.size()];
+        // the binary problems are trained concurrently and share the budget
+        final long cacheSize =
+                ((long)m_cacheSize.getIntValue() << 20) / categories.size();
         exec.setMessage("Training SVM");
         final BinarySvmRunnable[] bst =
                 new BinarySvmRunnable[categories.size()];
         for (int i = 0; i < categories.size(); i++) {
             bst[i] =
                     new BinarySvmRunnable(inputDataArr, categories.get(i),
-                            kernel, m_paramC.getDoubleValue(),
+                            kernel, m_paramC.getDoubleValue(), cacheSize,
                             exec.createSubProgress((1.0 / categories.size())));
 
         }
@@ -468,6 +499,12 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings)
             throws InvalidSettingsException {
         m_paramC.loadSettingsFrom(settings);
         m_classcol.loadSettingsFrom(settings);
+        // added in 3.6
+        if (settings.containsKey(CFG_CACHESIZE)) {
+            m_cacheSize.loadSettingsFrom(settings);
+        } else {
+            m_cacheSize.setIntValue(DEFAULT_CACHESIZE);
+        }
         if (settings.containsKey(CFG_KERNELTYPE)) {
             m_kernelType =
                     KernelType.valueOf(settings.getString(CFG_KERNELTYPE));
@@ -553,6 +590,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         settings.addString(CFG_KERNELTYPE, m_kernelType.toString());
         m_paramC.saveSettingsTo(settings);
         m_classcol.saveSettingsTo(settings);
+        m_cacheSize.saveSettingsTo(settings);
         for (Map.Entry<KernelType, Vector<SettingsModelDouble>>
         entry : m_kernelParameters
                 .entrySet()) {
@@ -569,6 +607,10 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
     @Override
     protected void validateSettings(final NodeSettingsRO settings)
             throws InvalidSettingsException {
+        // added in 3.6
+        if (settings.containsKey(CFG_CACHESIZE)) {
+            m_cacheSize.validateSettings(settings);
+        }
         if (settings.containsKey(CFG_KERNELTYPE)) {
             String tmpKernel = settings.getString(CFG_KERNELTYPE);
             boolean found = false;
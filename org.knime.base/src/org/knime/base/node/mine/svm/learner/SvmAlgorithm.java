@@ -81,6 +81,12 @@ public class SvmAlgorithm {
      * @since 2.12
      */
     public static final String MAXIMUM_NUMBER_OF_ITERATIONS_REACHED = "Maximum number of iterations reached.";
+
+    /**
+     * Default memory budget of the kernel row cache in bytes.
+     * @since 3.6
+     */
+    public static final long DEFAULT_CACHE_SIZE = 100L << 20;
     /*
      * NodeLogger for this class.
      */
@@ -103,6 +109,16 @@ public class SvmAlgorithm {
      */
     private Kernel m_kernel;
 
+    /*
+     * the memory budget of the kernel cache in bytes.
+     */
+    private final long m_cacheSize;
+
+    /*
+     * the kernel values, only available while the algorithm runs.
+     */
+    private KernelCache m_kernelCache;
+
     /*
      * the C parameter (upper bound for alpha's) -- needed for when the input
      * data is not separable.
@@ -163,10 +179,30 @@ public class SvmAlgorithm {
     public SvmAlgorithm(final DoubleVector[] inputData,
             final String positiveClass, final Kernel kernel,
             final double paramC) {
+        this(inputData, positiveClass, kernel, paramC, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates the algorithm with a custom memory budget for caching kernel
+     * rows.
+     *
+     * @param inputData the input vectors
+     * @param positiveClass the class value for which to consider an input
+     *            vector a 'positive' example. if input vectors have other class
+     *            values, they are considered 'negative'
+     * @param paramC the "C" from the problem constraints
+     * @param kernel the kernel to use in the algorithm
+     * @param cacheSize the memory budget for cached kernel rows in bytes
+     * @since 3.6
+     */
+    public SvmAlgorithm(final DoubleVector[] inputData,
+            final String positiveClass, final Kernel kernel,
+            final double paramC, final long cacheSize) {
         m_inputData = inputData;
         m_positiveClass = positiveClass;
         m_kernel = kernel;
         m_paramC = paramC;
+        m_cacheSize = cacheSize;
         m_alpha = new double[m_inputData.length];
         //See: https://github.com/cran/e1071/blob/R-3.0.3/src/svm.cpp#L567
         m_maxIteration = Math.max(10000000, inputData.length > Integer.MAX_VALUE / 100 ? Integer.MAX_VALUE - 1 : 100*inputData.length);
@@ -220,8 +256,7 @@ private double computeSvmOutput(final int i1) {
             if (!zero(m_alpha[i2])) {
                 double alpha = m_alpha[i2];
                 double targ = target(i2);
-                double kern =
-                        m_kernel.evaluate(m_inputData[i1], m_inputData[i2]);
+                double kern = m_kernelCache.evaluate(i1, i2);
                 result += alpha * targ * kern;
             }
         }
@@ -339,8 +374,10 @@ private void repairSets(final int i1, final int i2) {
      * @param i2 second index
      * @return was the optimization successful?
      * @throws MaxIterationsExceededException More than maximal allowed iterations performed.
+     * @throws CanceledExecutionException if the thread is interrupted while computing kernel values.
      */
-    private boolean takeStep(final int i1, final int i2) throws MaxIterationsExceededException {
+    private boolean takeStep(final int i1, final int i2)
+            throws MaxIterationsExceededException, CanceledExecutionException {
         m_iteration++;
         if (m_iteration == m_maxIteration) {
             throw new MaxIterationsExceededException(m_maxIteration);
@@ -366,9 +403,12 @@ private boolean takeStep(final int i1, final int i2) throws MaxIterationsExceede
         if (Math.abs(low - high) < EPSILON) {
             return false;
         }
-        double k11 = m_kernel.evaluate(m_inputData[i1], m_inputData[i1]);
-        double k12 = m_kernel.evaluate(m_inputData[i1], m_inputData[i2]);
-        double k22 = m_kernel.evaluate(m_inputData[i2], m_inputData[i2]);
+        // the rows are needed for updating the error cache of I0
+        final double[] row1 = m_kernelCache.getRow(i1, m_i0.size());
+        final double[] row2 = m_kernelCache.getRow(i2, m_i0.size());
+        double k11 = m_kernelCache.getDiagonal(i1);
+        double k12 = m_kernelCache.evaluate(i1, i2);
+        double k22 = m_kernelCache.getDiagonal(i2);
         //-eta as in the Pratt paper.
         double eta = k11 + k22 - 2.0 * k12; // value of second derivative
         double a2;
@@ -403,19 +443,26 @@ private boolean takeStep(final int i1, final int i2) throws MaxIterationsExceede
         m_alpha[i1] = a1;
         m_alpha[i2] = a2;
         updateSets(i1, i2);
+        final int[] i0 = new int[m_i0.size()];
+        int n = 0;
         for (int i : m_i0) {
             if ((i != i1) && (i != i2)) {
-                m_fcache[i] +=
-                        y1
-                                * (a1 - alpha1)
-                                * m_kernel.evaluate(m_inputData[i1],
-                                        m_inputData[i])
-                                + y2
-                                * (a2 - alpha2)
-                                * m_kernel.evaluate(m_inputData[i2],
-                                        m_inputData[i]);
+                i0[n++] = i;
             }
         }
+        final double d1 = y1 * (a1 - alpha1);
+        final double d2 = y2 * (a2 - alpha2);
+        final int work = (row1 == null ? 1 : 0) + (row2 == null ? 1 : 0);
+        KernelCache.parallelFor(n, work * m_inputData[i1].getNumberValues(), (from, to) -> {
+            for (int j = from; j < to; j++) {
+                final int i = i0[j];
+                final double k1 = row1 != null ? row1[i]
+                    : m_kernel.evaluate(m_inputData[i1], m_inputData[i]);
+                final double k2 = row2 != null ? row2[i]
+                    : m_kernel.evaluate(m_inputData[i2], m_inputData[i]);
+                m_fcache[i] += d1 * k1 + d2 * k2;
+            }
+        });
         m_fcache[i1] += y1 * (a1 - alpha1) * k11 + y2 * (a2 - alpha2) * k12;
         m_fcache[i2] += y1 * (a1 - alpha1) * k12 + y2 * (a2 - alpha2) * k22;
         repairSets(i1, i2);
@@ -431,8 +478,10 @@ private boolean takeStep(final int i1, final int i2) throws MaxIterationsExceede
      * Support Vector Machines by John C. Platt and also Improvements to Platt's
      * SMO Algorithm for SVM Classifier Design
      * @throws MaxIterationsExceededException Maximal iterations performed, should stop.
+     * @throws CanceledExecutionException if the thread is interrupted while computing kernel values.
      */
-    private boolean examineExample(final int i2) throws MaxIterationsExceededException {
+    private boolean examineExample(final int i2)
+            throws MaxIterationsExceededException, CanceledExecutionException {
         int i1 = -1;
         double y2 = target(i2);
         double f2;
@@ -531,6 +580,7 @@ private void mainAlgorithm(final ExecutionMonitor exec)
         boolean examineAll = true;
 
         m_fcache = new double[m_alpha.length];
+        m_kernelCache = new KernelCache(m_inputData, m_kernel, m_cacheSize);
         for (int i = 0; i < m_alpha.length; ++i) {
             m_fcache[i] = 0.0;
             m_alpha[i] = 0.0;
@@ -637,7 +687,11 @@ public Svm run(final ExecutionMonitor exec)
         }
         m_b = 0;
 
-        mainAlgorithm(exec);
+        try {
+            mainAlgorithm(exec);
+        } finally {
+            m_kernelCache = null;
+        }
         int countSupportVectors = 0;
         for (int i = 0; i < m_alpha.length; ++i) {
             if (!zero(m_alpha[i])) {
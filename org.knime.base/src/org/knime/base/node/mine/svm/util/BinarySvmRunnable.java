@@ -78,7 +78,29 @@ public BinarySvmRunnable(final DoubleVector[] inputData,
             final String positiveClass,
             final Kernel kernel, final double paramC,
             final ExecutionMonitor exec) {
-        m_svmAlgo = new SvmAlgorithm(inputData, positiveClass, kernel, paramC);
+        this(inputData, positiveClass, kernel, paramC,
+            SvmAlgorithm.DEFAULT_CACHE_SIZE, exec);
+    }
+
+    /**
+     * If run in a thread of a {@link org.knime.core.util.ThreadPool}, the
+     * kernel rows and error cache updates of the single problem are computed
+     * in parallel in the same pool.
+     *
+     * @param inputData the input data to train with
+     * @param positiveClass the positive class value
+     * @param kernel the kernel to use
+     * @param paramC overlapping penalty to use
+     * @param cacheSize the memory budget for cached kernel rows in bytes
+     * @param exec the execution process to report to
+     * @since 3.6
+     */
+    public BinarySvmRunnable(final DoubleVector[] inputData,
+            final String positiveClass,
+            final Kernel kernel, final double paramC, final long cacheSize,
+            final ExecutionMonitor exec) {
+        m_svmAlgo = new SvmAlgorithm(inputData, positiveClass, kernel,
+            paramC, cacheSize);
         m_exception = null;
         m_exec = exec;
     }
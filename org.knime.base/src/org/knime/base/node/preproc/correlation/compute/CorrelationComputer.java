@@ -166,34 +166,24 @@ public void calculateStatistics(final BufferedDataTable table,
         double[][] sumSqMatrix = new double[numericColCount][numericColCount];
         HalfIntMatrix validCountMatrix =
             new HalfIntMatrix(numericColCount, true);
-        final DataCell[] cells = new DataCell[m_tableSpec.getNumColumns()];
+        // the numeric values are collected in blocks of rows whose pair wise
+        // sums are computed concurrently
+        final NumericRowBlock block = new NumericRowBlock(numericColCount);
         long rowIndex = 0;
         final long rowCount = table.size();
         for (DataRow r : table) {
-            // getCell may be an expensive operation and we may access a cell
-            // multiple times, so we buffer it
-            for (int i = 0; i < cells.length; i++) {
-                cells[i] = r.getCell(i);
-            }
-            for (int i = 0; i < m_numericColIndexMap.length; i++) {
-                DataCell c = cells[m_numericColIndexMap[i]];
-                final boolean isMissing = c.isMissing();
-                if (isMissing) {
+            for (int i = 0; i < numericColCount; i++) {
+                DataCell c = r.getCell(m_numericColIndexMap[i]);
+                if (c.isMissing()) {
                     m_numericsWithMissings.add(m_numericColIndexMap[i]);
+                    block.setMissing(i);
                 } else {
-                    final double val = ((DoubleValue)c).getDoubleValue();
-                    final double valSquare = val * val;
-                    for (int j = 0; j < m_numericColIndexMap.length; j++) {
-                        if (!cells[m_numericColIndexMap[j]].isMissing()) {
-                            sumMatrix[i][j] += val;
-                            sumSqMatrix[i][j] += valSquare;
-                            if (j >= i) { // don't count twice
-                                validCountMatrix.add(i, j, 1);
-                            }
-                        }
-                    }
+                    block.set(i, ((DoubleValue)c).getDoubleValue());
                 }
             }
+            if (block.endRow()) {
+                block.addStatistics(sumMatrix, sumSqMatrix, validCountMatrix);
+            }
             for (int i = 0; i < m_categoricalColIndexMap.length; i++) {
                 DataCell c = r.getCell(m_categoricalColIndexMap[i]);
                 if (m_possibleValues[i] != null) {
@@ -210,6 +200,7 @@ public void calculateStatistics(final BufferedDataTable table,
                     rowCount, r.getKey()));
             rowIndex += 1;
         }
+        block.addStatistics(sumMatrix, sumSqMatrix, validCountMatrix);
 
         for (LinkedHashMap<DataCell, Integer> map : m_possibleValues) {
             if (map != null) {
@@ -281,7 +272,6 @@ public HalfDoubleMatrix calculateOutput(final BufferedDataTable table,
                 numColumns, /*includeDiagonal=*/false);
         nominatorMatrix.fill(Double.NaN);
         long rowIndex = 0;
-        DataCell[] cells = new DataCell[numColumns];
         final long rowCount = table.size();
         for (int i = 0; i < m_numericColIndexMap.length; i++) {
             final double stdDevI = m_numericStdDevMatrix[i][i];
@@ -329,63 +319,66 @@ public HalfDoubleMatrix calculateOutput(final BufferedDataTable table,
                 }
             }
         }
-        for (DataRow r : table) {
-            for (int i = 0; i < cells.length; i++) {
-                cells[i] = r.getCell(i);
+        // the values are centered by the column means so that the
+        // cross products don't suffer from cancellation
+        final int numericColCount = m_numericColIndexMap.length;
+        // (or any finite conditional mean if the column has infinite values)
+        final double[] centers = new double[numericColCount];
+        for (int i = 0; i < numericColCount; i++) {
+            centers[i] = m_numericMeanMatrix[i][i];
+            for (int j = 0; j < numericColCount && !Double.isFinite(centers[i]); j++) {
+                centers[i] = m_numericMeanMatrix[i][j];
+            }
+            if (!Double.isFinite(centers[i])) {
+                centers[i] = 0.0;
             }
-            for (int i = 0; i < m_numericColIndexMap.length; i++) {
-                final DataCell ci = cells[m_numericColIndexMap[i]];
+        }
+        final double[][] crossProducts =
+            new double[numericColCount][numericColCount];
+        final NumericRowBlock block = new NumericRowBlock(numericColCount);
+        final int[] categoricalIndices = new int[catCount];
+        for (DataRow r : table) {
+            for (int i = 0; i < numericColCount; i++) {
+                final DataCell ci = r.getCell(m_numericColIndexMap[i]);
                 if (ci.isMissing()) {
-                    continue;
-                }
-                if (m_numericStdDevMatrix[i][i] == 0.0) {
-                    continue; // constant column, reported above
+                    block.setMissing(i);
+                } else {
+                    block.set(i,
+                        ((DoubleValue)ci).getDoubleValue() - centers[i]);
                 }
-                final double di = ((DoubleValue)ci).getDoubleValue();
-                for (int j = i + 1; j < m_numericColIndexMap.length; j++) {
-                    final DataCell cj = cells[m_numericColIndexMap[j]];
-                    if (cj.isMissing()) {
-                        continue;
-                    }
-                    final double meanI = m_numericMeanMatrix[i][j];
-                    final double stdDevI = m_numericStdDevMatrix[i][j];
-                    final double meanJ = m_numericMeanMatrix[j][i];
-                    final double stdDevJ = m_numericStdDevMatrix[j][i];
-
-                    if (stdDevI == 0.0 || stdDevJ == 0.0) {
-                        continue; // reported above
-                    }
-
-                    final double vi = (di - meanI) / stdDevI;
-                    final double dj = ((DoubleValue)cj).getDoubleValue();
-                    final double vj = (dj - meanJ) / stdDevJ;
-                    nominatorMatrix.add(m_numericColIndexMap[i],
-                            m_numericColIndexMap[j], vi * vj);
+            }
+            if (block.endRow()) {
+                block.addCrossProducts(crossProducts);
+            }
+            // look up the value indices once per row, the contingency tables
+            // are then indexed by primitives only
+            for (int i = 0; i < catCount; i++) {
+                LinkedHashMap<DataCell, Integer> possibleValuesI =
+                    m_possibleValues[i];
+                if (possibleValuesI == null) {
+                    categoricalIndices[i] = -1;
+                    continue;
                 }
+                DataCell ci = r.getCell(m_categoricalColIndexMap[i]);
+                Integer indexI = possibleValuesI.get(ci);
+                assert indexI != null && indexI >= 0 : String.format(
+                        "Value unknown in value list of column \"%s-\": %s",
+                        table.getDataTableSpec().getColumnSpec(
+                                m_categoricalColIndexMap[i]).getName(), ci);
+                categoricalIndices[i] = indexI;
             }
             valIndex = 0;
-            for (int i = 0; i < m_categoricalColIndexMap.length; i++) {
-                for (int j = i + 1; j < m_categoricalColIndexMap.length; j++, valIndex++) {
-                    LinkedHashMap<DataCell, Integer> possibleValuesI =
-                        m_possibleValues[i];
-                    LinkedHashMap<DataCell, Integer> possibleValuesJ =
-                        m_possibleValues[j];
-                    if (possibleValuesI == null || possibleValuesJ == null) {
-                        continue;
+            for (int i = 0; i < catCount; i++) {
+                final int indexI = categoricalIndices[i];
+                if (indexI < 0) {
+                    valIndex += catCount - i - 1;
+                    continue;
+                }
+                for (int j = i + 1; j < catCount; j++, valIndex++) {
+                    final int indexJ = categoricalIndices[j];
+                    if (indexJ >= 0) {
+                        contingencyTables[valIndex][indexI][indexJ]++;
                     }
-                    DataCell ci = r.getCell(m_categoricalColIndexMap[i]);
-                    DataCell cj = r.getCell(m_categoricalColIndexMap[j]);
-                    Integer indexI = possibleValuesI.get(ci);
-                    Integer indexJ = possibleValuesJ.get(cj);
-                    assert indexI != null && indexI >= 0 : String.format(
-                            "Value unknown in value list of column \"%s-\": %s",
-                            table.getDataTableSpec().getColumnSpec(
-                                    m_categoricalColIndexMap[i]).getName(), ci);
-                    assert indexJ != null && indexJ >= 0 : String.format(
-                            "Value unknown in value list of column \"%s-\": %s",
-                            table.getDataTableSpec().getColumnSpec(
-                                    m_categoricalColIndexMap[j]).getName(), ci);
-                    contingencyTables[valIndex][indexI][indexJ]++;
                 }
             }
             exec.checkCanceled();
@@ -394,6 +387,7 @@ public HalfDoubleMatrix calculateOutput(final BufferedDataTable table,
                     rowCount, r.getKey()));
             rowIndex += 1;
         }
+        block.addCrossProducts(crossProducts);
 
         for (int i = 0; i < m_numericColIndexMap.length; i++) {
             for (int j = i + 1; j < m_numericColIndexMap.length; j++) {
@@ -402,6 +396,14 @@ public HalfDoubleMatrix calculateOutput(final BufferedDataTable table,
                 double t = nominatorMatrix.get(trueI, trueJ);
                 if (!Double.isNaN(t)) {
                     int validCount = m_numericValidCountMatrix.get(i, j);
+                    // sum of (x_i - mean_i|j) * (x_j - mean_j|i) over the
+                    // rows where both are valid, derived from the cross
+                    // products of the centered values
+                    final double shiftI = m_numericMeanMatrix[i][j] - centers[i];
+                    final double shiftJ = m_numericMeanMatrix[j][i] - centers[j];
+                    t = (crossProducts[i][j] - validCount * shiftI * shiftJ)
+                        / (m_numericStdDevMatrix[i][j]
+                            * m_numericStdDevMatrix[j][i]);
                     nominatorMatrix.set(trueI, trueJ, t / (validCount - 1));
                 }
             }
@@ -0,0 +1,262 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.correlation.compute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.base.util.HalfIntMatrix;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.util.ParallelTasks;
+
+/**
+ * A block of rows of the numeric columns, stored column-wise in primitive arrays, whose pairwise sums and
+ * cross-products are added to the accumulators of {@link CorrelationComputer}. The accumulator matrices are split
+ * into tiles of columns that are small enough to stay in the cache while the rows of the block are processed, and
+ * the tiles are computed concurrently. Missing values are stored as zero together with a validity mask, so that the
+ * inner loops need no branches; only columns with infinite or NaN values or squares in the block are summed up with
+ * explicit checks, which keeps the results the same as summing up row by row.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class NumericRowBlock {
+
+    /** The number of rows in a block. */
+    static final int ROWS_PER_BLOCK = 512;
+
+    /** The number of columns per tile of the accumulator matrices. */
+    private static final int COLS_PER_TILE = 64;
+
+    private final int m_noOfCols;
+
+    /** The values per column, zero if missing. */
+    private final double[][] m_values;
+
+    /** The squared values per column, zero if missing. */
+    private final double[][] m_squares;
+
+    /** 1 if the value is not missing, 0 otherwise. */
+    private final double[][] m_valid;
+
+    /**
+     * Whether a column contains an infinite or NaN value in this block, or a value whose square overflows, for which
+     * multiplying with a validity of 0 would give NaN.
+     */
+    private final boolean[] m_nonFinite;
+
+    private int m_noOfRows;
+
+    /**
+     * @param noOfCols the number of numeric columns
+     */
+    NumericRowBlock(final int noOfCols) {
+        m_noOfCols = noOfCols;
+        m_values = new double[noOfCols][ROWS_PER_BLOCK];
+        m_squares = new double[noOfCols][ROWS_PER_BLOCK];
+        m_valid = new double[noOfCols][ROWS_PER_BLOCK];
+        m_nonFinite = new boolean[noOfCols];
+    }
+
+    /**
+     * Sets the value of the column in the current row.
+     *
+     * @param col the column index
+     * @param value the value
+     */
+    void set(final int col, final double value) {
+        final double square = value * value;
+        m_values[col][m_noOfRows] = value;
+        m_squares[col][m_noOfRows] = square;
+        m_valid[col][m_noOfRows] = 1.0;
+        if (!Double.isFinite(square)) {
+            m_nonFinite[col] = true;
+        }
+    }
+
+    /**
+     * Marks the value of the column in the current row as missing.
+     *
+     * @param col the column index
+     */
+    void setMissing(final int col) {
+        m_values[col][m_noOfRows] = 0.0;
+        m_squares[col][m_noOfRows] = 0.0;
+        m_valid[col][m_noOfRows] = 0.0;
+    }
+
+    /**
+     * Finishes the current row.
+     *
+     * @return <code>true</code> if the block is full
+     */
+    boolean endRow() {
+        m_noOfRows++;
+        return m_noOfRows == ROWS_PER_BLOCK;
+    }
+
+    /**
+     * Adds the sums of the rows to the accumulators and clears the block.
+     *
+     * @param sum sum[i][j] is the sum of the values of column i where column j is not missing
+     * @param sumSq sumSq[i][j] is the sum of the squared values of column i where column j is not missing
+     * @param validCount the number of rows where both columns are not missing
+     * @throws CanceledExecutionException if the thread is interrupted while waiting for the tiles
+     */
+    void addStatistics(final double[][] sum, final double[][] sumSq, final HalfIntMatrix validCount)
+        throws CanceledExecutionException {
+        if (m_noOfRows == 0) {
+            return;
+        }
+        final int noOfRows = m_noOfRows;
+        runTiles(false, (iStart, iEnd, jStart, jEnd) -> {
+            for (int i = iStart; i < iEnd; i++) {
+                final double[] x = m_values[i];
+                final double[] xx = m_squares[i];
+                final double[] validI = m_valid[i];
+                for (int j = jStart; j < jEnd; j++) {
+                    final double[] validJ = m_valid[j];
+                    double s = 0.0;
+                    double sq = 0.0;
+                    if (m_nonFinite[i]) {
+                        for (int r = 0; r < noOfRows; r++) {
+                            if (validJ[r] != 0.0) {
+                                s += x[r];
+                                sq += xx[r];
+                            }
+                        }
+                    } else {
+                        for (int r = 0; r < noOfRows; r++) {
+                            s += x[r] * validJ[r];
+                            sq += xx[r] * validJ[r];
+                        }
+                    }
+                    sum[i][j] += s;
+                    sumSq[i][j] += sq;
+                    if (j >= i) { // don't count twice
+                        double count = 0.0;
+                        for (int r = 0; r < noOfRows; r++) {
+                            count += validI[r] * validJ[r];
+                        }
+                        validCount.add(i, j, (int)count);
+                    }
+                }
+            }
+        });
+        clear();
+    }
+
+    /**
+     * Adds the cross-products of all pairs of columns i &lt; j over the rows where both are not missing to
+     * <code>crossProducts[i][j]</code> and clears the block.
+     *
+     * @param crossProducts the accumulator, only the upper triangle is used
+     * @throws CanceledExecutionException if the thread is interrupted while waiting for the tiles
+     */
+    void addCrossProducts(final double[][] crossProducts) throws CanceledExecutionException {
+        if (m_noOfRows == 0) {
+            return;
+        }
+        final int noOfRows = m_noOfRows;
+        runTiles(true, (iStart, iEnd, jStart, jEnd) -> {
+            for (int i = iStart; i < iEnd; i++) {
+                final double[] x = m_values[i];
+                final double[] validI = m_valid[i];
+                for (int j = Math.max(jStart, i + 1); j < jEnd; j++) {
+                    final double[] y = m_values[j];
+                    double c = 0.0;
+                    if (m_nonFinite[i] || m_nonFinite[j]) {
+                        final double[] validJ = m_valid[j];
+                        for (int r = 0; r < noOfRows; r++) {
+                            if (validI[r] != 0.0 && validJ[r] != 0.0) {
+                                c += x[r] * y[r];
+                            }
+                        }
+                    } else {
+                        for (int r = 0; r < noOfRows; r++) {
+                            c += x[r] * y[r];
+                        }
+                    }
+                    crossProducts[i][j] += c;
+                }
+            }
+        });
+        clear();
+    }
+
+    private void clear() {
+        m_noOfRows = 0;
+        Arrays.fill(m_nonFinite, false);
+    }
+
+    /** Computes a tile of the accumulator matrices. */
+    @FunctionalInterface
+    private interface TileKernel {
+        void compute(int iStart, int iEnd, int jStart, int jEnd);
+    }
+
+    /**
+     * Runs the kernel on all tiles, concurrently if possible. The tiles are disjoint, hence the kernels don't need
+     * to synchronize on the accumulators.
+     */
+    private void runTiles(final boolean upperTriangle, final TileKernel kernel) throws CanceledExecutionException {
+        final int noOfTiles = (m_noOfCols + COLS_PER_TILE - 1) / COLS_PER_TILE;
+        final List<int[]> tiles = new ArrayList<>();
+        for (int ti = 0; ti < noOfTiles; ti++) {
+            for (int tj = upperTriangle ? ti : 0; tj < noOfTiles; tj++) {
+                final int iStart = ti * COLS_PER_TILE;
+                final int iEnd = Math.min(m_noOfCols, iStart + COLS_PER_TILE);
+                final int jStart = tj * COLS_PER_TILE;
+                final int jEnd = Math.min(m_noOfCols, jStart + COLS_PER_TILE);
+                tiles.add(new int[]{iStart, iEnd, jStart, jEnd});
+            }
+        }
+        ParallelTasks.forEach(tiles.size(), t -> {
+            final int[] tile = tiles.get(t);
+            kernel.compute(tile[0], tile[1], tile[2], tile[3]);
+        });
+    }
+}
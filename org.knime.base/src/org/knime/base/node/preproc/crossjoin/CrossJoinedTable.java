@@ -0,0 +1,496 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.crossjoin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowIterator;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.BufferedDataTable.KnowsRowCountTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.ExtensionTable;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Virtual table representing the cross product of two tables. It only references both input tables and generates the
+ * joined rows while being iterated, so that the product never needs to be materialized.
+ *
+ * <p>
+ * The rows are generated block by block: a chunk of rows of the left table is combined with consecutive chunks of
+ * rows of the right table, so that only two chunks need to be held in memory. The order of the rows therefore depends
+ * on the chunk size. The rows generated for one chunk of the left table form a <i>block</i>; blocks can be
+ * processed concurrently by {@link #processBlocks(BlockProcessor, ExecutionMonitor)}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class CrossJoinedTable extends ExtensionTable {
+
+    private static final String CFG_LEFT_TABLE_ID = "left_table_id";
+
+    private static final String CFG_RIGHT_TABLE_ID = "right_table_id";
+
+    private static final String CFG_SHOW_LEFT_KEYS = "show_left_keys";
+
+    private static final String CFG_SHOW_RIGHT_KEYS = "show_right_keys";
+
+    private static final String CFG_KEY_SEPARATOR = "key_separator";
+
+    private static final String CFG_CHUNK_SIZE = "chunk_size";
+
+    private final DataTableSpec m_spec;
+
+    private final BufferedDataTable m_left;
+
+    private final BufferedDataTable m_right;
+
+    private final boolean m_showLeftKeys;
+
+    private final boolean m_showRightKeys;
+
+    private final String m_keySeparator;
+
+    private final int m_chunkSize;
+
+    /**
+     * Processes the rows of one block of the cross product.
+     *
+     * @param <R> the type of the result
+     */
+    @FunctionalInterface
+    public interface BlockProcessor<R> {
+        /**
+         * @param rows the rows of the block in table order
+         * @return the result for the block
+         * @throws CanceledExecutionException if canceled
+         */
+        R process(RowIterator rows) throws CanceledExecutionException;
+    }
+
+    /**
+     * Creates the cross product of the two tables.
+     *
+     * @param spec the spec of the joined table, the cells of the left table followed by the cells of the right table
+     *            and, if requested, the row keys of the left and right table
+     * @param left the left table
+     * @param right the right table
+     * @param showLeftKeys whether to append a column containing the row key of the left row
+     * @param showRightKeys whether to append a column containing the row key of the right row
+     * @param keySeparator the separator put between the left and right row key to form the new row key
+     * @param chunkSize the number of rows of each table that are combined at once
+     */
+    CrossJoinedTable(final DataTableSpec spec, final BufferedDataTable left, final BufferedDataTable right,
+        final boolean showLeftKeys, final boolean showRightKeys, final String keySeparator, final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        m_spec = spec;
+        m_left = left;
+        m_right = right;
+        m_showLeftKeys = showLeftKeys;
+        m_showRightKeys = showRightKeys;
+        m_keySeparator = keySeparator;
+        m_chunkSize = chunkSize;
+    }
+
+    /**
+     * Restores a cross product, see {@link ExtensionTable#ExtensionTable(ExtensionTable.LoadContext)}.
+     *
+     * @param context the load context
+     * @throws IOException If reading fails
+     * @throws CanceledExecutionException If canceled
+     * @throws InvalidSettingsException If the settings are invalid
+     */
+    private CrossJoinedTable(final LoadContext context)
+        throws IOException, CanceledExecutionException, InvalidSettingsException {
+        super(context);
+        final NodeSettingsRO settings = context.getSettings();
+        m_spec = context.getTableSpec();
+        m_left = loadReference(context, settings.getInt(CFG_LEFT_TABLE_ID));
+        m_right = loadReference(context, settings.getInt(CFG_RIGHT_TABLE_ID));
+        m_showLeftKeys = settings.getBoolean(CFG_SHOW_LEFT_KEYS);
+        m_showRightKeys = settings.getBoolean(CFG_SHOW_RIGHT_KEYS);
+        m_keySeparator = settings.getString(CFG_KEY_SEPARATOR);
+        m_chunkSize = settings.getInt(CFG_CHUNK_SIZE);
+        if (m_chunkSize < 1) {
+            throw new InvalidSettingsException("Chunk size must be positive: " + m_chunkSize);
+        }
+    }
+
+    private static BufferedDataTable loadReference(final LoadContext context, final int id)
+        throws InvalidSettingsException {
+        final BufferedDataTable table = context.getTable(id);
+        if (table == null) {
+            throw new InvalidSettingsException("Unable to resolve referenced table with id " + id);
+        }
+        return table;
+    }
+
+    /**
+     * Wraps this table into a {@link BufferedDataTable}.
+     *
+     * @param exec the context of the node creating the cross product
+     * @return the cross product as buffered data table
+     */
+    BufferedDataTable createTable(final ExecutionContext exec) {
+        return create(exec);
+    }
+
+    /**
+     * Checks whether the generated row keys are guaranteed to be unique. This is the case if the separator is not
+     * empty and either no key of the left table contains its first character or no key of the right table contains its
+     * last character, because then the position of the separator within each new row key is unambiguous. The check
+     * reads the row keys of both tables once.
+     *
+     * @param exec for cancellation, might be <code>null</code>
+     * @return <code>true</code> if the row keys are unique, <code>false</code> if they might contain duplicates
+     * @throws CanceledExecutionException if canceled
+     */
+    boolean hasUniqueRowKeys(final ExecutionMonitor exec) throws CanceledExecutionException {
+        if (m_keySeparator.isEmpty()) {
+            return false;
+        }
+        return !anyKeyContains(m_left, m_keySeparator.charAt(0), exec)
+            || !anyKeyContains(m_right, m_keySeparator.charAt(m_keySeparator.length() - 1), exec);
+    }
+
+    private static boolean anyKeyContains(final BufferedDataTable table, final char c, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        try (CloseableRowIterator it = table.iterator()) {
+            while (it.hasNext()) {
+                if (it.next().getKey().getString().indexOf(c) >= 0) {
+                    return true;
+                }
+                if (exec != null) {
+                    exec.checkCanceled();
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of blocks, i.e. the number of chunks of the left table
+     */
+    public long getNrBlocks() {
+        return (m_left.size() + m_chunkSize - 1) / m_chunkSize;
+    }
+
+    /**
+     * Processes the blocks of the cross product and returns the results in the order of the blocks, hence concatenating
+     * the rows of all blocks yields the rows of {@link #iterator()}. If the calling thread belongs to a
+     * {@link ThreadPool}, several blocks are processed concurrently; the number of blocks held in memory is bounded by
+     * the number of available processors.
+     *
+     * @param processor processes the rows of a single block, called concurrently for different blocks
+     * @param exec for progress and cancellation, might be <code>null</code>
+     * @param <R> the type of the block results
+     * @return the results of all blocks in block order
+     * @throws CanceledExecutionException if canceled
+     */
+    public <R> List<R> processBlocks(final BlockProcessor<R> processor, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        final long nrBlocks = getNrBlocks();
+        final List<R> results = new ArrayList<>();
+        try (CloseableRowIterator leftIt = m_left.iterator()) {
+            ParallelTasks.<R, RuntimeException> invokeOrdered(() -> {
+                final List<DataRow> chunk = readChunk(leftIt);
+                if (chunk.isEmpty()) {
+                    return null;
+                }
+                return () -> {
+                    try (CloseableRowIterator block = new BlockIterator(chunk)) {
+                        return processor.process(block);
+                    }
+                };
+            }, result -> {
+                results.add(result);
+                reportProgress(exec, results.size(), nrBlocks);
+            });
+        }
+        return results;
+    }
+
+    private static void reportProgress(final ExecutionMonitor exec, final long done, final long total)
+        throws CanceledExecutionException {
+        if (exec != null) {
+            exec.checkCanceled();
+            exec.setProgress(done / (double)total, "Joined block " + done + "/" + total);
+        }
+    }
+
+    /** Reads up to chunk size rows, returns an empty list if the iterator is exhausted. */
+    private List<DataRow> readChunk(final RowIterator it) {
+        final List<DataRow> chunk = new ArrayList<>((int)Math.min(m_chunkSize, 1024));
+        while (chunk.size() < m_chunkSize && it.hasNext()) {
+            chunk.add(it.next());
+        }
+        return chunk;
+    }
+
+    /**
+     * Joins the two rows into one.
+     *
+     * @param left the left row, its cells are put at the beginning of the new row
+     * @param right the right row, its cells follow the left cells
+     * @param showLeftKeys whether to append a cell containing the key of the left row
+     * @param showRightKeys whether to append a cell containing the key of the right row
+     * @param separator put between the two row keys to generate the new one
+     * @return the joined row
+     */
+    static DataRow joinRow(final DataRow left, final DataRow right, final boolean showLeftKeys,
+        final boolean showRightKeys, final String separator) {
+        final int nrLeft = left.getNumCells();
+        final int nrRight = right.getNumCells();
+        final DataCell[] cells = new DataCell[nrLeft + nrRight + (showLeftKeys ? 1 : 0) + (showRightKeys ? 1 : 0)];
+        for (int i = 0; i < nrLeft; i++) {
+            cells[i] = left.getCell(i);
+        }
+        for (int i = 0; i < nrRight; i++) {
+            cells[nrLeft + i] = right.getCell(i);
+        }
+        int index = nrLeft + nrRight;
+        if (showLeftKeys) {
+            cells[index++] = new StringCell(left.getKey().toString());
+        }
+        if (showRightKeys) {
+            cells[index] = new StringCell(right.getKey().toString());
+        }
+        return new DefaultRow(left.getKey().getString() + separator + right.getKey().getString(), cells);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void saveToFileOverwrite(final File f, final NodeSettingsWO settings, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        settings.addInt(CFG_LEFT_TABLE_ID, m_left.getBufferedTableId());
+        settings.addInt(CFG_RIGHT_TABLE_ID, m_right.getBufferedTableId());
+        settings.addBoolean(CFG_SHOW_LEFT_KEYS, m_showLeftKeys);
+        settings.addBoolean(CFG_SHOW_RIGHT_KEYS, m_showRightKeys);
+        settings.addString(CFG_KEY_SEPARATOR, m_keySeparator);
+        settings.addInt(CFG_CHUNK_SIZE, m_chunkSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @deprecated use {@link #size()} instead which supports more than {@link Integer#MAX_VALUE} rows
+     */
+    @Override
+    @Deprecated
+    public int getRowCount() {
+        return KnowsRowCountTable.checkRowCount(size());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long size() {
+        return m_left.size() * m_right.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataTableSpec getDataTableSpec() {
+        return m_spec;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CloseableRowIterator iterator() {
+        return new CrossJoinIterator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BufferedDataTable[] getReferenceTables() {
+        return new BufferedDataTable[]{m_left, m_right};
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        // no own data, the input tables are cleared by their owners
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void ensureOpen() {
+        // no own data
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void putIntoTableRepository(final HashMap<Integer, ContainerTable> rep) {
+        // no own data
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean removeFromTableRepository(final HashMap<Integer, ContainerTable> rep) {
+        return false;
+    }
+
+    /** Iterator over all blocks, reads the next chunk of the left table whenever a block is exhausted. */
+    private final class CrossJoinIterator extends CloseableRowIterator {
+
+        private final CloseableRowIterator m_leftIterator = m_left.iterator();
+
+        private BlockIterator m_block;
+
+        @Override
+        public boolean hasNext() {
+            while (m_block == null || !m_block.hasNext()) {
+                if (m_block != null) {
+                    m_block.close();
+                    m_block = null;
+                }
+                final List<DataRow> chunk = readChunk(m_leftIterator);
+                if (chunk.isEmpty()) {
+                    m_leftIterator.close();
+                    return false;
+                }
+                m_block = new BlockIterator(chunk);
+            }
+            return true;
+        }
+
+        @Override
+        public DataRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows in cross product");
+            }
+            return m_block.next();
+        }
+
+        @Override
+        public void close() {
+            if (m_block != null) {
+                m_block.close();
+            }
+            m_leftIterator.close();
+        }
+    }
+
+    /**
+     * Iterator over the rows of one block: each chunk of the right table is combined with all rows of the left chunk
+     * before the next right chunk is read.
+     */
+    private final class BlockIterator extends CloseableRowIterator {
+
+        private final DataRow[] m_leftRows;
+
+        private final DataRow[] m_rightRows;
+
+        private final CloseableRowIterator m_rightIterator = m_right.iterator();
+
+        private int m_nrRightRows;
+
+        private int m_leftIndex;
+
+        private int m_rightIndex;
+
+        BlockIterator(final List<DataRow> leftChunk) {
+            m_leftRows = leftChunk.toArray(new DataRow[leftChunk.size()]);
+            m_rightRows = new DataRow[(int)Math.min(m_chunkSize, m_right.size())];
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (m_rightIndex < m_nrRightRows) {
+                return true;
+            }
+            if (m_leftIndex + 1 < m_leftRows.length && m_nrRightRows > 0) {
+                m_leftIndex++;
+                m_rightIndex = 0;
+                return true;
+            }
+            m_nrRightRows = 0;
+            while (m_nrRightRows < m_rightRows.length && m_rightIterator.hasNext()) {
+                m_rightRows[m_nrRightRows++] = m_rightIterator.next();
+            }
+            m_leftIndex = 0;
+            m_rightIndex = 0;
+            if (m_nrRightRows == 0) {
+                m_rightIterator.close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public DataRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows in block");
+            }
+            return joinRow(m_leftRows[m_leftIndex], m_rightRows[m_rightIndex++], m_showLeftKeys, m_showRightKeys,
+                m_keySeparator);
+        }
+
+        @Override
+        public void close() {
+            m_rightIterator.close();
+            m_nrRightRows = 0;
+            m_leftIndex = m_leftRows.length;
+        }
+    }
+}
@@ -55,14 +55,12 @@
 import javax.swing.event.ChangeListener;
 
 import org.apache.commons.lang.StringUtils;
-import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.data.container.DataContainer;
-import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.StringCell;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
@@ -112,83 +110,30 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         int chunksize = m_cacheSize.getIntValue();
         String sep = m_rkseparator.getStringValue();
 
-        DataContainer dc = exec.createDataContainer(
-            createSpec(inData[0].getDataTableSpec(), inData[1].getDataTableSpec(), showLeft, showRight));
+        CrossJoinedTable crossJoin = new CrossJoinedTable(
+            createSpec(inData[0].getDataTableSpec(), inData[1].getDataTableSpec(), showLeft, showRight),
+            inData[0], inData[1], showLeft, showRight, sep, chunksize);
+        // the product is only materialized if its row keys need to be checked for duplicates
+        if (crossJoin.hasUniqueRowKeys(exec)) {
+            return new BufferedDataTable[]{crossJoin.createTable(exec)};
+        }
 
-        long numOutRows = inData[0].size() * inData[1].size();
+        DataContainer dc = exec.createDataContainer(crossJoin.getDataTableSpec());
+        long numOutRows = crossJoin.size();
         long rowcounter = 0;
-
-        CloseableRowIterator leftit = inData[0].iterator();
-        // iterate over all possible chunks of left table
-        for (long chunkcount = 0; chunkcount < Math.ceil(inData[0].size() * 1.0 / chunksize); chunkcount++) {
-            // read one chunk of left table
-            List<DataRow> rowsleft = new LinkedList<DataRow>();
-            for (int i = 0; i < chunksize && leftit.hasNext(); i++) {
-                rowsleft.add(leftit.next());
+        try (CloseableRowIterator it = crossJoin.iterator()) {
+            while (it.hasNext()) {
+                DataRow newRow = it.next();
+                dc.addRowToTable(newRow);
                 exec.checkCanceled();
+                exec.setProgress(rowcounter++ / (double) numOutRows, "Generating Row "
+                                            + newRow.getKey().toString());
             }
-            // iterate over all possible chunks of right table
-            CloseableRowIterator rightit = inData[1].iterator();
-            for (long chunkcount2 = 0; chunkcount2 < Math.ceil(inData[1].size() * 1.0 / chunksize); chunkcount2++) {
-                // read  one chunk of right table
-                List<DataRow> rowsright = new LinkedList<DataRow>();
-                for (int i = 0; i < chunksize && rightit.hasNext(); i++) {
-                    rowsright.add(rightit.next());
-                }
-
-                for (DataRow left : rowsleft) {
-                    for (DataRow right : rowsright) {
-                        DataRow newRow = joinRow(left, right, showLeft, showRight, sep);
-                        dc.addRowToTable(newRow);
-                        exec.checkCanceled();
-                        exec.setProgress(rowcounter++ / (double) numOutRows, "Generating Row "
-                                                    + newRow.getKey().toString());
-                    }
-                }
-            }
-            rightit.close();
         }
-        leftit.close();
         dc.close();
         return new BufferedDataTable[]{(BufferedDataTable)dc.getTable()};
     }
 
-    /**
-     * Joins the two rows into one.
-     * @param left the first data row (put at the beginning of the new one)
-     * @param right the second data row (at the end of the new one)
-     * @param showLeft if true there will be new column containing the rowid of the left column
-     * @param showRight if true there will be new column containing the rowid of the left column
-     * @param seperator String which will be put between the two rowkeys to generate the new one.
-     * @return a DataRow, containing the cells of both rows and if selected the rowkeys in new columns
-     * @since 2.9.1
-     */
-    private DataRow joinRow(final DataRow left, final DataRow right, final boolean showLeft,
-        final boolean showRight, final String seperator) {
-
-        int numCols = left.getNumCells() + right.getNumCells() + (showLeft ? 1 : 0) + (showRight ? 1 : 0);
-        DataCell[] cells = new DataCell[numCols];
-
-        for (int i = 0; i < left.getNumCells(); i++) {
-            cells[i] = left.getCell(i);
-        }
-        for (int i = 0; i < right.getNumCells(); i++) {
-            cells[i + left.getNumCells()] = right.getCell(i);
-        }
-
-        if (showLeft) {
-            cells[left.getNumCells() + right.getNumCells()] = new StringCell(left.getKey().toString());
-        }
-
-        if (showRight) {
-            cells[left.getNumCells() + right.getNumCells() + (showLeft ? 1 : 0)]
-                    = new StringCell(right.getKey().toString());
-        }
-
-        String newrowkey = left.getKey().getString() + seperator + right.getKey().getString();
-        return new DefaultRow(newrowkey, cells);
-    }
-
     private DataTableSpec createSpec(final DataTableSpec left, final DataTableSpec right, final boolean showLeft,
         final boolean showRight) {
         int numCols = left.getNumColumns() + right.getNumColumns() + (showLeft ? 1 : 0) + (showRight ? 1 : 0);
@@ -49,6 +49,7 @@
 import org.knime.base.node.preproc.filter.row.rowfilter.IRowFilter;
 import org.knime.base.node.preproc.filter.row.rowfilter.IncludeFromNowOn;
 import org.knime.base.node.preproc.sample.AbstractSamplingNodeModel;
+import org.knime.base.node.preproc.sample.ReservoirSampler;
 import org.knime.base.node.preproc.sample.StratifiedSamplingRowFilter;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
@@ -56,7 +57,17 @@
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
 
 /**
  *
@@ -85,6 +96,21 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
             Exception {
         BufferedDataTable in = inData[0];
         BufferedDataTable[] outs = new BufferedDataTable[2];
+        if (isReservoirSampling()) {
+            BufferedDataTableRowOutput firstOut = new BufferedDataTableRowOutput(
+                    exec.createDataContainer(in.getDataTableSpec()));
+            BufferedDataTableRowOutput secondOut = new BufferedDataTableRowOutput(
+                    exec.createDataContainer(in.getDataTableSpec()));
+            ReservoirSampler sampler =
+                    sampleTable(in, false, exec.createSubProgress(0.5));
+            partition(in, sampler, firstOut, secondOut,
+                    exec.createSubProgress(0.5));
+            firstOut.close();
+            secondOut.close();
+            outs[0] = firstOut.getDataTable();
+            outs[1] = secondOut.getDataTable();
+            return outs;
+        }
         IRowFilter filter = getSamplingRowFilter(in, exec);
         BufferedDataContainer firstOutCont =
             exec.createDataContainer(in.getDataTableSpec());
@@ -152,4 +178,122 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs)
         outs[OUTPORT_B] = inSpecs[0];
         return outs;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputPortRole[] getInputPortRoles() {
+        if (isStreamable()) {
+            // not distributed: whether a row is sampled is only known
+            // after all rows of all partitions have been seen
+            return new InputPortRole[]{InputPortRole.NONDISTRIBUTED_STREAMABLE};
+        } else {
+            return super.getInputPortRoles();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(
+            final PartitionInfo partitionInfo, final PortObjectSpec[] inSpecs)
+            throws InvalidSettingsException {
+        if (!isStreamable()) {
+            return super.createStreamableOperator(partitionInfo, inSpecs);
+        }
+        return new StreamableOperator() {
+            @Override
+            public void runFinal(final PortInput[] inputs,
+                    final PortOutput[] outputs, final ExecutionContext exec)
+                    throws Exception {
+                RowInput in = (RowInput)inputs[0];
+                RowOutput firstOut = (RowOutput)outputs[OUTPORT_A];
+                RowOutput secondOut = (RowOutput)outputs[OUTPORT_B];
+                if (isReservoirSampling()) {
+                    executeReservoirSampling(in, firstOut, secondOut, exec);
+                } else {
+                    final int rowCount = getSettings().count();
+                    long count = 0;
+                    DataRow row;
+                    while ((row = in.poll()) != null) {
+                        if (count < rowCount) {
+                            firstOut.push(row);
+                        } else {
+                            secondOut.push(row);
+                        }
+                        exec.setMessage("Processed row " + count + " (\""
+                                + row.getKey() + "\")");
+                        exec.checkCanceled();
+                        count++;
+                    }
+                }
+                in.close();
+                firstOut.close();
+                secondOut.close();
+            }
+        };
+    }
+
+    /**
+     * Partitions the streamed input. The rows are buffered while they are
+     * added to the sampler, which is only complete after the last row. Then
+     * both outputs are written in input order, as without streaming.
+     */
+    private void executeReservoirSampling(final RowInput in,
+            final RowOutput firstOut, final RowOutput secondOut,
+            final ExecutionContext exec) throws Exception {
+        ReservoirSampler sampler =
+            createReservoirSampler(in.getDataTableSpec(), 0, false);
+        BufferedDataContainer buffer =
+            exec.createDataContainer(in.getDataTableSpec());
+        try {
+            long count = 0;
+            DataRow row;
+            while ((row = in.poll()) != null) {
+                sampler.add(row);
+                buffer.addRowToTable(row);
+                exec.setMessage("Processed row " + count++ + " (\""
+                        + row.getKey() + "\")");
+                exec.checkCanceled();
+            }
+        } finally {
+            buffer.close();
+        }
+        BufferedDataTable rows = buffer.getTable();
+        partition(rows, sampler, firstOut, secondOut, exec);
+        exec.clearTable(rows);
+    }
+
+    /**
+     * Pushes the sampled rows of the table to the first output and all other
+     * rows to the second output, both in the order of the table.
+     *
+     * @param table the table whose rows have all been added to the sampler
+     */
+    private void partition(final BufferedDataTable table,
+            final ReservoirSampler sampler, final RowOutput firstOut,
+            final RowOutput secondOut, final ExecutionMonitor exec)
+            throws InterruptedException, CanceledExecutionException {
+        // the sampled rows are identified by their index in the table
+        final long[] sampledIndices = sampler.getSampleIndices();
+        int next = 0;
+        final double rowCount = table.size(); // floating point op. below
+        long count = 0;
+        for (DataRow row : table) {
+            if (next < sampledIndices.length
+                    && sampledIndices[next] == count) {
+                next++;
+                firstOut.push(row);
+            } else {
+                secondOut.push(row);
+            }
+            exec.setProgress(count / rowCount, "Processed row " + count
+                    + " (\"" + row.getKey() + "\")");
+            exec.checkCanceled();
+            count++;
+        }
+        checkClassCount(sampler, sampledIndices.length);
+    }
 }
@@ -67,6 +67,7 @@
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableDomainCreator;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.DataValueComparator;
@@ -310,6 +311,9 @@ protected PortObject[] execute(final PortObject[] inData,
             final ExecutionContext exec) throws Exception {
         final BufferedDataTable table = (BufferedDataTable) inData[0];
         final List<String> groupAndPivotCols = createAllColumns();
+        if (canUsePivotAggregator()) {
+            return executeWithPivotAggregator(table, groupAndPivotCols, exec);
+        }
         final BufferedDataTable groupTable;
         final String orderPivotColumnName;
 
@@ -522,37 +526,9 @@ public DataCell getCell(final DataRow row) {
 
         // total aggregation without grouping
         if (m_totalAggregation.getBooleanValue()) {
-            @SuppressWarnings("unchecked")
-            final GroupByTable totalGroup = createGroupByTable(
+            pivotRowsTable = appendOverallTotals(pivotRowsTable, table,
                     pivotExec.createSubExecutionContext(
-                            progPivotOverallTotals / progPivotTotal), table,
-                    Collections.EMPTY_LIST, isProcessInMemory(),
-                    isRetainOrder(), getColumnAggregators());
-            final BufferedDataTable totalGroupTable =
-                totalGroup.getBufferedTable();
-
-            final DataTableSpec pivotsRowsSpec = pivotRowsTable.getSpec();
-            final DataTableSpec totalGroupSpec = totalGroupTable.getSpec();
-            final DataTableSpec overallTotalSpec =
-                    new DataTableSpec(pivotsRowsSpec, totalGroupSpec);
-            final BufferedDataContainer buf = exec.createDataContainer(
-                    overallTotalSpec);
-            if (pivotRowsTable.size() > 0) {
-                final List<DataCell> pivotTotalsCells =
-                    new ArrayList<DataCell>();
-                final DataRow pivotsRow = pivotRowsTable.iterator().next();
-                for (final DataCell cell : pivotsRow) {
-                    pivotTotalsCells.add(cell);
-                }
-                final DataRow totalGroupRow = totalGroupTable.iterator().next();
-                for (final DataCell cell : totalGroupRow) {
-                    pivotTotalsCells.add(cell);
-                }
-                buf.addRowToTable(new DefaultRow(new RowKey("Totals"),
-                        pivotTotalsCells));
-            }
-            buf.close();
-            pivotRowsTable = buf.getTable();
+                            progPivotOverallTotals / progPivotTotal));
         }
         pivotExec.setProgress(1.0);
 
@@ -573,6 +549,160 @@ Collections.EMPTY_LIST, isProcessInMemory(),
                 pivotRowsTable};
     }
 
+    /**
+     * Appends the overall totals, the aggregation of the whole input table, to the single row of the pivot totals.
+     */
+    private BufferedDataTable appendOverallTotals(
+            final BufferedDataTable pivotRowsTable,
+            final BufferedDataTable table, final ExecutionContext exec)
+            throws CanceledExecutionException {
+        @SuppressWarnings("unchecked")
+        final GroupByTable totalGroup = createGroupByTable(exec, table,
+                Collections.EMPTY_LIST, isProcessInMemory(),
+                isRetainOrder(), getColumnAggregators());
+        final BufferedDataTable totalGroupTable =
+            totalGroup.getBufferedTable();
+
+        final DataTableSpec pivotsRowsSpec = pivotRowsTable.getSpec();
+        final DataTableSpec totalGroupSpec = totalGroupTable.getSpec();
+        final DataTableSpec overallTotalSpec =
+                new DataTableSpec(pivotsRowsSpec, totalGroupSpec);
+        final BufferedDataContainer buf = exec.createDataContainer(
+                overallTotalSpec);
+        if (pivotRowsTable.size() > 0) {
+            final List<DataCell> pivotTotalsCells =
+                new ArrayList<DataCell>();
+            final DataRow pivotsRow = pivotRowsTable.iterator().next();
+            for (final DataCell cell : pivotsRow) {
+                pivotTotalsCells.add(cell);
+            }
+            final DataRow totalGroupRow = totalGroupTable.iterator().next();
+            for (final DataCell cell : totalGroupRow) {
+                pivotTotalsCells.add(cell);
+            }
+            buf.addRowToTable(new DefaultRow(new RowKey("Totals"),
+                    pivotTotalsCells));
+        }
+        buf.close();
+        return buf.getTable();
+    }
+
+    /**
+     * @return <code>true</code> if the pivot table and the pivot totals can
+     * be computed by a {@link PivotAggregator} instead of sorting the input
+     * table into an intermediate group-by table
+     */
+    private boolean canUsePivotAggregator() {
+        if (isProcessInMemory() || isRetainOrder()
+                || getGroupByColumns().isEmpty()) {
+            return false;
+        }
+        for (final ColumnAggregator aggregator : getColumnAggregators()) {
+            if (!PivotAggregator.supports(aggregator)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates all three output tables using a {@link PivotAggregator} for the
+     * pivot table and the pivot totals. The output is the same as the one of
+     * the group-by based implementation.
+     */
+    private PortObject[] executeWithPivotAggregator(
+            final BufferedDataTable table,
+            final List<String> groupAndPivotCols,
+            final ExecutionContext exec) throws CanceledExecutionException {
+        final List<String> pivotCols = m_pivotCols.getIncludeList();
+        final List<ColumnAggregator> aggregators = getColumnAggregators();
+        final DataTableSpec groupSpec = GroupByTable.createGroupByTableSpec(
+                table.getDataTableSpec(), groupAndPivotCols,
+                aggregators.toArray(new ColumnAggregator[0]),
+                getColumnNamePolicy());
+        final double progOverallTotals =
+            m_totalAggregation.getBooleanValue() ? 0.1 : 0.0;
+
+        exec.setMessage("Aggregating pivots");
+        final PivotAggregator aggregator = new PivotAggregator(
+                table.getDataTableSpec(), getGroupByColumns(), pivotCols,
+                aggregators);
+        aggregator.aggregate(table, exec.createSubExecutionContext(0.6));
+
+        exec.setProgress("Determining pivots...");
+        final DataTableSpec pivotDomainSpec =
+            m_ignoreDomain.getBooleanValue() ? groupSpec
+                : createPivotDomainSpec(groupSpec, pivotCols, aggregator);
+        final Set<String>[] combPivots =
+            createCombinedPivots(pivotDomainSpec, pivotCols);
+        for (int c = 0; c < aggregator.getNrCombinations(); c++) {
+            final DataCell[] pivotCells = aggregator.getPivotCells(c);
+            for (int i = 0; i < pivotCells.length; i++) {
+                if (combPivots[i] == null) {
+                    combPivots[i] = new LinkedHashSet<String>();
+                }
+                if (!pivotCells[i].isMissing()
+                        || !m_ignoreMissValues.getBooleanValue()) {
+                    combPivots[i].add(pivotCells[i].toString());
+                }
+            }
+        }
+        final Map<String, Integer> pivotStarts =
+            new LinkedHashMap<String, Integer>();
+        final DataTableSpec outSpec = createOutSpec(groupSpec, combPivots,
+                pivotStarts, null);
+
+        exec.setProgress("Filling pivot table");
+        final BufferedDataTable pivotTable = fillPivotTable(aggregator,
+                outSpec, pivotStarts, exec.createSubExecutionContext(0.05));
+
+        exec.setMessage("Determining pivot totals");
+        final PivotAggregator pivotTotals = aggregator.createPivotTotals();
+        BufferedDataTable pivotRowsTable = fillPivotTable(pivotTotals,
+                outSpec, pivotStarts, exec.createSubExecutionContext(0.05));
+        if (aggregator.hasSkippedSums() || pivotTotals.hasSkippedSums()) {
+            setWarningMessage("Some sums exceed the maximum value of their "
+                    + "int or long column and have been set to missing. "
+                    + "Convert the columns to double.");
+        }
+        if (m_totalAggregation.getBooleanValue()) {
+            pivotRowsTable = appendOverallTotals(pivotRowsTable, table,
+                    exec.createSubExecutionContext(progOverallTotals));
+        }
+
+        /* Fill the 2nd port last since it creates the hilite mapping */
+        exec.setMessage("Creating group totals");
+        final BufferedDataTable columnGroupTable = createGroupByTable(
+                exec.createSubExecutionContext(0.3 - progOverallTotals),
+                table, getGroupByColumns()).getBufferedTable();
+        return new PortObject[] {pivotTable, columnGroupTable,
+                pivotRowsTable};
+    }
+
+    /**
+     * Creates the spec of the pivot columns with the domain the group-by
+     * table would have been created with, i.e. the domain of the input
+     * extended by the pivot values in the order of the sorted combinations.
+     * The domain determines the order of the pivot columns.
+     */
+    private static DataTableSpec createPivotDomainSpec(
+            final DataTableSpec groupSpec, final List<String> pivotCols,
+            final PivotAggregator aggregator) {
+        final DataColumnSpec[] pivotSpecs =
+            new DataColumnSpec[pivotCols.size()];
+        for (int i = 0; i < pivotSpecs.length; i++) {
+            pivotSpecs[i] = groupSpec.getColumnSpec(pivotCols.get(i));
+        }
+        final DataTableDomainCreator domainCreator =
+            new DataTableDomainCreator(new DataTableSpec(pivotSpecs), true);
+        for (int c = 0; c < aggregator.getNrCombinations(); c++) {
+            domainCreator.updateDomain(new DefaultRow(
+                    RowKey.createRowKey((long)c),
+                    aggregator.getPivotCells(c)));
+        }
+        return domainCreator.createSpec();
+    }
+
     private DataTableSpec createOutSpec(final DataTableSpec groupSpec,
             final Set<String>[] combPivots,
             final Map<String, Integer> pivotStarts,
@@ -701,6 +831,65 @@ private BufferedDataTable fillPivotTable(final BufferedDataTable groupTable,
         return buf.getTable();
     }
 
+    /**
+     * Writes one row per group of the given aggregator, combinations with
+     * missing pivot values are left out if missing values are ignored. The
+     * group columns are filled with missing cells if the aggregator has no
+     * group values, as for the pivot totals.
+     */
+    private BufferedDataTable fillPivotTable(final PivotAggregator aggregator,
+            final DataTableSpec pivotSpec,
+            final Map<String, Integer> pivotStarts,
+            final ExecutionContext exec) throws CanceledExecutionException {
+        final BufferedDataContainer buf = exec.createDataContainer(pivotSpec);
+        final int groupCount = getGroupByColumns().size();
+        final int aggrCount = getColumnAggregators().size();
+        final DataCell[] outcells = new DataCell[pivotSpec.getNumColumns()];
+        final int combinations = aggregator.getNrCombinations();
+        boolean hasPivots = false;
+        for (int c = 0; c < combinations; c++) {
+            if (hasPivots && aggregator.getGroupIndex(c)
+                    != aggregator.getGroupIndex(c - 1)) {
+                write(buf, outcells);
+                Arrays.fill(outcells, null);
+                hasPivots = false;
+            }
+            final DataCell[] pivotCells = aggregator.getPivotCells(c);
+            String pivotColumn = null;
+            for (final DataCell cell : pivotCells) {
+                if (m_ignoreMissValues.getBooleanValue() && cell.isMissing()) {
+                    pivotColumn = null;
+                    break;
+                }
+                if (pivotColumn == null) {
+                    pivotColumn = cell.toString();
+                } else {
+                    pivotColumn += PIVOT_COLUMN_DELIMITER + cell.toString();
+                }
+            }
+            if (pivotColumn != null) {
+                final DataCell[] groupCells = aggregator.getGroupCells(c);
+                for (int i = 0; i < groupCount; i++) {
+                    outcells[i] = i < groupCells.length ? groupCells[i]
+                        : DataType.getMissingCell();
+                }
+                final int idx = pivotStarts.get(pivotColumn);
+                for (int a = 0; a < aggrCount; a++) {
+                    outcells[idx + a] = aggregator.getResult(c, a);
+                }
+                hasPivots = true;
+            }
+            exec.setProgress(c / (double)combinations);
+            exec.checkCanceled();
+        }
+        // write last group - if any.
+        if (hasPivots) {
+            write(buf, outcells);
+        }
+        buf.close();
+        return buf.getTable();
+    }
+
     private void write(final BufferedDataContainer buf,
             final DataCell[] outcells) {
         for (int j = 0; j < outcells.length; j++) {
@@ -0,0 +1,596 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.pivot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.base.data.aggregation.AggregationMethod;
+import org.knime.base.data.aggregation.ColumnAggregator;
+import org.knime.base.data.aggregation.general.CountOperator;
+import org.knime.base.data.aggregation.general.MaxOperator;
+import org.knime.base.data.aggregation.general.MinOperator;
+import org.knime.base.data.aggregation.numerical.MeanOperator;
+import org.knime.base.data.aggregation.numerical.SumOperator;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DataValueComparator;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.LongValue;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ParallelTasks.Task;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Aggregates the rows of a table per combination of group and pivot values without sorting the table or creating an
+ * intermediate group-by table. The combinations are dictionary encoded and their aggregates are kept in primitive
+ * arrays. Partitions of the input are aggregated concurrently and merged in input order. Only a fixed set of
+ * aggregation methods is supported, see {@link #supports(ColumnAggregator)}.
+ *
+ * <p>
+ * After {@link #aggregate(BufferedDataTable, ExecutionMonitor)} the combinations are sorted by their group values
+ * followed by their pivot values, ascending and with missing values first, which is the order of the group-by table
+ * the pivot table has been created from so far.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class PivotAggregator {
+
+    /** The number of rows which are aggregated by a single task. */
+    static final int ROWS_PER_PARTITION = 10000;
+
+    private static final int SUM = 0;
+
+    private static final int MEAN = 1;
+
+    private static final int MIN = 2;
+
+    private static final int MAX = 3;
+
+    private static final int COUNT = 4;
+
+    private final int m_nrGroupCols;
+
+    private final int m_nrPivotCols;
+
+    /** The indices of the group columns followed by the pivot columns in the input table. */
+    private final int[] m_keyIdx;
+
+    private final DataValueComparator[] m_comparators;
+
+    private final int[] m_aggrIdx;
+
+    private final int[] m_methods;
+
+    private final boolean[] m_inclMissing;
+
+    /** The result type per aggregation, min and max of int and long columns are aggregated as long values. */
+    private final DataType[] m_types;
+
+    private final boolean[] m_isLong;
+
+    private Slots m_slots;
+
+    /** The slots in the order of their combinations. */
+    private int[] m_order;
+
+    /** The index of the group of each combination in the sorted order. */
+    private int[] m_groupIndices;
+
+    private boolean m_skipped;
+
+    /**
+     * @param spec the spec of the table to aggregate
+     * @param groupCols the group columns
+     * @param pivotCols the pivot columns
+     * @param aggregators the aggregators, all of them need to be {@link #supports(ColumnAggregator) supported}
+     */
+    PivotAggregator(final DataTableSpec spec, final List<String> groupCols, final List<String> pivotCols,
+        final List<ColumnAggregator> aggregators) {
+        m_nrGroupCols = groupCols.size();
+        m_nrPivotCols = pivotCols.size();
+        m_keyIdx = new int[m_nrGroupCols + m_nrPivotCols];
+        m_comparators = new DataValueComparator[m_keyIdx.length];
+        for (int i = 0; i < m_keyIdx.length; i++) {
+            final String name = i < m_nrGroupCols ? groupCols.get(i) : pivotCols.get(i - m_nrGroupCols);
+            m_keyIdx[i] = spec.findColumnIndex(name);
+            if (m_keyIdx[i] < 0) {
+                throw new IllegalArgumentException("No column spec found for name: " + name);
+            }
+            m_comparators[i] = spec.getColumnSpec(m_keyIdx[i]).getType().getComparator();
+        }
+        final int nrAggrs = aggregators.size();
+        m_aggrIdx = new int[nrAggrs];
+        m_methods = new int[nrAggrs];
+        m_inclMissing = new boolean[nrAggrs];
+        m_types = new DataType[nrAggrs];
+        m_isLong = new boolean[nrAggrs];
+        for (int a = 0; a < nrAggrs; a++) {
+            final ColumnAggregator aggregator = aggregators.get(a);
+            if (!supports(aggregator)) {
+                throw new IllegalArgumentException("Aggregation not supported: " + aggregator);
+            }
+            m_aggrIdx[a] = spec.findColumnIndex(aggregator.getOriginalColName());
+            if (m_aggrIdx[a] < 0) {
+                throw new IllegalArgumentException(
+                    "No column spec found for name: " + aggregator.getOriginalColName());
+            }
+            m_methods[a] = getMethod(aggregator.getMethodTemplate());
+            m_inclMissing[a] = aggregator.inclMissingCells();
+            final DataType origType = aggregator.getOriginalDataType();
+            switch (m_methods[a]) {
+                case SUM:
+                    if (origType.isCompatible(IntValue.class)) {
+                        m_types[a] = IntCell.TYPE;
+                    } else if (origType.isCompatible(LongValue.class)) {
+                        m_types[a] = LongCell.TYPE;
+                    } else {
+                        m_types[a] = DoubleCell.TYPE;
+                    }
+                    break;
+                case MIN:
+                case MAX:
+                    m_types[a] = origType;
+                    m_isLong[a] = !DoubleCell.TYPE.equals(origType);
+                    break;
+                case MEAN:
+                    m_types[a] = DoubleCell.TYPE;
+                    break;
+                default:
+                    m_types[a] = IntCell.TYPE;
+            }
+        }
+    }
+
+    /** Creates the aggregator of the pivot totals which has no group columns. */
+    private PivotAggregator(final PivotAggregator aggregator) {
+        m_nrGroupCols = 0;
+        m_nrPivotCols = aggregator.m_nrPivotCols;
+        m_keyIdx = Arrays.copyOfRange(aggregator.m_keyIdx, aggregator.m_nrGroupCols, aggregator.m_keyIdx.length);
+        m_comparators = Arrays.copyOfRange(aggregator.m_comparators, aggregator.m_nrGroupCols,
+            aggregator.m_comparators.length);
+        m_aggrIdx = aggregator.m_aggrIdx;
+        m_methods = aggregator.m_methods;
+        m_inclMissing = aggregator.m_inclMissing;
+        m_types = aggregator.m_types;
+        m_isLong = aggregator.m_isLong;
+    }
+
+    private static int getMethod(final AggregationMethod method) {
+        final Class<?> c = method.getClass();
+        if (SumOperator.class.equals(c)) {
+            return SUM;
+        } else if (MeanOperator.class.equals(c)) {
+            return MEAN;
+        } else if (MinOperator.class.equals(c)) {
+            return MIN;
+        } else if (MaxOperator.class.equals(c)) {
+            return MAX;
+        } else if (CountOperator.class.equals(c)) {
+            return COUNT;
+        }
+        return -1;
+    }
+
+    /**
+     * @param aggregator the aggregator to check
+     * @return <code>true</code> if the aggregator computes the sum or mean of a numerical column without missing
+     *         values, the minimum or maximum of an int, long or double column, or the count of any column
+     */
+    static boolean supports(final ColumnAggregator aggregator) {
+        final DataType type = aggregator.getOriginalDataType();
+        switch (getMethod(aggregator.getMethodTemplate())) {
+            case SUM:
+            case MEAN:
+                return !aggregator.inclMissingCells() && type.isCompatible(DoubleValue.class);
+            case MIN:
+            case MAX:
+                return IntCell.TYPE.equals(type) || LongCell.TYPE.equals(type) || DoubleCell.TYPE.equals(type);
+            case COUNT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Aggregates all rows of the given table and sorts the combinations afterwards.
+     *
+     * @param table the table to aggregate
+     * @param exec the execution monitor to report progress to and check for cancellation
+     * @throws CanceledExecutionException if the execution has been canceled
+     */
+    void aggregate(final BufferedDataTable table, final ExecutionMonitor exec) throws CanceledExecutionException {
+        final long rowCount = table.size();
+        m_slots = new Slots(m_keyIdx.length);
+        if (ThreadPool.currentPool() == null || Runtime.getRuntime().availableProcessors() < 2
+            || rowCount < 2 * ROWS_PER_PARTITION) {
+            long rowCounter = 0;
+            for (final DataRow row : table) {
+                reportProgress(exec, ++rowCounter, rowCount);
+                m_slots.add(row);
+            }
+        } else {
+            final Iterator<DataRow> rowIt = table.iterator();
+            final long[] rowCounter = new long[1];
+            // the partitions are aggregated concurrently and merged in their order
+            ParallelTasks.<Slots, RuntimeException> invokeOrdered(() -> {
+                final DataRow[] rows = new DataRow[ROWS_PER_PARTITION];
+                int nrRows = 0;
+                while (nrRows < ROWS_PER_PARTITION && rowIt.hasNext()) {
+                    reportProgress(exec, ++rowCounter[0], rowCount);
+                    rows[nrRows++] = rowIt.next();
+                }
+                return nrRows == 0 ? null : createAggregateTask(rows, nrRows);
+            }, partition -> m_slots.merge(partition, 0));
+        }
+        sort();
+    }
+
+    private static void reportProgress(final ExecutionMonitor exec, final long rowCounter, final long rowCount)
+        throws CanceledExecutionException {
+        exec.checkCanceled();
+        if (rowCount > 0) {
+            exec.setProgress(rowCounter / (double)rowCount, "Processing row " + rowCounter + " of " + rowCount);
+        }
+    }
+
+    private Task<Slots, RuntimeException> createAggregateTask(final DataRow[] rows, final int nrRows) {
+        return () -> {
+            final Slots slots = new Slots(m_keyIdx.length);
+            for (int r = 0; r < nrRows; r++) {
+                slots.add(rows[r]);
+            }
+            return slots;
+        };
+    }
+
+    /** Sorts the combinations by their group values followed by their pivot values. */
+    private void sort() {
+        final Slots slots = m_slots;
+        final Integer[] order = new Integer[slots.m_nrSlots];
+        for (int s = 0; s < order.length; s++) {
+            order[s] = s;
+        }
+        Arrays.sort(order, (s1, s2) -> {
+            final DataCell[] k1 = slots.m_keys[s1].m_cells;
+            final DataCell[] k2 = slots.m_keys[s2].m_cells;
+            for (int i = 0; i < m_comparators.length; i++) {
+                final int c = m_comparators[i].compare(k1[i], k2[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        });
+        m_order = new int[order.length];
+        m_groupIndices = new int[order.length];
+        int groupIndex = 0;
+        for (int i = 0; i < order.length; i++) {
+            m_order[i] = order[i];
+            if (i > 0 && !equals(slots.m_keys[order[i - 1]].m_cells, slots.m_keys[order[i]].m_cells, m_nrGroupCols)) {
+                groupIndex++;
+            }
+            m_groupIndices[i] = groupIndex;
+        }
+    }
+
+    private static boolean equals(final DataCell[] k1, final DataCell[] k2, final int length) {
+        for (int i = 0; i < length; i++) {
+            if (!k1[i].equals(k2[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merges the aggregates of all groups per pivot combination.
+     *
+     * @return the pivot totals which have no group values, sorted by their pivot values
+     */
+    PivotAggregator createPivotTotals() {
+        final PivotAggregator totals = new PivotAggregator(this);
+        totals.m_slots = totals.new Slots(m_nrPivotCols);
+        for (final int slot : m_order) {
+            totals.m_slots.merge(m_slots, slot, m_nrGroupCols);
+        }
+        totals.sort();
+        return totals;
+    }
+
+    /**
+     * @return the number of distinct combinations of group and pivot values
+     */
+    int getNrCombinations() {
+        return m_order.length;
+    }
+
+    /**
+     * @param index the index of the combination in the sorted order
+     * @return the index of the group the combination belongs to, combinations of the same group are adjacent
+     */
+    int getGroupIndex(final int index) {
+        return m_groupIndices[index];
+    }
+
+    /**
+     * @param index the index of the combination in the sorted order
+     * @return the group values of the combination
+     */
+    DataCell[] getGroupCells(final int index) {
+        return Arrays.copyOfRange(m_slots.m_keys[m_order[index]].m_cells, 0, m_nrGroupCols);
+    }
+
+    /**
+     * @param index the index of the combination in the sorted order
+     * @return the pivot values of the combination
+     */
+    DataCell[] getPivotCells(final int index) {
+        return Arrays.copyOfRange(m_slots.m_keys[m_order[index]].m_cells, m_nrGroupCols, m_keyIdx.length);
+    }
+
+    /**
+     * Creates the result of an aggregation for a combination. Sums that exceed the range of their int or long result
+     * type are returned as missing cells and reported by {@link #hasSkippedSums()}.
+     *
+     * @param index the index of the combination in the sorted order
+     * @param aggregation the index of the aggregation
+     * @return the result cell
+     */
+    DataCell getResult(final int index, final int aggregation) {
+        final int i = m_order[index] * m_methods.length + aggregation;
+        final long count = m_slots.m_counts[i];
+        if (m_methods[aggregation] == COUNT) {
+            return new IntCell((int)count);
+        }
+        if (count == 0) {
+            return DataType.getMissingCell();
+        }
+        final DataType type = m_types[aggregation];
+        switch (m_methods[aggregation]) {
+            case SUM:
+                final double sum = m_slots.m_doubles[i];
+                if (IntCell.TYPE.equals(type)) {
+                    if (sum > Integer.MAX_VALUE) {
+                        m_skipped = true;
+                        return DataType.getMissingCell();
+                    }
+                    return new IntCell((int)sum);
+                } else if (LongCell.TYPE.equals(type)) {
+                    if (sum > Long.MAX_VALUE) {
+                        m_skipped = true;
+                        return DataType.getMissingCell();
+                    }
+                    return new LongCell((long)sum);
+                }
+                return new DoubleCell(sum);
+            case MEAN:
+                return new DoubleCell(m_slots.m_doubles[i] / count);
+            default:
+                if (IntCell.TYPE.equals(type)) {
+                    return new IntCell((int)m_slots.m_longs[i]);
+                } else if (LongCell.TYPE.equals(type)) {
+                    return new LongCell(m_slots.m_longs[i]);
+                }
+                return new DoubleCell(m_slots.m_doubles[i]);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if a sum returned by {@link #getResult(int, int)} exceeded the range of its result
+     *         type
+     */
+    boolean hasSkippedSums() {
+        return m_skipped;
+    }
+
+    /** The key of a slot, the group and pivot values of a combination. */
+    private static final class CellsKey {
+
+        private final DataCell[] m_cells;
+
+        private int m_hashCode;
+
+        CellsKey(final DataCell[] cells) {
+            m_cells = cells;
+            m_hashCode = Arrays.hashCode(cells);
+        }
+
+        /** Sets the cells of this probe key from the given row. */
+        void set(final DataRow row, final int[] idx) {
+            for (int i = 0; i < idx.length; i++) {
+                m_cells[i] = row.getCell(idx[i]);
+            }
+            m_hashCode = Arrays.hashCode(m_cells);
+        }
+
+        /** Sets the cells of this probe key from a range of the given cells. */
+        void set(final DataCell[] cells, final int from) {
+            System.arraycopy(cells, from, m_cells, 0, m_cells.length);
+            m_hashCode = Arrays.hashCode(m_cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return m_hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof CellsKey && Arrays.equals(m_cells, ((CellsKey)obj).m_cells);
+        }
+    }
+
+    /**
+     * The aggregates of all combinations of a partition. Each combination is mapped to a slot, the aggregates of a
+     * slot are stored at <code>slot * nrAggregations + aggregation</code> of the primitive arrays.
+     */
+    private final class Slots {
+
+        private final Map<CellsKey, Integer> m_index = new HashMap<>();
+
+        /** Reused to look up the slot of a row without creating a key. */
+        private final CellsKey m_probe;
+
+        private CellsKey[] m_keys = new CellsKey[16];
+
+        private int m_nrSlots;
+
+        /** The sums of sum and mean, and the double values of min and max. */
+        private double[] m_doubles;
+
+        /** The int and long values of min and max. */
+        private long[] m_longs;
+
+        /** The number of aggregated cells. */
+        private long[] m_counts;
+
+        Slots(final int keyLength) {
+            m_probe = new CellsKey(new DataCell[keyLength]);
+            final int length = m_keys.length * m_methods.length;
+            m_doubles = new double[length];
+            m_longs = new long[length];
+            m_counts = new long[length];
+        }
+
+        /** Returns the slot of the probe key, a new slot is created if the key has not been seen before. */
+        private int getSlot() {
+            final Integer slot = m_index.get(m_probe);
+            if (slot != null) {
+                return slot;
+            }
+            if (m_nrSlots == m_keys.length) {
+                m_keys = Arrays.copyOf(m_keys, 2 * m_nrSlots);
+                final int length = m_keys.length * m_methods.length;
+                m_doubles = Arrays.copyOf(m_doubles, length);
+                m_longs = Arrays.copyOf(m_longs, length);
+                m_counts = Arrays.copyOf(m_counts, length);
+            }
+            final CellsKey key = new CellsKey(m_probe.m_cells.clone());
+            m_keys[m_nrSlots] = key;
+            m_index.put(key, m_nrSlots);
+            return m_nrSlots++;
+        }
+
+        void add(final DataRow row) {
+            m_probe.set(row, m_keyIdx);
+            final int offset = getSlot() * m_methods.length;
+            for (int a = 0; a < m_methods.length; a++) {
+                final DataCell cell = row.getCell(m_aggrIdx[a]);
+                final int i = offset + a;
+                if (cell.isMissing()) {
+                    if (m_methods[a] == COUNT && m_inclMissing[a]) {
+                        m_counts[i]++;
+                    }
+                } else if (m_methods[a] == COUNT) {
+                    m_counts[i]++;
+                } else if (m_isLong[a]) {
+                    combine(a, i, 0, ((LongValue)cell).getLongValue(), 1);
+                } else {
+                    combine(a, i, ((DoubleValue)cell).getDoubleValue(), 0, 1);
+                }
+            }
+        }
+
+        /** Merges all slots of the given partition, the keys of which start at the given offset. */
+        void merge(final Slots partition, final int keyOffset) {
+            for (int s = 0; s < partition.m_nrSlots; s++) {
+                merge(partition, s, keyOffset);
+            }
+        }
+
+        void merge(final Slots partition, final int slot, final int keyOffset) {
+            m_probe.set(partition.m_keys[slot].m_cells, keyOffset);
+            final int offset = getSlot() * m_methods.length;
+            final int otherOffset = slot * m_methods.length;
+            for (int a = 0; a < m_methods.length; a++) {
+                final int j = otherOffset + a;
+                combine(a, offset + a, partition.m_doubles[j], partition.m_longs[j], partition.m_counts[j]);
+            }
+        }
+
+        /**
+         * Combines aggregated values with the ones at the given index. On ties min and max keep the value which has
+         * been seen first.
+         */
+        private void combine(final int a, final int i, final double d, final long l, final long count) {
+            if (count == 0) {
+                return;
+            }
+            switch (m_methods[a]) {
+                case MIN:
+                case MAX:
+                    final int sign = m_methods[a] == MIN ? -1 : 1;
+                    final int c = m_isLong[a] ? Long.compare(l, m_longs[i]) : Double.compare(d, m_doubles[i]);
+                    if (m_counts[i] == 0 || Integer.signum(c) == sign) {
+                        m_doubles[i] = d;
+                        m_longs[i] = l;
+                    }
+                    break;
+                case SUM:
+                case MEAN:
+                    m_doubles[i] += d;
+                    break;
+                default:
+                    break;
+            }
+            m_counts[i] += count;
+        }
+    }
+}
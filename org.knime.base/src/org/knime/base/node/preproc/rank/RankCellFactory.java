@@ -49,11 +49,14 @@
 package org.knime.base.node.preproc.rank;
 
 import java.util.HashMap;
+import java.util.Map;
 
+import org.knime.base.node.preproc.rank.RankNodeModel.RankMode;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.IntCell;
 import org.knime.core.data.def.LongCell;
 
@@ -75,14 +78,31 @@ class RankCellFactory extends SingleCellFactory {
 
     private HashMap<DataCellTuple, RankAssigner> m_groupHashTable;
 
+    private Map<DataCellTuple, Long> m_groupSizes;
+
+    private int m_nrTiles;
+
+    /**
+     * @param newColSpec the spec of the rank column
+     * @param groupColIndices the indices of the grouping attributes
+     * @param rankColIndices the indices of the ranking attributes
+     * @param rankMode the rank mode
+     * @param rankAsLong whether ranks are returned as long cells
+     * @param initialHashtableCapacity the expected number of groups
+     * @param groupSizes the number of rows per group, only required for the percent and ntile modes
+     * @param nrTiles the number of tiles in ntile mode
+     */
     public RankCellFactory(final DataColumnSpec newColSpec, final int[] groupColIndices, final int[] rankColIndices,
-        final String rankMode, final boolean rankAsLong, final int initialHashtableCapacity) {
+        final String rankMode, final boolean rankAsLong, final int initialHashtableCapacity,
+        final Map<DataCellTuple, Long> groupSizes, final int nrTiles) {
         super(newColSpec);
         m_groupColIndices = groupColIndices;
         m_rankColIndices = rankColIndices;
         m_rankMode = rankMode;
         m_rankAsLong = rankAsLong;
         m_groupHashTable = new HashMap<DataCellTuple, RankAssigner>();
+        m_groupSizes = groupSizes;
+        m_nrTiles = nrTiles;
     }
 
     /**
@@ -94,49 +114,77 @@ public DataCell getCell(final DataRow row) {
         DataCellTuple rowVals = new DataCellTuple(row, m_groupColIndices);
         // get RankAssigner for corresponding group
         RankAssigner rankAssigner = m_groupHashTable.get(rowVals);
-        DataCell rankCell = null;
         // check if RankAssigner is registered for group
         if (rankAssigner == null) {
             // create new RankAssigner and register it for this new group
             rankAssigner = createRankAssigner(m_rankMode, m_rankColIndices);
             m_groupHashTable.put(rowVals, rankAssigner);
-
-            // create RankCell
-            if (m_rankAsLong) {
-                rankCell = new LongCell(rankAssigner.getRank(row));
-            } else {
-                rankCell = new IntCell((int)rankAssigner.getRank(row));
-            }
-        } else {
-            // create RankCell
-            if (m_rankAsLong) {
-                rankCell = new LongCell(rankAssigner.getRank(row));
-            } else {
-                rankCell = new IntCell((int) rankAssigner.getRank(row));
-            }
         }
-        return rankCell;
+        long rank = rankAssigner.getRank(row);
+        // create RankCell
+        if (RankMode.PERCENT.toString().equals(m_rankMode)) {
+            return new DoubleCell(percentRank(rank, m_groupSizes.get(rowVals)));
+        } else if (RankMode.NTILE.toString().equals(m_rankMode)) {
+            rank = ntile(rank, m_groupSizes.get(rowVals), m_nrTiles);
+        }
+        if (m_rankAsLong) {
+            return new LongCell(rank);
+        }
+        return new IntCell((int)rank);
     }
 
     private RankAssigner createRankAssigner(final String rankMode, final int[] rankColIndices) {
         RankAssigner rankAssigner = null;
-
         // Create corresponding RankAssigner or throw an exception if there is no such mode
         switch (rankMode) {
             case "Standard":
+            case "Percent":
                 rankAssigner = new StandardRankAssigner(rankColIndices);
                 break;
             case "Dense":
                 rankAssigner = new DenseRankAssigner(rankColIndices);
                 break;
             case "Ordinal":
+            case "Ntile":
                 rankAssigner = new OrdinalRankAssigner();
                 break;
             default:
                 throw new IllegalArgumentException("The rank mode \"" + rankMode + "\" does not exist.");
         }
         return rankAssigner;
+    }
 
+    /**
+     * The percent rank of a row is its relative standard rank, i.e. (rank - 1) / (group size - 1).
+     *
+     * @param rank the standard rank of the row
+     * @param groupSize the number of rows in the group
+     * @return the percent rank between 0 and 1, 0 for a group with a single row
+     */
+    static double percentRank(final long rank, final long groupSize) {
+        if (groupSize <= 1) {
+            return 0;
+        }
+        return (rank - 1) / (double)(groupSize - 1);
     }
 
+    /**
+     * Distributes the ordered rows of a group to tiles of equal size, the first tiles receive one additional row if
+     * the group size is not a multiple of the number of tiles.
+     *
+     * @param ordinal the ordinal rank of the row starting at 1
+     * @param groupSize the number of rows in the group
+     * @param nrTiles the number of tiles
+     * @return the tile of the row starting at 1
+     */
+    static long ntile(final long ordinal, final long groupSize, final int nrTiles) {
+        final long tileSize = groupSize / nrTiles;
+        final long largerTiles = groupSize % nrTiles;
+        final long index = ordinal - 1;
+        final long largerTileRows = largerTiles * (tileSize + 1);
+        if (index < largerTileRows) {
+            return index / (tileSize + 1) + 1;
+        }
+        return largerTiles + (index - largerTileRows) / tileSize + 1;
+    }
 }
@@ -0,0 +1,437 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.rank;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.knime.base.node.preproc.rank.RankNodeModel.RankMode;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.LongValue;
+import org.knime.core.data.container.CellFactory;
+import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ParallelTasks.Task;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Computes the ranks of all rows in memory without sorting the table. The rows are partitioned by their group and
+ * each group is sorted on primitive copies of the ranking attributes, the groups are ranked concurrently. The ranks
+ * are kept in the original row order so that they can be appended to the input table.
+ *
+ * <p>
+ * Only int, long and double ranking attributes are supported, see {@link #supports(DataTableSpec, int[])}. Rows are
+ * ordered exactly as by the sorter of the table based ranking, i.e. missing values are the smallest values and rows
+ * with equal values keep their input order.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RankEngine {
+
+    /** The maximum number of rows that can be ranked. */
+    static final long MAX_ROWS = Integer.MAX_VALUE - 8;
+
+    /** The minimum number of rows which are ranked by a single task. */
+    static final int ROWS_PER_TASK = 10000;
+
+    /** Groups up to this size are sorted by insertion sort. */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final int[] m_groupColIndices;
+
+    private final int[] m_rankColIndices;
+
+    private final boolean[] m_ascending;
+
+    private final boolean[] m_isDouble;
+
+    private final RankMode m_rankMode;
+
+    private final int m_nrTiles;
+
+    private double[][] m_doubleKeys;
+
+    private long[][] m_longKeys;
+
+    private boolean[][] m_missing;
+
+    private long[] m_ranks;
+
+    private double[] m_percentRanks;
+
+    /**
+     * @param spec the spec of the table to rank
+     * @param groupColIndices the indices of the grouping attributes
+     * @param rankColIndices the indices of the ranking attributes, all of them need to be supported
+     * @param ascending for each ranking attribute whether it is ranked ascending
+     * @param rankMode the rank mode
+     * @param nrTiles the number of tiles in {@link RankMode#NTILE} mode
+     */
+    RankEngine(final DataTableSpec spec, final int[] groupColIndices, final int[] rankColIndices,
+        final boolean[] ascending, final RankMode rankMode, final int nrTiles) {
+        if (!supports(spec, rankColIndices)) {
+            throw new IllegalArgumentException("Only int, long and double ranking attributes are supported.");
+        }
+        m_groupColIndices = groupColIndices;
+        m_rankColIndices = rankColIndices;
+        m_ascending = ascending;
+        m_rankMode = rankMode;
+        m_nrTiles = nrTiles;
+        m_isDouble = new boolean[rankColIndices.length];
+        for (int c = 0; c < rankColIndices.length; c++) {
+            m_isDouble[c] = DoubleCell.TYPE.equals(spec.getColumnSpec(rankColIndices[c]).getType());
+        }
+    }
+
+    /**
+     * @param spec the spec of the table to rank
+     * @param rankColIndices the indices of the ranking attributes
+     * @return <code>true</code> if all ranking attributes are int, long or double columns
+     */
+    static boolean supports(final DataTableSpec spec, final int[] rankColIndices) {
+        for (final int index : rankColIndices) {
+            final DataType type = spec.getColumnSpec(index).getType();
+            if (!IntCell.TYPE.equals(type) && !LongCell.TYPE.equals(type) && !DoubleCell.TYPE.equals(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the memory needed to rank the given number of rows. Besides the row ids, the sort buffer, the group
+     * ids and the ranks, each ranking attribute needs a primitive key and a missing flag per row. The map of the
+     * distinct groups is not included.
+     *
+     * @param nrRows the number of rows
+     * @param nrRankCols the number of ranking attributes
+     * @return the estimated memory in bytes
+     */
+    static long estimateMemory(final long nrRows, final int nrRankCols) {
+        return nrRows * (3 * Integer.BYTES + Long.BYTES + nrRankCols * (Long.BYTES + 1));
+    }
+
+    /**
+     * Returns whether the given number of rows can be ranked, i.e. whether there are not more than {@link #MAX_ROWS}
+     * rows and their {@link #estimateMemory(long, int) estimated memory} does not exceed half of the currently
+     * available heap. The other half is left for the groups and the rest of the workflow.
+     *
+     * @param nrRows the number of rows
+     * @param nrRankCols the number of ranking attributes
+     * @return <code>true</code> if the rows can be ranked in memory
+     */
+    static boolean fitsInMemory(final long nrRows, final int nrRankCols) {
+        if (nrRows > MAX_ROWS) {
+            return false;
+        }
+        final long availableMemory = MemoryAlertSystem.getMaximumMemory() - MemoryAlertSystem.getUsedMemory();
+        return estimateMemory(nrRows, nrRankCols) <= availableMemory / 2;
+    }
+
+    /**
+     * Computes the ranks of all rows of the given table.
+     *
+     * @param table the table to rank, it must not have more than {@link #MAX_ROWS} rows
+     * @param exec the execution monitor to report progress to and check for cancellation
+     * @throws CanceledExecutionException if the execution has been canceled
+     */
+    void computeRanks(final BufferedDataTable table, final ExecutionMonitor exec) throws CanceledExecutionException {
+        if (table.size() > MAX_ROWS) {
+            throw new IllegalArgumentException("Tables with more than " + MAX_ROWS + " rows are not supported.");
+        }
+        final int nrRows = (int)table.size();
+        final int nrRankCols = m_rankColIndices.length;
+        m_doubleKeys = new double[nrRankCols][];
+        m_longKeys = new long[nrRankCols][];
+        m_missing = new boolean[nrRankCols][nrRows];
+        for (int c = 0; c < nrRankCols; c++) {
+            if (m_isDouble[c]) {
+                m_doubleKeys[c] = new double[nrRows];
+            } else {
+                m_longKeys[c] = new long[nrRows];
+            }
+        }
+
+        // read the ranking attributes and assign the group ids
+        final ExecutionMonitor readExec = exec.createSubProgress(0.5);
+        final int[] groupIds = new int[nrRows];
+        final Map<DataCellTuple, Integer> groups = new HashMap<DataCellTuple, Integer>();
+        int r = 0;
+        for (final DataRow row : table) {
+            readExec.checkCanceled();
+            readExec.setProgress(r / (double)nrRows, "Reading row " + (r + 1) + " of " + nrRows);
+            if (m_groupColIndices.length > 0) {
+                final DataCellTuple group = new DataCellTuple(row, m_groupColIndices);
+                Integer groupId = groups.get(group);
+                if (groupId == null) {
+                    groupId = groups.size();
+                    groups.put(group, groupId);
+                }
+                groupIds[r] = groupId;
+            }
+            for (int c = 0; c < nrRankCols; c++) {
+                final DataCell cell = row.getCell(m_rankColIndices[c]);
+                if (cell.isMissing()) {
+                    m_missing[c][r] = true;
+                } else if (m_isDouble[c]) {
+                    m_doubleKeys[c][r] = ((DoubleValue)cell).getDoubleValue();
+                } else {
+                    m_longKeys[c][r] = ((LongValue)cell).getLongValue();
+                }
+            }
+            r++;
+        }
+
+        // partition the rows by group, each partition keeps the input order
+        final int nrGroups = Math.max(groups.size(), 1);
+        final int[] groupStarts = new int[nrGroups + 1];
+        for (int i = 0; i < nrRows; i++) {
+            groupStarts[groupIds[i] + 1]++;
+        }
+        for (int g = 0; g < nrGroups; g++) {
+            groupStarts[g + 1] += groupStarts[g];
+        }
+        final int[] rows = new int[nrRows];
+        final int[] next = groupStarts.clone();
+        for (int i = 0; i < nrRows; i++) {
+            rows[next[groupIds[i]]++] = i;
+        }
+
+        if (m_rankMode == RankMode.PERCENT) {
+            m_percentRanks = new double[nrRows];
+        } else {
+            m_ranks = new long[nrRows];
+        }
+        rankGroups(rows, groupStarts, exec.createSubProgress(0.5));
+    }
+
+    /** Ranks the groups in tasks of at least {@link #ROWS_PER_TASK} rows which are run concurrently if possible. */
+    private void rankGroups(final int[] rows, final int[] groupStarts, final ExecutionMonitor exec)
+        throws CanceledExecutionException {
+        final int nrGroups = groupStarts.length - 1;
+        final int[] buffer = new int[rows.length];
+        if (ThreadPool.currentPool() == null || Runtime.getRuntime().availableProcessors() < 2
+            || rows.length < 2 * ROWS_PER_TASK) {
+            for (int g = 0; g < nrGroups; g++) {
+                exec.checkCanceled();
+                exec.setProgress(groupStarts[g] / (double)rows.length);
+                rankGroup(rows, buffer, groupStarts[g], groupStarts[g + 1]);
+            }
+            return;
+        }
+
+        final int[] fromGroup = new int[1];
+        ParallelTasks.<Integer, RuntimeException> invokeOrdered(() -> {
+            if (fromGroup[0] == nrGroups) {
+                return null;
+            }
+            int g = fromGroup[0] + 1;
+            while (g < nrGroups && groupStarts[g] - groupStarts[fromGroup[0]] < ROWS_PER_TASK) {
+                g++;
+            }
+            final Task<Integer, RuntimeException> task = createRankTask(rows, buffer, groupStarts, fromGroup[0], g);
+            fromGroup[0] = g;
+            return task;
+        }, end -> {
+            exec.checkCanceled();
+            exec.setProgress(end / (double)rows.length);
+        });
+    }
+
+    /** Creates a task that ranks the groups [fromGroup, toGroup) and returns the end of the ranked rows. */
+    private Task<Integer, RuntimeException> createRankTask(final int[] rows, final int[] buffer,
+        final int[] groupStarts, final int fromGroup, final int toGroup) {
+        return () -> {
+            for (int g = fromGroup; g < toGroup; g++) {
+                rankGroup(rows, buffer, groupStarts[g], groupStarts[g + 1]);
+            }
+            return groupStarts[toGroup];
+        };
+    }
+
+    /** Sorts the rows of a group and assigns their ranks. */
+    private void rankGroup(final int[] rows, final int[] buffer, final int from, final int to) {
+        sort(rows, buffer, from, to);
+        final long groupSize = to - from;
+        long rank = 0;
+        for (int p = from; p < to; p++) {
+            final int row = rows[p];
+            final long ordinal = p - from + 1;
+            switch (m_rankMode) {
+                case ORDINAL:
+                    m_ranks[row] = ordinal;
+                    break;
+                case NTILE:
+                    m_ranks[row] = RankCellFactory.ntile(ordinal, groupSize, m_nrTiles);
+                    break;
+                case DENSE:
+                    if (p == from || !isTie(rows[p - 1], row)) {
+                        rank++;
+                    }
+                    m_ranks[row] = rank;
+                    break;
+                default:
+                    if (p == from || !isTie(rows[p - 1], row)) {
+                        rank = ordinal;
+                    }
+                    if (m_rankMode == RankMode.PERCENT) {
+                        m_percentRanks[row] = RankCellFactory.percentRank(rank, groupSize);
+                    } else {
+                        m_ranks[row] = rank;
+                    }
+            }
+        }
+    }
+
+    /** Stable merge sort of the given range of row indices, the buffer is used in the same range. */
+    private void sort(final int[] rows, final int[] buffer, final int from, final int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                final int row = rows[i];
+                int j = i - 1;
+                for (; j >= from && compare(rows[j], row) > 0; j--) {
+                    rows[j + 1] = rows[j];
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        sort(rows, buffer, from, mid);
+        sort(rows, buffer, mid, to);
+        if (compare(rows[mid - 1], rows[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        for (int i = from, l = from, h = mid; i < to; i++) {
+            if (h >= to || (l < mid && compare(buffer[l], buffer[h]) <= 0)) {
+                rows[i] = buffer[l++];
+            } else {
+                rows[i] = buffer[h++];
+            }
+        }
+    }
+
+    /** Compares two rows by their ranking attributes, missing values are the smallest values. */
+    private int compare(final int row1, final int row2) {
+        for (int c = 0; c < m_rankColIndices.length; c++) {
+            final boolean missing1 = m_missing[c][row1];
+            final boolean missing2 = m_missing[c][row2];
+            final int comparison;
+            if (missing1 || missing2) {
+                comparison = missing1 == missing2 ? 0 : (missing1 ? -1 : 1);
+            } else if (m_isDouble[c]) {
+                comparison = Double.compare(m_doubleKeys[c][row1], m_doubleKeys[c][row2]);
+            } else {
+                comparison = Long.compare(m_longKeys[c][row1], m_longKeys[c][row2]);
+            }
+            if (comparison != 0) {
+                return m_ascending[c] ? comparison : -comparison;
+            }
+        }
+        return 0;
+    }
+
+    /** Whether two rows have equal cells in all ranking attributes. */
+    private boolean isTie(final int row1, final int row2) {
+        for (int c = 0; c < m_rankColIndices.length; c++) {
+            final boolean missing1 = m_missing[c][row1];
+            if (missing1 != m_missing[c][row2]) {
+                return false;
+            }
+            if (missing1) {
+                continue;
+            }
+            if (m_isDouble[c]) {
+                final double d1 = m_doubleKeys[c][row1];
+                final double d2 = m_doubleKeys[c][row2];
+                if (d1 != d2 && !(Double.isNaN(d1) && Double.isNaN(d2))) {
+                    return false;
+                }
+            } else if (m_longKeys[c][row1] != m_longKeys[c][row2]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the factory of the rank column. The factory returns the ranks in the order of the ranked table and must
+     * therefore be applied to the same table without processing rows concurrently.
+     *
+     * @param colSpec the spec of the rank column
+     * @param rankAsLong whether ranks are returned as long cells, otherwise int cells are returned
+     * @return the cell factory of the rank column
+     */
+    CellFactory createCellFactory(final DataColumnSpec colSpec, final boolean rankAsLong) {
+        return new SingleCellFactory(colSpec) {
+            private int m_row = 0;
+
+            @Override
+            public DataCell getCell(final DataRow row) {
+                final int r = m_row++;
+                if (m_percentRanks != null) {
+                    return new DoubleCell(m_percentRanks[r]);
+                } else if (rankAsLong) {
+                    return new LongCell(m_ranks[r]);
+                }
+                return new IntCell((int)m_ranks[r]);
+            }
+        };
+    }
+}
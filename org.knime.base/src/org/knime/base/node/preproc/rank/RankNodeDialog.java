@@ -73,9 +73,11 @@
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.border.TitledBorder;
 import javax.swing.table.DefaultTableColumnModel;
 import javax.swing.table.DefaultTableModel;
@@ -90,6 +92,7 @@
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.NotConfigurableException;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.defaultnodesettings.SettingsModelStringArray;
 import org.knime.core.node.util.DataColumnSpecListCellRenderer;
@@ -122,12 +125,16 @@ public class RankNodeDialog extends NodeDialogPane {
 
     private final SettingsModelBoolean m_rankAsLong = RankNodeModel.createRankAsLongModel();
 
+    private final SettingsModelIntegerBounded m_nrTiles = RankNodeModel.createNrTilesModel();
+
     private JTextField m_outColNameTextField;
 
     private JCheckBox m_retainOrderCheckBox;
 
     private JCheckBox m_rankAsLongCheckBox;
 
+    private JSpinner m_nrTilesSpinner;
+
     private JTable m_rankJTable;
 
     private DefaultTableModel m_rankTableModel;
@@ -253,9 +260,21 @@ private Box initOtherOptionsBox() {
         rankAsLongCheckBox.add(rankAsLongCheckBoxLabel);
         rankAsLongCheckBox.add(m_rankAsLongCheckBox);
 
+        Box nrTilesBox = Box.createHorizontalBox();
+        m_nrTilesSpinner =
+            new JSpinner(new SpinnerNumberModel(RankNodeModel.DEFAULT_NRTILES, 1, Integer.MAX_VALUE, 1));
+        m_nrTilesSpinner.setMaximumSize(m_nrTilesSpinner.getPreferredSize());
+        JLabel nrTilesLabel = new JLabel("Number of Tiles");
+        nrTilesLabel.setMaximumSize(labelSize);
+        nrTilesLabel.setMinimumSize(labelSize);
+        nrTilesLabel.setPreferredSize(labelSize);
+        nrTilesBox.add(nrTilesLabel);
+        nrTilesBox.add(m_nrTilesSpinner);
+
         box.add(textBox);
         box.add(checkBox);
         box.add(rankAsLongCheckBox);
+        box.add(nrTilesBox);
 
         return box;
     }
@@ -643,6 +662,8 @@ protected void saveSettingsTo(final NodeSettingsWO settings) throws InvalidSetti
 
         m_rankAsLong.setBooleanValue(m_rankAsLongCheckBox.isSelected());
 
+        m_nrTiles.setIntValue((Integer)m_nrTilesSpinner.getValue());
+
         validateSettings(settings);
 
         // save settings models
@@ -653,6 +674,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings) throws InvalidSetti
         m_rankOutColName.saveSettingsTo(settings);
         m_retainRowOrder.saveSettingsTo(settings);
         m_rankAsLong.saveSettingsTo(settings);
+        m_nrTiles.saveSettingsTo(settings);
     }
 
     /**
@@ -678,6 +700,11 @@ protected void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSp
             m_rankOutColName.loadSettingsFrom(settings);
             m_retainRowOrder.loadSettingsFrom(settings);
             m_rankAsLong.loadSettingsFrom(settings);
+            if (settings.containsKey(m_nrTiles.getKey())) {
+                m_nrTiles.loadSettingsFrom(settings);
+            } else {
+                m_nrTiles.setIntValue(RankNodeModel.DEFAULT_NRTILES);
+            }
         } catch (InvalidSettingsException e) {
             // TODO Auto-generated catch block
             e.printStackTrace();
@@ -738,6 +765,9 @@ protected void loadSettingsFrom(final NodeSettingsRO settings, final DataTableSp
         // set rank as long checkbox
         m_rankAsLongCheckBox.setSelected(m_rankAsLong.getBooleanValue());
 
+        // set number of tiles spinner
+        m_nrTilesSpinner.setValue(m_nrTiles.getIntValue());
+
     }
 
     private void validateSettings(final NodeSettingsWO settings) throws InvalidSettingsException {
@@ -52,16 +52,20 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
 import org.knime.core.data.container.ColumnRearranger;
 import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.IntCell;
 import org.knime.core.data.def.LongCell;
 import org.knime.core.data.sort.BufferedDataTableSorter;
@@ -74,6 +78,7 @@
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.defaultnodesettings.SettingsModelStringArray;
 
@@ -89,7 +94,9 @@ enum RankMode {
 
         STANDARD("Standard"),
         DENSE("Dense"),
-        ORDINAL("Ordinal");
+        ORDINAL("Ordinal"),
+        PERCENT("Percent"),
+        NTILE("Ntile");
 
 
         private final String m_string;
@@ -113,6 +120,8 @@ public String toString() {
 
     static final boolean DEFAULT_RANKASLONG = false;
 
+    static final int DEFAULT_NRTILES = 4;
+
     // available ranking modes
 //    static final String[] AVAILABLE_RANKMODES = new String[]{"Standard", "Dense", "Ordinal"};
 
@@ -131,6 +140,8 @@ public String toString() {
 
     private final SettingsModelBoolean m_rankAsLong = createRankAsLongModel();
 
+    private final SettingsModelIntegerBounded m_nrTiles = createNrTilesModel();
+
     // static initiators for SettingsModels
     static SettingsModelStringArray createRankColumnsModel() {
         return new SettingsModelStringArray("RankingColumns", new String[]{});
@@ -160,6 +171,10 @@ static SettingsModelBoolean createRankAsLongModel() {
         return new SettingsModelBoolean("RankAsLong", DEFAULT_RANKASLONG);
     }
 
+    static SettingsModelIntegerBounded createNrTilesModel() {
+        return new SettingsModelIntegerBounded("NumberOfTiles", DEFAULT_NRTILES, 1, Integer.MAX_VALUE);
+    }
+
     /**
      * Constructor for the node model.
      */
@@ -218,11 +233,37 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final Ex
         // get rank mode
         String rankMode = m_rankMode.getStringValue();
 
+        // set boolean array to indicate ascending ranking columns
+        String[] orderRank = m_rankOrder.getStringArrayValue();
+        boolean[] ascRank = new boolean[orderRank.length];
+        for (int i = 0; i < ascRank.length; i++) {
+            ascRank[i] = (orderRank[i].equals("Ascending")) ? true : false;
+        }
+
+        boolean rankAsLong = m_rankAsLong.getBooleanValue();
+        DataColumnSpec newColSpec = createRankColSpec(rankAsLong);
+
+        // rank numeric columns on primitive keys, the rank is appended in the original row order
+        if (useRankEngine(inSpec, rankColIndices, table.size())) {
+            RankEngine engine = new RankEngine(inSpec, groupColIndices, rankColIndices, ascRank,
+                getRankMode(rankMode), m_nrTiles.getIntValue());
+            engine.computeRanks(table, exec.createSubProgress(0.5));
+            ColumnRearranger columnRearranger = new ColumnRearranger(inSpec);
+            columnRearranger.append(engine.createCellFactory(newColSpec, rankAsLong));
+            return new BufferedDataTable[]{
+                exec.createColumnRearrangeTable(table, columnRearranger, exec.createSubProgress(0.5))};
+        }
+
         // calculate number of steps
         double numSteps = 2;
         if (m_retainRowOrder.getBooleanValue()) {
             numSteps += 3;
         }
+        boolean needsGroupSizes =
+            RankMode.PERCENT.toString().equals(rankMode) || RankMode.NTILE.toString().equals(rankMode);
+        if (needsGroupSizes) {
+            numSteps += 1;
+        }
 
         // insert extra column containing the original order of the input table
         final String rowOrder = "rowOrder";
@@ -235,11 +276,10 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final Ex
             inSpec = table.getDataTableSpec();
         }
 
-        // set boolean array to indicate ascending ranking columns
-        String[] orderRank = m_rankOrder.getStringArrayValue();
-        boolean[] ascRank = new boolean[orderRank.length];
-        for (int i = 0; i < ascRank.length; i++) {
-            ascRank[i] = (orderRank[i].equals("Ascending")) ? true : false;
+        // percent and ntile ranks are relative to the size of the group
+        Map<DataCellTuple, Long> groupSizes = null;
+        if (needsGroupSizes) {
+            groupSizes = countGroupSizes(table, groupColIndices, exec.createSubProgress(1 / numSteps));
         }
 
         // sort by rank
@@ -248,13 +288,6 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final Ex
 
         // prepare appending of rank column
         ColumnRearranger columnRearranger = new ColumnRearranger(sortedTable.getDataTableSpec());
-        DataColumnSpec newColSpec = null;
-        boolean rankAsLong = m_rankAsLong.getBooleanValue();
-        if (rankAsLong) {
-            newColSpec = new DataColumnSpecCreator(m_rankOutColName.getStringValue(), LongCell.TYPE).createSpec();
-        } else {
-            newColSpec = new DataColumnSpecCreator(m_rankOutColName.getStringValue(), IntCell.TYPE).createSpec();
-        }
 
         int initialHashtableCapacity = 11;
         if (!groupCols.isEmpty()) {
@@ -263,7 +296,7 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final Ex
 
         // append rank column
         columnRearranger.append(new RankCellFactory(newColSpec, groupColIndices, rankColIndices, rankMode, rankAsLong,
-            initialHashtableCapacity));
+            initialHashtableCapacity, groupSizes, m_nrTiles.getIntValue()));
         BufferedDataTable out = exec.createColumnRearrangeTable(sortedTable, columnRearranger,
             exec.createSubExecutionContext(1 / numSteps));
 
@@ -282,6 +315,42 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final Ex
         return new BufferedDataTable[]{out};
     }
 
+    /**
+     * Returns whether the ranks are computed by a {@link RankEngine} instead of sorting the table. This requires
+     * retained row order and numeric ranking attributes. Tables that are too large for the available heap are sorted.
+     *
+     * @param inSpec the spec of the input table
+     * @param rankColIndices the indices of the ranking attributes
+     * @param nrRows the number of rows of the input table
+     * @return <code>true</code> if the ranks are computed in memory
+     */
+    boolean useRankEngine(final DataTableSpec inSpec, final int[] rankColIndices, final long nrRows) {
+        return m_retainRowOrder.getBooleanValue() && RankEngine.supports(inSpec, rankColIndices)
+            && RankEngine.fitsInMemory(nrRows, rankColIndices.length);
+    }
+
+    private static Map<DataCellTuple, Long> countGroupSizes(final BufferedDataTable table,
+        final int[] groupColIndices, final ExecutionMonitor exec) throws CanceledExecutionException {
+        Map<DataCellTuple, Long> groupSizes = new HashMap<DataCellTuple, Long>();
+        final long size = table.size();
+        long rowIdx = 0;
+        for (DataRow row : table) {
+            exec.checkCanceled();
+            exec.setProgress(rowIdx++ / (double)size);
+            groupSizes.merge(new DataCellTuple(row, groupColIndices), 1L, Long::sum);
+        }
+        return groupSizes;
+    }
+
+    private static RankMode getRankMode(final String rankMode) {
+        for (RankMode mode : RankMode.values()) {
+            if (mode.toString().equals(rankMode)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("The rank mode \"" + rankMode + "\" does not exist.");
+    }
+
     private int[] getIndicesFromColNameList(final List<String> colNames, final DataTableSpec inSpec) {
         int[] colIndices = new int[colNames.size()];
         int iterator = 0;
@@ -341,14 +410,20 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws Invali
 
     // create the DataTableSpec for the output table
     private DataTableSpec createOutSpec(final DataTableSpec inSpec, final boolean rankAsLong) {
+        return new DataTableSpec(inSpec, new DataTableSpec(createRankColSpec(rankAsLong)));
+    }
 
-        DataColumnSpec outCol = null;
-        if (rankAsLong) {
-            outCol = new DataColumnSpecCreator(m_rankOutColName.getStringValue(), LongCell.TYPE).createSpec();
+    // percent ranks are always doubles, all other ranks are integers or longs
+    private DataColumnSpec createRankColSpec(final boolean rankAsLong) {
+        DataType type;
+        if (RankMode.PERCENT.toString().equals(m_rankMode.getStringValue())) {
+            type = DoubleCell.TYPE;
+        } else if (rankAsLong) {
+            type = LongCell.TYPE;
         } else {
-            outCol = new DataColumnSpecCreator(m_rankOutColName.getStringValue(), IntCell.TYPE).createSpec();
+            type = IntCell.TYPE;
         }
-        return new DataTableSpec(inSpec, new DataTableSpec(outCol));
+        return new DataColumnSpecCreator(m_rankOutColName.getStringValue(), type).createSpec();
     }
 
     /**
@@ -364,6 +439,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_rankOutColName.saveSettingsTo(settings);
         m_retainRowOrder.saveSettingsTo(settings);
         m_rankAsLong.saveSettingsTo(settings);
+        m_nrTiles.saveSettingsTo(settings);
 
     }
 
@@ -380,6 +456,10 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws I
         m_rankOutColName.loadSettingsFrom(settings);
         m_retainRowOrder.loadSettingsFrom(settings);
         m_rankAsLong.loadSettingsFrom(settings);
+        // added later, keep the default for old workflows
+        if (settings.containsKey(m_nrTiles.getKey())) {
+            m_nrTiles.loadSettingsFrom(settings);
+        }
 
     }
 
@@ -396,6 +476,9 @@ protected void validateSettings(final NodeSettingsRO settings) throws InvalidSet
         m_rankOutColName.validateSettings(settings);
         m_retainRowOrder.validateSettings(settings);
         m_rankAsLong.validateSettings(settings);
+        if (settings.containsKey(m_nrTiles.getKey())) {
+            m_nrTiles.validateSettings(settings);
+        }
     }
 
     /**
@@ -45,6 +45,10 @@
  */
 package org.knime.base.node.preproc.sample;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.text.NumberFormat;
@@ -53,14 +57,21 @@
 
 import org.knime.base.node.preproc.filter.row.rowfilter.IRowFilter;
 import org.knime.base.node.preproc.sample.SamplingNodeSettings.SamplingMethods;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.data.util.NonClosableInputStream;
+import org.knime.core.data.util.NonClosableOutputStream;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.ModelContent;
+import org.knime.core.node.ModelContentRO;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.streamable.StreamableOperatorInternals;
 
 /**
  * NodeModel implementation to sample rows from an input table, thus, this node
@@ -174,13 +185,7 @@ protected IRowFilter getSamplingRowFilter(final BufferedDataTable in,
         if (m_settings.samplingMethod().equals(SamplingMethods.Random)
                 || m_settings.samplingMethod().equals(
                         SamplingMethods.Stratified)) {
-            if (m_settings.seed() != null) {
-                rand = new Random(m_settings.seed());
-            } else {
-                long seed = System.nanoTime() ^ ((hashCode() << 32) + (m_settings.hashCode()));
-                rand = new Random(seed);
-                getLogger().debug("Using random seed " + seed);
-            }
+            rand = new Random(createSeed());
         } else {
             rand = null;
         }
@@ -209,6 +214,102 @@ protected IRowFilter getSamplingRowFilter(final BufferedDataTable in,
         return rowFilter;
     }
 
+    /**
+     * Returns the seed from the settings or a new random seed if none is set.
+     */
+    private long createSeed() {
+        if (m_settings.seed() != null) {
+            return m_settings.seed();
+        } else {
+            long seed = System.nanoTime() ^ ((hashCode() << 32) + (m_settings.hashCode()));
+            getLogger().debug("Using random seed " + seed);
+            return seed;
+        }
+    }
+
+    /**
+     * Returns whether the rows are sampled in a single pass by a {@link ReservoirSampler}, which is the case for random
+     * and stratified sampling of an absolute number of rows, unless the node has been created before 3.6.
+     *
+     * @return <code>true</code> if the current settings use reservoir sampling
+     * @since 3.6
+     */
+    protected boolean isReservoirSampling() {
+        return m_settings.reservoirSampling()
+            && SamplingNodeSettings.CountMethods.Absolute.equals(m_settings.countMethod())
+            && (m_settings.samplingMethod().equals(SamplingMethods.Random)
+                || m_settings.samplingMethod().equals(SamplingMethods.Stratified));
+    }
+
+    /**
+     * Returns whether the input can be streamed, i.e. whether the rows are sampled without knowing the number of rows
+     * in advance. This is the case for reservoir sampling and for taking an absolute number of rows from the top.
+     *
+     * @return <code>true</code> if the current settings allow streaming the input
+     * @since 3.6
+     */
+    protected boolean isStreamable() {
+        return isReservoirSampling() || (SamplingNodeSettings.CountMethods.Absolute.equals(m_settings.countMethod())
+            && m_settings.samplingMethod().equals(SamplingMethods.First));
+    }
+
+    /**
+     * Creates a sampler for (a partition of) the input according to the current settings. Must only be called if
+     * {@link #isReservoirSampling()} returns <code>true</code>.
+     *
+     * @param inSpec the spec of the input table
+     * @param partitionIndex the index of the partition, 0 if the input is not distributed
+     * @param keepRows whether the sampler stores the sampled rows or only their positions
+     * @return a new sampler
+     * @since 3.6
+     */
+    protected ReservoirSampler createReservoirSampler(final DataTableSpec inSpec, final int partitionIndex,
+        final boolean keepRows) {
+        final int classColumn = m_settings.samplingMethod().equals(SamplingMethods.Stratified)
+            ? inSpec.findColumnIndex(m_settings.classColumn()) : -1;
+        return new ReservoirSampler(keepRows ? inSpec : null, m_settings.count(), classColumn, partitionIndex,
+            createSeed());
+    }
+
+    /**
+     * Samples the whole input table with a {@link ReservoirSampler}, which gives the same sample as streaming the
+     * table. Must only be called if {@link #isReservoirSampling()} returns <code>true</code>.
+     *
+     * @param in the input table
+     * @param keepRows whether the sampler stores the sampled rows or only their positions
+     * @param exec the execution monitor to report progress to
+     * @return the sampler to which all rows have been added
+     * @throws CanceledExecutionException if the execution has been canceled
+     * @since 3.6
+     */
+    protected ReservoirSampler sampleTable(final BufferedDataTable in, final boolean keepRows,
+        final ExecutionMonitor exec) throws CanceledExecutionException {
+        final ReservoirSampler sampler = createReservoirSampler(in.getDataTableSpec(), 0, keepRows);
+        final double rowCount = in.size(); // floating point op. below
+        long count = 0;
+        for (DataRow row : in) {
+            sampler.add(row);
+            exec.setProgress(count / rowCount, "Processed row " + count + " (\"" + row.getKey() + "\")");
+            exec.checkCanceled();
+            count++;
+        }
+        return sampler;
+    }
+
+    /**
+     * Sets a warning if the sample of a stratified sampler has less rows than there are classes.
+     *
+     * @param sampler the sampler
+     * @param sampledRows the number of sampled rows
+     * @since 3.6
+     */
+    protected void checkClassCount(final ReservoirSampler sampler, final long sampledRows) {
+        if (m_settings.samplingMethod().equals(SamplingMethods.Stratified) && sampler.getClassCount() > sampledRows) {
+            setWarningMessage("Class column contains more classes (" + sampler.getClassCount()
+                + ") than sampled rows (" + sampledRows + ")");
+        }
+    }
+
     /**
      * Has the node been configured, i.e. a method has been set
      *
@@ -251,4 +352,92 @@ protected void checkSettings(final DataTableSpec inSpec)
     public SamplingNodeSettings getSettings() {
         return m_settings;
     }
+
+    /**
+     * The sampler of a partition of the input, which is merged with the samplers of the other partitions.
+     * This should be private, but cannot be unfortunately because it's deserialized by the framework.
+     * @noinstantiate This class is not intended to be instantiated by clients.
+     * @noreference This class is not intended to be referenced by clients.
+     * @since 3.6
+     */
+    public static final class ReservoirSamplerInternals extends StreamableOperatorInternals {
+
+        private static final String CFG_SAMPLER = "sampler";
+
+        private static final String CFG_SPEC = "spec";
+
+        private ReservoirSampler m_sampler;
+
+        private DataTableSpec m_spec;
+
+        /**
+         * Creates empty internals.
+         */
+        public ReservoirSamplerInternals() {
+        }
+
+        /**
+         * @param sampler the sampler of a partition
+         * @param spec the spec of the input table
+         */
+        ReservoirSamplerInternals(final ReservoirSampler sampler, final DataTableSpec spec) {
+            m_sampler = sampler;
+            m_spec = spec;
+        }
+
+        /**
+         * @return the sampler
+         */
+        ReservoirSampler getSampler() {
+            return m_sampler;
+        }
+
+        /**
+         * @return the spec of the input table
+         */
+        DataTableSpec getSpec() {
+            return m_spec;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void load(final DataInputStream input) throws IOException {
+            // the settings are prefixed by their length as the XML parser may read beyond their end
+            final byte[] xml = new byte[input.readInt()];
+            input.readFully(xml);
+            final ModelContentRO content = ModelContent.loadFromXML(new ByteArrayInputStream(xml));
+            try {
+                m_spec = DataTableSpec.load(content.getModelContent(CFG_SPEC));
+                m_sampler = ReservoirSampler.load(content.getModelContent(CFG_SAMPLER),
+                    DataContainer.readFromStream(new NonClosableInputStream(input)));
+            } catch (final InvalidSettingsException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void save(final DataOutputStream output) throws IOException {
+            final ModelContent content = new ModelContent(CFG_SAMPLER);
+            m_spec.save(content.addModelContent(CFG_SPEC));
+            // the stored rows are written as a table
+            final DataContainer rows = new DataContainer(m_spec);
+            m_sampler.save(content.addModelContent(CFG_SAMPLER), rows);
+            rows.close();
+            final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+            content.saveToXML(xml);
+            output.writeInt(xml.size());
+            xml.writeTo(output);
+            try {
+                DataContainer.writeToStream(rows.getTable(), new NonClosableOutputStream(output),
+                    new ExecutionMonitor());
+            } catch (CanceledExecutionException e) {
+                throw new IOException(e);
+            }
+        }
+    }
 }
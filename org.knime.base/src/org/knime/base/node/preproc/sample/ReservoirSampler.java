@@ -0,0 +1,675 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+package org.knime.base.node.preproc.sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowIterator;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.ModelContentRO;
+import org.knime.core.node.ModelContentWO;
+import org.knime.core.node.streamable.RowOutput;
+
+/**
+ * Draws a random sample with a fixed number of rows from a stream of rows in a single pass, without knowing the number
+ * of rows in advance. Each row is assigned a random priority and the sample consists of the rows with the smallest
+ * priorities. For stratified sampling there is one reservoir per class and the number of sampled rows per class is
+ * determined in the same way as by the {@link StratifiedSamplingRowFilter} once all rows have been added.
+ *
+ * <p>
+ * The samplers of different partitions of a table can be merged, the rows with the smallest priorities of the merged
+ * reservoirs are again a uniform sample of all rows. The reservoirs only hold the priorities and positions of the rows
+ * that may still become part of the sample, that is at most the sample size per class. If the sampler is created with
+ * a table spec, the rows themselves are appended to a temporary table, which is written to disk once it gets large,
+ * when they enter a reservoir. Rows that are evicted later stay in that table until the sampler is merged with
+ * another one. Otherwise only the indices of the sampled rows are available.
+ *
+ * <p>
+ * The priority of a row is computed from the seed and the row's key rather than drawn from a random number generator.
+ * Hence samplers with the same seed select the same rows no matter whether the table is sampled at once or split into
+ * partitions.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class ReservoirSampler {
+    private static final String CFG_SAMPLE_SIZE = "sampleSize";
+
+    private static final String CFG_CLASS_COLUMN = "classColumn";
+
+    private static final String CFG_PARTITION = "partition";
+
+    private static final String CFG_SEED = "seed";
+
+    private static final String CFG_KEEP_ROWS = "keepRows";
+
+    private static final String CFG_ROW_COUNT = "rowCount";
+
+    private static final String CFG_NEXT_INDEX = "nextIndex";
+
+    private static final String CFG_CLASS_COUNT = "classCount";
+
+    private static final String CFG_CLASS = "class_";
+
+    private static final String CFG_CLASS_VALUE = "classValue";
+
+    private static final String CFG_FIRST_PARTITION = "firstPartition";
+
+    private static final String CFG_FIRST_INDEX = "firstIndex";
+
+    private static final String CFG_PRIORITIES = "priorities";
+
+    private static final String CFG_PARTITIONS = "partitions";
+
+    private static final String CFG_INDICES = "indices";
+
+    private static final String CFG_ROW_NUMBERS = "rowNumbers";
+
+    /** Orders entries by their position in the input, i.e. by partition and row index. */
+    private static final Comparator<Entry> POSITION_ORDER = (e1, e2) -> {
+        final int c = Integer.compare(e1.m_partition, e2.m_partition);
+        return c != 0 ? c : Long.compare(e1.m_index, e2.m_index);
+    };
+
+    /** Orders entries by their priority, ties (which are very unlikely) are broken by the position. */
+    private static final Comparator<Entry> PRIORITY_ORDER = (e1, e2) -> {
+        final int c = Double.compare(e1.m_priority, e2.m_priority);
+        return c != 0 ? c : POSITION_ORDER.compare(e1, e2);
+    };
+
+    /** Orders entries by the position of their row in the table of stored rows. */
+    private static final Comparator<Entry> ROW_NUMBER_ORDER = (e1, e2) -> Long.compare(e1.m_rowNumber, e2.m_rowNumber);
+
+    private final int m_sampleSize;
+
+    private final int m_classColumn;
+
+    private final int m_partition;
+
+    private final long m_seed;
+
+    /** The spec of the stored rows, <code>null</code> if only the positions of the rows are kept. */
+    private final DataTableSpec m_spec;
+
+    /** The reservoirs by class value, the key is <code>null</code> if the sample is not stratified. */
+    private final Map<DataCell, Reservoir> m_reservoirs = new LinkedHashMap<>();
+
+    private long m_rowCount;
+
+    /** The index of the next row of this sampler's partition. */
+    private long m_nextIndex;
+
+    /**
+     * The stored rows, in the order of their position in the input. Rows are appended to the open container, which is
+     * closed into the table once the rows are read.
+     */
+    private DataContainer m_rowContainer;
+
+    private DataTable m_rowTable;
+
+    private long m_nrStoredRows;
+
+    /** The entry of the last stored row, <code>null</code> if no row has been stored. */
+    private Entry m_lastStored;
+
+    /**
+     * Creates a new sampler that only keeps the positions of the rows, see {@link #getSampleIndices()}.
+     *
+     * @param sampleSize the number of rows in the sample
+     * @param classColumn the index of the column with the class values for stratified sampling, or -1 if the sample
+     *            should not be stratified
+     * @param partition the index of the partition of the table whose rows are added, partitions with smaller indices
+     *            precede those with larger indices in the table
+     * @param seed the seed for the row priorities, all partitions should use the same seed
+     */
+    public ReservoirSampler(final int sampleSize, final int classColumn, final int partition, final long seed) {
+        this(null, sampleSize, classColumn, partition, seed);
+    }
+
+    /**
+     * Creates a new sampler that stores the rows that enter a reservoir in a temporary table, see
+     * {@link #writeSample(RowOutput)}.
+     *
+     * @param spec the spec of the rows, <code>null</code> if only the positions of the rows should be kept
+     * @param sampleSize the number of rows in the sample
+     * @param classColumn the index of the column with the class values for stratified sampling, or -1 if the sample
+     *            should not be stratified
+     * @param partition the index of the partition of the table whose rows are added, partitions with smaller indices
+     *            precede those with larger indices in the table
+     * @param seed the seed for the row priorities, all partitions should use the same seed
+     */
+    public ReservoirSampler(final DataTableSpec spec, final int sampleSize, final int classColumn,
+        final int partition, final long seed) {
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException("Sample size must be >= 0 but is " + sampleSize);
+        }
+        m_spec = spec;
+        m_sampleSize = sampleSize;
+        m_classColumn = classColumn;
+        m_partition = partition;
+        m_seed = seed;
+    }
+
+    /**
+     * Adds the next row of the partition.
+     *
+     * @param row a row
+     * @throws IllegalStateException if rows are stored and the sampler of a later partition has already been merged
+     *             into this one
+     */
+    public void add(final DataRow row) {
+        final long index = m_nextIndex++;
+        m_rowCount++;
+        final DataCell classValue = m_classColumn < 0 ? null : row.getCell(m_classColumn);
+        Reservoir reservoir = m_reservoirs.get(classValue);
+        if (reservoir == null) {
+            reservoir = new Reservoir(m_partition, index);
+            m_reservoirs.put(classValue, reservoir);
+        }
+        reservoir.m_count++;
+        final Entry entry = new Entry(priority(m_seed, row.getKey()), m_partition, index, -1);
+        if (reservoir.offer(entry, m_sampleSize) != entry && m_spec != null) {
+            storeRow(entry, row);
+        }
+    }
+
+    /**
+     * Computes a pseudo random number in [0, 1) from the seed and the characters of the row key, each of which is
+     * mixed in with the finalizer of the SplitMix64 generator.
+     */
+    private static double priority(final long seed, final RowKey key) {
+        final String s = key.getString();
+        long h = mix(seed);
+        for (int i = 0; i < s.length(); i++) {
+            h = mix(h ^ s.charAt(i));
+        }
+        h = mix(h ^ s.length());
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix(final long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Appends the row of the entry to the stored rows, which must stay in input order. */
+    private void storeRow(final Entry entry, final DataRow row) {
+        if (m_lastStored != null && POSITION_ORDER.compare(entry, m_lastStored) < 0) {
+            throw new IllegalStateException(
+                "Rows can't be added after the sampler of a later partition has been merged");
+        }
+        if (m_rowContainer == null) {
+            m_rowContainer = new DataContainer(m_spec);
+            if (m_rowTable != null) {
+                for (DataRow stored : m_rowTable) {
+                    m_rowContainer.addRowToTable(stored);
+                }
+                clear(m_rowTable);
+                m_rowTable = null;
+            }
+        }
+        m_rowContainer.addRowToTable(row);
+        entry.m_rowNumber = m_nrStoredRows++;
+        m_lastStored = entry;
+    }
+
+    /** @return the stored rows, <code>null</code> if no row has been stored */
+    private DataTable getStoredRows() {
+        if (m_rowContainer != null) {
+            m_rowContainer.close();
+            m_rowTable = m_rowContainer.getTable();
+            m_rowContainer = null;
+        }
+        return m_rowTable;
+    }
+
+    /**
+     * Merges the rows of another sampler into this one. The other sampler must have been created with the same sample
+     * size and class column for another partition of the table. If rows are stored, the stored rows that are no longer
+     * in any reservoir are discarded.
+     *
+     * @param other the sampler of another partition, its reservoirs are not modified
+     */
+    public void merge(final ReservoirSampler other) {
+        if (other.m_sampleSize != m_sampleSize || other.m_classColumn != m_classColumn
+            || (other.m_spec == null) != (m_spec == null)) {
+            throw new IllegalArgumentException("Samplers with different settings can't be merged");
+        }
+        m_rowCount += other.m_rowCount;
+        // copies of the other sampler's entries, their row numbers refer to the rows stored by the other sampler
+        final Set<Entry> otherEntries = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<DataCell, Reservoir> e : other.m_reservoirs.entrySet()) {
+            final Reservoir otherReservoir = e.getValue();
+            Reservoir reservoir = m_reservoirs.get(e.getKey());
+            if (reservoir == null) {
+                reservoir = new Reservoir(otherReservoir.m_firstPartition, otherReservoir.m_firstIndex);
+                m_reservoirs.put(e.getKey(), reservoir);
+            } else if (POSITION_ORDER.compare(otherReservoir.first(), reservoir.first()) < 0) {
+                reservoir.m_firstPartition = otherReservoir.m_firstPartition;
+                reservoir.m_firstIndex = otherReservoir.m_firstIndex;
+            }
+            reservoir.m_count += otherReservoir.m_count;
+            for (Entry entry : otherReservoir.m_entries) {
+                final Entry copy = new Entry(entry.m_priority, entry.m_partition, entry.m_index, entry.m_rowNumber);
+                if (reservoir.offer(copy, m_sampleSize) != copy) {
+                    otherEntries.add(copy);
+                }
+            }
+        }
+        if (m_spec != null) {
+            mergeStoredRows(other, otherEntries);
+        }
+    }
+
+    /**
+     * Replaces the stored rows by the rows of the entries that are in the reservoirs, taken from this and the other
+     * sampler. Both tables are in input order, so they are merged by position and the result is in input order again.
+     */
+    private void mergeStoredRows(final ReservoirSampler other, final Set<Entry> otherEntries) {
+        final List<Entry> ownEntries = new ArrayList<>();
+        final List<Entry> mergedEntries = new ArrayList<>();
+        for (Reservoir reservoir : m_reservoirs.values()) {
+            for (Entry entry : reservoir.m_entries) {
+                (otherEntries.contains(entry) ? mergedEntries : ownEntries).add(entry);
+            }
+        }
+        Collections.sort(ownEntries, ROW_NUMBER_ORDER);
+        Collections.sort(mergedEntries, ROW_NUMBER_ORDER);
+        final DataContainer container = new DataContainer(m_spec);
+        final StoredRowReader ownRows = new StoredRowReader(getStoredRows());
+        final StoredRowReader otherRows = new StoredRowReader(other.getStoredRows());
+        try {
+            long rowNumber = 0;
+            Entry last = null;
+            int i = 0;
+            int j = 0;
+            while (i < ownEntries.size() || j < mergedEntries.size()) {
+                final boolean own = j == mergedEntries.size()
+                    || (i < ownEntries.size() && POSITION_ORDER.compare(ownEntries.get(i), mergedEntries.get(j)) < 0);
+                final Entry entry = own ? ownEntries.get(i++) : mergedEntries.get(j++);
+                container.addRowToTable((own ? ownRows : otherRows).read(entry.m_rowNumber));
+                entry.m_rowNumber = rowNumber++;
+                last = entry;
+            }
+            m_nrStoredRows = rowNumber;
+            m_lastStored = last;
+        } finally {
+            ownRows.close();
+            otherRows.close();
+            container.close();
+        }
+        clear(m_rowTable);
+        m_rowTable = container.getTable();
+    }
+
+    /** Deletes the temporary files of a table of stored rows. */
+    private static void clear(final DataTable rows) {
+        if (rows instanceof ContainerTable) {
+            ((ContainerTable)rows).clear();
+        }
+    }
+
+    /**
+     * @return the number of rows that have been added, including those of merged samplers
+     */
+    public long getRowCount() {
+        return m_rowCount;
+    }
+
+    /**
+     * @return the number of distinct class values (classes) if the sample is stratified
+     */
+    public int getClassCount() {
+        return m_reservoirs.size();
+    }
+
+    /**
+     * Pushes the sampled rows to the given output in the order of the input. The output is not closed.
+     *
+     * @param output the output to push the rows to
+     * @return the number of sampled rows
+     * @throws InterruptedException if pushing a row is interrupted
+     * @throws IllegalStateException if this sampler doesn't store rows
+     */
+    public long writeSample(final RowOutput output) throws InterruptedException {
+        if (m_spec == null) {
+            throw new IllegalStateException("The sampler only keeps the positions of the rows");
+        }
+        final List<Entry> entries = selectSample();
+        // the stored rows are in input order, too
+        Collections.sort(entries, POSITION_ORDER);
+        final StoredRowReader rows = new StoredRowReader(getStoredRows());
+        try {
+            for (Entry e : entries) {
+                output.push(rows.read(e.m_rowNumber));
+            }
+        } finally {
+            rows.close();
+        }
+        return entries.size();
+    }
+
+    /**
+     * Returns the indices of the sampled rows in ascending order. The indices are counted per partition, so they are
+     * only meaningful for a sampler to which all rows of the table have been added.
+     *
+     * @return the indices of the sampled rows
+     */
+    public long[] getSampleIndices() {
+        final List<Entry> entries = selectSample();
+        final long[] indices = new long[entries.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = entries.get(i).m_index;
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    private List<Reservoir> getReservoirsInInputOrder() {
+        final List<Reservoir> reservoirs = new ArrayList<>(m_reservoirs.values());
+        Collections.sort(reservoirs, (r1, r2) -> POSITION_ORDER.compare(r1.first(), r2.first()));
+        return reservoirs;
+    }
+
+    /**
+     * Determines the sampled entries of all reservoirs. The number
+     * of sampled rows per class is computed in the same way as in
+     * {@link StratifiedSamplingRowFilter}: each class gets its share of the sample rounded to the closest integer and the
+     * remaining rows are distributed one by one among the classes in the order of their first occurrence.
+     */
+    private List<Entry> selectSample() {
+        final List<Reservoir> reservoirs = getReservoirsInInputOrder();
+        final long[] sampleCounts = new long[reservoirs.size()];
+        if (m_rowCount <= m_sampleSize) {
+            // all rows are sampled and therefore still in the reservoirs
+            for (int i = 0; i < sampleCounts.length; i++) {
+                sampleCounts[i] = reservoirs.get(i).m_count;
+            }
+        } else {
+            final double fraction = m_sampleSize / (double)m_rowCount;
+            long inc = 0;
+            for (int i = 0; i < sampleCounts.length; i++) {
+                final int max = (int)Math.round(reservoirs.get(i).m_count * fraction);
+                sampleCounts[i] = Math.min(max, m_sampleSize - inc);
+                inc += sampleCounts[i];
+            }
+            for (int i = 0; inc < m_sampleSize; i = (i + 1) % sampleCounts.length) {
+                if (sampleCounts[i] < reservoirs.get(i).m_count) {
+                    sampleCounts[i]++;
+                    inc++;
+                }
+            }
+        }
+
+        final List<Entry> selected = new ArrayList<>();
+        for (int i = 0; i < sampleCounts.length; i++) {
+            final List<Entry> entries = new ArrayList<>(reservoirs.get(i).m_entries);
+            Collections.sort(entries, PRIORITY_ORDER);
+            selected.addAll(entries.subList(0, (int)sampleCounts[i]));
+        }
+        return selected;
+
+    /**
+     * Saves this sampler. The stored rows that are still in a reservoir are added to the given container, which must
+     * have the spec of the input table, everything else is written to the content.
+     *
+     * @param content the content to write to
+     * @param rows the container to add the stored rows to
+     */
+    public void save(final ModelContentWO content, final DataContainer rows) {
+        content.addInt(CFG_SAMPLE_SIZE, m_sampleSize);
+        content.addInt(CFG_CLASS_COLUMN, m_classColumn);
+        content.addInt(CFG_PARTITION, m_partition);
+        content.addLong(CFG_SEED, m_seed);
+        content.addBoolean(CFG_KEEP_ROWS, m_spec != null);
+        content.addLong(CFG_ROW_COUNT, m_rowCount);
+        content.addLong(CFG_NEXT_INDEX, m_nextIndex);
+        content.addInt(CFG_CLASS_COUNT, m_reservoirs.size());
+        final Map<Entry, Long> rowNumbers = new IdentityHashMap<>();
+        if (m_spec != null) {
+            final List<Entry> entries = new ArrayList<>();
+            for (Reservoir reservoir : m_reservoirs.values()) {
+                entries.addAll(reservoir.m_entries);
+            }
+            Collections.sort(entries, ROW_NUMBER_ORDER);
+            final StoredRowReader storedRows = new StoredRowReader(getStoredRows());
+            try {
+                for (Entry entry : entries) {
+                    rows.addRowToTable(storedRows.read(entry.m_rowNumber));
+                    rowNumbers.put(entry, (long)rowNumbers.size());
+                }
+            } finally {
+                storedRows.close();
+            }
+        }
+        int i = 0;
+        for (Map.Entry<DataCell, Reservoir> e : m_reservoirs.entrySet()) {
+            final ModelContentWO classContent = content.addModelContent(CFG_CLASS + i++);
+            final Reservoir reservoir = e.getValue();
+            classContent.addDataCell(CFG_CLASS_VALUE, e.getKey());
+            classContent.addLong(CFG_ROW_COUNT, reservoir.m_count);
+            classContent.addInt(CFG_FIRST_PARTITION, reservoir.m_firstPartition);
+            classContent.addLong(CFG_FIRST_INDEX, reservoir.m_firstIndex);
+            final int size = reservoir.m_entries.size();
+            final double[] priorities = new double[size];
+            final int[] partitions = new int[size];
+            final long[] indices = new long[size];
+            final long[] numbers = new long[size];
+            int j = 0;
+            for (Entry entry : reservoir.m_entries) {
+                priorities[j] = entry.m_priority;
+                partitions[j] = entry.m_partition;
+                indices[j] = entry.m_index;
+                numbers[j] = rowNumbers.getOrDefault(entry, -1L);
+                j++;
+            }
+            classContent.addDoubleArray(CFG_PRIORITIES, priorities);
+            classContent.addIntArray(CFG_PARTITIONS, partitions);
+            classContent.addLongArray(CFG_INDICES, indices);
+            classContent.addLongArray(CFG_ROW_NUMBERS, numbers);
+        }
+    }
+
+    /**
+     * Loads a sampler that has been saved with {@link #save(ModelContentWO, DataContainer)}. The sampler takes over
+     * the given table as its stored rows and clears it once they are compacted or copied.
+     *
+     * @param content the content to read from
+     * @param rows the table with the stored rows
+     * @return the loaded sampler
+     * @throws InvalidSettingsException if the content is invalid or doesn't match the rows
+     */
+    public static ReservoirSampler load(final ModelContentRO content, final DataTable rows)
+        throws InvalidSettingsException {
+        final boolean keepRows = content.getBoolean(CFG_KEEP_ROWS);
+        final ReservoirSampler sampler = new ReservoirSampler(keepRows ? rows.getDataTableSpec() : null,
+            content.getInt(CFG_SAMPLE_SIZE), content.getInt(CFG_CLASS_COLUMN), content.getInt(CFG_PARTITION),
+            content.getLong(CFG_SEED));
+        sampler.m_rowCount = content.getLong(CFG_ROW_COUNT);
+        sampler.m_nextIndex = content.getLong(CFG_NEXT_INDEX);
+        final int classCount = content.getInt(CFG_CLASS_COUNT);
+        for (int i = 0; i < classCount; i++) {
+            final ModelContentRO classContent = content.getModelContent(CFG_CLASS + i);
+            final Reservoir reservoir = new Reservoir(classContent.getInt(CFG_FIRST_PARTITION),
+                classContent.getLong(CFG_FIRST_INDEX));
+            reservoir.m_count = classContent.getLong(CFG_ROW_COUNT);
+            final double[] priorities = classContent.getDoubleArray(CFG_PRIORITIES);
+            final int[] partitions = classContent.getIntArray(CFG_PARTITIONS);
+            final long[] indices = classContent.getLongArray(CFG_INDICES);
+            final long[] numbers = classContent.getLongArray(CFG_ROW_NUMBERS);
+            if (partitions.length != priorities.length || indices.length != priorities.length
+                || numbers.length != priorities.length) {
+                throw new InvalidSettingsException("Inconsistent number of reservoir entries");
+            }
+            for (int j = 0; j < priorities.length; j++) {
+                if (keepRows != (numbers[j] >= 0)) {
+                    throw new InvalidSettingsException("Invalid row number " + numbers[j]);
+                }
+                final Entry entry = new Entry(priorities[j], partitions[j], indices[j], numbers[j]);
+                reservoir.m_entries.add(entry);
+                if (keepRows
+                    && (sampler.m_lastStored == null || POSITION_ORDER.compare(entry, sampler.m_lastStored) > 0)) {
+                    sampler.m_lastStored = entry;
+                }
+                sampler.m_nrStoredRows = Math.max(sampler.m_nrStoredRows, numbers[j] + 1);
+            }
+            sampler.m_reservoirs.put(classContent.getDataCell(CFG_CLASS_VALUE), reservoir);
+        }
+        if (keepRows) {
+            sampler.m_rowTable = rows;
+        }
+        return sampler;
+    }
+
+    /**
+     * Reads stored rows by their row number, which must be ascending, in a single pass over the table of stored
+     * rows.
+     */
+    private static final class StoredRowReader {
+        private final RowIterator m_iterator;
+
+        private long m_nextRowNumber;
+
+        StoredRowReader(final DataTable rows) {
+            m_iterator = rows == null ? null : rows.iterator();
+        }
+
+        DataRow read(final long rowNumber) {
+            if (rowNumber < m_nextRowNumber) {
+                throw new IllegalStateException("Row numbers must be ascending");
+            }
+            while (m_nextRowNumber < rowNumber) {
+                m_iterator.next();
+                m_nextRowNumber++;
+            }
+            m_nextRowNumber++;
+            return m_iterator.next();
+        }
+
+        void close() {
+            if (m_iterator instanceof CloseableRowIterator) {
+                ((CloseableRowIterator)m_iterator).close();
+            }
+        }
+    }
+
+    /** The priority and position in the input of a row, and the row's number in the table of stored rows. */
+    private static final class Entry {
+        private final double m_priority;
+
+        private final int m_partition;
+
+        private final long m_index;
+
+        /** The number of the row in the table of stored rows, -1 if the row isn't stored. */
+        private long m_rowNumber;
+
+        Entry(final double priority, final int partition, final long index, final long rowNumber) {
+            m_priority = priority;
+            m_partition = partition;
+            m_index = index;
+            m_rowNumber = rowNumber;
+        }
+    }
+
+    /** The priorities and positions of the rows of one class with the smallest priorities. */
+    private static final class Reservoir {
+        /** Max-heap, the head is the entry that is rejected next. */
+        private final PriorityQueue<Entry> m_entries = new PriorityQueue<>(PRIORITY_ORDER.reversed());
+
+        private long m_count;
+
+        private int m_firstPartition;
+
+        private long m_firstIndex;
+
+        Reservoir(final int firstPartition, final long firstIndex) {
+            m_firstPartition = firstPartition;
+            m_firstIndex = firstIndex;
+        }
+
+        /** @return a pseudo entry at the position of the first row of this class */
+        Entry first() {
+            return new Entry(0, m_firstPartition, m_firstIndex, -1);
+        }
+
+        /**
+         * Adds an entry if it is among the <code>capacity</code> entries with the smallest priority.
+         *
+         * @return the entry that has been rejected or <code>null</code>
+         */
+        Entry offer(final Entry entry, final int capacity) {
+            if (m_entries.size() < capacity) {
+                m_entries.add(entry);
+                return null;
+            }
+            if (capacity > 0 && PRIORITY_ORDER.compare(entry, m_entries.peek()) < 0) {
+                final Entry rejected = m_entries.poll();
+                m_entries.add(entry);
+                return rejected;
+            }
+            return entry;
+        }
+    }
+}
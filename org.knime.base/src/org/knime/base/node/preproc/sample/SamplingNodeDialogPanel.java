@@ -111,6 +111,9 @@ public class SamplingNodeDialogPanel extends JPanel {
 
     private final ColumnSelectionComboxBox m_classColumn;
 
+    /** Not shown, kept so that existing nodes keep sampling as before. */
+    private boolean m_reservoirSampling;
+
     /**
      * Creates new panel, inits fields. Nothing else.
      */
@@ -278,6 +281,8 @@ public void loadSettingsFrom(final NodeSettingsRO settings,
         m_firstSampling.setSelected(sets.samplingMethod().equals(
                 SamplingMethods.First));
 
+        m_reservoirSampling = sets.reservoirSampling();
+
         if (sets.seed() != null) {
             m_useSeedChecker.setSelected(true);
             m_seedField.setText(sets.seed().toString());
@@ -331,6 +336,7 @@ public void saveSettingsTo(final NodeSettingsWO settings) {
         }
 
         sets.classColumn(m_classColumn.getSelectedColumn());
+        sets.reservoirSampling(m_reservoirSampling);
 
         sets.saveSettingsTo(settings);
     }
@@ -51,8 +51,20 @@
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.MergeOperator;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.knime.core.node.streamable.StreamableOperatorInternals;
 
 /**
  * NodeModel implementation to sample rows from an input table, thus, this node
@@ -75,6 +87,9 @@ public SamplingNodeModel() {
     protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
             final ExecutionContext exec) throws Exception {
         BufferedDataTable in = inData[0];
+        if (isReservoirSampling()) {
+            return new BufferedDataTable[]{executeReservoirSampling(in, exec)};
+        }
         // he following line does not need the exec monitor. It's
         // only used when the table is traversed in order to count the rows.
         // This is done only if "in" does not support getRowCount().
@@ -111,6 +126,23 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         return new BufferedDataTable[]{out};
     }
 
+    /**
+     * Samples the input in a single pass, the result is the same as when
+     * streaming the input.
+     */
+    private BufferedDataTable executeReservoirSampling(
+            final BufferedDataTable in, final ExecutionContext exec)
+            throws CanceledExecutionException, InterruptedException {
+        ReservoirSampler sampler =
+                sampleTable(in, true, exec.createSubProgress(0.9));
+        BufferedDataTableRowOutput out = new BufferedDataTableRowOutput(
+                exec.createDataContainer(in.getDataTableSpec()));
+        long count = sampler.writeSample(out);
+        out.close();
+        checkClassCount(sampler, count);
+        return out.getDataTable();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -120,4 +152,124 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs)
         checkSettings(inSpecs[0]);
         return inSpecs;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputPortRole[] getInputPortRoles() {
+        if (isReservoirSampling()) {
+            return new InputPortRole[]{InputPortRole.DISTRIBUTED_STREAMABLE};
+        } else if (isStreamable()) {
+            return new InputPortRole[]{InputPortRole.NONDISTRIBUTED_STREAMABLE};
+        } else {
+            return super.getInputPortRoles();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(
+            final PartitionInfo partitionInfo, final PortObjectSpec[] inSpecs)
+            throws InvalidSettingsException {
+        if (isReservoirSampling()) {
+            // each partition fills its own reservoirs, the output is
+            // created after merging them
+            final DataTableSpec inSpec = (DataTableSpec)inSpecs[0];
+            final ReservoirSampler sampler = createReservoirSampler(
+                    inSpec, partitionInfo.getPartitionIndex(), true);
+            return new StreamableOperator() {
+                @Override
+                public void runFinal(final PortInput[] inputs,
+                        final PortOutput[] outputs, final ExecutionContext exec)
+                        throws Exception {
+                    RowInput in = (RowInput)inputs[0];
+                    long count = 0;
+                    DataRow row;
+                    while ((row = in.poll()) != null) {
+                        sampler.add(row);
+                        exec.setMessage("Processed row " + ++count + " (\""
+                                + row.getKey() + "\")");
+                        exec.checkCanceled();
+                    }
+                    in.close();
+                }
+
+                @Override
+                public StreamableOperatorInternals saveInternals() {
+                    return new ReservoirSamplerInternals(sampler, inSpec);
+                }
+            };
+        } else if (isStreamable()) {
+            // take the first rows
+            return new StreamableOperator() {
+                @Override
+                public void runFinal(final PortInput[] inputs,
+                        final PortOutput[] outputs, final ExecutionContext exec)
+                        throws Exception {
+                    RowInput in = (RowInput)inputs[0];
+                    RowOutput out = (RowOutput)outputs[0];
+                    final int rowCount = getSettings().count();
+                    int count = 0;
+                    DataRow row;
+                    while (count < rowCount && (row = in.poll()) != null) {
+                        out.push(row);
+                        exec.setMessage("Adding row " + count + " (\""
+                                + row.getKey() + "\")");
+                        exec.checkCanceled();
+                        count++;
+                    }
+                    in.close();
+                    out.close();
+                }
+            };
+        } else {
+            return super.createStreamableOperator(partitionInfo, inSpecs);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MergeOperator createMergeOperator() {
+        if (!isReservoirSampling()) {
+            return null;
+        }
+        return new MergeOperator() {
+            @Override
+            public StreamableOperatorInternals mergeFinal(
+                    final StreamableOperatorInternals[] operators) {
+                ReservoirSamplerInternals first =
+                        (ReservoirSamplerInternals)operators[0];
+                ReservoirSampler merged = first.getSampler();
+                for (int i = 1; i < operators.length; i++) {
+                    merged.merge(((ReservoirSamplerInternals)operators[i])
+                            .getSampler());
+                }
+                return new ReservoirSamplerInternals(merged, first.getSpec());
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finishStreamableExecution(
+            final StreamableOperatorInternals internals,
+            final ExecutionContext exec, final PortOutput[] output)
+            throws Exception {
+        if (!(internals instanceof ReservoirSamplerInternals)) {
+            return;
+        }
+        ReservoirSampler sampler =
+                ((ReservoirSamplerInternals)internals).getSampler();
+        RowOutput out = (RowOutput)output[0];
+        long count = sampler.writeSample(out);
+        out.close();
+        checkClassCount(sampler, count);
+    }
 }
@@ -76,6 +76,9 @@ public class SamplingNodeSettings {
 
     private static final String CFG_CLASS_COLUMN = "class_column";
 
+    /** NodeSettings key: If to sample an absolute number of rows with a reservoir (added in 3.6). */
+    private static final String CFG_RESERVOIR_SAMPLING = "reservoir_sampling";
+
     /**
      * Enum for the two methods for setting the number of rows in the output
      * table.
@@ -120,6 +123,12 @@ public enum SamplingMethods {
 
     private String m_classColumnName;
 
+    /**
+     * Whether random and stratified sampling of an absolute number of rows use a {@link ReservoirSampler}. Nodes that
+     * have been created before 3.6 don't, so that their seeded samples don't change.
+     */
+    private boolean m_reservoirSampling = true;
+
     /**
      * Saves the settings to the given object.
      *
@@ -136,6 +145,7 @@ public void saveSettingsTo(final NodeSettingsWO settings) {
             settings.addString(CFG_RANDOM_SEED, m_seed != null ? Long
                     .toString(m_seed) : null);
             settings.addString(CFG_CLASS_COLUMN, m_classColumnName);
+            settings.addBoolean(CFG_RESERVOIR_SAMPLING, m_reservoirSampling);
         }
     }
 
@@ -183,6 +193,9 @@ public void loadSettingsFrom(final NodeSettingsRO settings,
             seed = settings.getString(CFG_RANDOM_SEED, null);
             m_fraction = settings.getDouble(CFG_FRACTION, 0.1);
             m_count = settings.getInt(CFG_COUNT, 100);
+            // new nodes have no settings yet
+            m_reservoirSampling = settings.getBoolean(CFG_RESERVOIR_SAMPLING,
+                    !settings.containsKey(CFG_COUNT_METHOD));
         } else {
             String method = settings.getString(CFG_COUNT_METHOD);
             if (method == null) {
@@ -225,6 +238,8 @@ public void loadSettingsFrom(final NodeSettingsRO settings,
             seed = settings.getString(CFG_RANDOM_SEED);
             m_fraction = settings.getDouble(CFG_FRACTION);
             m_count = settings.getInt(CFG_COUNT);
+            m_reservoirSampling =
+                    settings.getBoolean(CFG_RESERVOIR_SAMPLING, false);
         }
         m_classColumnName = settings.getString(CFG_CLASS_COLUMN, null);
         if (seed != null) {
@@ -352,4 +367,29 @@ public void classColumn(final String columnName) {
     public String classColumn() {
         return m_classColumnName;
     }
+
+    /**
+     * Returns whether random and stratified sampling of an absolute number of
+     * rows use a {@link ReservoirSampler}, which gives the same sample with
+     * and without streaming. This is <code>false</code> for nodes created
+     * before 3.6.
+     *
+     * @return <code>true</code> if reservoir sampling is used
+     * @since 3.6
+     */
+    public boolean reservoirSampling() {
+        return m_reservoirSampling;
+    }
+
+    /**
+     * Sets whether random and stratified sampling of an absolute number of
+     * rows use a {@link ReservoirSampler}.
+     *
+     * @param reservoirSampling <code>true</code> if reservoir sampling should
+     *            be used
+     * @since 3.6
+     */
+    public void reservoirSampling(final boolean reservoirSampling) {
+        m_reservoirSampling = reservoirSampling;
+    }
 }
@@ -77,6 +77,8 @@ public class ShuffleNodeDialogPane extends NodeDialogPane {
     private final JFormattedTextField m_seedField;
     private final JButton m_drawNewSeedButton;
     private final JCheckBox m_enableStaticSeedChecker;
+    /** The shuffle version is not shown but must be kept when saving. */
+    private int m_shuffleVersion;
     
     /** Inits GUI. */
     public ShuffleNodeDialogPane() {
@@ -153,6 +155,8 @@ protected void loadSettingsFrom(final NodeSettingsRO settings,
                 // ignore
             }
         }
+        m_shuffleVersion = settings.getInt(ShuffleNodeModel.CFG_SHUFFLE_VERSION,
+            ShuffleNodeModel.SHUFFLE_VERSION_SORT);
         m_enableStaticSeedChecker.setSelected(lSeed != null);
         if (lSeed != null) {
             m_seedField.setText(Long.toString(lSeed));
@@ -178,6 +182,7 @@ protected void saveSettingsTo(final NodeSettingsWO settings)
             }
         }
         settings.addString(ShuffleNodeModel.CFG_SEED, seed);
+        settings.addInt(ShuffleNodeModel.CFG_SHUFFLE_VERSION, m_shuffleVersion);
     }
 
 }
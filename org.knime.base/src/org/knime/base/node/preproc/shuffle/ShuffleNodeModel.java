@@ -75,11 +75,23 @@ public class ShuffleNodeModel extends NodeModel {
     /** Config identifier for seed field. */
     static final String CFG_SEED = "random_seed";
 
+    /** Config identifier for the version of the shuffling algorithm, not available before 3.6. */
+    static final String CFG_SHUFFLE_VERSION = "shuffle_version";
+
+    /** Shuffles by sorting on random row numbers, used by nodes created before 3.6 to reproduce their results. */
+    static final int SHUFFLE_VERSION_SORT = 1;
+
+    /** Shuffles by scattering the rows into random buckets (3.6). */
+    static final int SHUFFLE_VERSION_SCATTER = 2;
+
     /**
      * The seed to use or null to use always a different one.
      */
     private Long m_seed;
 
+    /** The version of the shuffling algorithm, the permutation for a given seed differs between versions. */
+    private int m_shuffleVersion = SHUFFLE_VERSION_SCATTER;
+
     /**
      *
      */
@@ -100,8 +112,11 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs)
     @Override
     protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
             final ExecutionContext exec) throws Exception {
-        return new BufferedDataTable[]{Shuffler.shuffle(inData[0], exec,
-            m_seed == null ? new Random().nextLong() : m_seed)};
+        final long seed = m_seed == null ? new Random().nextLong() : m_seed;
+        if (m_shuffleVersion == SHUFFLE_VERSION_SORT) {
+            return new BufferedDataTable[]{Shuffler.shuffleBySorting(inData[0], exec, seed)};
+        }
+        return new BufferedDataTable[]{Shuffler.shuffle(inData[0], exec, seed)};
     }
 
     /**
@@ -139,6 +154,7 @@ protected void reset() {
     protected void saveSettingsTo(final NodeSettingsWO settings) {
         String seedText = m_seed != null ? Long.toString(m_seed) : null;
         settings.addString(CFG_SEED, seedText);
+        settings.addInt(CFG_SHUFFLE_VERSION, m_shuffleVersion);
     }
 
     /**
@@ -157,6 +173,11 @@ protected void validateSettings(final NodeSettingsRO settings)
                         + seedText + "\" as number.");
             }
         }
+        // the version was not available before 3.6, backward compatibility
+        int shuffleVersion = settings.getInt(CFG_SHUFFLE_VERSION, SHUFFLE_VERSION_SORT);
+        if (shuffleVersion != SHUFFLE_VERSION_SORT && shuffleVersion != SHUFFLE_VERSION_SCATTER) {
+            throw new InvalidSettingsException("Unknown shuffle version: " + shuffleVersion);
+        }
     }
 
     /**
@@ -177,6 +198,8 @@ protected void loadValidatedSettingsFrom(
         } else {
             m_seed = null;
         }
+        // nodes created before 3.6 keep the permutation of the sorting based shuffle
+        m_shuffleVersion = settings.getInt(CFG_SHUFFLE_VERSION, SHUFFLE_VERSION_SORT);
     }
 
 }
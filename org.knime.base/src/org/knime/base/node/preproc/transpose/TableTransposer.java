@@ -0,0 +1,297 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.node.preproc.transpose;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Transposes a table while reading it only once. The input rows are collected in blocks; each block is written
+ * transposed, i.e. with one row per input column, as a tile to a temporary table on disk. The output rows are then
+ * assembled by reading all tiles in parallel, one tile row per output row. If there are too many tiles to read them at
+ * once, groups of adjacent tiles are first merged into wider tiles the same way, which may take several passes for
+ * very tall tables. Apart from the output rows, the heap is bounded by the size of one block and the number of
+ * concurrently open tiles is bounded as well.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class TableTransposer {
+
+    /** The number of cells a block of input rows should contain at most. */
+    private static final int CELLS_PER_TILE = 1 << 20;
+
+    /**
+     * The maximum number of tiles that are read concurrently. If the table contains more blocks, the tiles are merged
+     * in groups of this size until at most this many tiles are left.
+     */
+    private static final int MAX_NO_OF_TILES = 256;
+
+    private final BufferedDataTable m_table;
+
+    private final int m_tileHeight;
+
+    private final int m_maxNoOfTiles;
+
+    /**
+     * @param table the table to transpose, must not contain more than {@link Integer#MAX_VALUE} rows
+     */
+    TableTransposer(final BufferedDataTable table) {
+        this(table, CELLS_PER_TILE, MAX_NO_OF_TILES);
+    }
+
+    /**
+     * @param table the table to transpose, must not contain more than {@link Integer#MAX_VALUE} rows
+     * @param cellsPerTile the number of cells a block of input rows should contain at most
+     * @param maxNoOfTiles the maximum number of tiles that are read concurrently, at least 2
+     */
+    TableTransposer(final BufferedDataTable table, final int cellsPerTile, final int maxNoOfTiles) {
+        m_table = table;
+        final int noOfCols = Math.max(1, table.getDataTableSpec().getNumColumns());
+        m_tileHeight = Math.max(1, cellsPerTile / noOfCols);
+        m_maxNoOfTiles = maxNoOfTiles;
+    }
+
+    /**
+     * Transposes the table. The new column names are the former row IDs, the new row IDs the former column names.
+     * The type of each new column is the most specific common super type of the cells of the former row.
+     *
+     * @param exec the execution context to create the temporary and the result table
+     * @return the transposed table
+     * @throws CanceledExecutionException if the execution was canceled
+     */
+    BufferedDataTable transpose(final ExecutionContext exec) throws CanceledExecutionException {
+        final DataTableSpec spec = m_table.getDataTableSpec();
+        final int newNrRows = spec.getNumColumns();
+        final int newNrCols = (int)m_table.size();
+        final RowKey[] newRowKeys = new RowKey[newNrRows];
+        for (int i = 0; i < newNrRows; i++) {
+            newRowKeys[i] = new RowKey(spec.getColumnSpec(i).getName());
+        }
+        final DataColumnSpec[] colSpecs = new DataColumnSpec[newNrCols];
+        final List<BufferedDataTable> tiles = new ArrayList<>();
+        try {
+            final ExecutionMonitor readExec = exec.createSubProgress(0.4);
+            // index for unique colNames if row id only contains whitespace
+            int idx = 0;
+            int rowIdx = 0;
+            final List<DataRow> block = new ArrayList<>(Math.min(m_tileHeight, newNrCols));
+            for (DataRow row : m_table) {
+                exec.checkCanceled();
+                readExec.setProgress((rowIdx + 1) / (double)newNrCols,
+                    "Transpose row \"" + row.getKey().getString() + "\" to column.");
+                String colName = row.getKey().getString().trim();
+                if (colName.isEmpty()) {
+                    colName = "<empty_" + idx + ">";
+                    idx++;
+                }
+                colSpecs[rowIdx++] = new DataColumnSpecCreator(colName, getCommonType(row)).createSpec();
+                block.add(row);
+                if (block.size() == m_tileHeight) {
+                    tiles.add(writeTile(block, newRowKeys, exec));
+                    block.clear();
+                }
+            }
+            if (!block.isEmpty()) {
+                tiles.add(writeTile(block, newRowKeys, exec));
+                block.clear();
+            }
+            mergeTiles(tiles, newRowKeys, exec.createSubProgress(0.3), exec);
+            final BufferedDataContainer cont = exec.createDataContainer(new DataTableSpec(colSpecs));
+            try {
+                concatenateTiles(tiles, newRowKeys, cont, exec.createSubProgress(0.3), exec);
+            } finally {
+                cont.close();
+            }
+            return cont.getTable();
+        } finally {
+            for (BufferedDataTable tile : tiles) {
+                exec.clearTable(tile);
+            }
+        }
+    }
+
+    /**
+     * @param row the input row
+     * @return the most specific common super type of the cells of the row
+     */
+    private static DataType getCommonType(final DataRow row) {
+        DataType type = null;
+        for (int i = 0; i < row.getNumCells(); i++) {
+            DataType newType = row.getCell(i).getType();
+            if (type == null) {
+                type = newType;
+            } else {
+                type = DataType.getCommonSuperType(type, newType);
+            }
+        }
+        if (type == null) {
+            type = DataType.getType(DataCell.class);
+        }
+        return type;
+    }
+
+    /**
+     * Writes the transposed block of rows to a temporary table that is not kept in memory.
+     */
+    private static BufferedDataTable writeTile(final List<DataRow> block, final RowKey[] newRowKeys,
+        final ExecutionContext exec) throws CanceledExecutionException {
+        final int height = block.size();
+        final BufferedDataContainer tile = createTileContainer(height, exec);
+        try {
+            for (int c = 0; c < newRowKeys.length; c++) {
+                final DataCell[] cells = new DataCell[height];
+                for (int r = 0; r < height; r++) {
+                    cells[r] = block.get(r).getCell(c);
+                }
+                tile.addRowToTable(new DefaultRow(newRowKeys[c], cells));
+                exec.checkCanceled();
+            }
+        } finally {
+            tile.close();
+        }
+        return tile.getTable();
+    }
+
+    /**
+     * Creates a container for a tile of the given height (i.e. number of columns), which is not kept in memory.
+     */
+    private static BufferedDataContainer createTileContainer(final int height, final ExecutionContext exec) {
+        final DataColumnSpec[] tileColSpecs = new DataColumnSpec[height];
+        final DataType genericType = DataType.getType(DataCell.class);
+        for (int r = 0; r < height; r++) {
+            tileColSpecs[r] = new DataColumnSpecCreator("Column" + r, genericType).createSpec();
+        }
+        return exec.createDataContainer(new DataTableSpec(tileColSpecs), false, 0);
+    }
+
+    /**
+     * Merges groups of adjacent tiles into wider tiles until there are at most {@link #m_maxNoOfTiles} tiles left.
+     * The merged tiles are cleared.
+     */
+    private void mergeTiles(final List<BufferedDataTable> tiles, final RowKey[] newRowKeys,
+        final ExecutionMonitor progress, final ExecutionContext exec) throws CanceledExecutionException {
+        // each pass reads all cells once, the number of passes is logarithmic in the number of tiles
+        int nrPasses = 0;
+        for (int nrTiles = tiles.size(); nrTiles > m_maxNoOfTiles; nrPasses++) {
+            nrTiles = (nrTiles + m_maxNoOfTiles - 1) / m_maxNoOfTiles;
+        }
+        for (int pass = 0; pass < nrPasses; pass++) {
+            final ExecutionMonitor passProgress = progress.createSubProgress(1.0 / nrPasses);
+            final List<BufferedDataTable> merged = new ArrayList<>();
+            for (int from = 0; from < tiles.size(); from += m_maxNoOfTiles) {
+                final List<BufferedDataTable> group =
+                    tiles.subList(from, Math.min(tiles.size(), from + m_maxNoOfTiles));
+                int width = 0;
+                for (BufferedDataTable tile : group) {
+                    width += tile.getDataTableSpec().getNumColumns();
+                }
+                final BufferedDataContainer tile = createTileContainer(width, exec);
+                try {
+                    concatenateTiles(group, newRowKeys, tile, passProgress.createSubProgress(
+                        (double)group.size() / tiles.size()), exec);
+                } finally {
+                    tile.close();
+                }
+                merged.add(tile.getTable());
+            }
+            for (BufferedDataTable tile : tiles) {
+                exec.clearTable(tile);
+            }
+            tiles.clear();
+            tiles.addAll(merged);
+        }
+    }
+
+    /**
+     * Writes the rows of all tiles with the same index concatenated to the container, which is not closed.
+     */
+    private static void concatenateTiles(final List<BufferedDataTable> tiles, final RowKey[] newRowKeys,
+        final BufferedDataContainer cont, final ExecutionMonitor progress, final ExecutionContext exec)
+        throws CanceledExecutionException {
+        final int newNrCols = cont.getTableSpec().getNumColumns();
+        final CloseableRowIterator[] iterators = new CloseableRowIterator[tiles.size()];
+        try {
+            for (int t = 0; t < iterators.length; t++) {
+                iterators[t] = tiles.get(t).iterator();
+            }
+            for (int r = 0; r < newRowKeys.length; r++) {
+                final DataCell[] cells = new DataCell[newNrCols];
+                int colIdx = 0;
+                for (CloseableRowIterator iterator : iterators) {
+                    final DataRow tileRow = iterator.next();
+                    for (int i = 0, length = tileRow.getNumCells(); i < length; i++) {
+                        cells[colIdx++] = tileRow.getCell(i);
+                    }
+                }
+                cont.addRowToTable(new DefaultRow(newRowKeys[r], cells));
+                exec.checkCanceled();
+                progress.setProgress((r + 1) / (double)newRowKeys.length,
+                    "Adding row \"" + newRowKeys[r].getString() + "\" to table.");
+            }
+        } finally {
+            for (CloseableRowIterator iterator : iterators) {
+                if (iterator != null) {
+                    iterator.close();
+                }
+            }
+        }
+    }
+}
@@ -87,7 +87,8 @@ public NodeView<TransposeTableNodeModel> createNodeView(final int viewIndex,
      */
     @Override
     public boolean hasDialog() {
-        return true;
+        // the chunk size is obsolete since the table is read only once (3.6)
+        return false;
     }
 
     /**
@@ -95,6 +96,6 @@ public boolean hasDialog() {
      */
     @Override
     public NodeDialogPane createNodeDialogPane() {
-        return new TransposeTableNodeDialogPane();
+        return null;
     }
 }
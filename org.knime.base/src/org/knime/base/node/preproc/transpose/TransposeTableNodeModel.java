@@ -47,16 +47,9 @@
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 import org.knime.core.data.DataCell;
-import org.knime.core.data.DataColumnSpec;
-import org.knime.core.data.DataColumnSpecCreator;
-import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.DataType;
 import org.knime.core.data.def.DefaultRow;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
@@ -82,9 +75,9 @@ final class TransposeTableNodeModel extends NodeModel {
     /** Output hilite handler for new data generated during execute. */
     private final HiLiteHandler m_outHiLite;
 
-    /** Chunk size model. */
+    /** Chunk size model, not used anymore since the table is read only once (3.6). Kept for compatibility. */
     private final SettingsModelIntegerBounded m_chunkSize
-        = TransposeTableNodeDialogPane.createChunkSizeModel();
+        = new SettingsModelIntegerBounded("chunk_size", 10, 1, Integer.MAX_VALUE);
 
     /**
      * Creates a transpose model with one data in- and output.
@@ -171,95 +164,10 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         }
         // new number of columns = number of rows
         CheckUtils.checkState(inData[0].size() <= Integer.MAX_VALUE, "Transpose operation can't handle more rows than " + Integer.MAX_VALUE);
-        final int newNrCols = (int)inData[0].size();
-        // new column names
-        final ArrayList<String> colNames = new ArrayList<String>();
-        // new column types
-        final ArrayList<DataType> colTypes = new ArrayList<DataType>();
-        // over entire table
-
-        // index for unique colNames if row id only contains whitespace
-        int idx = 0;
-
-        for (DataRow row : inData[0]) {
-            exec.checkCanceled();
-            exec.setMessage("Determine most-general column type for row: "
-                    + row.getKey().getString());
-            DataType type = null;
-            // and all cells
-            for (int i = 0; i < row.getNumCells(); i++) {
-                DataType newType = row.getCell(i).getType();
-                if (type == null) {
-                    type = newType;
-                } else {
-                    type = DataType.getCommonSuperType(type, newType);
-                }
-            }
-            if (type == null) {
-                type = DataType.getType(DataCell.class);
-            }
-            String colName = row.getKey().getString().trim();
-            if (colName.isEmpty()) {
-                colName = "<empty_" + idx + ">";
-                idx++;
-            }
-            colNames.add(colName);
-            colTypes.add(type);
-        }
-        // new number of rows
-        int newNrRows = spec.getNumColumns();
-        // create new specs
-        final DataColumnSpec[] colSpecs = new DataColumnSpec[newNrCols];
-        for (int c = 0; c < newNrCols; c++) {
-            colSpecs[c] = new DataColumnSpecCreator(colNames.get(c), colTypes
-                    .get(c)).createSpec();
-            exec.checkCanceled();
-        }
-        BufferedDataContainer cont = exec
-                .createDataContainer(new DataTableSpec(colSpecs));
-        final int chunkSize = m_chunkSize.getIntValue();
-        // total number of chunks
-        final double nrChunks = Math.ceil((double) newNrRows / chunkSize);
-        for (int chunkIdx = 0; chunkIdx < nrChunks; chunkIdx++) {
-            // map of new row keys to cell arrays
-            Map<String, DataCell[]> map =
-                new LinkedHashMap<String, DataCell[]>(newNrRows);
-            int rowIdx = 0;
-            for (DataRow row : inData[0]) {
-                exec.setProgress(((rowIdx + 1) * (chunkIdx + 1))
-                        / (nrChunks * newNrCols), "Transpose row \""
-                        + row.getKey().getString() + "\" to column.");
-                int colIdx = chunkIdx * chunkSize;
-                // iterate chunk of columns
-                for (int r = colIdx;
-                        r < Math.min(newNrRows, colIdx + chunkSize); r++) {
-                    String newRowKey = spec.getColumnSpec(r).getName();
-                    DataCell[] cellArray = map.get(newRowKey);
-                    if (cellArray == null) {
-                        cellArray = new DataCell[newNrCols];
-                        map.put(newRowKey, cellArray);
-                    }
-                    cellArray[rowIdx] = row.getCell(r);
-                }
-                try {
-                    exec.checkCanceled();
-                } catch (CanceledExecutionException cee) {
-                    cont.close();
-                    throw cee;
-                }
-                rowIdx++;
-            }
-            // add chunk of rows to buffer
-            for (Map.Entry<String, DataCell[]> e : map.entrySet()) {
-                exec.setMessage("Adding row \"" + e.getKey() + "\" to table.");
-                DataRow row = new DefaultRow(
-                        e.getKey(), e.getValue());
-                cont.addRowToTable(row);
-            }
-        }
-        exec.setProgress(1.0, "Finished, closing buffer...");
-        cont.close();
-        return new BufferedDataTable[]{cont.getTable()};
+        // since 3.6 the table is read only once, the chunk size is ignored
+        final BufferedDataTable out = new TableTransposer(inData[0]).transpose(exec);
+        exec.setProgress(1.0, "Finished");
+        return new BufferedDataTable[]{out};
 
     }
 
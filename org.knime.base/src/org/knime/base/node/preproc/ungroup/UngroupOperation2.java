@@ -50,14 +50,12 @@
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
-import java.util.Set;
 
+import org.knime.base.data.expand.RowExpander;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
@@ -66,7 +64,6 @@
 import org.knime.core.data.DataType;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.collection.CollectionDataValue;
-import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.StringCell;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
@@ -167,131 +164,100 @@ public void compute(final RowInput in, final RowOutput out, final ExecutionConte
         if (m_enableHilite && trans == null) {
             throw new IllegalArgumentException("HiLiteTranslator must not be null when hiliting is enabled!");
         }
-        final Map<RowKey, Set<RowKey>> hiliteMapping = new HashMap<RowKey, Set<RowKey>>();
-        @SuppressWarnings("unchecked")
-        Iterator<DataCell>[] iterators = new Iterator[m_colIndices.length];
         final DataCell[] missingCells = new DataCell[m_colIndices.length];
         Arrays.fill(missingCells, DataType.getMissingCell());
-        long rowCounter = 0;
-        DataRow row = null;
-        while ((row = in.poll()) != null) {
-            rowCounter++;
-            exec.checkCanceled();
-            if (rowCount > 0) {
-                exec.setProgress(rowCounter / (double)rowCount, "Processing row " + rowCounter + " of " + rowCount);
-            }
-            boolean allMissing = true;
-            for (int i = 0, length = m_colIndices.length; i < length; i++) {
-                final DataCell cell = row.getCell(m_colIndices[i]);
-                final CollectionDataValue listCell;
-                final Iterator<DataCell> iterator;
-                if (cell instanceof CollectionDataValue) {
-                    listCell = (CollectionDataValue)cell;
-                    iterator = listCell.iterator();
-                    allMissing = false;
-                } else {
-                    iterator = null;
-                }
-                iterators[i] = iterator;
-            }
-            if (allMissing) {
-                //all collection column cells are missing cells append a row
-                //with missing cells as well if the skip missing value option is disabled
-                if (!m_skipMissingValues) {
-                    final DefaultRow newRow =
-                        createClone(row.getKey(), row, m_colIndices, m_removeCollectionCol, missingCells);
-                    if (m_enableHilite) {
-                        //create the hilite entry
-                        final Set<RowKey> keys = new HashSet<RowKey>(1);
-                        keys.add(row.getKey());
-                        hiliteMapping.put(row.getKey(), keys);
-                    }
-                    out.push(newRow);
+        final RowExpander expander = new RowExpander(createColumnMap(in.getDataTableSpec().getNumColumns()),
+            (row, output) -> ungroup(row, output, missingCells),
+            (key, index, outputIndex) -> new RowKey(key.getString() + "_" + (index + 1)));
+        if (m_enableHilite) {
+            expander.enableHiLiteMapping(false);
+        }
+        expander.expand(in, out, exec, rowCount);
+        if (m_enableHilite) {
+            trans.setMapper(new DefaultHiLiteMapper(expander.getHiLiteMapping()));
+        }
+    }
+
+    /**
+     * Maps each output column to its input column or, for the ungrouped columns, to the index of the element cell.
+     */
+    private int[] createColumnMap(final int nrColumns) {
+        final int[] columnMap = new int[nrColumns + (m_removeCollectionCol ? 0 : m_colIndices.length)];
+        int outIdx = 0;
+        for (int i = 0; i < nrColumns; i++) {
+            int newCellIdx = -1;
+            for (int j = 0; j < m_colIndices.length; j++) {
+                if (m_colIndices[j] == i) {
+                    newCellIdx = j;
                 }
-                continue;
             }
-            long counter = 1;
-            final Set<RowKey> keys;
-            if (m_enableHilite) {
-                keys = new HashSet<RowKey>();
+            if (newCellIdx < 0) {
+                columnMap[outIdx++] = i;
             } else {
-                keys = null;
-            }
-            boolean continueLoop = false;
-            boolean allEmpty = true;
-            do {
-                //reset the loop flag
-                allMissing = true;
-                continueLoop = false;
-                final DataCell[] newCells = new DataCell[iterators.length];
-                for (int i = 0, length = iterators.length; i < length; i++) {
-                    Iterator<DataCell> iterator = iterators[i];
-                    DataCell newCell;
-                    if (iterator != null && iterator.hasNext()) {
-                        allEmpty = false;
-                        continueLoop = true;
-                        newCell = iterator.next();
-                    } else {
-                        if (iterator == null) {
-                            allEmpty = false;
-                        }
-                        newCell = DataType.getMissingCell();
-                    }
-                    if (!newCell.isMissing()) {
-                        allMissing = false;
-                    }
-                    newCells[i] = newCell;
-                }
-                if (!allEmpty && !continueLoop) {
-                    break;
+                if (!m_removeCollectionCol) {
+                    columnMap[outIdx++] = i;
                 }
-                if (!allEmpty && allMissing && m_skipMissingValues) {
-                    continue;
-                }
-                final RowKey oldKey = row.getKey();
-                final RowKey newKey = new RowKey(oldKey.getString() + "_" + counter++);
-                final DefaultRow newRow = createClone(newKey, row, m_colIndices, m_removeCollectionCol, newCells);
-                out.push(newRow);
-                if (keys != null) {
-                    keys.add(newKey);
-                }
-            } while (continueLoop);
-            if (keys != null && !keys.isEmpty()) {
-                hiliteMapping.put(row.getKey(), keys);
+                columnMap[outIdx++] = RowExpander.newCell(newCellIdx);
             }
         }
-        if (m_enableHilite) {
-            trans.setMapper(new DefaultHiLiteMapper(hiliteMapping));
-        }
+        return columnMap;
     }
 
-    private DefaultRow createClone(final RowKey newKey, final DataRow row, final int[] colIdxs,
-        final boolean removeCollectionCol, final DataCell[] newCells) {
-        assert colIdxs.length == newCells.length;
-        final Map<Integer, DataCell> map = new HashMap<Integer, DataCell>(newCells.length);
-        for (int i = 0, length = newCells.length; i < length; i++) {
-            map.put(Integer.valueOf(colIdxs[i]), newCells[i]);
+    /**
+     * Adds the cells of the ungrouped collection elements for the given row.
+     */
+    private void ungroup(final DataRow row, final RowExpander.Output output, final DataCell[] missingCells) {
+        @SuppressWarnings("unchecked")
+        final Iterator<DataCell>[] iterators = new Iterator[m_colIndices.length];
+        boolean allMissing = true;
+        for (int i = 0, length = m_colIndices.length; i < length; i++) {
+            final DataCell cell = row.getCell(m_colIndices[i]);
+            if (cell instanceof CollectionDataValue) {
+                iterators[i] = ((CollectionDataValue)cell).iterator();
+                allMissing = false;
+            }
         }
-        final int cellCount;
-        if (removeCollectionCol) {
-            cellCount = row.getNumCells();
-        } else {
-            cellCount = row.getNumCells() + colIdxs.length;
+        if (allMissing) {
+            //all collection column cells are missing cells append a row
+            //with missing cells as well if the skip missing value option is disabled
+            if (!m_skipMissingValues) {
+                output.addWithInputKey(missingCells);
+            }
+            return;
         }
-        final DataCell[] cells = new DataCell[cellCount];
-        int cellIdx = 0;
-        int newCellidx = 0;
-        for (int i = 0, length = row.getNumCells(); i < length; i++) {
-            if (map.containsKey(Integer.valueOf(i))) {
-                if (!removeCollectionCol) {
-                    cells[cellIdx++] = row.getCell(i);
+        boolean continueLoop = false;
+        boolean allEmpty = true;
+        do {
+            //reset the loop flag
+            allMissing = true;
+            continueLoop = false;
+            final DataCell[] newCells = new DataCell[iterators.length];
+            for (int i = 0, length = iterators.length; i < length; i++) {
+                Iterator<DataCell> iterator = iterators[i];
+                DataCell newCell;
+                if (iterator != null && iterator.hasNext()) {
+                    allEmpty = false;
+                    continueLoop = true;
+                    newCell = iterator.next();
+                } else {
+                    if (iterator == null) {
+                        allEmpty = false;
+                    }
+                    newCell = DataType.getMissingCell();
                 }
-                cells[cellIdx++] = newCells[newCellidx++];
-            } else {
-                cells[cellIdx++] = row.getCell(i);
+                if (!newCell.isMissing()) {
+                    allMissing = false;
+                }
+                newCells[i] = newCell;
             }
-        }
-        return new DefaultRow(newKey, cells);
+            if (!allEmpty && !continueLoop) {
+                break;
+            }
+            if (!allEmpty && allMissing && m_skipMissingValues) {
+                continue;
+            }
+            output.add(newCells);
+        } while (continueLoop);
     }
 
     /**
@@ -49,22 +49,16 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.Set;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-import org.knime.base.data.append.column.AppendedColumnRow;
-import org.knime.base.data.filter.column.FilterColumnRow;
+import org.knime.base.data.expand.RowExpander;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
-import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.RowKey;
-import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.StringCell;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
@@ -81,6 +75,8 @@
 import org.knime.core.node.property.hilite.DefaultHiLiteMapper;
 import org.knime.core.node.property.hilite.HiLiteHandler;
 import org.knime.core.node.property.hilite.HiLiteTranslator;
+import org.knime.core.node.streamable.BufferedDataTableRowOutput;
+import org.knime.core.node.streamable.DataTableRowInput;
 import org.knime.core.node.util.ConvenienceMethods;
 import org.knime.core.node.util.filter.NameFilterConfiguration.FilterResult;
 
@@ -201,45 +197,48 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData,
         for (int i = 0; i < orderColumnIdx.length; i++) {
             orderColumnIdx[i] = inSpec.findColumnIndex(retainedColumns[i]);
         }
-        final double newRowCnt = inData[0].size() * valueColumns.length;
-        final boolean enableHilite = m_enableHilite.getBooleanValue();
-        LinkedHashMap<RowKey, Set<RowKey>> map =
-            new LinkedHashMap<RowKey, Set<RowKey>>();
-        DataTableSpec outSpec = createOutSpec(inSpec);
-        BufferedDataContainer buf = exec.createDataContainer(outSpec);
+        // the output rows refer to the cells of the input rows, the generated cells are shared where possible
+        final int[] columnMap = new int[orderColumnIdx.length + 3];
+        for (int i = 0; i < 3; i++) {
+            columnMap[i] = RowExpander.newCell(i);
+        }
+        System.arraycopy(orderColumnIdx, 0, columnMap, 3, orderColumnIdx.length);
+        final DataCell[] valueColumnNameCells = new DataCell[valueColumns.length];
+        for (int i = 0; i < valueColumns.length; i++) {
+            valueColumnNameCells[i] = new StringCell(valueColumns[i]);
+        }
         final boolean skipMissings = m_missingValues.getBooleanValue();
-        for (DataRow row : inData[0]) {
-            LinkedHashSet<RowKey> set = new LinkedHashSet<RowKey>();
-            FilterColumnRow crow = new FilterColumnRow(row, orderColumnIdx);
-            for (int i = 0; i < valueColumns.length; i++) {
-                String colName = valueColumns[i];
+        final RowExpander expander = new RowExpander(columnMap, (row, output) -> {
+            final DataCell rowKeyCell = new StringCell(row.getKey().getString());
+            for (int i = 0; i < valueColumnIndices.length; i++) {
                 DataCell acell = row.getCell(valueColumnIndices[i]);
                 if (acell.isMissing() && skipMissings) {
                     // skip rows containing missing cells (in Value column(s))
                     continue;
                 }
-                RowKey rowKey = RowKey.createRowKey(buf.size());
-                if (enableHilite) {
-                    set.add(rowKey);
-                }
-                DefaultRow drow = new DefaultRow(rowKey,
-                        new StringCell(row.getKey().getString()),
-                        new StringCell(colName), acell);
-                buf.addRowToTable(new AppendedColumnRow(rowKey, drow, crow));
-                exec.checkCanceled();
-                exec.setProgress(buf.size() / newRowCnt);
-            }
-            if (enableHilite) {
-                map.put(crow.getKey(), set);
+                output.add(new DataCell[]{rowKeyCell, valueColumnNameCells[i], acell});
             }
+        }, (key, index, outputIndex) -> RowKey.createRowKey(outputIndex));
+        final boolean enableHilite = m_enableHilite.getBooleanValue();
+        if (enableHilite) {
+            expander.enableHiLiteMapping(true);
+        }
+        DataTableSpec outSpec = createOutSpec(inSpec);
+        BufferedDataContainer buf = exec.createDataContainer(outSpec);
+        DataTableRowInput in = new DataTableRowInput(inData[0]);
+        BufferedDataTableRowOutput out = new BufferedDataTableRowOutput(buf);
+        try {
+            expander.expand(in, out, exec, inData[0].size());
+        } finally {
+            in.close();
+            out.close();
         }
-        buf.close();
         if (enableHilite) {
-            m_trans.setMapper(new DefaultHiLiteMapper(map));
+            m_trans.setMapper(new DefaultHiLiteMapper(expander.getHiLiteMapping()));
         } else {
             m_trans.setMapper(null);
         }
-        return new BufferedDataTable[]{buf.getTable()};
+        return new BufferedDataTable[]{out.getDataTable()};
     }
 
     /**
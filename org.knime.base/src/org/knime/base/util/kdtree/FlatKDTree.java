@@ -0,0 +1,345 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.util.kdtree;
+
+import java.util.Arrays;
+
+/**
+ * A k-d tree for nearest neighbour queries (Euclidean distance) that keeps all patterns and nodes in flat primitive
+ * arrays. The patterns are stored in the order of the tree's leafs, so that scanning a bucket accesses contiguous
+ * memory. Patterns are identified by their index in the array passed to the constructor; associating data with them
+ * is up to the caller.
+ *
+ * <p>
+ * For high-dimensional data a k-d tree hardly prunes anything; in this case (see {@link #MAX_TREE_DIMENSIONS}) no tree
+ * is built and queries are answered by a linear scan over the patterns.
+ *
+ * <p>
+ * The tree is immutable once built and can be queried concurrently, provided each thread uses its own
+ * {@link NeighbourHeap}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class FlatKDTree {
+    /** The default number of patterns in a leaf. */
+    public static final int DEFAULT_BUCKET_SIZE = 16;
+
+    /** Up to this number of dimensions a tree is built, otherwise queries scan all patterns. */
+    public static final int MAX_TREE_DIMENSIONS = 16;
+
+    private final int m_dimensions;
+
+    private final int m_size;
+
+    /** The patterns in leaf order, row-major. */
+    private final double[] m_patterns;
+
+    /** The original index of the pattern at each position in {@link #m_patterns}. */
+    private final int[] m_ids;
+
+    /** The split dimension for inner nodes, -1 for leafs. */
+    private int[] m_splitDim;
+
+    private double[] m_splitValue;
+
+    /** Index of the left child for inner nodes, first pattern position for leafs. */
+    private int[] m_left;
+
+    /** Index of the right child for inner nodes, pattern position after the last one for leafs. */
+    private int[] m_right;
+
+    private int m_nodeCount;
+
+    /**
+     * Creates a new tree. Patterns with more dimensions than {@link #MAX_TREE_DIMENSIONS} are scanned linearly.
+     *
+     * @param patterns the patterns in row-major order, the array is not modified
+     * @param dimensions the number of dimensions of the patterns
+     * @param bucketSize the maximum number of patterns in a leaf
+     */
+    public FlatKDTree(final double[] patterns, final int dimensions, final int bucketSize) {
+        this(patterns, dimensions, bucketSize, dimensions > MAX_TREE_DIMENSIONS);
+    }
+
+    /**
+     * Creates a new tree.
+     *
+     * @param patterns the patterns in row-major order, the array is not modified
+     * @param dimensions the number of dimensions of the patterns
+     * @param bucketSize the maximum number of patterns in a leaf
+     * @param bruteForce <code>true</code> if no tree should be built but all patterns be scanned for each query
+     */
+    public FlatKDTree(final double[] patterns, final int dimensions, final int bucketSize,
+        final boolean bruteForce) {
+        if (dimensions < 0) {
+            throw new IllegalArgumentException("Number of dimensions must not be negative: " + dimensions);
+        }
+        if (bucketSize < 1) {
+            throw new IllegalArgumentException("Bucket size must be at least 1: " + bucketSize);
+        }
+        if (dimensions > 0 && patterns.length % dimensions != 0) {
+            throw new IllegalArgumentException("Length of pattern array (" + patterns.length
+                + ") is not a multiple of the number of dimensions (" + dimensions + ")");
+        }
+        m_dimensions = dimensions;
+        m_size = dimensions == 0 ? 0 : patterns.length / dimensions;
+        m_ids = new int[m_size];
+        for (int i = 0; i < m_size; i++) {
+            m_ids[i] = i;
+        }
+
+        int maxNodes = 1;
+        if (!bruteForce && m_size > bucketSize) {
+            maxNodes = 2 * ((m_size + bucketSize - 1) / bucketSize) * 2;
+        }
+        m_splitDim = new int[maxNodes];
+        m_splitValue = new double[maxNodes];
+        m_left = new int[maxNodes];
+        m_right = new int[maxNodes];
+        if (bruteForce) {
+            addLeaf(0, m_size);
+        } else {
+            build(patterns, 0, m_size, bucketSize);
+        }
+        m_splitDim = Arrays.copyOf(m_splitDim, m_nodeCount);
+        m_splitValue = Arrays.copyOf(m_splitValue, m_nodeCount);
+        m_left = Arrays.copyOf(m_left, m_nodeCount);
+        m_right = Arrays.copyOf(m_right, m_nodeCount);
+
+        m_patterns = new double[m_size * dimensions];
+        for (int i = 0; i < m_size; i++) {
+            System.arraycopy(patterns, m_ids[i] * dimensions, m_patterns, i * dimensions, dimensions);
+        }
+    }
+
+    /**
+     * Returns the number of stored patterns.
+     *
+     * @return the tree's size
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Returns the number of dimensions of the patterns.
+     *
+     * @return the number of dimensions
+     */
+    public int getDimensions() {
+        return m_dimensions;
+    }
+
+    /**
+     * Returns whether queries scan all patterns instead of using a tree.
+     *
+     * @return <code>true</code> if queries are answered by a linear scan
+     */
+    public boolean isBruteForce() {
+        return m_nodeCount == 1;
+    }
+
+    private int addLeaf(final int start, final int end) {
+        final int node = m_nodeCount++;
+        m_splitDim[node] = -1;
+        m_left[node] = start;
+        m_right[node] = end;
+        return node;
+    }
+
+    /** Recursively builds the subtree for the pattern positions [start, end), returns its node index. */
+    private int build(final double[] patterns, final int start, final int end, final int bucketSize) {
+        if (end - start <= bucketSize) {
+            return addLeaf(start, end);
+        }
+        // split along the dimension with the largest spread
+        int splitDim = -1;
+        double maxSpread = 0;
+        for (int d = 0; d < m_dimensions; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                final double v = patterns[m_ids[i] * m_dimensions + d];
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            if (max - min > maxSpread) {
+                maxSpread = max - min;
+                splitDim = d;
+            }
+        }
+        if (splitDim < 0) {
+            // all patterns are equal
+            return addLeaf(start, end);
+        }
+        final int mid = (start + end) >>> 1;
+        select(patterns, splitDim, start, end - 1, mid);
+
+        final int node = m_nodeCount++;
+        m_splitDim[node] = splitDim;
+        m_splitValue[node] = patterns[m_ids[mid] * m_dimensions + splitDim];
+        // patterns in [start, mid) are <= split value, those in [mid, end) are >= split value
+        m_left[node] = build(patterns, start, mid, bucketSize);
+        m_right[node] = build(patterns, mid, end, bucketSize);
+        return node;
+    }
+
+    /** Quickselect on the id array so that position <code>n</code> holds the n-th smallest value in [lo, hi]. */
+    private void select(final double[] patterns, final int dim, final int lo, final int hi, final int n) {
+        int left = lo;
+        int right = hi;
+        while (right > left) {
+            // median of three as pivot
+            final int m = (left + right) >>> 1;
+            final double a = value(patterns, left, dim);
+            final double b = value(patterns, m, dim);
+            final double c = value(patterns, right, dim);
+            final double pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+            // three-way partition: [left, lt) < pivot, [lt, gt] == pivot, (gt, right] > pivot
+            int lt = left;
+            int gt = right;
+            int i = left;
+            while (i <= gt) {
+                final double v = value(patterns, i, dim);
+                if (v < pivot) {
+                    swap(lt++, i++);
+                } else if (v > pivot) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            if (n < lt) {
+                right = lt - 1;
+            } else if (n > gt) {
+                left = gt + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double value(final double[] patterns, final int pos, final int dim) {
+        return patterns[m_ids[pos] * m_dimensions + dim];
+    }
+
+    private void swap(final int i, final int j) {
+        final int temp = m_ids[i];
+        m_ids[i] = m_ids[j];
+        m_ids[j] = temp;
+    }
+
+    /**
+     * Searches for the <code>k</code> nearest neighbours of a query pattern, where <code>k</code> is determined by
+     * the last call to {@link NeighbourHeap#reset(int)}. Afterwards the heap contains the neighbours sorted by
+     * increasing distance; their ids are the indices of the patterns in the array passed to the constructor.
+     *
+     * @param query an array containing the query pattern
+     * @param offset the position of the query pattern's first value in <code>query</code>
+     * @param heap the (reset) heap that receives the nearest neighbours
+     */
+    public void search(final double[] query, final int offset, final NeighbourHeap heap) {
+        if (query.length - offset < m_dimensions) {
+            throw new IllegalArgumentException("The query vector has not length " + m_dimensions);
+        }
+        if (m_nodeCount > 0) {
+            search(0, query, offset, 0, heap.getOffsets(m_dimensions), heap);
+        }
+        heap.finish();
+    }
+
+    /**
+     * Recursive search, <code>rd</code> is the squared distance from the query to the region of the node, which is
+     * the sum over the squares of the <code>offsets</code> per dimension (see Arya and Mount, 1993).
+     */
+    private void search(final int node, final double[] query, final int offset, final double rd,
+        final double[] offsets, final NeighbourHeap heap) {
+        final int splitDim = m_splitDim[node];
+        if (splitDim < 0) {
+            scan(m_left[node], m_right[node], query, offset, heap);
+            return;
+        }
+        final double diff = query[offset + splitDim] - m_splitValue[node];
+        final int near;
+        final int far;
+        if (diff <= 0) {
+            near = m_left[node];
+            far = m_right[node];
+        } else {
+            near = m_right[node];
+            far = m_left[node];
+        }
+        search(near, query, offset, rd, offsets, heap);
+
+        final double old = offsets[splitDim];
+        final double farRd = rd - old * old + diff * diff;
+        // ties must be visited as well
+        if (farRd <= heap.getThreshold()) {
+            offsets[splitDim] = diff;
+            search(far, query, offset, farRd, offsets, heap);
+            offsets[splitDim] = old;
+        }
+    }
+
+    /** Offers all patterns at positions [start, end) to the heap. */
+    private void scan(final int start, final int end, final double[] query, final int offset,
+        final NeighbourHeap heap) {
+        final int dims = m_dimensions;
+        double threshold = heap.getThreshold();
+        for (int p = start, base = start * dims; p < end; p++, base += dims) {
+            double sum = 0;
+            for (int d = 0; d < dims && sum <= threshold; d++) {
+                final double diff = m_patterns[base + d] - query[offset + d];
+                sum += diff * diff;
+            }
+            if (sum <= threshold) {
+                heap.offer(sum, m_ids[p]);
+                threshold = heap.getThreshold();
+            }
+        }
+    }
+}
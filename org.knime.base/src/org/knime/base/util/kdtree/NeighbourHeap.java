@@ -0,0 +1,239 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.util.kdtree;
+
+import java.util.Arrays;
+
+/**
+ * A bounded max-heap of the <code>k</code> nearest neighbours found so far, stored in primitive arrays. Neighbours
+ * having the same distance as the <code>k</code>-th neighbour are kept as well (see
+ * {@link KDTree#getKNearestNeighbours(double[], int)}). An instance is meant to be reused for many queries by one
+ * thread, it is not thread-safe.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class NeighbourHeap {
+    private int m_k;
+
+    private int m_count;
+
+    /** Squared distances, the heap is ordered by decreasing distance. */
+    private double[] m_dist;
+
+    private int[] m_ids;
+
+    private int m_tieCount;
+
+    private int[] m_ties;
+
+    private double[] m_offsets = new double[0];
+
+    /**
+     * Creates a new heap.
+     *
+     * @param k the number of nearest neighbours to retrieve
+     */
+    public NeighbourHeap(final int k) {
+        m_dist = new double[0];
+        m_ids = new int[0];
+        m_ties = new int[16];
+        reset(k);
+    }
+
+    /**
+     * Clears the heap for a new query.
+     *
+     * @param k the number of nearest neighbours to retrieve
+     */
+    public void reset(final int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of neighbours must not be negative: " + k);
+        }
+        if (m_dist.length < k) {
+            m_dist = new double[k];
+            m_ids = new int[k];
+        }
+        m_k = k;
+        m_count = 0;
+        m_tieCount = 0;
+    }
+
+    /**
+     * Returns the squared distance a pattern may have at most in order to be one of the nearest neighbours.
+     *
+     * @return the squared distance of the currently farthest neighbour or infinity if less than <code>k</code>
+     *         neighbours have been found so far
+     */
+    double getThreshold() {
+        if (m_count < m_k) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return m_k == 0 ? Double.NEGATIVE_INFINITY : m_dist[0];
+    }
+
+    /**
+     * Offers a new pattern.
+     *
+     * @param squaredDist the squared distance of the pattern to the query
+     * @param id the pattern's id
+     */
+    void offer(final double squaredDist, final int id) {
+        if (m_count < m_k) {
+            int i = m_count++;
+            // sift up
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (m_dist[parent] >= squaredDist) {
+                    break;
+                }
+                m_dist[i] = m_dist[parent];
+                m_ids[i] = m_ids[parent];
+                i = parent;
+            }
+            m_dist[i] = squaredDist;
+            m_ids[i] = id;
+        } else if (m_k > 0) {
+            final double max = m_dist[0];
+            if (squaredDist < max) {
+                final int oldId = m_ids[0];
+                siftDown(squaredDist, id, m_count);
+                if (m_dist[0] == max) {
+                    // the removed pattern is still as near as the k-th neighbour
+                    addTie(oldId);
+                } else {
+                    m_tieCount = 0;
+                }
+            } else if (squaredDist == max) {
+                addTie(id);
+            }
+        }
+    }
+
+    private void addTie(final int id) {
+        if (m_tieCount == m_ties.length) {
+            m_ties = Arrays.copyOf(m_ties, 2 * m_ties.length);
+        }
+        m_ties[m_tieCount++] = id;
+    }
+
+    /** Places the new value at the root and restores the heap property within the first <code>size</code>. */
+    private void siftDown(final double dist, final int id, final int size) {
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && m_dist[child + 1] > m_dist[child]) {
+                child++;
+            }
+            if (m_dist[child] <= dist) {
+                break;
+            }
+            m_dist[i] = m_dist[child];
+            m_ids[i] = m_ids[child];
+            i = child;
+        }
+        m_dist[i] = dist;
+        m_ids[i] = id;
+    }
+
+    /**
+     * Sorts the found neighbours by increasing distance and converts the squared distances into distances. Must be
+     * called once after the search has finished and before the neighbours are accessed.
+     */
+    void finish() {
+        // heap sort, the largest element is moved to the end
+        for (int end = m_count - 1; end > 0; end--) {
+            final double dist = m_dist[0];
+            final int id = m_ids[0];
+            siftDown(m_dist[end], m_ids[end], end);
+            m_dist[end] = dist;
+            m_ids[end] = id;
+        }
+        for (int i = 0; i < m_count; i++) {
+            m_dist[i] = Math.sqrt(m_dist[i]);
+        }
+    }
+
+    /**
+     * Returns the number of found neighbours. This may be more than <code>k</code> if several patterns have the
+     * same distance as the <code>k</code>-th neighbour.
+     *
+     * @return the number of neighbours
+     */
+    public int size() {
+        return m_count + m_tieCount;
+    }
+
+    /**
+     * Returns the id of the <code>i</code>-th nearest neighbour.
+     *
+     * @param i the neighbour's rank, between 0 and {@link #size()} (exclusive)
+     * @return the id of the pattern
+     */
+    public int getId(final int i) {
+        return i < m_count ? m_ids[i] : m_ties[i - m_count];
+    }
+
+    /**
+     * Returns the distance of the <code>i</code>-th nearest neighbour to the query.
+     *
+     * @param i the neighbour's rank, between 0 and {@link #size()} (exclusive)
+     * @return the distance
+     */
+    public double getDistance(final int i) {
+        return i < m_count ? m_dist[i] : m_dist[m_count - 1];
+    }
+
+    /** Scratch array for the search, avoids allocations per query. */
+    double[] getOffsets(final int dimensions) {
+        if (m_offsets.length != dimensions) {
+            m_offsets = new double[dimensions];
+        } else {
+            Arrays.fill(m_offsets, 0);
+        }
+        return m_offsets;
+    }
+}
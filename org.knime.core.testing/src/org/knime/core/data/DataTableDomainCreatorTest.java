@@ -52,17 +52,34 @@
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Test;
+import org.knime.core.data.container.ContainerTable;
 import org.knime.core.data.container.DataContainer;
 import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.DoubleCell;
 import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
 import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
 
 /**
  * Testcases for {@link DataTableDomainCreator}.
@@ -373,4 +390,108 @@ public void testDefaultNumberOfPossibleValues() {
         assertThat("Unexpected possible values", colDomain.getValues(), is(nullValue()));
 
     }
+
+    /**
+     * Checks that merging the domains of consecutive parts of a table results in the same domain as updating a single
+     * creator with all rows.
+     */
+    @Test
+    public void testMerge() {
+        DataTableSpec tableSpec = createMixedSpec();
+        List<DataRow> rows = createMixedRows(1000);
+
+        DataTableDomainCreator expected = new DataTableDomainCreator(tableSpec, false);
+        expected.setMaxPossibleValues(10);
+        for (DataRow row : rows) {
+            expected.updateDomain(row);
+        }
+
+        DataTableDomainCreator merged = new DataTableDomainCreator(tableSpec, false);
+        merged.setMaxPossibleValues(10);
+        for (int start = 0; start < rows.size(); start += 300) {
+            DataTableDomainCreator part = new DataTableDomainCreator(tableSpec, false);
+            part.setMaxPossibleValues(10);
+            for (DataRow row : rows.subList(start, Math.min(start + 300, rows.size()))) {
+                part.updateDomain(row);
+            }
+            merged.merge(part);
+        }
+
+        assertDomainsEqual(expected.createSpec(), merged.createSpec());
+        assertThat("Too many possible values not detected",
+            merged.createSpec().getColumnSpec(4).getDomain().getValues(), is(nullValue()));
+    }
+
+    /**
+     * Checks that scanning a table concurrently results in the same domain as scanning it row by row.
+     *
+     * @throws Exception if an error occurs
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Test
+    public void testUpdateDomainConcurrently() throws Exception {
+        NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        ExecutionContext exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, new HashMap<Integer, ContainerTable>());
+        DataTableSpec tableSpec = createMixedSpec();
+        BufferedDataContainer cont = exec.createDataContainer(tableSpec);
+        for (DataRow row : createMixedRows(45000)) {
+            cont.addRowToTable(row);
+        }
+        cont.close();
+        BufferedDataTable table = cont.getTable();
+
+        DataTableDomainCreator expected = new DataTableDomainCreator(tableSpec, false);
+        expected.updateDomain(table, exec, table.size());
+
+        DataTableDomainCreator concurrent = new DataTableDomainCreator(tableSpec, false);
+        KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> {
+            concurrent.updateDomain(table, exec);
+            return null;
+        }).get();
+
+        assertDomainsEqual(expected.createSpec(), concurrent.createSpec());
+    }
+
+    private static DataTableSpec createMixedSpec() {
+        return new DataTableSpec(new DataColumnSpecCreator("Double col", DoubleCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Int col", IntCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Long col", LongCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("String col", StringCell.TYPE).createSpec(),
+            new DataColumnSpecCreator("Many strings col", StringCell.TYPE).createSpec());
+    }
+
+    private static List<DataRow> createMixedRows(final int count) {
+        Random random = new Random(42);
+        List<DataRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DataCell[] cells = new DataCell[5];
+            int r = random.nextInt(20);
+            cells[0] = r == 0 ? DataType.getMissingCell()
+                : new DoubleCell(r == 1 ? Double.NaN : (r == 2 ? -0.0 : random.nextGaussian()));
+            cells[1] = r == 3 ? DataType.getMissingCell() : new IntCell(random.nextInt());
+            cells[2] = r == 4 ? DataType.getMissingCell() : new LongCell(random.nextLong());
+            cells[3] = r == 5 ? DataType.getMissingCell() : new StringCell("Value " + random.nextInt(8));
+            cells[4] = new StringCell("Value " + random.nextInt(20));
+            rows.add(new DefaultRow(RowKey.createRowKey((long)i), cells));
+        }
+        return rows;
+    }
+
+    private static void assertDomainsEqual(final DataTableSpec expected, final DataTableSpec actual) {
+        for (int i = 0; i < expected.getNumColumns(); i++) {
+            DataColumnDomain expectedDomain = expected.getColumnSpec(i).getDomain();
+            DataColumnDomain actualDomain = actual.getColumnSpec(i).getDomain();
+            assertThat("Unexpected lower bound", actualDomain.getLowerBound(), is(expectedDomain.getLowerBound()));
+            assertThat("Unexpected upper bound", actualDomain.getUpperBound(), is(expectedDomain.getUpperBound()));
+            if (expectedDomain.getValues() == null) {
+                assertThat("Unexpected possible values", actualDomain.getValues(), is(nullValue()));
+            } else {
+                // also the order of the possible values must match
+                assertThat("Unexpected possible values", new ArrayList<>(actualDomain.getValues()),
+                    is(new ArrayList<>(expectedDomain.getValues())));
+            }
+        }
+    }
 }
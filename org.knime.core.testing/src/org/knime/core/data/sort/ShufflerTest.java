@@ -0,0 +1,223 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.core.data.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests for {@link Shuffler}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ShufflerTest {
+
+    private static final int NO_OF_ROWS = 1000;
+
+    private ExecutionContext m_exec;
+
+    private BufferedDataTable m_table;
+
+    /**
+     * Creates the execution context and the table to shuffle.
+     *
+     * @throws Exception
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Before
+    public void setUp() throws Exception {
+        NodeFactory<NodeModel> dummyFactory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(dummyFactory),
+            SingleNodeContainer.MemoryPolicy.CacheOnDisc, new HashMap<Integer, ContainerTable>());
+        final BufferedDataContainer cont = m_exec.createDataContainer(
+            new DataTableSpec(new DataColumnSpecCreator("Value", IntCell.TYPE).createSpec()));
+        for (int i = 0; i < NO_OF_ROWS; i++) {
+            cont.addRowToTable(new DefaultRow("Row" + i, new IntCell(i)));
+        }
+        cont.close();
+        m_table = cont.getTable();
+    }
+
+    /**
+     * Tests that the table is shuffled in memory and the result is a reproducible permutation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShuffleInMemory() throws Exception {
+        final List<Integer> first = getValues(Shuffler.shuffle(m_table, m_exec, 42));
+        assertPermutation(first);
+        assertEquals(first, getValues(Shuffler.shuffle(m_table, m_exec, 42)));
+        assertNotEquals(first, getValues(Shuffler.shuffle(m_table, m_exec, 43)));
+    }
+
+    /**
+     * Tests that the table is scattered into buckets and the result is a reproducible permutation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShuffleExternally() throws Exception {
+        final List<Integer> first = getValues(Shuffler.shuffle(m_table, m_exec, 42, 50, 256));
+        assertPermutation(first);
+        assertEquals(first, getValues(Shuffler.shuffle(m_table, m_exec, 42, 50, 256)));
+        assertNotEquals(first, getValues(Shuffler.shuffle(m_table, m_exec, 43, 50, 256)));
+    }
+
+    /**
+     * Tests that buckets that are too large are scattered again. The table is scattered into four buckets of about
+     * 250 rows, each of which is scattered into buckets of about 62 rows and again into buckets of about 20 rows.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShuffleMultiLevel() throws Exception {
+        final List<Integer> first = getValues(Shuffler.shuffle(m_table, m_exec, 42, 50, 4));
+        assertPermutation(first);
+        assertEquals(first, getValues(Shuffler.shuffle(m_table, m_exec, 42, 50, 4)));
+        assertNotEquals(first, getValues(Shuffler.shuffle(m_table, m_exec, 43, 50, 4)));
+    }
+
+    /**
+     * Tests that the buckets shuffled concurrently in a thread pool give the same result as shuffled one after
+     * another.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentGather() throws Exception {
+        final List<Integer> sequential = getValues(Shuffler.shuffle(m_table, m_exec, 42, 50, 256));
+        assertEquals(sequential, getValues(KNIMEConstants.GLOBAL_THREAD_POOL
+            .enqueue(() -> Shuffler.shuffle(m_table, m_exec, 42, 50, 256)).get()));
+        final List<Integer> multiLevel = getValues(Shuffler.shuffle(m_table, m_exec, 42, 50, 4));
+        assertEquals(multiLevel, getValues(KNIMEConstants.GLOBAL_THREAD_POOL
+            .enqueue(() -> Shuffler.shuffle(m_table, m_exec, 42, 50, 4)).get()));
+    }
+
+    /**
+     * Tests that shuffling by sorting creates the permutation of previous versions, i.e. the rows are sorted by
+     * random row numbers that are drawn with a Fisher Yates shuffle.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShuffleBySorting() throws Exception {
+        final Random random = new Random(42);
+        final int[] rowNumbers = new int[NO_OF_ROWS];
+        for (int i = 0; i < NO_OF_ROWS; i++) {
+            rowNumbers[i] = i;
+        }
+        for (int i = 0; i < NO_OF_ROWS; i++) {
+            final int r = random.nextInt(i + 1);
+            final int swap = rowNumbers[r];
+            rowNumbers[r] = rowNumbers[i];
+            rowNumbers[i] = swap;
+        }
+        final Integer[] expected = new Integer[NO_OF_ROWS];
+        for (int i = 0; i < NO_OF_ROWS; i++) {
+            expected[rowNumbers[i]] = i;
+        }
+        assertEquals(Arrays.asList(expected), getValues(Shuffler.shuffleBySorting(m_table, m_exec, 42)));
+    }
+
+    /**
+     * Tests that an empty table is shuffled.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testShuffleEmptyTable() throws Exception {
+        final BufferedDataContainer cont = m_exec.createDataContainer(m_table.getDataTableSpec());
+        cont.close();
+        assertEquals(0, Shuffler.shuffle(cont.getTable(), m_exec, 42).size());
+    }
+
+    private static List<Integer> getValues(final BufferedDataTable table) {
+        final List<Integer> values = new ArrayList<>();
+        for (DataRow row : table) {
+            final int value = ((IntCell)row.getCell(0)).getIntValue();
+            assertEquals("Row key doesn't match cell", "Row" + value, row.getKey().getString());
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static void assertPermutation(final List<Integer> values) {
+        assertEquals(NO_OF_ROWS, values.size());
+        final boolean[] seen = new boolean[NO_OF_ROWS];
+        for (int value : values) {
+            assertEquals("Duplicate row " + value, false, seen[value]);
+            seen[value] = true;
+        }
+    }
+}
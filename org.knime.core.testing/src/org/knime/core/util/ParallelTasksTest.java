@@ -0,0 +1,246 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.core.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.util.ParallelTasks.Task;
+
+/**
+ * Tests for {@link ParallelTasks}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public class ParallelTasksTest {
+
+    private static ThreadPool POOL;
+
+    /**
+     * Creates the thread pool.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        POOL = new ThreadPool(4);
+    }
+
+    /**
+     * Shuts the thread pool down.
+     */
+    @AfterClass
+    public static void tearDownAfterClass() {
+        POOL.shutdown();
+        POOL = null;
+    }
+
+    /**
+     * Tests that each task is run exactly once, on and off a thread pool.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testForEach() throws Exception {
+        final AtomicIntegerArray counts = new AtomicIntegerArray(100);
+        ParallelTasks.forEach(counts.length(), counts::incrementAndGet);
+        POOL.enqueue(() -> {
+            ParallelTasks.forEach(counts.length(), counts::incrementAndGet);
+            return null;
+        }).get();
+        for (int i = 0; i < counts.length(); i++) {
+            assertEquals(2, counts.get(i));
+        }
+    }
+
+    /**
+     * Tests that the results are returned in the order of the tasks.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testInvokeAll() throws Exception {
+        final List<Task<Integer, InterruptedException>> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int value = i;
+            tasks.add(() -> {
+                Thread.sleep((value * 7) % 5);
+                return value;
+            });
+        }
+        final List<Integer> results = POOL.enqueue(() -> ParallelTasks.invokeAll(tasks)).get();
+        assertEquals(50, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).intValue());
+        }
+    }
+
+    /**
+     * Tests that the results are consumed in the order of the tasks.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testInvokeOrdered() throws Exception {
+        final int nrTasks = 200;
+        final int[] consumed = POOL.enqueue(() -> {
+            final AtomicInteger next = new AtomicInteger();
+            final int[] results = new int[nrTasks];
+            final AtomicInteger nrResults = new AtomicInteger();
+            ParallelTasks.<Integer, InterruptedException> invokeOrdered(() -> {
+                final int value = next.getAndIncrement();
+                if (value == nrTasks) {
+                    return null;
+                }
+                return () -> {
+                    Thread.sleep(value % 3);
+                    return value;
+                };
+            }, result -> results[nrResults.getAndIncrement()] = result);
+            return results;
+        }).get();
+        final int[] expected = new int[nrTasks];
+        for (int i = 0; i < nrTasks; i++) {
+            expected[i] = i;
+        }
+        assertArrayEquals(expected, consumed);
+    }
+
+    /**
+     * Tests that the checked exception of a task is rethrown unwrapped.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testCheckedException() throws Exception {
+        final boolean thrown = POOL.enqueue(() -> {
+            try {
+                ParallelTasks.forEach(8, i -> {
+                    if (i == 5) {
+                        throw new IOException("Task " + i);
+                    }
+                });
+            } catch (IOException e) {
+                assertEquals("Task 5", e.getMessage());
+                return true;
+            }
+            return false;
+        }).get();
+        assertTrue(thrown);
+    }
+
+    /**
+     * Tests that runtime exceptions and cancellations of a task are rethrown unwrapped.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testUncheckedException() throws Exception {
+        try {
+            POOL.enqueue(() -> {
+                ParallelTasks.forEach(8, i -> {
+                    if (i == 3) {
+                        throw new IllegalArgumentException("Task " + i);
+                    }
+                });
+                return null;
+            }).get();
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            assertEquals("Task 3", e.getCause().getMessage());
+        }
+        try {
+            POOL.enqueue(() -> {
+                ParallelTasks.forEach(8, i -> {
+                    throw new CanceledExecutionException("Task " + i);
+                });
+                return null;
+            }).get();
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CanceledExecutionException);
+        }
+    }
+
+    /**
+     * Tests that an interrupted task is reported as cancellation.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testInterrupt() throws Exception {
+        final boolean canceled = POOL.enqueue(() -> {
+            try {
+                ParallelTasks.forEach(4, i -> {
+                    if (i == 2) {
+                        Thread.currentThread().interrupt();
+                        Thread.sleep(1);
+                    }
+                });
+            } catch (CanceledExecutionException e) {
+                // the interrupt flag of the calling thread is set, clear it before the worker is reused
+                assertTrue(Thread.interrupted());
+                return true;
+            }
+            return false;
+        }).get();
+        assertTrue(canceled);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
@@ -46,8 +46,11 @@
  */
 package org.knime.core.data;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.knime.core.data.container.BlobWrapperDataCell;
@@ -55,17 +58,36 @@
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.util.ParallelTasks;
+import org.knime.core.util.ParallelTasks.Task;
+import org.knime.core.util.ThreadPool;
 
 /**
  * Create or recreate domain of a data table. The original spec has to be given in the constructor. The possible values
  * and minimum and maximum values are subsequently updated by calling {@link #updateDomain(DataRow)} or
  * {@link #updateDomain(DataTable, ExecutionMonitor, int)}. Finally the resulting spec including updated domains is
- * created by calling {@link #createSpec()}.
+ * created by calling {@link #createSpec()}. Domains of different parts of a table can be computed by separate creators
+ * and combined via {@link #merge(DataTableDomainCreator)}.
  *
  * @author Heiko Hofer
  * @since 2.10
  */
 public class DataTableDomainCreator {
+    /** Number of rows that are processed by one partial domain when a table is scanned concurrently. */
+    private static final int ROWS_PER_PARTIAL_DOMAIN = 10000;
+
+    /** Bounds that are compared by the column's comparator. */
+    private static final int GENERIC_BOUNDS = 0;
+
+    /** Bounds that are compared by their double value, see {@link DoubleValueComparator}. */
+    private static final int DOUBLE_BOUNDS = 1;
+
+    /** Bounds that are compared by their int value, see {@link IntValueComparator}. */
+    private static final int INT_BOUNDS = 2;
+
+    /** Bounds that are compared by their long value, see {@link LongValueComparator}. */
+    private static final int LONG_BOUNDS = 3;
+
     /** Defines columns to recreate or drop domain values. */
     private final DomainCreatorColumnSelection m_domainValuesColumnSelection;
 
@@ -85,6 +107,19 @@ public class DataTableDomainCreator {
 
     private final DataValueComparator[] m_comparators;
 
+    /** How the min and max values of each column are compared, one of the <code>..._BOUNDS</code> constants. */
+    private final int[] m_boundTypes;
+
+    /** The min and max values of columns with {@link #DOUBLE_BOUNDS}, valid if the respective cell is not missing. */
+    private final double[] m_doubleMins;
+
+    private final double[] m_doubleMaxs;
+
+    /** The min and max values of columns with int or long bounds, valid if the respective cell is not missing. */
+    private final long[] m_longMins;
+
+    private final long[] m_longMaxs;
+
     /**
      * A new instance that recreates the domain of certains columns. Which columns are processed and if the domains
      * should be initialized with the domain from the incoming table can be controlled by the two
@@ -103,6 +138,11 @@ public DataTableDomainCreator(final DataTableSpec inputSpec,
         m_maxs = new DataCell[inputSpec.getNumColumns()];
         m_possVals = new LinkedHashSet[inputSpec.getNumColumns()];
         m_comparators = new DataValueComparator[inputSpec.getNumColumns()];
+        m_boundTypes = new int[inputSpec.getNumColumns()];
+        m_doubleMins = new double[inputSpec.getNumColumns()];
+        m_doubleMaxs = new double[inputSpec.getNumColumns()];
+        m_longMins = new long[inputSpec.getNumColumns()];
+        m_longMaxs = new long[inputSpec.getNumColumns()];
         m_domainValuesColumnSelection = domainValuesColumnSelection;
         m_domainMinMaxColumnSelection = domainMinMaxColumnSelection;
         m_maxPossibleValues = DataContainer.MAX_POSSIBLE_VALUES;
@@ -134,6 +174,10 @@ public DataTableDomainCreator(final DataTableSpec inputSpec,
                     }
                 }
                 m_comparators[i] = colSpec.getType().getComparator();
+                m_boundTypes[i] = getBoundType(m_comparators[i]);
+                if (!(initPrimitiveBound(i, m_mins[i], true) && initPrimitiveBound(i, m_maxs[i], false))) {
+                    m_boundTypes[i] = GENERIC_BOUNDS;
+                }
             }
             i++;
         }
@@ -171,6 +215,86 @@ public boolean dropDomain(final DataColumnSpec colSpec) {
         });
     }
 
+    /**
+     * A new instance with an empty domain that processes the same columns as the given creator, used to compute a
+     * partial domain that is merged into the given creator afterwards. Columns for which the given creator already has
+     * too many possible values are not tracked.
+     *
+     * @param template the creator whose settings are copied
+     */
+    @SuppressWarnings("unchecked")
+    private DataTableDomainCreator(final DataTableDomainCreator template) {
+        final int nrColumns = template.m_inputSpec.getNumColumns();
+        m_inputSpec = template.m_inputSpec;
+        m_mins = new DataCell[nrColumns];
+        m_maxs = new DataCell[nrColumns];
+        m_possVals = new LinkedHashSet[nrColumns];
+        m_comparators = template.m_comparators;
+        m_boundTypes = template.m_boundTypes.clone();
+        m_doubleMins = new double[nrColumns];
+        m_doubleMaxs = new double[nrColumns];
+        m_longMins = new long[nrColumns];
+        m_longMaxs = new long[nrColumns];
+        m_domainValuesColumnSelection = template.m_domainValuesColumnSelection;
+        m_domainMinMaxColumnSelection = template.m_domainMinMaxColumnSelection;
+        m_maxPossibleValues = template.m_maxPossibleValues;
+
+        for (int i = 0; i < nrColumns; i++) {
+            if (template.m_possVals[i] != null) {
+                m_possVals[i] = new LinkedHashSet<DataCell>();
+            }
+            if (template.m_mins[i] != null) {
+                m_mins[i] = DataType.getMissingCell();
+                m_maxs[i] = DataType.getMissingCell();
+            }
+        }
+    }
+
+    private static int getBoundType(final DataValueComparator comparator) {
+        if (comparator.getClass() == DoubleValueComparator.class) {
+            return DOUBLE_BOUNDS;
+        } else if (comparator.getClass() == IntValueComparator.class) {
+            return INT_BOUNDS;
+        } else if (comparator.getClass() == LongValueComparator.class) {
+            return LONG_BOUNDS;
+        } else {
+            return GENERIC_BOUNDS;
+        }
+    }
+
+    /**
+     * Sets the primitive copy of an initial min or max value.
+     *
+     * @return <code>false</code> if the value cannot be represented as the column's primitive bound
+     */
+    private boolean initPrimitiveBound(final int col, final DataCell bound, final boolean isMin) {
+        if (bound.isMissing()) {
+            return true;
+        }
+        switch (m_boundTypes[col]) {
+            case DOUBLE_BOUNDS:
+                if (!(bound instanceof DoubleValue)) {
+                    return false;
+                }
+                (isMin ? m_doubleMins : m_doubleMaxs)[col] = ((DoubleValue)bound).getDoubleValue();
+                return true;
+            case INT_BOUNDS:
+                if (!(bound instanceof IntValue)) {
+                    return false;
+                }
+                (isMin ? m_longMins : m_longMaxs)[col] = ((IntValue)bound).getIntValue();
+                return true;
+            case LONG_BOUNDS:
+                if (!(bound instanceof LongValue)) {
+                    return false;
+                }
+                (isMin ? m_longMins : m_longMaxs)[col] = ((LongValue)bound).getLongValue();
+                return true;
+            default:
+                return true;
+        }
+    }
+
     /**
      * Set the maximum number of possible values in the domain of a nominal value columns.
      *
@@ -190,24 +314,74 @@ public void setMaxPossibleValues(final int maxValues) {
      * @param col the column of interest
      * @param cell the new value to check
      */
-    private void updateMinMax(final int col, final DataCell cell, final DataCell[] mins, final DataCell[] maxs,
-        final DataValueComparator[] comparators) {
-        if (mins[col] == null || cell.isMissing()) {
+    private void updateMinMax(final int col, final DataCell cell) {
+        if (m_mins[col] == null || cell.isMissing()) {
             return;
         }
 
         final DataCell unwrapped = (cell instanceof BlobWrapperDataCell) ? ((BlobWrapperDataCell)cell).getCell() : cell;
 
+        switch (m_boundTypes[col]) {
+            case DOUBLE_BOUNDS:
+                if (unwrapped instanceof DoubleValue) {
+                    updateDoubleMinMax(col, unwrapped, ((DoubleValue)unwrapped).getDoubleValue());
+                    return;
+                }
+                break;
+            case INT_BOUNDS:
+                if (unwrapped instanceof IntValue) {
+                    updateLongMinMax(col, unwrapped, ((IntValue)unwrapped).getIntValue());
+                    return;
+                }
+                break;
+            case LONG_BOUNDS:
+                if (unwrapped instanceof LongValue) {
+                    updateLongMinMax(col, unwrapped, ((LongValue)unwrapped).getLongValue());
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
         if (isNaN(unwrapped)) {
             return;
         }
 
-        Comparator<DataCell> comparator = comparators[col];
-        if (mins[col].isMissing() || (comparator.compare(unwrapped, mins[col]) < 0)) {
-            mins[col] = unwrapped;
+        // the primitive bounds can't represent this cell
+        m_boundTypes[col] = GENERIC_BOUNDS;
+        Comparator<DataCell> comparator = m_comparators[col];
+        if (m_mins[col].isMissing() || (comparator.compare(unwrapped, m_mins[col]) < 0)) {
+            m_mins[col] = unwrapped;
+        }
+        if (m_maxs[col].isMissing() || (comparator.compare(unwrapped, m_maxs[col]) > 0)) {
+            m_maxs[col] = unwrapped;
+        }
+    }
+
+    /** Same as the generic update with a {@link DoubleValueComparator}, which uses {@link Double#compare}. */
+    private void updateDoubleMinMax(final int col, final DataCell cell, final double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (m_mins[col].isMissing() || (Double.compare(value, m_doubleMins[col]) < 0)) {
+            m_mins[col] = cell;
+            m_doubleMins[col] = value;
         }
-        if (maxs[col].isMissing() || (comparator.compare(unwrapped, maxs[col]) > 0)) {
-            maxs[col] = unwrapped;
+        if (m_maxs[col].isMissing() || (Double.compare(value, m_doubleMaxs[col]) > 0)) {
+            m_maxs[col] = cell;
+            m_doubleMaxs[col] = value;
+        }
+    }
+
+    private void updateLongMinMax(final int col, final DataCell cell, final long value) {
+        if (m_mins[col].isMissing() || (value < m_longMins[col])) {
+            m_mins[col] = cell;
+            m_longMins[col] = value;
+        }
+        if (m_maxs[col].isMissing() || (value > m_longMaxs[col])) {
+            m_maxs[col] = cell;
+            m_longMaxs[col] = value;
         }
     }
 
@@ -215,6 +389,17 @@ private boolean isNaN(final DataCell cell) {
         return cell instanceof DoubleValue && Double.isNaN(((DoubleValue)cell).getDoubleValue());
     }
 
+    /**
+     * Adds a possible value of a column. Gives up on the column's possible values as soon as there are more than the
+     * maximum number of them.
+     */
+    private void addPossibleValue(final int col, final DataCell cell) {
+        final Set<DataCell> values = m_possVals[col];
+        if (values.add(cell) && (values.size() > m_maxPossibleValues)) {
+            m_possVals[col] = null;
+        }
+    }
+
     /**
      * Creates an updated version of the input spec. The domains of all configured columns are set according to the data
      * that has been processed by {@link #updateDomain(DataRow)} or
@@ -268,12 +453,46 @@ public void updateDomain(final DataRow row) {
         int i = 0;
         for (DataCell c : row) {
             if (!c.isMissing() && m_possVals[i] != null) {
-                if (m_possVals[i].add(c) && (m_possVals[i].size() > m_maxPossibleValues)) {
+                addPossibleValue(i, c);
+            }
+            updateMinMax(i, c);
+            i++;
+        }
+    }
+
+    /**
+     * Merges the domain that has been collected by another creator into this one. This way the domains of different
+     * parts of a table can be computed concurrently and combined afterwards. The other creator must have been created
+     * for the same spec with the same column selections and maximum number of possible values. Merging the creators of
+     * consecutive parts of a table in the order of the parts results in the same domain as updating a single creator
+     * with all rows, including the order of the possible values.
+     *
+     * @param other a creator whose domain is added to this creator's domain, it is not modified
+     * @since 3.6
+     */
+    public void merge(final DataTableDomainCreator other) {
+        if (!m_inputSpec.equalStructure(other.m_inputSpec)) {
+            throw new IllegalArgumentException("Spec of domain to merge does not match spec given in constructor");
+        }
+
+        for (int i = 0; i < m_possVals.length; i++) {
+            if (m_possVals[i] != null) {
+                if (other.m_possVals[i] == null) {
+                    // the other domain had too many possible values
                     m_possVals[i] = null;
+                } else {
+                    for (DataCell c : other.m_possVals[i]) {
+                        addPossibleValue(i, c);
+                        if (m_possVals[i] == null) {
+                            break;
+                        }
+                    }
                 }
             }
-            updateMinMax(i, c, m_mins, m_maxs, m_comparators);
-            i++;
+            if (other.m_mins[i] != null) {
+                updateMinMax(i, other.m_mins[i]);
+                updateMinMax(i, other.m_maxs[i]);
+            }
         }
     }
 
@@ -337,7 +556,7 @@ public void updateDomain(final DataTable table, final ExecutionMonitor exec, fin
 
     /**
      * Updates the domain values by scanning a whole table. Note that the table's structure must match the table spec
-     * that has been provided to the constructor.
+     * that has been provided to the constructor. Larger tables are scanned concurrently on the current thread pool.
      *
      * @param table the table to be processed
      * @param exec an execution monitor to check for cancellation and report progress. Might be <code>null</code> if not
@@ -346,6 +565,50 @@ public void updateDomain(final DataTable table, final ExecutionMonitor exec, fin
      */
     public void updateDomain(final BufferedDataTable table, final ExecutionMonitor exec)
         throws CanceledExecutionException {
-        updateDomain(table, exec, table.size());
+        final long rowCount = table.size();
+        if (ThreadPool.currentPool() == null || Runtime.getRuntime().availableProcessors() < 2
+            || rowCount < 2 * ROWS_PER_PARTIAL_DOMAIN) {
+            updateDomain(table, exec, rowCount);
+            return;
+        }
+        if (!m_inputSpec.equalStructure(table.getDataTableSpec())) {
+            throw new IllegalArgumentException("Spec of table to scan does not match spec given in constructor");
+        }
+
+        //the chunks of the table are scanned concurrently by partial domains that are merged in the order of the
+        //chunks, which results in the same domain as scanning the table row by row
+        final Iterator<DataRow> rowIt = table.iterator();
+        final long[] row = new long[1];
+        ParallelTasks.<DataTableDomainCreator, RuntimeException> invokeOrdered(() -> {
+            if (row[0] > 0 && exec != null) {
+                exec.checkCanceled();
+                exec.setProgress(Math.min(row[0] / (double)rowCount, 1.0), "Row " + row[0] + "/" + rowCount);
+            }
+            final List<DataRow> chunk = new ArrayList<>(ROWS_PER_PARTIAL_DOMAIN);
+            while (chunk.size() < ROWS_PER_PARTIAL_DOMAIN && rowIt.hasNext()) {
+                chunk.add(rowIt.next());
+            }
+            row[0] += chunk.size();
+            return chunk.isEmpty() ? null : createPartialDomain(chunk);
+        }, this::merge);
+
+        if (exec != null) {
+            exec.checkCanceled();
+            exec.setProgress(1.0);
+        }
+    }
+
+    /**
+     * Creates a task that computes the domain of the given rows. The partial domain is created right away, so it skips
+     * all columns for which this creator already has too many possible values.
+     */
+    private Task<DataTableDomainCreator, RuntimeException> createPartialDomain(final List<DataRow> rows) {
+        final DataTableDomainCreator partialDomain = new DataTableDomainCreator(this);
+        return () -> {
+            for (final DataRow row : rows) {
+                partialDomain.updateDomain(row);
+            }
+            return partialDomain;
+        };
     }
 }
@@ -49,6 +49,7 @@
 package org.knime.core.data.sort;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -57,25 +58,44 @@
 import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.data.container.ColumnRearranger;
 import org.knime.core.data.container.SingleCellFactory;
 import org.knime.core.data.def.IntCell;
+import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.util.CheckUtils;
+import org.knime.core.util.ParallelTasks;
 
 /**
  * Implementation of the Fisher Yates shuffle, that guarantees that all n!
  * possible outcomes are possible and equally likely. The shuffling procedure
  * requires only linear runtime. For further details see "Fisher-Yates shuffle",
  * from Dictionary of Algorithms and Data Structures, Paul E. Black, ed., NIST.
+ * <p>
+ * Tables that don't fit into memory are shuffled externally: each row is scattered into one of several buckets
+ * on disk that is chosen uniformly at random. Buckets that are still too large are scattered again, until every
+ * bucket can be shuffled in memory. Then the buckets are shuffled one by one and concatenated. Since the bucket sizes
+ * are random as well, the result is still a uniformly distributed permutation of the table. The buckets are shuffled
+ * concurrently.
  *
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
  * @since 3.6
  */
 public final class Shuffler {
 
+    /** The number of cells a bucket should contain at most so that it can be shuffled in memory. */
+    private static final int CELLS_PER_BUCKET = 1 << 20;
+
+    /**
+     * The maximum number of buckets a table is scattered into at once, which are all open for writing. Larger tables
+     * are scattered again bucket by bucket.
+     */
+    private static final int MAX_NO_OF_BUCKETS = 256;
+
     private Shuffler() {
         // static utility class
     }
@@ -93,6 +113,26 @@ private Shuffler() {
      * @since 3.6
      */
     public static BufferedDataTable shuffle(final BufferedDataTable table, final ExecutionContext exec, final long seed) throws CanceledExecutionException {
+        final int noOfCols = Math.max(1, table.getDataTableSpec().getNumColumns());
+        return shuffle(table, exec, seed, Math.max(1, CELLS_PER_BUCKET / noOfCols), MAX_NO_OF_BUCKETS);
+    }
+
+    /**
+     * Shuffles the <b>table</b> with the permutation that previous versions created for the same <b>seed</b>. A
+     * column of random row numbers is appended to the table, the table is sorted by this column and the column is
+     * removed again. This is considerably slower than {@link #shuffle(BufferedDataTable, ExecutionContext, long)},
+     * use it only to reproduce the results of existing workflows.
+     *
+     * @param table the table to shuffle
+     * @param exec execution context use for creating tables and reporting progress
+     * @param seed random seed for permutation generation
+     * @return the shuffled table
+     * @throws CanceledExecutionException
+     *
+     * @since 3.6
+     */
+    public static BufferedDataTable shuffleBySorting(final BufferedDataTable table, final ExecutionContext exec,
+        final long seed) throws CanceledExecutionException {
         CheckUtils.checkArgument(table.size() <= Integer.MAX_VALUE,
                 "It's currently not possible to shuffle tables with more than Integer.MAX_VALUE rows.");
 
@@ -115,6 +155,161 @@ public static BufferedDataTable shuffle(final BufferedDataTable table, final Exe
                         .createSubProgress(.05));
     }
 
+    /**
+     * Shuffles the table, scattering it into buckets of at most <b>rowsPerBucket</b> rows if it contains more rows.
+     *
+     * @param table the table to shuffle
+     * @param exec execution context use for creating tables and reporting progress
+     * @param seed random seed for permutation generation
+     * @param rowsPerBucket the number of rows that may be shuffled in memory
+     * @param maxNoOfBuckets the maximum number of buckets a table is scattered into at once, at least 2
+     * @return the shuffled table
+     * @throws CanceledExecutionException
+     */
+    static BufferedDataTable shuffle(final BufferedDataTable table, final ExecutionContext exec, final long seed,
+        final int rowsPerBucket, final int maxNoOfBuckets) throws CanceledExecutionException {
+        CheckUtils.checkArgument(table.size() <= Integer.MAX_VALUE,
+                "It's currently not possible to shuffle tables with more than Integer.MAX_VALUE rows.");
+        final List<BufferedDataTable> buckets = new ArrayList<>();
+        final List<Long> bucketSeeds = new ArrayList<>();
+        final BufferedDataContainer result = exec.createDataContainer(table.getDataTableSpec());
+        try {
+            if (table.size() <= rowsPerBucket) {
+                buckets.add(table);
+                bucketSeeds.add(seed);
+            } else {
+                scatter(table, seed, rowsPerBucket, maxNoOfBuckets, buckets, bucketSeeds,
+                    exec.createSubExecutionContext(0.5));
+            }
+            gather(buckets, bucketSeeds, result, exec.createSubExecutionContext(0.5));
+        } finally {
+            result.close();
+            for (BufferedDataTable bucket : buckets) {
+                if (bucket != table) {
+                    exec.clearTable(bucket);
+                }
+            }
+        }
+        return result.getTable();
+    }
+
+    /**
+     * Writes each row of the table to a randomly chosen bucket on disk. The buckets that fit into memory are appended
+     * to <b>buckets</b>, the others are scattered recursively. The seeds for shuffling the buckets are appended to
+     * <b>bucketSeeds</b>.
+     */
+    private static void scatter(final BufferedDataTable table, final long seed, final int rowsPerBucket,
+        final int maxNoOfBuckets, final List<BufferedDataTable> buckets, final List<Long> bucketSeeds,
+        final ExecutionContext exec) throws CanceledExecutionException {
+        final double noOfRows = table.size();
+        // the buckets are only half filled on average, so that few of them need to be scattered again
+        final int noOfBuckets = (int)Math.min(maxNoOfBuckets, Math.ceil(2 * noOfRows / rowsPerBucket));
+        final Random random = new Random(seed);
+        // the seeds of the buckets are drawn up front so that the result doesn't depend on the thread scheduling
+        final long[] seeds = new long[noOfBuckets];
+        for (int i = 0; i < noOfBuckets; i++) {
+            seeds[i] = random.nextLong();
+        }
+        final DataTableSpec spec = table.getDataTableSpec();
+        final BufferedDataContainer[] containers = new BufferedDataContainer[noOfBuckets];
+        for (int i = 0; i < noOfBuckets; i++) {
+            containers[i] = exec.createDataContainer(spec, false, 0);
+        }
+        final ExecutionMonitor scatterExec = exec.createSubProgress(0.5);
+        long rowIdx = 0;
+        try {
+            for (DataRow row : table) {
+                containers[random.nextInt(noOfBuckets)].addRowToTable(row);
+                exec.checkCanceled();
+                scatterExec.setProgress(++rowIdx / noOfRows, "Scattering row " + rowIdx);
+            }
+        } catch (CanceledExecutionException | RuntimeException e) {
+            for (BufferedDataContainer container : containers) {
+                container.close();
+                exec.clearTable(container.getTable());
+            }
+            throw e;
+        }
+        final BufferedDataTable[] scattered = new BufferedDataTable[noOfBuckets];
+        for (int i = 0; i < noOfBuckets; i++) {
+            containers[i].close();
+            scattered[i] = containers[i].getTable();
+        }
+        int i = 0;
+        try {
+            for (; i < noOfBuckets; i++) {
+                if (scattered[i].size() <= rowsPerBucket) {
+                    buckets.add(scattered[i]);
+                    bucketSeeds.add(seeds[i]);
+                } else {
+                    try {
+                        scatter(scattered[i], seeds[i], rowsPerBucket, maxNoOfBuckets, buckets, bucketSeeds,
+                            exec.createSubExecutionContext(0.5 * scattered[i].size() / noOfRows));
+                    } finally {
+                        exec.clearTable(scattered[i]);
+                    }
+                }
+            }
+        } finally {
+            // clear the buckets that haven't been handed on in case of a failure
+            for (int j = i + 1; j < noOfBuckets; j++) {
+                exec.clearTable(scattered[j]);
+            }
+        }
+    }
+
+    /**
+     * Shuffles the buckets concurrently and writes them in their order to the result.
+     */
+    private static void gather(final List<BufferedDataTable> buckets, final List<Long> bucketSeeds,
+        final BufferedDataContainer result, final ExecutionContext exec) throws CanceledExecutionException {
+        final int[] next = new int[1];
+        final int[] written = new int[1];
+        ParallelTasks.<List<DataRow>, RuntimeException> invokeOrdered(() -> {
+            if (next[0] == buckets.size()) {
+                return null;
+            }
+            final int i = next[0]++;
+            return () -> readAndShuffle(buckets.get(i), bucketSeeds.get(i), null);
+        }, rows -> writeBucket(rows, written[0]++, buckets.size(), result, exec));
+    }
+
+    private static void writeBucket(final List<DataRow> rows, final int bucketIdx, final int noOfBuckets,
+        final BufferedDataContainer result, final ExecutionContext exec) throws CanceledExecutionException {
+        for (DataRow row : rows) {
+            result.addRowToTable(row);
+        }
+        exec.checkCanceled();
+        exec.setProgress((bucketIdx + 1) / (double)noOfBuckets,
+            "Shuffled bucket " + (bucketIdx + 1) + " of " + noOfBuckets);
+    }
+
+    /**
+     * Reads the table into memory and shuffles it.
+     *
+     * @param table the table to read, must fit into memory
+     * @param seed the seed for the permutation
+     * @param exec the monitor to check for cancelation, may be <code>null</code>
+     * @return the shuffled rows
+     */
+    private static List<DataRow> readAndShuffle(final BufferedDataTable table, final long seed,
+        final ExecutionMonitor exec) throws CanceledExecutionException {
+        final List<DataRow> rows = new ArrayList<>((int)table.size());
+        final double noOfRows = table.size();
+        try (CloseableRowIterator iterator = table.iterator()) {
+            while (iterator.hasNext()) {
+                rows.add(iterator.next());
+                if (exec != null) {
+                    exec.checkCanceled();
+                    exec.setProgress(rows.size() / noOfRows, "Reading row " + rows.size());
+                }
+            }
+        }
+        // Collections.shuffle implements the Fisher Yates shuffle
+        Collections.shuffle(rows, new Random(seed));
+        return rows;
+    }
+
 
     /*
      * The CellFactory adds a shuffled number to each input DataRow.
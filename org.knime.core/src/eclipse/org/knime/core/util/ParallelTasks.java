@@ -0,0 +1,303 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.core.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.knime.core.node.CanceledExecutionException;
+
+/**
+ * Runs tasks concurrently on the {@link ThreadPool#currentPool() current thread pool}. The calling thread only
+ * submits the tasks and waits for them, it is therefore made
+ * {@link ThreadPool#runInvisible(java.util.concurrent.Callable) invisible} while doing so. If the calling thread does
+ * not belong to a thread pool, the tasks are run one after another on the calling thread.
+ *
+ * <p>
+ * All methods handle failures the same way: the remaining tasks are canceled and the exception of the failed task is
+ * rethrown unwrapped. A {@link CanceledExecutionException} is passed through, an interrupt of the calling thread or
+ * of a task is reported as {@link CanceledExecutionException} (the interrupt flag of the calling thread is restored).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 3.6
+ */
+public final class ParallelTasks {
+
+    /**
+     * A task with a result.
+     *
+     * @param <R> the type of the result
+     * @param <E> the type of the checked exception the task may throw
+     */
+    @FunctionalInterface
+    public interface Task<R, E extends Exception> {
+        /**
+         * @return the result of the task
+         * @throws E if the task fails
+         * @throws CanceledExecutionException if the task has been canceled
+         */
+        R call() throws E, CanceledExecutionException;
+    }
+
+    /**
+     * A task that is identified by its index.
+     *
+     * @param <E> the type of the checked exception the task may throw
+     */
+    @FunctionalInterface
+    public interface IndexTask<E extends Exception> {
+        /**
+         * @param index the index of the task
+         * @throws E if the task fails
+         * @throws CanceledExecutionException if the task has been canceled
+         */
+        void run(int index) throws E, CanceledExecutionException;
+    }
+
+    /**
+     * Creates the tasks of {@link ParallelTasks#invokeOrdered(TaskSource, ResultConsumer)} on the calling thread.
+     *
+     * @param <R> the type of the results of the tasks
+     * @param <E> the type of the checked exception the source and the tasks may throw
+     */
+    @FunctionalInterface
+    public interface TaskSource<R, E extends Exception> {
+        /**
+         * @return the next task or <code>null</code> if there are no more tasks
+         * @throws E if the task can't be created
+         * @throws CanceledExecutionException if the execution has been canceled
+         */
+        Task<R, E> next() throws E, CanceledExecutionException;
+    }
+
+    /**
+     * Receives the results of {@link ParallelTasks#invokeOrdered(TaskSource, ResultConsumer)} on the calling thread.
+     *
+     * @param <R> the type of the results
+     * @param <E> the type of the checked exception the consumer may throw
+     */
+    @FunctionalInterface
+    public interface ResultConsumer<R, E extends Exception> {
+        /**
+         * @param result the result of the next task
+         * @throws E if the result can't be processed
+         * @throws CanceledExecutionException if the execution has been canceled
+         */
+        void accept(R result) throws E, CanceledExecutionException;
+    }
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the tasks <code>0, ..., nrTasks - 1</code> concurrently and waits until all of them are finished.
+     *
+     * @param <E> the type of the checked exception the tasks may throw
+     * @param nrTasks the number of tasks
+     * @param task the task, it is run once for each index
+     * @throws E if a task fails
+     * @throws CanceledExecutionException if a task has been canceled or the calling thread has been interrupted
+     */
+    public static <E extends Exception> void forEach(final int nrTasks, final IndexTask<E> task)
+        throws E, CanceledExecutionException {
+        final ThreadPool pool = ThreadPool.currentPool();
+        if (pool == null || nrTasks < 2) {
+            for (int i = 0; i < nrTasks; i++) {
+                task.run(i);
+            }
+            return;
+        }
+        try {
+            pool.runInvisible(() -> {
+                final List<Future<Void>> futures = new ArrayList<>(nrTasks);
+                try {
+                    for (int i = 0; i < nrTasks; i++) {
+                        final int index = i;
+                        futures.add(pool.enqueue(() -> {
+                            task.run(index);
+                            return null;
+                        }));
+                    }
+                    for (final Future<Void> future : futures) {
+                        future.get();
+                    }
+                } finally {
+                    cancel(futures);
+                }
+                return null;
+            });
+        } catch (ExecutionException e) {
+            throw ParallelTasks.<E> unwrap(e);
+        }
+    }
+
+    /**
+     * Runs the tasks concurrently and waits until all of them are finished.
+     *
+     * @param <R> the type of the results of the tasks
+     * @param <E> the type of the checked exception the tasks may throw
+     * @param tasks the tasks to run
+     * @return the results of the tasks in the order of the tasks
+     * @throws E if a task fails
+     * @throws CanceledExecutionException if a task has been canceled or the calling thread has been interrupted
+     */
+    public static <R, E extends Exception> List<R> invokeAll(final List<? extends Task<R, E>> tasks)
+        throws E, CanceledExecutionException {
+        final List<R> results = new ArrayList<>(tasks.size());
+        final ThreadPool pool = ThreadPool.currentPool();
+        if (pool == null || tasks.size() < 2) {
+            for (final Task<R, E> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        }
+        try {
+            pool.runInvisible(() -> {
+                final List<Future<R>> futures = new ArrayList<>(tasks.size());
+                try {
+                    for (final Task<R, E> task : tasks) {
+                        futures.add(pool.enqueue(task::call));
+                    }
+                    for (final Future<R> future : futures) {
+                        results.add(future.get());
+                    }
+                } finally {
+                    cancel(futures);
+                }
+                return null;
+            });
+        } catch (ExecutionException e) {
+            throw ParallelTasks.<E> unwrap(e);
+        }
+        return results;
+    }
+
+    /**
+     * Runs the tasks of the source concurrently and passes their results to the consumer in the order of the tasks.
+     * The source and the consumer are called on the calling thread only. At most one task per available processor
+     * is run or waiting at any time, plus the one whose result is consumed next, which bounds the number of results
+     * that are held in memory.
+     *
+     * @param <R> the type of the results of the tasks
+     * @param <E> the type of the checked exception the source, the tasks and the consumer may throw
+     * @param source creates the tasks
+     * @param consumer receives the results
+     * @throws E if a task, the source or the consumer fails
+     * @throws CanceledExecutionException if a task has been canceled or the calling thread has been interrupted
+     */
+    public static <R, E extends Exception> void invokeOrdered(final TaskSource<R, E> source,
+        final ResultConsumer<R, E> consumer) throws E, CanceledExecutionException {
+        final ThreadPool pool = ThreadPool.currentPool();
+        final int nrThreads = Runtime.getRuntime().availableProcessors();
+        if (pool == null || nrThreads < 2) {
+            Task<R, E> task;
+            while ((task = source.next()) != null) {
+                consumer.accept(task.call());
+            }
+            return;
+        }
+        try {
+            pool.runInvisible(() -> {
+                final Deque<Future<R>> futures = new ArrayDeque<>();
+                try {
+                    Task<R, E> task;
+                    while ((task = source.next()) != null) {
+                        futures.add(pool.enqueue(task::call));
+                        while (futures.size() > nrThreads) {
+                            consumer.accept(futures.poll().get());
+                        }
+                    }
+                    while (!futures.isEmpty()) {
+                        consumer.accept(futures.poll().get());
+                    }
+                } finally {
+                    cancel(futures);
+                }
+                return null;
+            });
+        } catch (ExecutionException e) {
+            throw ParallelTasks.<E> unwrap(e);
+        }
+    }
+
+    private static void cancel(final Iterable<? extends Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Returns the checked exception that caused the execution exception, all other causes are thrown. The cast is
+     * safe as the tasks, sources and consumers can only throw checked exceptions of type <code>E</code> (apart from
+     * {@link CanceledExecutionException} and {@link InterruptedException}, which are handled here).
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> E unwrap(final ExecutionException e) throws CanceledExecutionException {
+        Throwable cause = e.getCause();
+        while (cause instanceof ExecutionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof CanceledExecutionException) {
+            throw (CanceledExecutionException)cause;
+        } else if (cause instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            final CanceledExecutionException canceled = new CanceledExecutionException("Execution interrupted");
+            canceled.initCause(cause);
+            throw canceled;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException)cause;
+        } else if (cause instanceof Error) {
+            throw (Error)cause;
+        } else if (cause instanceof Exception) {
+            return (E)cause;
+        }
+        throw new IllegalStateException(e);
+    }
+}
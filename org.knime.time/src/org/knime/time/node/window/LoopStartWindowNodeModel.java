@@ -59,7 +59,6 @@
 import java.time.format.DateTimeParseException;
 import java.time.temporal.Temporal;
 import java.time.temporal.TemporalAmount;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 
@@ -68,7 +67,6 @@
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
-import org.knime.core.data.RowKey;
 import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.data.time.localdate.LocalDateCell;
 import org.knime.core.data.time.localdatetime.LocalDateTimeCell;
@@ -76,6 +74,7 @@
 import org.knime.core.data.time.zoneddatetime.ZonedDateTimeCell;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.BufferedDataTableHolder;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
@@ -97,7 +96,7 @@
  *
  * @author Moritz Heine, KNIME GmbH, Konstanz, Germany
  */
-final class LoopStartWindowNodeModel extends NodeModel implements LoopStartNodeTerminator {
+final class LoopStartWindowNodeModel extends NodeModel implements LoopStartNodeTerminator, BufferedDataTableHolder {
 
     private final NodeLogger m_logger = NodeLogger.getLogger(LoopStartWindowNodeModel.class);
 
@@ -110,18 +109,21 @@ final class LoopStartWindowNodeModel extends NodeModel implements LoopStartNodeT
     // Input iterator
     private CloseableRowIterator m_rowIterator;
 
-    // number of columns
-    private int m_nColumns;
-
     // index of current row
     private long m_currRow;
 
     // number of rows
     private long m_rowCount;
 
-    // buffered rows used for overlapping
+    // buffered rows used for overlapping (time based windows)
     private LinkedList<DataRow> m_bufferedRows;
 
+    // spilled input rows used for overlapping (row based windows)
+    private WindowRowStore m_rowStore;
+
+    // number of rows consisting of missing cells created so far, used for their row keys
+    private long m_missingRowCounter;
+
     // Name of the chosen time column
     private String m_timeColumnName;
 
@@ -248,10 +250,13 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final Ex
         m_rowCount = table.size();
 
         if (m_currRow == 0) {
-            m_rowIterator = table.iterator();
-            m_bufferedRows = new LinkedList<>();
-
-            m_nColumns = table.getSpec().getNumColumns();
+            if (m_windowConfig.getTrigger().equals(Trigger.ROW)) {
+                m_rowStore = new WindowRowStore(table, m_windowConfig.getEventWindowSize(),
+                    m_windowConfig.getEventStepSize());
+            } else {
+                m_rowIterator = table.iterator();
+                m_bufferedRows = new LinkedList<>();
+            }
 
             if (m_rowCount == 0) {
                 BufferedDataContainer container = exec.createDataContainer(table.getSpec());
@@ -1254,232 +1259,90 @@ private Temporal getTemporal(final DataCell cell) {
     }
 
     /**
-     * Executes backward windowing.
+     * Executes backward windowing, i.e. the window ends with the current row.
      *
      * @param table input data
      * @param exec ExecutionContext
      * @return BufferedDataTable containing the current loop.
+     * @throws CanceledExecutionException if canceled
      */
-    private BufferedDataTable[] executeBackward(final BufferedDataTable table, final ExecutionContext exec) {
+    private BufferedDataTable[] executeBackward(final BufferedDataTable table, final ExecutionContext exec)
+        throws CanceledExecutionException {
         int windowSize = m_windowConfig.getEventWindowSize();
         int stepSize = m_windowConfig.getEventStepSize();
-        int currRowCount = 0;
-
-        BufferedDataContainer container = exec.createDataContainer(table.getSpec());
-
-        /* Jump to next following row if step size is greater than the window size. */
-        if (stepSize > windowSize && m_currRow > 0) {
-            int diff = stepSize - windowSize;
-
-            while (diff > 0 && m_rowIterator.hasNext()) {
-                m_rowIterator.next();
-                diff--;
-            }
-        }
 
         /* If window is limited, i.e. no missing rows shall be inserted, move the window until there are no missing rows. */
-        if (m_windowConfig.getLimitWindow() && m_currRow < windowSize) {
-            /* windowSize-1 are the number of rows we have in front of the considered row. */
-            long bufferStart = -(windowSize - 1);
-            long nextRow = m_currRow;
-
-            while (bufferStart < 0) {
-                bufferStart += stepSize;
-                nextRow += stepSize;
-            }
-
-            while (m_currRow < bufferStart && m_rowIterator.hasNext()) {
-                m_rowIterator.next();
-                m_currRow++;
-            }
-
-            while (m_currRow < nextRow && m_rowIterator.hasNext()) {
-                m_bufferedRows.add(m_rowIterator.next());
-                m_currRow++;
-            }
-        }
-
-        /* Add missing preceding rows to fill up the window at the beginning of the loop. */
-        while (container.size() < windowSize - (m_currRow + 1)) {
-            container.addRowToTable(new MissingRow(m_nColumns));
-            currRowCount++;
-        }
-
-        /* Add buffered rows that overlap. */
-        Iterator<DataRow> bufferedIterator = m_bufferedRows.iterator();
-
-        while (bufferedIterator.hasNext()) {
-            container.addRowToTable(bufferedIterator.next());
-
-            if (currRowCount < stepSize) {
-                bufferedIterator.remove();
-            }
-
-            currRowCount++;
-        }
-
-        /* Add newly read rows. */
-        for (; container.size() < windowSize && m_rowIterator.hasNext(); currRowCount++) {
-            DataRow dRow = m_rowIterator.next();
-
-            if (currRowCount >= stepSize) {
-                m_bufferedRows.add(dRow);
+        if (m_windowConfig.getLimitWindow()) {
+            while (m_currRow < windowSize - 1) {
+                m_currRow += stepSize;
             }
-
-            container.addRowToTable(dRow);
         }
 
-        m_currRow += stepSize;
-
-        container.close();
-
-        return new BufferedDataTable[]{container.getTable()};
+        return executeRowWindow(exec, m_currRow - (windowSize - 1), windowSize);
     }
 
     /**
-     * Executes central windowing
+     * Executes central windowing, i.e. the current row lies in the center of the window.
      *
      * @param table input data
      * @param exec ExecutionContext
      * @return BufferedDataTable containing the current loop.
+     * @throws CanceledExecutionException if canceled
      */
-    private BufferedDataTable[] executeCentral(final BufferedDataTable table, final ExecutionContext exec) {
+    private BufferedDataTable[] executeCentral(final BufferedDataTable table, final ExecutionContext exec)
+        throws CanceledExecutionException {
         int windowSize = m_windowConfig.getEventWindowSize();
         int stepSize = m_windowConfig.getEventStepSize();
-        int currRowCount = 0;
-
-        BufferedDataContainer container = exec.createDataContainer(table.getSpec());
-
-        /* Jump to next following row if step size is greater than the window size.*/
-        if (stepSize > windowSize && m_currRow > 0) {
-            int diff = stepSize - windowSize;
-
-            while (diff > 0 && m_rowIterator.hasNext()) {
-                m_rowIterator.next();
-                diff--;
-            }
-        }
 
         /* If window is limited, i.e. no missing rows shall be inserted, move the window until there are no missing rows. */
-        if (m_windowConfig.getLimitWindow() && m_currRow < Math.floorDiv(windowSize, 2)) {
-            long bufferStart = -Math.floorDiv(windowSize, 2);
-            long nextRow = m_currRow;
-
-            while (bufferStart < 0) {
-                bufferStart += stepSize;
-                nextRow += stepSize;
-            }
-
-            while (m_currRow < bufferStart && m_rowIterator.hasNext()) {
-                m_rowIterator.next();
-                m_currRow++;
-            }
-
-            while (m_currRow < nextRow && m_rowIterator.hasNext()) {
-                m_bufferedRows.add(m_rowIterator.next());
-                m_currRow++;
+        if (m_windowConfig.getLimitWindow()) {
+            while (m_currRow < Math.floorDiv(windowSize, 2)) {
+                m_currRow += stepSize;
             }
         }
 
-        /* Fill missing preceding rows with missing values. Only needed at the start of*/
-        while (container.size() < Math.floorDiv(windowSize, 2) - (m_currRow)) {
-            container.addRowToTable(new MissingRow(m_nColumns));
-            currRowCount++;
-        }
-
-        Iterator<DataRow> bufferedIterator = m_bufferedRows.iterator();
-
-        /* Add buffered rows that overlap. */
-        while (bufferedIterator.hasNext()) {
-            container.addRowToTable(bufferedIterator.next());
-
-            if (currRowCount < stepSize) {
-                bufferedIterator.remove();
-            }
-
-            currRowCount++;
-        }
-
-        /* Add newly read rows. */
-        for (; container.size() < windowSize && m_rowIterator.hasNext(); currRowCount++) {
-            DataRow dRow = m_rowIterator.next();
-
-            if (currRowCount >= stepSize) {
-                m_bufferedRows.add(dRow);
-            }
-
-            container.addRowToTable(dRow);
-        }
-
-        /* Add missing rows to fill up the window. */
-        while (container.size() < windowSize) {
-            container.addRowToTable(new MissingRow(m_nColumns));
-        }
-
-        m_currRow += stepSize;
-
-        container.close();
-
-        return new BufferedDataTable[]{container.getTable()};
+        return executeRowWindow(exec, m_currRow - Math.floorDiv(windowSize, 2), windowSize);
     }
 
     /**
-     * Executes forward windowing
+     * Executes forward windowing, i.e. the window starts with the current row.
      *
      * @param table input data
      * @param exec ExecutionContext
      * @return BufferedDataTable containing the current loop.
+     * @throws CanceledExecutionException if canceled
      */
-    private BufferedDataTable[] executeForward(final BufferedDataTable table, final ExecutionContext exec) {
-        int windowSize = m_windowConfig.getEventWindowSize();
-        int stepSize = m_windowConfig.getEventStepSize();
-        int currRowCount = 0;
-
-        /* Jump to next following row if step size is greater than the window size.*/
-        if (stepSize > windowSize && m_currRow > 0) {
-            int diff = stepSize - windowSize;
-
-            while (diff > 0 && m_rowIterator.hasNext()) {
-                m_rowIterator.next();
-                diff--;
-            }
-        }
-
-        BufferedDataContainer container = exec.createDataContainer(table.getSpec());
-        Iterator<DataRow> bufferedIterator = m_bufferedRows.iterator();
-
-        /* Add buffered rows that overlap. */
-        while (bufferedIterator.hasNext()) {
-            container.addRowToTable(bufferedIterator.next());
-
-            if (currRowCount < stepSize) {
-                bufferedIterator.remove();
-            }
-
-            currRowCount++;
-        }
-
-        /* Add newly read rows. */
-        for (; container.size() < windowSize && m_rowIterator.hasNext(); currRowCount++) {
-            DataRow dRow = m_rowIterator.next();
-
-            if (currRowCount >= stepSize) {
-                m_bufferedRows.add(dRow);
-            }
+    private BufferedDataTable[] executeForward(final BufferedDataTable table, final ExecutionContext exec)
+        throws CanceledExecutionException {
+        return executeRowWindow(exec, m_currRow, m_windowConfig.getEventWindowSize());
+    }
 
-            container.addRowToTable(dRow);
-        }
+    /**
+     * Returns the rows with index in [<code>windowStart</code>, <code>windowStart + windowSize</code>) as view on the
+     * row store and moves the current row by the step size. Positions outside of the input table are filled with
+     * rows consisting solely of missing cells.
+     *
+     * @param exec ExecutionContext
+     * @param windowStart index of the first row of the window, might be negative
+     * @param windowSize number of rows in the window
+     * @return BufferedDataTable containing the current loop.
+     * @throws CanceledExecutionException if canceled
+     */
+    private BufferedDataTable[] executeRowWindow(final ExecutionContext exec, final long windowStart,
+        final int windowSize) throws CanceledExecutionException {
+        long windowEnd = windowStart + windowSize;
+        long from = Math.min(Math.max(windowStart, 0), m_rowCount);
+        long to = Math.max(Math.min(windowEnd, m_rowCount), from);
+        int leadingMissing = (int)Math.min(Math.max(-windowStart, 0), windowSize);
+        int trailingMissing = (int)(windowSize - leadingMissing - (to - from));
 
-        /* Add missing rows to fill up the window. */
-        while (container.size() < windowSize) {
-            container.addRowToTable(new MissingRow(m_nColumns));
-        }
+        BufferedDataTable window =
+            m_rowStore.createWindow(exec, from, to, leadingMissing, trailingMissing, m_missingRowCounter);
+        m_missingRowCounter += leadingMissing + trailingMissing;
 
-        m_currRow += stepSize;
+        m_currRow += m_windowConfig.getEventStepSize();
 
-        container.close();
-
-        return new BufferedDataTable[]{container.getTable()};
+        return new BufferedDataTable[]{window};
     }
 
     /**
@@ -1488,7 +1351,7 @@ private BufferedDataTable[] executeForward(final BufferedDataTable table, final
     @Override
     protected void reset() {
         m_currRow = 0;
-        MissingRow.rowCounter = 0;
+        m_missingRowCounter = 0;
         m_lastWindow = false;
         m_printedMissingWarning = false;
 
@@ -1498,6 +1361,29 @@ protected void reset() {
 
         m_rowIterator = null;
         m_nextStartTemporal = null;
+
+        if (m_rowStore != null) {
+            m_rowStore.close();
+        }
+
+        m_rowStore = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BufferedDataTable[] getInternalTables() {
+        /* Keep the spilled blocks referenced by the current and upcoming windows between two iterations. */
+        if (m_rowStore != null) {
+            return m_rowStore.getTables();
+        }
+
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInternalTables(final BufferedDataTable[] tables) {
+        // ignore, can't persist loop start anyway
     }
 
     /** {@inheritDoc} */
@@ -1594,62 +1480,6 @@ protected void saveInternals(final File nodeInternDir, final ExecutionMonitor ex
         // no internals to save
     }
 
-    /**
-     * An InputRow with solely missing data cells, needed for different window definitions. Copied:
-     * org.knime.base.node.preproc.joiner.DataHiliteOutputContainer.Missing
-     *
-     * @author Heiko Hofer
-     */
-    static class MissingRow implements DataRow {
-        private DataCell[] m_cells;
-
-        private static int rowCounter = 0;
-
-        private static String rowName = "LSW_Missing_Row";
-
-        /**
-         * @param numCells The number of cells in the {@link DataRow}
-         */
-        public MissingRow(final int numCells) {
-            m_cells = new DataCell[numCells];
-            for (int i = 0; i < numCells; i++) {
-                m_cells[i] = DataType.getMissingCell();
-            }
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public RowKey getKey() {
-            return new RowKey(rowName + (rowCounter++));
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public DataCell getCell(final int index) {
-            return m_cells[index];
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int getNumCells() {
-            return m_cells.length;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public Iterator<DataCell> iterator() {
-            return Arrays.asList(m_cells).iterator();
-        }
-    }
-
     /**
      * @return settings model for column selection
      */
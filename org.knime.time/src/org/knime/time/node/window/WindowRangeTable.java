@@ -0,0 +1,320 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.time.node.window;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.ContainerTable;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.BufferedDataTable.KnowsRowCountTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.ExtensionTable;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+
+/**
+ * Table representing one window of the {@link LoopStartWindowNodeModel}. It does not hold any data itself but
+ * references a consecutive list of blocks of a {@link WindowRowStore}, the number of rows to skip in the first block
+ * and the number of rows to return. Rows consisting solely of missing cells can be put in front of and behind the
+ * referenced rows.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class WindowRangeTable extends ExtensionTable {
+
+    /** Prefix of the row keys of the rows consisting solely of missing cells. */
+    static final String MISSING_ROW_PREFIX = "LSW_Missing_Row";
+
+    private static final String CFG_BLOCK_IDS = "block_ids";
+
+    private static final String CFG_SKIP = "skip";
+
+    private static final String CFG_ROW_COUNT = "row_count";
+
+    private static final String CFG_LEADING_MISSING = "leading_missing";
+
+    private static final String CFG_TRAILING_MISSING = "trailing_missing";
+
+    private static final String CFG_MISSING_KEY_OFFSET = "missing_key_offset";
+
+    private final DataTableSpec m_spec;
+
+    private final BufferedDataTable[] m_blocks;
+
+    private final long m_skip;
+
+    private final long m_rowCount;
+
+    private final int m_leadingMissing;
+
+    private final int m_trailingMissing;
+
+    private final long m_missingKeyOffset;
+
+    /**
+     * Creates a new window.
+     *
+     * @param spec the spec of the table
+     * @param blocks the referenced blocks in order
+     * @param skip the number of rows to skip in the first block
+     * @param rowCount the number of rows to read from the blocks
+     * @param leadingMissing number of missing rows in front of the referenced rows
+     * @param trailingMissing number of missing rows behind the referenced rows
+     * @param missingKeyOffset the index used for the row key of the first missing row
+     */
+    WindowRangeTable(final DataTableSpec spec, final BufferedDataTable[] blocks, final long skip,
+        final long rowCount, final int leadingMissing, final int trailingMissing, final long missingKeyOffset) {
+        m_spec = spec;
+        m_blocks = blocks;
+        m_skip = skip;
+        m_rowCount = rowCount;
+        m_leadingMissing = leadingMissing;
+        m_trailingMissing = trailingMissing;
+        m_missingKeyOffset = missingKeyOffset;
+    }
+
+    /**
+     * Restores a window, see {@link ExtensionTable#ExtensionTable(ExtensionTable.LoadContext)}.
+     *
+     * @param context the load context
+     * @throws IOException If reading fails
+     * @throws CanceledExecutionException If canceled
+     * @throws InvalidSettingsException If the settings are invalid
+     */
+    private WindowRangeTable(final LoadContext context)
+        throws IOException, CanceledExecutionException, InvalidSettingsException {
+        super(context);
+        final NodeSettingsRO settings = context.getSettings();
+        m_spec = context.getTableSpec();
+        final int[] ids = settings.getIntArray(CFG_BLOCK_IDS);
+        m_blocks = new BufferedDataTable[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            m_blocks[i] = context.getTable(ids[i]);
+            if (m_blocks[i] == null) {
+                throw new InvalidSettingsException("Unable to resolve referenced window block with id " + ids[i]);
+            }
+        }
+        m_skip = settings.getLong(CFG_SKIP);
+        m_rowCount = settings.getLong(CFG_ROW_COUNT);
+        m_leadingMissing = settings.getInt(CFG_LEADING_MISSING);
+        m_trailingMissing = settings.getInt(CFG_TRAILING_MISSING);
+        m_missingKeyOffset = settings.getLong(CFG_MISSING_KEY_OFFSET);
+    }
+
+    /**
+     * Wraps this table into a {@link BufferedDataTable}.
+     *
+     * @param exec the context of the node creating the window
+     * @return the window as buffered data table
+     */
+    BufferedDataTable createTable(final ExecutionContext exec) {
+        return create(exec);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void saveToFileOverwrite(final File f, final NodeSettingsWO settings, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        settings.addIntArray(CFG_BLOCK_IDS,
+            Arrays.stream(m_blocks).mapToInt(BufferedDataTable::getBufferedTableId).toArray());
+        settings.addLong(CFG_SKIP, m_skip);
+        settings.addLong(CFG_ROW_COUNT, m_rowCount);
+        settings.addInt(CFG_LEADING_MISSING, m_leadingMissing);
+        settings.addInt(CFG_TRAILING_MISSING, m_trailingMissing);
+        settings.addLong(CFG_MISSING_KEY_OFFSET, m_missingKeyOffset);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @deprecated use {@link #size()} instead which supports more than {@link Integer#MAX_VALUE} rows
+     */
+    @Override
+    @Deprecated
+    public int getRowCount() {
+        return KnowsRowCountTable.checkRowCount(size());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long size() {
+        return m_leadingMissing + m_rowCount + m_trailingMissing;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DataTableSpec getDataTableSpec() {
+        return m_spec;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CloseableRowIterator iterator() {
+        return new WindowIterator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BufferedDataTable[] getReferenceTables() {
+        return m_blocks.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        // no own data, blocks are cleared by their owner
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void ensureOpen() {
+        // no own data
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void putIntoTableRepository(final HashMap<Integer, ContainerTable> rep) {
+        // no own data
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean removeFromTableRepository(final HashMap<Integer, ContainerTable> rep) {
+        return false;
+    }
+
+    /** Iterator returning the leading missing rows, the referenced block rows and the trailing missing rows. */
+    private final class WindowIterator extends CloseableRowIterator {
+
+        private final DataCell[] m_missingCells;
+
+        private long m_leadingLeft = m_leadingMissing;
+
+        private long m_rowsLeft = m_rowCount;
+
+        private long m_trailingLeft = m_trailingMissing;
+
+        private long m_missingIndex = m_missingKeyOffset;
+
+        private int m_nextBlock;
+
+        private CloseableRowIterator m_blockIterator;
+
+        WindowIterator() {
+            m_missingCells = new DataCell[m_spec.getNumColumns()];
+            Arrays.fill(m_missingCells, DataType.getMissingCell());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return m_leadingLeft > 0 || m_rowsLeft > 0 || m_trailingLeft > 0;
+        }
+
+        @Override
+        public DataRow next() {
+            if (m_leadingLeft > 0) {
+                m_leadingLeft--;
+                return createMissingRow();
+            }
+            if (m_rowsLeft > 0) {
+                m_rowsLeft--;
+                final DataRow row = nextBlockRow();
+                if (m_rowsLeft == 0) {
+                    m_blockIterator.close();
+                }
+                return row;
+            }
+            if (m_trailingLeft > 0) {
+                m_trailingLeft--;
+                return createMissingRow();
+            }
+            throw new NoSuchElementException("No more rows in window");
+        }
+
+        private DataRow createMissingRow() {
+            return new DefaultRow(new RowKey(MISSING_ROW_PREFIX + m_missingIndex++), m_missingCells);
+        }
+
+        private DataRow nextBlockRow() {
+            while (m_blockIterator == null || !m_blockIterator.hasNext()) {
+                if (m_nextBlock >= m_blocks.length) {
+                    throw new IllegalStateException("Window references more rows than stored in its blocks");
+                }
+                m_blockIterator = m_blocks[m_nextBlock].iterator();
+                if (m_nextBlock == 0) {
+                    for (long i = 0; i < m_skip && m_blockIterator.hasNext(); i++) {
+                        m_blockIterator.next();
+                    }
+                }
+                m_nextBlock++;
+            }
+            return m_blockIterator.next();
+        }
+
+        @Override
+        public void close() {
+            if (m_blockIterator != null) {
+                m_blockIterator.close();
+            }
+            m_leadingLeft = 0;
+            m_rowsLeft = 0;
+            m_trailingLeft = 0;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * ------------------------------------------------------------------------
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.time.node.window;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+
+/**
+ * Indexed, disk-backed row store used by the row based windowing of the {@link LoopStartWindowNodeModel}. Rows of the
+ * input are read once and spilled into blocks of fixed size; each block remembers the index of its first row in the
+ * input table. Windows are then emitted as {@link WindowRangeTable} views referencing the blocks, so that overlapping
+ * rows are neither kept on the heap nor copied once per iteration.
+ *
+ * <p>
+ * A window that starts within a block reads and discards the rows of the block in front of its start. The block size
+ * is therefore derived from the window and step size: it is at most the window size, so the discarded rows never
+ * exceed the rows of the window itself. It is at least the step size or an eighth of the window size, so that a window
+ * references only a few blocks and not more blocks are created than necessary.
+ *
+ * <p>
+ * Blocks that lie entirely before the start of the current window are released. All retained blocks are reported via
+ * {@link #getTables()} and need to be kept as internal tables between loop iterations.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class WindowRowStore {
+
+    /** Upper bound for the number of blocks the rows of a window are split into. */
+    static final int MAX_BLOCKS_PER_WINDOW = 8;
+
+    /** Upper bound for the number of rows in one block (bounds the rows skipped when opening a window). */
+    static final int MAX_BLOCK_SIZE = 1 << 16;
+
+    private final CloseableRowIterator m_input;
+
+    private final DataTableSpec m_spec;
+
+    private final int m_blockSize;
+
+    private final Deque<Block> m_blocks = new ArrayDeque<>();
+
+    // index of the row that will be returned next by the input iterator
+    private long m_nextRow;
+
+    /**
+     * @param table the table providing the rows
+     * @param windowSize the number of rows per window, used to derive the block size
+     * @param stepSize the number of rows between the starts of consecutive windows, used to derive the block size
+     */
+    WindowRowStore(final BufferedDataTable table, final int windowSize, final int stepSize) {
+        m_input = table.iterator();
+        m_spec = table.getDataTableSpec();
+        m_blockSize = getBlockSize(windowSize, stepSize);
+    }
+
+    /**
+     * @param windowSize the number of rows per window
+     * @param stepSize the number of rows between the starts of consecutive windows
+     * @return the number of rows per block, between 1 and {@link #MAX_BLOCK_SIZE}
+     */
+    static int getBlockSize(final int windowSize, final int stepSize) {
+        final int minSize = (windowSize + MAX_BLOCKS_PER_WINDOW - 1) / MAX_BLOCKS_PER_WINDOW;
+        final int size = Math.min(windowSize, Math.max(stepSize, minSize));
+        return Math.max(1, Math.min(size, MAX_BLOCK_SIZE));
+    }
+
+    /**
+     * Creates a view on the rows with index in [<code>from</code>, <code>to</code>) of the input table. The range must
+     * not start before the start of a previously created window.
+     *
+     * @param exec the context used to create the spilled blocks and the view
+     * @param from index of the first row of the window (inclusive)
+     * @param to index of the last row of the window (exclusive)
+     * @param leadingMissing number of rows consisting of missing cells that are placed in front of the rows
+     * @param trailingMissing number of rows consisting of missing cells that are placed behind the rows
+     * @param missingKeyOffset index used to create the row key of the first missing row
+     * @return the window table
+     * @throws CanceledExecutionException if canceled while reading ahead
+     */
+    BufferedDataTable createWindow(final ExecutionContext exec, final long from, final long to,
+        final int leadingMissing, final int trailingMissing, final long missingKeyOffset)
+        throws CanceledExecutionException {
+        fill(exec, from, to);
+        release(from);
+
+        final List<BufferedDataTable> blocks = new ArrayList<>();
+        long skip = 0;
+        for (Block b : m_blocks) {
+            if (b.m_start >= to) {
+                break;
+            }
+            if (blocks.isEmpty()) {
+                skip = Math.max(0, from - b.m_start);
+            }
+            blocks.add(b.m_table);
+        }
+        final long rowCount = Math.max(0, Math.min(to, m_nextRow) - from);
+        return new WindowRangeTable(m_spec, blocks.toArray(new BufferedDataTable[blocks.size()]), skip, rowCount,
+            leadingMissing, trailingMissing, missingKeyOffset).createTable(exec);
+    }
+
+    /**
+     * @return the spilled blocks that are still referenced, never <code>null</code>
+     */
+    BufferedDataTable[] getTables() {
+        return m_blocks.stream().map(b -> b.m_table).toArray(BufferedDataTable[]::new);
+    }
+
+    /**
+     * Closes the input iterator. The blocks remain valid.
+     */
+    void close() {
+        m_input.close();
+    }
+
+    /**
+     * Reads the input until all rows with index smaller than <code>to</code> are stored. Rows in front of
+     * <code>from</code> that have not yet been read are skipped as they cannot be part of any upcoming window.
+     */
+    private void fill(final ExecutionContext exec, final long from, final long to) throws CanceledExecutionException {
+        while (m_nextRow < from && m_input.hasNext()) {
+            m_input.next();
+            m_nextRow++;
+        }
+        while (m_nextRow < to && m_input.hasNext()) {
+            final long start = m_nextRow;
+            final BufferedDataContainer container = exec.createDataContainer(m_spec, true, 0);
+            for (int i = 0; i < m_blockSize && m_input.hasNext(); i++) {
+                exec.checkCanceled();
+                container.addRowToTable(m_input.next());
+                m_nextRow++;
+            }
+            container.close();
+            m_blocks.addLast(new Block(container.getTable(), start, m_nextRow));
+        }
+    }
+
+    /** Drops all blocks whose rows lie entirely in front of <code>from</code>. */
+    private void release(final long from) {
+        while (!m_blocks.isEmpty() && m_blocks.peekFirst().m_end <= from) {
+            m_blocks.removeFirst();
+        }
+    }
+
+    /** A spilled block together with its position in the input table. */
+    private static final class Block {
+
+        private final BufferedDataTable m_table;
+
+        private final long m_start;
+
+        private final long m_end;
+
+        Block(final BufferedDataTable table, final long start, final long end) {
+            m_table = table;
+            m_start = start;
+            m_end = end;
+        }
+    }
+}